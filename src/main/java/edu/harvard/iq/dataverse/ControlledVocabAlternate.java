@@ -9,6 +9,7 @@ import java.io.Serializable;
 import java.util.Objects;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -22,6 +23,7 @@ import jakarta.persistence.Table;
  * @author ellenk
  */
 @Entity
+@EntityListeners(MetadataSchemaListener.class)
 @Table(indexes = {@Index(columnList="controlledvocabularyvalue_id"), @Index(columnList="datasetfieldtype_id")})
 public class ControlledVocabAlternate implements Serializable {
     @Id
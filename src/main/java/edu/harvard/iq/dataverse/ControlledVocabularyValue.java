@@ -20,6 +20,7 @@ import java.util.MissingResourceException;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -33,6 +34,7 @@ import jakarta.persistence.Table;
  * @author skraffmiller
  */
 @Entity
+@EntityListeners(MetadataSchemaListener.class)
 @Table(indexes = {@Index(columnList="datasetfieldtype_id"), @Index(columnList="displayorder")})
 public class ControlledVocabularyValue implements Serializable  {
     
@@ -8,6 +8,7 @@ import edu.harvard.iq.dataverse.dataaccess.StorageIO;
 import edu.harvard.iq.dataverse.harvest.client.HarvestingClient;
 import edu.harvard.iq.dataverse.ingest.IngestServiceBean;
 import edu.harvard.iq.dataverse.search.SolrSearchResult;
+import edu.harvard.iq.dataverse.settings.FeatureFlags;
 import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
 import edu.harvard.iq.dataverse.storageuse.StorageQuota;
 import edu.harvard.iq.dataverse.storageuse.StorageUseServiceBean;
@@ -246,6 +247,18 @@ public class DataFileServiceBean implements java.io.Serializable {
                 .setParameter("datafileId", datafileId).getResultList();
     }
 
+    /**
+     * The storage identifiers of all the files in the version, in one query;
+     * for checking many files at once (e.g. by the filesystem import job)
+     * rather than calling {@link #findByStorageIdandDatasetVersion} for each.
+     */
+    public Set<String> findStorageIdentifiersByDatasetVersion(DatasetVersion dv) {
+        List<String> storageIdentifiers = em.createQuery("SELECT fm.dataFile.storageIdentifier FROM FileMetadata fm WHERE fm.datasetVersion.id = :datasetVersionId", String.class)
+                .setParameter("datasetVersionId", dv.getId())
+                .getResultList();
+        return new HashSet<>(storageIdentifiers);
+    }
+
     public DataFile findByStorageIdandDatasetVersion(String storageId, DatasetVersion dv) {
         try {
             Query query = em.createNativeQuery("select o.id from dvobject o, filemetadata m " +
@@ -789,6 +802,57 @@ public class DataFileServiceBean implements java.io.Serializable {
         } 
     }
     
+    /**
+     * Records, in its own transaction, that the PIDs of these files were
+     * publicized, so that a publication of the dataset that fails midway does
+     * not have to publicize them again when it is retried.
+     *
+     * @param fileIdentifiers the ids of the files, with the identifiers
+     *                        publicized
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void savePidPublicizeProgress(Long datasetId, Map<Long, String> fileIdentifiers, Timestamp publicizeTime) {
+        List<Map.Entry<Long, String>> entries = new ArrayList<>(fileIdentifiers.entrySet());
+        for (int i = 0; i < entries.size(); i += 1000) {
+            List<Map.Entry<Long, String>> batch = entries.subList(i, Math.min(i + 1000, entries.size()));
+            StringBuilder values = new StringBuilder();
+            for (int j = 0; j < batch.size(); j++) {
+                values.append(j > 0 ? ", " : "").append("(").append(batch.get(j).getKey()).append(", ").append(datasetId)
+                        .append(", ?").append(j + 2).append(", ?1)");
+            }
+            Query query = em.createNativeQuery("INSERT INTO pidpublicizeprogress (dvobject_id, dataset_id, identifier, publicizetime) VALUES " + values
+                    + " ON CONFLICT (dvobject_id) DO UPDATE SET identifier = EXCLUDED.identifier, publicizetime = EXCLUDED.publicizetime")
+                    .setParameter(1, publicizeTime);
+            for (int j = 0; j < batch.size(); j++) {
+                query.setParameter(j + 2, batch.get(j).getValue());
+            }
+            query.executeUpdate();
+        }
+    }
+
+    /**
+     * @return the ids of the files of the dataset whose PIDs were publicized,
+     * by a publication that did not complete, after the given time; with the
+     * identifiers publicized.
+     */
+    public Map<Long, String> findPidPublicizeProgress(Long datasetId, Date since) {
+        List<Object[]> rows = em.createNativeQuery("SELECT dvobject_id, identifier FROM pidpublicizeprogress WHERE dataset_id = ?1 AND publicizetime > ?2")
+                .setParameter(1, datasetId)
+                .setParameter(2, new Timestamp(since.getTime()))
+                .getResultList();
+        Map<Long, String> fileIdentifiers = new HashMap<>();
+        for (Object[] row : rows) {
+            fileIdentifiers.put(((Number) row[0]).longValue(), (String) row[1]);
+        }
+        return fileIdentifiers;
+    }
+
+    public void deletePidPublicizeProgress(Long datasetId) {
+        em.createNativeQuery("DELETE FROM pidpublicizeprogress WHERE dataset_id = ?1")
+                .setParameter(1, datasetId)
+                .executeUpdate();
+    }
+
     private void msg(String m){
         System.out.println(m);
     }
@@ -967,6 +1031,11 @@ public class DataFileServiceBean implements java.io.Serializable {
             this.save(file);
             return true;
         }
+        if (FeatureFlags.ASYNC_THUMBNAIL_GENERATION.enabled()) {
+            // The thumbnail may just not be rendered yet; the background 
+            // generation will set the flags once it's done (or has failed)
+            return false;
+        }
         file.setPreviewImageFail(true);
         file.setPreviewImageAvailable(false);
         this.save(file);
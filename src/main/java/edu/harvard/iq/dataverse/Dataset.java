@@ -19,6 +19,7 @@ import java.util.Objects;
 import java.util.Set;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
@@ -88,6 +89,7 @@ import edu.harvard.iq.dataverse.util.SystemConfig;
         }
 )
 @Entity
+@EntityListeners(DvObjectTreeListener.class)
 @Table(indexes = {
     @Index(columnList = "guestbook_id"),
     @Index(columnList = "thumbnailfile_id")})
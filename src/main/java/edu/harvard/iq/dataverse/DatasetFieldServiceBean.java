@@ -1,6 +1,5 @@
 package edu.harvard.iq.dataverse;
 
-import java.io.IOException;
 import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -14,13 +13,16 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
 
+import jakarta.annotation.Resource;
 import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.json.Json;
 import jakarta.json.JsonArray;
@@ -37,19 +39,12 @@ import jakarta.persistence.NoResultException;
 import jakarta.persistence.NonUniqueResultException;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.PersistenceException;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import jakarta.persistence.TypedQuery;
 
-import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.httpclient.HttpException;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.HttpResponse;
-import org.apache.http.HttpResponseInterceptor;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.protocol.HttpContext;
-import org.apache.http.util.EntityUtils;
 import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
 
 /**
@@ -68,25 +63,27 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
     @EJB
     SettingsServiceBean settingsService;
 
+    @EJB
+    MetadataSchemaServiceBean metadataSchemaService;
+
+    @Inject
+    ExternalVocabularyValueCache externalVocabularyValueCache;
+
+    @Inject
+    ExternalVocabularyTermRetriever externalVocabularyTermRetriever;
+
+    // (for the values read again in the background, outside of this request)
+    @EJB
+    DatasetFieldServiceBean self;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    // (the most term uris looked up in one query)
+    private static final int TERM_QUERY_BATCH_SIZE = 500;
+
     private static final String NAME_QUERY = "SELECT dsfType from DatasetFieldType dsfType where dsfType.name= :fieldName";
     
-    /*
-     * External vocabulary support: These fields cache information from the CVocConf
-     * setting which controls how Dataverse connects specific metadata block fields
-     * to third-party Javascripts and external vocabulary services to allow users to
-     * input values from a vocabulary(ies) those services manage.
-     */
-    
-    //Configuration json keyed by the id of the 'parent' DatasetFieldType 
-    Map <Long, JsonObject> cvocMap = null;
-    
-    //Configuration json keyed by the id of the child DatasetFieldType specified as the 'term-uri-field'
-    //Note that for primitive fields, the prent and term-uri-field are the same and these maps have the same entry
-    Map <Long, JsonObject> cvocMapByTermUri = null;
-    
-    //The hash of the existing CVocConf setting. Used to determine when the setting has changed and it needs to be re-parsed to recreate the cvocMaps
-    String oldHash = null;
-
     public List<DatasetFieldType> findAllAdvancedSearchFieldTypes() {
         return em.createQuery("select object(o) from DatasetFieldType as o where o.advancedSearchFieldType = true and o.title != '' order by o.id", DatasetFieldType.class).getResultList();
     }
@@ -118,29 +115,41 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
         return em.find(DatasetFieldType.class, pk);
     }
 
+    /**
+     * Gets the dataset field type from the current {@link MetadataSchema}.
+     * The field type is shared, and must not be modified; see
+     * {@link #findManagedByName(java.lang.String)}.
+     *
+     * @param name the name of the field type
+     * @return the field type, or {@code null}
+     */
     public DatasetFieldType findByName(String name) {
-        try {
-            return  (DatasetFieldType) em.createQuery(NAME_QUERY).setParameter("fieldName", name).getSingleResult();
-        } catch (NoResultException e) {
-            return null;
-        }
-       
+        return metadataSchemaService.getSchema().getFieldType(name);
     }
 
     /**
      * Gets the dataset field type, or returns {@code null}. Does not throw
      * exceptions.
      *
-     * @param name the name do the field type
+     * @param name the name of the field type
      * @return the field type, or {@code null}
      * @see #findByName(java.lang.String)
      */
     public DatasetFieldType findByNameOpt(String name) {
+        return findByName(name);
+    }
+
+    /**
+     * Gets the dataset field type from the database, to be modified (e.g. when
+     * a metadata block is loaded).
+     *
+     * @param name the name of the field type
+     * @return the field type, or {@code null}
+     */
+    public DatasetFieldType findManagedByName(String name) {
         try {
-            return em.createNamedQuery("DatasetFieldType.findByName", DatasetFieldType.class)
-                    .setParameter("name", name)
-                    .getSingleResult();
-        } catch (NoResultException nre) {
+            return  (DatasetFieldType) em.createQuery(NAME_QUERY).setParameter("fieldName", name).getSingleResult();
+        } catch (NoResultException e) {
             return null;
         }
     }
@@ -175,9 +184,17 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
      * the provided DatasetFieldType.
      * @param lenient should we accept alternate spellings for value from mapping table
      *
-     * @return The ControlledVocabularyValue found or null.
+     * @return The ControlledVocabularyValue found (shared, see {@link MetadataSchema}) or null.
      */
     public ControlledVocabularyValue findControlledVocabularyValueByDatasetFieldTypeAndStrValue(DatasetFieldType dsft, String strValue, boolean lenient) {
+        return metadataSchemaService.getSchema().getControlledVocabularyValue(dsft, strValue, lenient);
+    }
+
+    /**
+     * Same as {@link #findControlledVocabularyValueByDatasetFieldTypeAndStrValue(DatasetFieldType, String, boolean)},
+     * but from the database, to be modified (e.g. when a metadata block is loaded).
+     */
+    public ControlledVocabularyValue findManagedControlledVocabularyValueByDatasetFieldTypeAndStrValue(DatasetFieldType dsft, String strValue, boolean lenient) {
         TypedQuery<ControlledVocabularyValue> typedQuery = em.createQuery("SELECT OBJECT(o) FROM ControlledVocabularyValue AS o WHERE o.strValue = :strvalue AND o.datasetFieldType = :dsft", ControlledVocabularyValue.class);       
         typedQuery.setParameter("strvalue", strValue);
         typedQuery.setParameter("dsft", dsft);
@@ -204,6 +221,10 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
     }
     
     public ControlledVocabAlternate findControlledVocabAlternateByControlledVocabularyValueAndStrValue(ControlledVocabularyValue cvv, String strValue){
+        return metadataSchemaService.getSchema().getControlledVocabAlternate(cvv, strValue);
+    }
+
+    public ControlledVocabAlternate findManagedControlledVocabAlternateByControlledVocabularyValueAndStrValue(ControlledVocabularyValue cvv, String strValue){
         TypedQuery<ControlledVocabAlternate> typedQuery = em.createQuery("SELECT OBJECT(o) FROM ControlledVocabAlternate AS o WHERE o.strValue = :strvalue AND o.controlledVocabularyValue = :cvv", ControlledVocabAlternate.class);
         typedQuery.setParameter("strvalue", strValue);
         typedQuery.setParameter("cvv", cvv);
@@ -277,69 +298,8 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
      * @return - a map of JsonObjects containing configuration information keyed by the DatasetFieldType id (Long)
      */
     public Map<Long, JsonObject> getCVocConf(boolean byTermUriField){
-        
         //ToDo - change to an API call to be able to provide feedback if the json is invalid?
-        String cvocSetting = settingsService.getValueForKey(SettingsServiceBean.Key.CVocConf);
-        if (cvocSetting == null || cvocSetting.isEmpty()) {
-            oldHash=null;
-            return new HashMap<>();
-        }
-        String newHash = DigestUtils.md5Hex(cvocSetting);
-        if (newHash.equals(oldHash)) {
-            return byTermUriField ? cvocMapByTermUri : cvocMap;
-        } 
-        oldHash=newHash;
-        cvocMap=new HashMap<>();
-        cvocMapByTermUri=new HashMap<>();
-        
-        try (JsonReader jsonReader = Json.createReader(new StringReader(settingsService.getValueForKey(SettingsServiceBean.Key.CVocConf)))) {
-            JsonArray cvocConfJsonArray = jsonReader.readArray();
-            for (JsonObject jo : cvocConfJsonArray.getValuesAs(JsonObject.class)) {
-                DatasetFieldType dft = findByNameOpt(jo.getString("field-name"));
-                if (dft == null) {
-                    logger.warning("Ignoring External Vocabulary setting for non-existent field: "
-                      + jo.getString("field-name"));
-                } else {
-                    cvocMap.put(dft.getId(), jo);
-                    if (jo.containsKey("term-uri-field")) {
-                        String termUriField = jo.getString("term-uri-field");
-                        if (!dft.isHasChildren()) {
-                            if (termUriField.equals(dft.getName())) {
-                                logger.fine("Found primitive field for term uri : " + dft.getName() + ": " + dft.getId());
-                                cvocMapByTermUri.put(dft.getId(), jo);
-                            }
-                        } else {
-                            DatasetFieldType childdft = findByNameOpt(jo.getString("term-uri-field"));
-                            logger.fine("Found term child field: " + childdft.getName()+ ": " + childdft.getId());
-                            cvocMapByTermUri.put(childdft.getId(), jo);
-                            if (childdft.getParentDatasetFieldType() != dft) {
-                                logger.warning("Term URI field (" + childdft.getDisplayName() + ") not a child of parent: "
-                                  + dft.getDisplayName());
-                            }
-                        }
-                        if (dft == null) {
-                            logger.warning("Ignoring External Vocabulary setting for non-existent child field: "
-                              + jo.getString("term-uri-field"));
-                        }
-                    }
-                    if (jo.containsKey("managed-fields")) {
-                        JsonObject managedFields = jo.getJsonObject("managed-fields");
-                        for (String s : managedFields.keySet()) {
-                            dft = findByNameOpt(managedFields.getString(s));
-                            if (dft == null) {
-                                logger.warning("Ignoring External Vocabulary setting for non-existent child field: "
-                                        + managedFields.getString(s));
-                            } else {
-                                logger.fine("Found: " + dft.getName());
-                            }
-                        }
-                    }
-                }
-            }
-            } catch(JsonException e) {
-                logger.warning("Ignoring External Vocabulary setting due to parsing error: " + e.getLocalizedMessage());
-            }
-        return byTermUriField ? cvocMapByTermUri : cvocMap;
+        return metadataSchemaService.getSchema().getCVocConf(byTermUriField);
     }
 
     /**
@@ -347,30 +307,44 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
      * @param df - the primitive/parent compound field containing a newly saved value
      */
     public void registerExternalVocabValues(DatasetField df) {
-        DatasetFieldType dft = df.getDatasetFieldType();
-        logger.fine("Registering for field: " + dft.getName());
-        JsonObject cvocEntry = getCVocConf(true).get(dft.getId());
-        if (dft.isPrimitive()) {
-            List<DatasetField> siblingsDatasetFields = new ArrayList<>();
-            if(dft.getParentDatasetFieldType()!=null) {
-                siblingsDatasetFields = df.getParentDatasetFieldCompoundValue().getChildDatasetFields();
-            }
-            for (DatasetFieldValue dfv : df.getDatasetFieldValues()) {
-                registerExternalTerm(cvocEntry, dfv.getValue(), siblingsDatasetFields);
-            }
-        } else {
-            if (df.getDatasetFieldType().isCompound()) {
-                DatasetFieldType termdft = findByNameOpt(cvocEntry.getString("term-uri-field"));
-                for (DatasetFieldCompoundValue cv : df.getDatasetFieldCompoundValues()) {
-                    for (DatasetField cdf : cv.getChildDatasetFields()) {
-                        logger.fine("Found term uri field type id: " + cdf.getDatasetFieldType().getId());
-                        if (cdf.getDatasetFieldType().equals(termdft)) {
-                            registerExternalTerm(cvocEntry, cdf.getValue(), cv.getChildDatasetFields());
+        registerExternalVocabValues(List.of(df));
+    }
+
+    /**
+     * Adds information about the external vocabulary terms used in these DatasetFields to the ExternalVocabularyValue table,
+     * for the ones that aren't there already. The terms are retrieved from their services concurrently (see
+     * {@link ExternalVocabularyTermRetriever}).
+     * @param datasetFields - the primitive/parent compound fields containing newly saved values
+     */
+    public void registerExternalVocabValues(List<DatasetField> datasetFields) {
+        Map<String, ExternalVocabularyTermRetriever.Retrieval> toRetrieve = new LinkedHashMap<>();
+        for (DatasetField df : datasetFields) {
+            DatasetFieldType dft = df.getDatasetFieldType();
+            logger.fine("Registering for field: " + dft.getName());
+            JsonObject cvocEntry = getCVocConf(true).get(dft.getId());
+            if (dft.isPrimitive()) {
+                List<DatasetField> siblingsDatasetFields = new ArrayList<>();
+                if(dft.getParentDatasetFieldType()!=null) {
+                    siblingsDatasetFields = df.getParentDatasetFieldCompoundValue().getChildDatasetFields();
+                }
+                for (DatasetFieldValue dfv : df.getDatasetFieldValues()) {
+                    addExternalTerm(toRetrieve, cvocEntry, dfv.getValue(), siblingsDatasetFields);
+                }
+            } else {
+                if (df.getDatasetFieldType().isCompound()) {
+                    DatasetFieldType termdft = findByNameOpt(cvocEntry.getString("term-uri-field"));
+                    for (DatasetFieldCompoundValue cv : df.getDatasetFieldCompoundValues()) {
+                        for (DatasetField cdf : cv.getChildDatasetFields()) {
+                            logger.fine("Found term uri field type id: " + cdf.getDatasetFieldType().getId());
+                            if (cdf.getDatasetFieldType().equals(termdft)) {
+                                addExternalTerm(toRetrieve, cvocEntry, cdf.getValue(), cv.getChildDatasetFields());
+                            }
                         }
                     }
                 }
             }
         }
+        registerExternalTerms(toRetrieve);
     }
 
     /**
@@ -455,11 +429,20 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
     }
 
     /**
-     * Perform a query to retrieve a cached value from the externalvocabularvalue table
+     * Retrieve a cached value from the externalvocabularvalue table (kept in memory by {@link ExternalVocabularyValueCache})
      * @param termUri
      * @return - the entry's value as a JsonObject
      */
     public JsonObject getExternalVocabularyValue(String termUri) {
+        return externalVocabularyValueCache.get(termUri, self::findExternalVocabularyValue);
+    }
+
+    /**
+     * Perform a query to retrieve a cached value from the externalvocabularvalue table
+     * @param termUri
+     * @return - the entry's value as a JsonObject
+     */
+    public JsonObject findExternalVocabularyValue(String termUri) {
         try {
             ExternalVocabularyValue evv = em
                     .createQuery("select object(o) from ExternalVocabularyValue as o where o.uri=:uri",
@@ -485,6 +468,21 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
      * @param relatedDatasetFields  - siblings or childs of the term
      */
     public void registerExternalTerm(JsonObject cvocEntry, String term, List<DatasetField> relatedDatasetFields) {
+        Map<String, ExternalVocabularyTermRetriever.Retrieval> toRetrieve = new LinkedHashMap<>();
+        addExternalTerm(toRetrieve, cvocEntry, term, relatedDatasetFields);
+        registerExternalTerms(toRetrieve);
+    }
+
+    /**
+     * Adds the term to the ones to retrieve, with the retrieval URI of its service, if it is an external term
+     *
+     * @param toRetrieve            - the terms to retrieve, by term uri
+     * @param cvocEntry             - the configuration for the DatasetFieldType associated with this term
+     * @param term                  - the term uri as a string
+     * @param relatedDatasetFields  - siblings or childs of the term
+     */
+    private void addExternalTerm(Map<String, ExternalVocabularyTermRetriever.Retrieval> toRetrieve, JsonObject cvocEntry,
+            String term, List<DatasetField> relatedDatasetFields) {
         String retrievalUri = cvocEntry.getString("retrieval-uri");
         String termUriFieldName = cvocEntry.getString("term-uri-field");
         String prefix = cvocEntry.getString("prefix", null);
@@ -492,6 +490,9 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
             logger.fine("Ignoring blank term");
             return;
         }
+        if (toRetrieve.containsKey(term)) {
+            return;
+        }
 
         boolean isExternal = false;
         JsonObject vocabs = cvocEntry.getJsonObject("vocabs");
@@ -512,86 +513,119 @@ public class DatasetFieldServiceBean implements java.io.Serializable {
         try {
             //Assure the term is in URI form - should be if the uriSpace entry was correct
             new URI(term);
-            ExternalVocabularyValue evv = null;
-            try {
-                evv = em.createQuery("select object(o) from ExternalVocabularyValue as o where o.uri=:uri",
-                        ExternalVocabularyValue.class).setParameter("uri", term).getSingleResult();
-            } catch (NoResultException nre) {
+        } catch (URISyntaxException e) {
+            logger.fine("Term is not a URI: " + term);
+            return;
+        }
+        String adjustedTerm = (prefix==null)? term: term.replace(prefix, "");
+
+        try {
+            retrievalUri = tryToReplaceRetrievalUriParam(retrievalUri, "0", adjustedTerm);
+            retrievalUri = tryToReplaceRetrievalUriParam(retrievalUri, termUriFieldName, adjustedTerm);
+            for (DatasetField f : relatedDatasetFields) {
+                retrievalUri = tryToReplaceRetrievalUriParam(retrievalUri, f.getDatasetFieldType().getName(), f.getValue());
+            }
+        } catch (InvalidParameterException e) {
+            logger.warning("InvalidParameterException in tryReplaceRetrievalUriParam : " + e.getMessage());
+            return;
+        }
+        if (retrievalUri.contains("{")) {
+            logger.severe("Retrieval URI still contains unreplaced parameter :" + retrievalUri);
+            return;
+        }
+        toRetrieve.put(term, new ExternalVocabularyTermRetriever.Retrieval(cvocEntry, term, retrievalUri));
+    }
+
+    /**
+     * Retrieves the terms that aren't in the ExternalVocabularyValue table yet (all at once, except the ones whose
+     * retrieval failed recently), and adds them to it
+     *
+     * @param toRetrieve            - the terms to retrieve, by term uri
+     */
+    private void registerExternalTerms(Map<String, ExternalVocabularyTermRetriever.Retrieval> toRetrieve) {
+        if (toRetrieve.isEmpty()) {
+            return;
+        }
+        Map<String, ExternalVocabularyValue> existing = new HashMap<>();
+        List<String> uris = new ArrayList<>(toRetrieve.keySet());
+        for (int i = 0; i < uris.size(); i += TERM_QUERY_BATCH_SIZE) {
+            for (ExternalVocabularyValue evv : em.createQuery("select object(o) from ExternalVocabularyValue as o where o.uri in :uris",
+                    ExternalVocabularyValue.class).setParameter("uris", uris.subList(i, Math.min(uris.size(), i + TERM_QUERY_BATCH_SIZE))).getResultList()) {
+                existing.put(evv.getUri(), evv);
+            }
+        }
+        List<ExternalVocabularyTermRetriever.Retrieval> retrievals = new ArrayList<>();
+        for (ExternalVocabularyTermRetriever.Retrieval retrieval : toRetrieve.values()) {
+            ExternalVocabularyValue evv = existing.get(retrieval.getTerm());
+            if (evv != null && evv.getValue() != null) {
+                continue;
+            }
+            if (externalVocabularyValueCache.isRetrievalFailing(retrieval.getTerm())) {
+                logger.fine("Not retrieving " + retrieval.getTerm() + " again yet; its last retrieval failed");
+                continue;
+            }
+            logger.fine("Didn't find " + retrieval.getTerm() + ", calling " + retrieval.getRetrievalUri());
+            retrievals.add(retrieval);
+        }
+
+        externalVocabularyTermRetriever.retrieve(retrievals);
+
+        Map<String, JsonObject> written = new HashMap<>();
+        for (ExternalVocabularyTermRetriever.Retrieval retrieval : retrievals) {
+            String term = retrieval.getTerm();
+            if (retrieval.getResponse() == null) {
+                externalVocabularyValueCache.retrievalFailed(term);
+                continue;
+            }
+            ExternalVocabularyValue evv = existing.get(term);
+            if (evv == null) {
                 evv = new ExternalVocabularyValue(term, null);
             }
-            if (evv.getValue() == null) {
-                String adjustedTerm = (prefix==null)? term: term.replace(prefix, "");
+            try {
+                JsonObject filtered = filterResponse(retrieval.getCvocEntry(), retrieval.getResponse(), term);
+                String dataObj = filtered.toString();
+                evv.setValue(dataObj);
+                evv.setLastUpdateDate(Timestamp.from(Instant.now()));
+                logger.fine("JsonObject: " + dataObj);
+                em.merge(evv);
+                em.flush();
+                written.put(term, filtered);
+                logger.fine("Wrote value for term: " + term);
+            } catch (JsonException je) {
+                logger.severe("Error retrieving: " + retrieval.getRetrievalUri() + " : " + je.getMessage());
+                externalVocabularyValueCache.retrievalFailed(term);
+            } catch (PersistenceException e) {
+                logger.fine("Problem persisting: " + retrieval.getRetrievalUri() + " : " + e.getMessage());
+            }
+        }
+        cacheWhenCommitted(written);
+    }
 
-                try {
-                    retrievalUri = tryToReplaceRetrievalUriParam(retrievalUri, "0", adjustedTerm);
-                    retrievalUri = tryToReplaceRetrievalUriParam(retrievalUri, termUriFieldName, adjustedTerm);
-                    for (DatasetField f : relatedDatasetFields) {
-                        retrievalUri = tryToReplaceRetrievalUriParam(retrievalUri, f.getDatasetFieldType().getName(), f.getValue());
-                    }
-                } catch (InvalidParameterException e) {
-                    logger.warning("InvalidParameterException in tryReplaceRetrievalUriParam : " + e.getMessage());
-                    return;
-                }
-                if (retrievalUri.contains("{")) {
-                    logger.severe("Retrieval URI still contains unreplaced parameter :" + retrievalUri);
-                    return;
-                }
+    /**
+     * Caches the values written to the ExternalVocabularyValue table, once
+     * (and if) the current transaction commits; right away if there is none.
+     */
+    private void cacheWhenCommitted(Map<String, JsonObject> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        if (transactionSynchronizationRegistry.getTransactionKey() == null) {
+            values.forEach(externalVocabularyValueCache::put);
+            return;
+        }
+        ExternalVocabularyValueCache cache = externalVocabularyValueCache;
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
 
-                logger.fine("Didn't find " + term + ", calling " + retrievalUri);
-                try (CloseableHttpClient httpClient = HttpClients.custom()
-                        .addInterceptorLast(new HttpResponseInterceptor() {
-                            @Override
-                            public void process(HttpResponse response, HttpContext context) throws HttpException, IOException {
-                                int statusCode = response.getStatusLine().getStatusCode();
-                                if (statusCode == 504) {
-                                    //Throwing an exception triggers the retry handler
-                                    throw new IOException("Retry due to 504 response");
-                                }
-                            }
-                        })
-                        //The retry handler will also do retries for network errors/other things that cause an IOException
-                        .setRetryHandler(new DefaultHttpRequestRetryHandler(3, false))
-                        .build()) {
-                    HttpGet httpGet = new HttpGet(retrievalUri);
-                    //application/json+ld is for backward compatibility
-                    httpGet.addHeader("Accept", "application/ld+json, application/json+ld, application/json");
-                    //Adding others custom HTTP request headers if exists
-                    final JsonObject headers = cvocEntry.getJsonObject("headers");
-                    if (headers != null) {
-                        final Set<String> headerKeys = headers.keySet();
-                        for (final String hKey: headerKeys) {
-                            httpGet.addHeader(hKey, headers.getString(hKey));
-                        }
-                    }
-                    HttpResponse response = httpClient.execute(httpGet);
-                    String data = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
-                    int statusCode = response.getStatusLine().getStatusCode();
-                    if (statusCode == 200) {
-                        logger.fine("Returned data: " + data);
-                        try (JsonReader jsonReader = Json.createReader(new StringReader(data))) {
-                            String dataObj = filterResponse(cvocEntry, jsonReader.readObject(), term).toString();
-                            evv.setValue(dataObj);
-                            evv.setLastUpdateDate(Timestamp.from(Instant.now()));
-                            logger.fine("JsonObject: " + dataObj);
-                            em.merge(evv);
-                            em.flush();
-                            logger.fine("Wrote value for term: " + term);
-                        } catch (JsonException je) {
-                            logger.severe("Error retrieving: " + retrievalUri + " : " + je.getMessage());
-                        } catch (PersistenceException e) {
-                            logger.fine("Problem persisting: " + retrievalUri + " : " + e.getMessage());
-                        }
-                    } else {
-                        logger.severe("Received response code : " + statusCode + " when retrieving " + retrievalUri
-                                + " : " + data);
-                    }
-                } catch (IOException ioe) {
-                    logger.severe("IOException when retrieving url: " + retrievalUri + " : " + ioe.getMessage());
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    values.forEach(cache::put);
                 }
             }
-        } catch (URISyntaxException e) {
-            logger.fine("Term is not a URI: " + term);
-        }
+        });
     }
 
     private String tryToReplaceRetrievalUriParam(String retrievalUri, String paramName, String value) throws InvalidParameterException {
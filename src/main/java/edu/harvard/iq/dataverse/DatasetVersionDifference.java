@@ -3,11 +3,16 @@ package edu.harvard.iq.dataverse;
 import edu.harvard.iq.dataverse.datavariable.DataVariable;
 import edu.harvard.iq.dataverse.datavariable.VarGroup;
 import edu.harvard.iq.dataverse.datavariable.VariableMetadataUtil;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
 import edu.harvard.iq.dataverse.util.StringUtil;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -26,6 +31,12 @@ import java.util.LinkedList;
 public final class DatasetVersionDifference {
     private static final Logger logger = Logger.getLogger(DatasetVersionDifference.class.getCanonicalName());
 
+    /**
+     * Default cap on the number of detailed file difference entries, see
+     * {@link #getDatasetFilesDiffList()}.
+     */
+    public static final int DEFAULT_MAX_FILE_DIFFERENCES = 1000;
+
     private DatasetVersion newVersion;
     private DatasetVersion originalVersion;
     private List<List<DatasetField[]>> detailDataByBlock = new ArrayList<>();
@@ -39,6 +50,8 @@ public final class DatasetVersionDifference {
     private List<String[]> changedTermsAccess = new ArrayList<>();
     private List<Object[]> summaryDataForNote = new ArrayList<>();
     private List<Object[]> blockDataForNote = new ArrayList<>();
+    private final int maxFileDifferences;
+    private int omittedFileDifferences = 0;
 
     private VariableMetadataUtil variableMetadataUtil;
     
@@ -53,25 +66,39 @@ public final class DatasetVersionDifference {
     }
 
     public DatasetVersionDifference(DatasetVersion newVersion, DatasetVersion originalVersion) {
+        this(newVersion, originalVersion, JvmSettings.UI_MAX_FILE_DIFFERENCES.lookupOptional(Integer.class).orElse(DEFAULT_MAX_FILE_DIFFERENCES));
+    }
+
+    /**
+     * The summary of the differences (the notes, and the lists of added,
+     * removed, changed and replaced files) is computed right away; the
+     * detailed, per file differences only once they are asked for, so that
+     * summary-only views of large versions don't pay for them.
+     *
+     * @param maxFileDifferences the maximum number of detailed file difference
+     * entries; the ones beyond that are only counted, see
+     * {@link #getOmittedFileDifferences()}.
+     */
+    public DatasetVersionDifference(DatasetVersion newVersion, DatasetVersion originalVersion, int maxFileDifferences) {
         setOriginalVersion(originalVersion);
         setNewVersion(newVersion);
+        this.maxFileDifferences = maxFileDifferences;
         //Compare Data
+        // (joining the fields of the two versions on their type through a
+        // map, rather than searching the other version for every field)
+        Map<DatasetFieldType, DatasetField> newFieldsByType = mapByFieldType(newVersion.getDatasetFields());
+        Map<DatasetFieldType, DatasetField> originalFieldsByType = mapByFieldType(originalVersion.getDatasetFields());
         for (DatasetField dsfo : originalVersion.getDatasetFields()) {
-            boolean deleted = true;
-            for (DatasetField dsfn : newVersion.getDatasetFields()) {
-                if (dsfo.getDatasetFieldType().equals(dsfn.getDatasetFieldType())) {
-                    deleted = false;
-                    if (dsfo.getDatasetFieldType().isPrimitive()) {
-                        if (!dsfo.getDatasetFieldType().getFieldType().equals("email")) {
-                            compareValues(dsfo, dsfn, false);
-                        }
-                    } else {
-                        compareValues(dsfo, dsfn, true);
+            DatasetField dsfn = newFieldsByType.get(dsfo.getDatasetFieldType());
+            if (dsfn != null) {
+                if (dsfo.getDatasetFieldType().isPrimitive()) {
+                    if (!dsfo.getDatasetFieldType().getFieldType().equals("email")) {
+                        compareValues(dsfo, dsfn, false);
                     }
-                    break; //if found go to next dataset field
+                } else {
+                    compareValues(dsfo, dsfn, true);
                 }
-            }
-            if (deleted && !dsfo.isEmpty()) {
+            } else if (!dsfo.isEmpty()) {
                 if (dsfo.getDatasetFieldType().isPrimitive()) {
                     if (dsfo.getDatasetFieldType().isControlledVocabulary()) {
                         updateBlockSummary(dsfo, 0, dsfo.getControlledVocabularyValues().size(), 0);
@@ -85,15 +112,7 @@ public final class DatasetVersionDifference {
             }
         }
         for (DatasetField dsfn : newVersion.getDatasetFields()) {
-            boolean added = true;
-            for (DatasetField dsfo : originalVersion.getDatasetFields()) {
-                if (dsfo.getDatasetFieldType().equals(dsfn.getDatasetFieldType())) {
-                    added = false;
-                    break;
-                }
-            }
-
-            if (added && !dsfn.isEmpty()) {
+            if (!originalFieldsByType.containsKey(dsfn.getDatasetFieldType()) && !dsfn.isEmpty()) {
                 if (dsfn.getDatasetFieldType().isPrimitive()){
                    if (dsfn.getDatasetFieldType().isControlledVocabulary()) {
                        updateBlockSummary(dsfn, dsfn.getControlledVocabularyValues().size(), 0, 0);
@@ -107,50 +126,32 @@ public final class DatasetVersionDifference {
             }
         }
         
-        // TODO: ? 
-        // It looks like we are going through the filemetadatas in both versions, 
-        // *sequentially* (i.e. at the cost of O(N*M)), to select the lists of 
-        // changed, deleted and added files between the 2 versions... But why 
-        // are we doing it, if we are doing virtually the same thing inside 
-        // the initDatasetFilesDifferenceList(), below - but in a more efficient 
-        // way (sorting both lists, then goint through them in parallel, at the 
-        // cost of (N+M) max.? 
-        // -- 4.6 Nov. 2016
-        
+        // The files of the two versions are joined on the DataFile id through
+        // a map, at the cost of O(N+M) rather than the O(N*M) of searching
+        // the other version for every file:
+        Map<Long, FileMetadata> newFileMetadatasByFileId = mapByDataFileId(newVersion.getFileMetadatas());
+        Map<Long, FileMetadata> originalFileMetadatasByFileId = mapByDataFileId(originalVersion.getFileMetadatas());
         for (FileMetadata fmdo : originalVersion.getFileMetadatas()) {
-            boolean deleted = true;
-            for (FileMetadata fmdn : newVersion.getFileMetadatas()) {
-                if (fmdo.getDataFile().equals(fmdn.getDataFile())) {
-                    deleted = false;
-                    if (!compareFileMetadatas(fmdo, fmdn)) {
-                        changedFileMetadata.add(fmdo);
-                        changedFileMetadata.add(fmdn);
-                    }
-                    if (!variableMetadataUtil.compareVariableMetadata(fmdo,fmdn) || !compareVarGroup(fmdo, fmdn)) {
-                        changedVariableMetadata.add(fmdo);
-                        changedVariableMetadata.add(fmdn);
-                    }
-                    break;
-                }
-            }
-            if (deleted) {
+            FileMetadata fmdn = newFileMetadatasByFileId.get(fmdo.getDataFile().getId());
+            if (fmdn == null) {
                 removedFiles.add(fmdo);
+                continue;
+            }
+            if (!compareFileMetadatas(fmdo, fmdn)) {
+                changedFileMetadata.add(fmdo);
+                changedFileMetadata.add(fmdn);
+            }
+            if (!variableMetadataUtil.compareVariableMetadata(fmdo,fmdn) || !compareVarGroup(fmdo, fmdn)) {
+                changedVariableMetadata.add(fmdo);
+                changedVariableMetadata.add(fmdn);
             }
         }
         for (FileMetadata fmdn : newVersion.getFileMetadatas()) {
-            boolean added = true;
-            for (FileMetadata fmdo : originalVersion.getFileMetadatas()) {
-                if (fmdo.getDataFile().equals(fmdn.getDataFile())) {
-                    added = false;
-                    break;
-                }
-            }
-            if (added) {
+            if (!originalFileMetadatasByFileId.containsKey(fmdn.getDataFile().getId())) {
                 addedFiles.add(fmdn);
             }
         }        
         getReplacedFiles();
-        initDatasetFilesDifferencesList();
 
         //Sort within blocks by datasetfieldtype dispaly order then....
         //sort via metadatablock order - citation first...
@@ -177,34 +178,43 @@ public final class DatasetVersionDifference {
         if (addedFiles.isEmpty() || removedFiles.isEmpty()) {
             return;
         }
-        List<FileMetadata> addedToReplaced = new ArrayList<>();
-        List<FileMetadata> removedToReplaced = new ArrayList<>();
+        Map<Long, FileMetadata> removedByFileId = mapByDataFileId(removedFiles);
+        Set<FileMetadata> addedToReplaced = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<FileMetadata> removedToReplaced = Collections.newSetFromMap(new IdentityHashMap<>());
         for (FileMetadata added : addedFiles) {
-            DataFile addedDF = added.getDataFile();
-            Long replacedId = addedDF.getPreviousDataFileId();
-            if (added.getDataFile().getPreviousDataFileId() != null){
-            }
-            for (FileMetadata removed : removedFiles) {
-                DataFile test = removed.getDataFile();
-                if (test.getId().equals(replacedId)) {                  
-                    addedToReplaced.add(added);
-                    removedToReplaced.add(removed);
-                    FileMetadata[] replacedArray = new FileMetadata[2];
-                    replacedArray[0] = removed;
-                    replacedArray[1] = added;
-                    replacedFiles.add(replacedArray);
-                }
-            }
+            Long replacedId = added.getDataFile().getPreviousDataFileId();
+            FileMetadata removed = replacedId != null ? removedByFileId.get(replacedId) : null;
+            if (removed != null) {
+                addedToReplaced.add(added);
+                removedToReplaced.add(removed);
+                FileMetadata[] replacedArray = new FileMetadata[2];
+                replacedArray[0] = removed;
+                replacedArray[1] = added;
+                replacedFiles.add(replacedArray);
+            }
+        }
+        // (by identity: the FileMetadatas of new files have no ids yet, and
+        // would all be equal to each other)
+        if (!addedToReplaced.isEmpty()) {
+            addedFiles.removeIf(addedToReplaced::contains);
+            removedFiles.removeIf(removedToReplaced::contains);
         }
-        if(addedToReplaced.isEmpty()){
-        } else{
-            addedToReplaced.stream().forEach((delete) -> {
-                addedFiles.remove(delete);
-            });
-            removedToReplaced.stream().forEach((delete) -> {
-                removedFiles.remove(delete);
-            });
+    }
+
+    private static Map<Long, FileMetadata> mapByDataFileId(Collection<FileMetadata> fileMetadatas) {
+        Map<Long, FileMetadata> fileMetadatasByFileId = new HashMap<>();
+        for (FileMetadata fileMetadata : fileMetadatas) {
+            fileMetadatasByFileId.putIfAbsent(fileMetadata.getDataFile().getId(), fileMetadata);
+        }
+        return fileMetadatasByFileId;
+    }
+
+    private static Map<DatasetFieldType, DatasetField> mapByFieldType(Collection<DatasetField> datasetFields) {
+        Map<DatasetFieldType, DatasetField> datasetFieldsByType = new HashMap<>();
+        for (DatasetField datasetField : datasetFields) {
+            datasetFieldsByType.putIfAbsent(datasetField.getDatasetFieldType(), datasetField);
         }
+        return datasetFieldsByType;
     }
        
     private void getTermsDifferences() {
@@ -699,9 +709,24 @@ public final class DatasetVersionDifference {
     }
     
     public List<datasetReplaceFileItem> getDatasetFilesReplacementList() {
+        initDatasetFilesDifferencesList();
         return datasetFilesReplacementList;
     }
 
+    /**
+     * @return the number of detailed file difference entries that were left
+     * out of {@link #getDatasetFilesDiffList()} and
+     * {@link #getDatasetFilesReplacementList()} because of the cap.
+     */
+    public int getOmittedFileDifferences() {
+        initDatasetFilesDifferencesList();
+        return omittedFileDifferences;
+    }
+
+    public int getMaxFileDifferences() {
+        return maxFileDifferences;
+    }
+
     public void setDatasetFilesReplacementList(List<datasetReplaceFileItem> datasetFilesReplacementList) {
         this.datasetFilesReplacementList = datasetFilesReplacementList;
     }
@@ -780,6 +805,9 @@ public final class DatasetVersionDifference {
     }
 
     private void initDatasetFilesDifferencesList() {
+        if (datasetFilesDiffList != null) {
+            return;
+        }
         datasetFilesDiffList = new ArrayList<>();
         datasetFilesReplacementList = new ArrayList <>();
         
@@ -813,12 +841,17 @@ public final class DatasetVersionDifference {
         List<FileMetadata> fileMetadatasOriginal = new ArrayList<>(originalVersion.getFileMetadatas());
         
         if (!replacedFiles.isEmpty()) {
-            
-            replacedFiles.stream().map((replacedPair) -> {
+            Set<FileMetadata> replacedOrReplacing = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (FileMetadata[] replacedPair : replacedFiles) {
+                replacedOrReplacing.add(replacedPair[0]);
+                replacedOrReplacing.add(replacedPair[1]);
+            }
+            fileMetadatasNew.removeIf(replacedOrReplacing::contains);
+            fileMetadatasOriginal.removeIf(replacedOrReplacing::contains);
+
+            replacedFiles.stream().filter((replacedPair) -> reserveFileDifference()).map((replacedPair) -> {
                 FileMetadata replacedFile = replacedPair[0];
                 FileMetadata newFile = replacedPair[1];
-                fileMetadatasNew.remove(newFile);
-                fileMetadatasOriginal.remove(replacedFile);
                 datasetFileDifferenceItem fdi = selectFileMetadataDiffs(replacedFile, newFile);
                 datasetReplaceFileItem fdr = new datasetReplaceFileItem();
                 String diffLabel = BundleUtil.getStringFromBundle("file.dataFilesTab.versions.replaced");
@@ -883,7 +916,7 @@ public final class DatasetVersionDifference {
                 // The 2 versions share the same study file;
                 // Check if the metadata information is identical in the 2 versions
                 // of the metadata:
-                if (fileMetadataIsDifferent(fm1, fm2)) {
+                if (fileMetadataIsDifferent(fm1, fm2) && reserveFileDifference()) {
                     datasetFileDifferenceItem fdi = selectFileMetadataDiffs(fm1, fm2);
                     fdi.setFileId(fm1.getDataFile().getId().toString());
                     fdi.setFileChecksumType(fm1.getDataFile().getChecksumType());
@@ -893,19 +926,23 @@ public final class DatasetVersionDifference {
                 i++;
                 j++;
             } else if (fm2.getDataFile().getId() != null && fm1.getDataFile().getId().compareTo(fm2.getDataFile().getId()) > 0) {
-                datasetFileDifferenceItem fdi = selectFileMetadataDiffs(null, fm2);
-                fdi.setFileId(fm2.getDataFile().getId().toString());
-                fdi.setFileChecksumType(fm2.getDataFile().getChecksumType());
-                fdi.setFileChecksumValue(fm2.getDataFile().getChecksumValue());
-                datasetFilesDiffList.add(fdi);
+                if (reserveFileDifference()) {
+                    datasetFileDifferenceItem fdi = selectFileMetadataDiffs(null, fm2);
+                    fdi.setFileId(fm2.getDataFile().getId().toString());
+                    fdi.setFileChecksumType(fm2.getDataFile().getChecksumType());
+                    fdi.setFileChecksumValue(fm2.getDataFile().getChecksumValue());
+                    datasetFilesDiffList.add(fdi);
+                }
 
                 j++;
             } else if (fm2.getDataFile().getId() == null || fm1.getDataFile().getId().compareTo(fm2.getDataFile().getId()) < 0) {
-                datasetFileDifferenceItem fdi = selectFileMetadataDiffs(fm1, null);
-                fdi.setFileId(fm1.getDataFile().getId().toString());
-                fdi.setFileChecksumType(fm1.getDataFile().getChecksumType());
-                fdi.setFileChecksumValue(fm1.getDataFile().getChecksumValue());
-                datasetFilesDiffList.add(fdi);
+                if (reserveFileDifference()) {
+                    datasetFileDifferenceItem fdi = selectFileMetadataDiffs(fm1, null);
+                    fdi.setFileId(fm1.getDataFile().getId().toString());
+                    fdi.setFileChecksumType(fm1.getDataFile().getChecksumType());
+                    fdi.setFileChecksumValue(fm1.getDataFile().getChecksumValue());
+                    datasetFilesDiffList.add(fdi);
+                }
 
                 i++;
             }
@@ -916,17 +953,23 @@ public final class DatasetVersionDifference {
         // between the 2 versions.
         while (i < fileMetadatasOriginal.size()) {
             fm1 = fileMetadatasOriginal.get(i);
+            i++;
+            if (!reserveFileDifference()) {
+                continue;
+            }
             datasetFileDifferenceItem fdi = selectFileMetadataDiffs(fm1, null);
             fdi.setFileId(fm1.getDataFile().getId().toString());
             fdi.setFileChecksumType(fm1.getDataFile().getChecksumType());
             fdi.setFileChecksumValue(fm1.getDataFile().getChecksumValue());
             datasetFilesDiffList.add(fdi);
-
-            i++;
         }
 
         while (j < fileMetadatasNew.size()) {
             fm2 = fileMetadatasNew.get(j);
+            j++;
+            if (!reserveFileDifference()) {
+                continue;
+            }
             datasetFileDifferenceItem fdi = selectFileMetadataDiffs(null, fm2);
             if (fm2.getDataFile().getId() != null) {
                 fdi.setFileId(fm2.getDataFile().getId().toString());
@@ -947,9 +990,19 @@ public final class DatasetVersionDifference {
                 fdi.setFileChecksumValue("[UNASSIGNED]");
             }
             datasetFilesDiffList.add(fdi);
+        }
+    }
 
-            j++;
+    /**
+     * @return whether there is still room for one more detailed file
+     * difference entry; if not, the entry is counted as omitted.
+     */
+    private boolean reserveFileDifference() {
+        if (datasetFilesDiffList.size() + datasetFilesReplacementList.size() < maxFileDifferences) {
+            return true;
         }
+        omittedFileDifferences++;
+        return false;
     }
 
     private boolean fileMetadataIsDifferent(FileMetadata fm1, FileMetadata fm2) {
@@ -1706,7 +1759,13 @@ public final class DatasetVersionDifference {
         }
     }
 
+    /**
+     * @return the detailed differences of the files of the two versions,
+     * computed on first use; at most {@link #getMaxFileDifferences()} entries,
+     * shared with {@link #getDatasetFilesReplacementList()}.
+     */
     public List<datasetFileDifferenceItem> getDatasetFilesDiffList() {
+        initDatasetFilesDifferencesList();
         return datasetFilesDiffList;
     }
 
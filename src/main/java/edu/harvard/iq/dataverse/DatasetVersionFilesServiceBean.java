@@ -164,14 +164,7 @@ public class DatasetVersionFilesServiceBean implements Serializable {
      * @return a FileMetadata list from the specified DatasetVersion
      */
     public List<FileMetadata> getFileMetadatas(DatasetVersion datasetVersion, Integer limit, Integer offset, FileSearchCriteria searchCriteria, FileOrderCriteria orderCriteria) {
-        CriteriaBuilder criteriaBuilder = em.getCriteriaBuilder();
-        CriteriaQuery<FileMetadata> criteriaQuery = criteriaBuilder.createQuery(FileMetadata.class);
-        Root<FileMetadata> fileMetadataRoot = criteriaQuery.from(FileMetadata.class);
-        criteriaQuery
-                .select(fileMetadataRoot)
-                .where(createSearchCriteriaPredicate(datasetVersion, searchCriteria, criteriaBuilder, criteriaQuery, fileMetadataRoot))
-                .orderBy(createGetFileMetadatasOrder(criteriaBuilder, orderCriteria, fileMetadataRoot));
-        TypedQuery<FileMetadata> typedQuery = em.createQuery(criteriaQuery);
+        TypedQuery<FileMetadata> typedQuery = createGetFileMetadatasQuery(datasetVersion, null, searchCriteria, orderCriteria);
         if (limit != null) {
             typedQuery.setMaxResults(limit);
         }
@@ -181,6 +174,64 @@ public class DatasetVersionFilesServiceBean implements Serializable {
         return typedQuery.getResultList();
     }
 
+    /**
+     * Returns the FileMetadatas that come after the given one, in the order
+     * of {@link #getFileMetadatas}: a page of a listing is found by the values
+     * of the last file of the previous page (keyset pagination), rather than
+     * by skipping all the files before it, so that the pages deep into a
+     * large version are as quick to get as the first one.
+     *
+     * @param datasetVersion the DatasetVersion to access
+     * @param after          the last FileMetadata of the previous page
+     * @param limit          the maximum number of files returned
+     * @param searchCriteria for retrieving only files matching this criteria
+     * @param orderCriteria  a FileOrderCriteria to order the results
+     * @return a FileMetadata list from the specified DatasetVersion
+     */
+    public List<FileMetadata> getFileMetadatasAfter(DatasetVersion datasetVersion, FileMetadata after, int limit, FileSearchCriteria searchCriteria, FileOrderCriteria orderCriteria) {
+        return createGetFileMetadatasQuery(datasetVersion, after, searchCriteria, orderCriteria)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private TypedQuery<FileMetadata> createGetFileMetadatasQuery(DatasetVersion datasetVersion, FileMetadata after, FileSearchCriteria searchCriteria, FileOrderCriteria orderCriteria) {
+        CriteriaBuilder criteriaBuilder = em.getCriteriaBuilder();
+        CriteriaQuery<FileMetadata> criteriaQuery = criteriaBuilder.createQuery(FileMetadata.class);
+        Root<FileMetadata> fileMetadataRoot = criteriaQuery.from(FileMetadata.class);
+        Predicate searchCriteriaPredicate = createSearchCriteriaPredicate(datasetVersion, searchCriteria, criteriaBuilder, criteriaQuery, fileMetadataRoot);
+        criteriaQuery
+                .select(fileMetadataRoot)
+                .where(after == null ? searchCriteriaPredicate
+                        : criteriaBuilder.and(searchCriteriaPredicate, createGetFileMetadatasAfterPredicate(criteriaBuilder, orderCriteria, fileMetadataRoot, after)))
+                .orderBy(createGetFileMetadatasOrder(criteriaBuilder, orderCriteria, fileMetadataRoot));
+        return em.createQuery(criteriaQuery);
+    }
+
+    /**
+     * Given a DatasetVersion, returns a page of the manifest of its files: a
+     * few fields of each, selected with a flat projection query, without
+     * loading the FileMetadata and DataFile entities. The files are ordered by
+     * id, and paged by id (keyset pagination), so a listing can be resumed
+     * from the last id received; and pages deep into a large version are
+     * as quick to get as the first one.
+     *
+     * @param datasetVersion the DatasetVersion to access
+     * @param afterId        only the files with ids greater than this one are returned; can be null
+     * @param limit          the maximum number of files returned
+     * @return a list of FileManifestEntry, ordered by file id
+     */
+    public List<FileManifestEntry> getFileManifestEntries(DatasetVersion datasetVersion, Long afterId, int limit) {
+        return em.createQuery("SELECT NEW edu.harvard.iq.dataverse.FileManifestEntry("
+                        + "df.id, fm.directoryLabel, fm.label, df.filesize, df.checksumType, df.checksumValue, df.contentType, fm.restricted)"
+                        + " FROM FileMetadata fm JOIN fm.dataFile df"
+                        + " WHERE fm.datasetVersion.id = :datasetVersionId AND df.id > :afterId"
+                        + " ORDER BY df.id", FileManifestEntry.class)
+                .setParameter("datasetVersionId", datasetVersion.getId())
+                .setParameter("afterId", afterId != null ? afterId : 0L)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
     /**
      * Returns the total download size of all files for a particular DatasetVersion
      *
@@ -304,9 +355,7 @@ public class DatasetVersionFilesServiceBean implements Serializable {
                                                     Root<FileMetadata> fileMetadataRoot) {
         Path<Object> label = fileMetadataRoot.get("label");
         Path<Object> dataFile = fileMetadataRoot.get("dataFile");
-        Path<Timestamp> publicationDate = dataFile.get("publicationDate");
-        Path<Timestamp> createDate = dataFile.get("createDate");
-        Expression<Object> orderByLifetimeExpression = criteriaBuilder.selectCase().when(publicationDate.isNotNull(), publicationDate).otherwise(createDate);
+        Expression<Timestamp> orderByLifetimeExpression = createLifetimeExpression(criteriaBuilder, dataFile);
         List<Order> orderList = new ArrayList<>();
         switch (orderCriteria) {
             case NameZA -> orderList.add(criteriaBuilder.desc(label));
@@ -319,9 +368,70 @@ public class DatasetVersionFilesServiceBean implements Serializable {
             }
             default -> orderList.add(criteriaBuilder.asc(label));
         }
+        // Tie-breaker, so that consecutive pages neither skip nor repeat files
+        // that share the ordering value (e.g. same label in different folders):
+        orderList.add(criteriaBuilder.asc(fileMetadataRoot.get("id")));
         return orderList;
     }
 
+    private Expression<Timestamp> createLifetimeExpression(CriteriaBuilder criteriaBuilder, Path<Object> dataFile) {
+        Path<Timestamp> publicationDate = dataFile.get("publicationDate");
+        Path<Timestamp> createDate = dataFile.get("createDate");
+        return criteriaBuilder.<Timestamp>selectCase().when(publicationDate.isNotNull(), publicationDate).otherwise(createDate);
+    }
+
+    /**
+     * The files after the given one in the order of
+     * {@link #createGetFileMetadatasOrder}, by the same keys, ending with the
+     * id tie-breaker.
+     */
+    private Predicate createGetFileMetadatasAfterPredicate(CriteriaBuilder criteriaBuilder,
+                                                          FileOrderCriteria orderCriteria,
+                                                          Root<FileMetadata> fileMetadataRoot,
+                                                          FileMetadata after) {
+        Path<String> label = fileMetadataRoot.get("label");
+        Path<Object> dataFile = fileMetadataRoot.get("dataFile");
+        DataFile afterDataFile = after.getDataFile();
+        Predicate afterId = criteriaBuilder.greaterThan(fileMetadataRoot.get("id"), after.getId());
+        return switch (orderCriteria) {
+            case NameZA -> createAfterPredicate(criteriaBuilder, label, after.getLabel(), false, afterId);
+            case Newest, Oldest -> {
+                Timestamp lifetime = afterDataFile.getPublicationDate() != null ? afterDataFile.getPublicationDate() : afterDataFile.getCreateDate();
+                yield createAfterPredicate(criteriaBuilder, createLifetimeExpression(criteriaBuilder, dataFile), lifetime, orderCriteria == FileOrderCriteria.Oldest, afterId);
+            }
+            case Size -> {
+                // (-1 is the size of a file with none recorded)
+                Long filesize = afterDataFile.getFilesize() >= 0 ? afterDataFile.getFilesize() : null;
+                yield createAfterPredicate(criteriaBuilder, dataFile.<Long>get("filesize"), filesize, true, afterId);
+            }
+            case Type -> createAfterPredicate(criteriaBuilder, dataFile.<String>get("contentType"), afterDataFile.getContentType(), true,
+                    createAfterPredicate(criteriaBuilder, label, after.getLabel(), true, afterId));
+            default -> createAfterPredicate(criteriaBuilder, label, after.getLabel(), true, afterId);
+        };
+    }
+
+    /**
+     * The rows after the one with the given value of an ordering key: beyond
+     * the value, or at it and after the row by the next keys. (NULLs sort
+     * last in ascending order, and first in descending order, as in
+     * PostgreSQL.)
+     */
+    private <T extends Comparable<? super T>> Predicate createAfterPredicate(CriteriaBuilder criteriaBuilder,
+                                                                            Expression<? extends T> expression,
+                                                                            T value,
+                                                                            boolean ascending,
+                                                                            Predicate afterByNextKeys) {
+        if (value == null) {
+            Predicate atValue = criteriaBuilder.and(expression.isNull(), afterByNextKeys);
+            return ascending ? atValue : criteriaBuilder.or(expression.isNotNull(), atValue);
+        }
+        Predicate atValue = criteriaBuilder.and(criteriaBuilder.equal(expression, value), afterByNextKeys);
+        if (ascending) {
+            return criteriaBuilder.or(criteriaBuilder.greaterThan(expression, value), expression.isNull(), atValue);
+        }
+        return criteriaBuilder.or(criteriaBuilder.lessThan(expression, value), atValue);
+    }
+
     private long getOriginalTabularFilesSize(DatasetVersion datasetVersion, FileSearchCriteria searchCriteria) {
         CriteriaBuilder criteriaBuilder = em.getCriteriaBuilder();
         CriteriaQuery<Long> criteriaQuery = criteriaBuilder.createQuery(Long.class);
@@ -16,6 +16,7 @@ import java.util.Set;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
@@ -57,6 +58,7 @@ import org.hibernate.validator.constraints.NotEmpty;
     @NamedQuery(name = "Dataverse.filterByName", query="SELECT dv FROM Dataverse dv WHERE LOWER(dv.name) LIKE :name  order by dv.alias")
 })
 @Entity
+@EntityListeners(DvObjectTreeListener.class)
 @Table(indexes = {@Index(columnList="defaultcontributorrole_id")
 		, @Index(columnList="defaulttemplate_id")
 		, @Index(columnList="alias")
@@ -264,8 +264,22 @@ public class DataverseRoleServiceBean implements java.io.Serializable {
             return new ArrayList<>();
         }
         
-        List<String> raIds = roleAssignees.stream().map(roas -> roas.getIdentifier()).collect(Collectors.toList());
         List<Long> dvoIds = dvos.stream().filter(dvo -> !(dvo.getId() == null)).map(dvo -> dvo.getId()).collect(Collectors.toList());
+        return directRoleAssignmentsByIds(roleAssignees, dvoIds);
+    }
+
+    /**
+     * Retrieves the roles assignments for {@code user}, directly on the
+     * objects with the given ids.
+     *
+     * @see #directRoleAssignments(java.util.Set, java.util.Collection)
+     */
+    public List<RoleAssignment> directRoleAssignmentsByIds(Set<? extends RoleAssignee> roleAssignees, Collection<Long> dvoIds) {
+        if (dvoIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<String> raIds = roleAssignees.stream().map(roas -> roas.getIdentifier()).collect(Collectors.toList());
         
         return em.createNamedQuery("RoleAssignment.listByAssigneeIdentifiers", RoleAssignment.class)
                         .setParameter("assigneeIdentifiers", raIds)
@@ -98,6 +98,9 @@ public class DataverseServiceBean implements java.io.Serializable {
     @EJB
     SystemConfig systemConfig;
 
+    @EJB
+    DvObjectTreeServiceBean dvObjectTree;
+
     @Inject
     DataverseSession session;
 
@@ -709,6 +712,11 @@ public class DataverseServiceBean implements java.io.Serializable {
     // function to recursively find ids of all children of a dataverse that 
     // are also of type dataverse
     public List<Long> findAllDataverseDataverseChildren(Long dvId) {
+        List<Long> descendants = dvObjectTree.findDataverseDescendantIds(dvId);
+        if (descendants != null) {
+            return descendants;
+        }
+        // (not in the collection hierarchy yet)
         // get list of Dataverse children
         List<Long> dataverseChildren = findIdsByOwnerId(dvId);
         
@@ -727,6 +735,10 @@ public class DataverseServiceBean implements java.io.Serializable {
     // function to recursively find ids of all children of a dataverse that are 
     // of type dataset
     public List<Long> findAllDataverseDatasetChildren(Long dvId) {
+        List<Long> descendants = dvObjectTree.findDatasetDescendantIds(dvId);
+        if (descendants != null) {
+            return descendants;
+        }
         // get list of Dataverse children
         List<Long> dataverseChildren = findIdsByOwnerId(dvId);
         // get list of Dataset children
@@ -0,0 +1,323 @@
+package edu.harvard.iq.dataverse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The collections and datasets of the installation, and who owns them, in
+ * primitive arrays: a few bytes per object, rather than an entity each. Answers
+ * the questions about the hierarchy asked over and over (the collections a
+ * collection contains, the owners of a dataset, the Solr paths of a
+ * collection) without going to the database for each level of it.
+ * <p>
+ * Not thread-safe; see {@link DvObjectTreeServiceBean} for the instance
+ * that is kept up to date.
+ */
+public class DvObjectTree {
+
+    private static final byte DATAVERSE = 1;
+    private static final byte DATASET = 2;
+    private static final byte PERMISSION_ROOT = 4;
+    // (ids start from 1)
+    private static final long NO_OWNER = 0;
+
+    // node i is the object ids[i], owned by owners[i]
+    private long[] ids;
+    private long[] owners;
+    private byte[] flags;
+    private int size = 0;
+    // open addressing, linear probing; the index of the node + 1, 0 if free
+    private int[] slots;
+    // the children of node i are nodes[start[i] .. start[i + 1]); built when
+    // first needed after a change (possibly by concurrent readers)
+    private volatile Children children;
+
+    private static class Children {
+        final int[] start;
+        final int[] nodes;
+
+        Children(int[] start, int[] nodes) {
+            this.start = start;
+            this.nodes = nodes;
+        }
+    }
+
+    public DvObjectTree() {
+        this(1024);
+    }
+
+    public DvObjectTree(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        ids = new long[capacity];
+        owners = new long[capacity];
+        flags = new byte[capacity];
+        slots = new int[Integer.highestOneBit(capacity * 2 - 1) * 2];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(long id) {
+        return indexOf(id) >= 0;
+    }
+
+    /**
+     * Adds an object, or updates its owner and permission root flag.
+     *
+     * @param ownerId null for the root collection
+     */
+    public void put(long id, Long ownerId, boolean dataverse, boolean permissionRoot) {
+        long owner = ownerId == null ? NO_OWNER : ownerId;
+        byte flag = (byte) ((dataverse ? DATAVERSE : DATASET) | (permissionRoot ? PERMISSION_ROOT : 0));
+        int node = indexOf(id);
+        if (node < 0) {
+            if (size == ids.length) {
+                grow();
+            }
+            node = size++;
+            ids[node] = id;
+            insertSlot(id, node);
+        } else if (owners[node] == owner && flags[node] == flag) {
+            return;
+        }
+        owners[node] = owner;
+        flags[node] = flag;
+        children = null;
+    }
+
+    /**
+     * @return whether the object is known, with this owner and permission
+     *         root flag
+     */
+    public boolean matches(long id, Long ownerId, boolean permissionRoot) {
+        int node = indexOf(id);
+        return node >= 0 && owners[node] == (ownerId == null ? NO_OWNER : ownerId)
+                && ((flags[node] & PERMISSION_ROOT) != 0) == permissionRoot;
+    }
+
+    public void remove(long id) {
+        int node = indexOf(id);
+        if (node < 0) {
+            return;
+        }
+        removeSlot(id);
+        int last = --size;
+        if (node != last) {
+            // the last node takes the place of the removed one
+            ids[node] = ids[last];
+            owners[node] = owners[last];
+            flags[node] = flags[last];
+            slots[findSlot(ids[node])] = node + 1;
+        }
+        children = null;
+    }
+
+    /**
+     * @return the id of the owner; null for the root collection, or an
+     *         unknown object
+     */
+    public Long getOwnerId(long id) {
+        int node = indexOf(id);
+        return node < 0 || owners[node] == NO_OWNER ? null : owners[node];
+    }
+
+    /**
+     * @return the ids of the owners of the object, from its own owner up to
+     *         the root collection; null if the object is unknown
+     */
+    public List<Long> getAncestorIds(long id) {
+        int node = indexOf(id);
+        if (node < 0) {
+            return null;
+        }
+        List<Long> ancestors = new ArrayList<>();
+        // (bounded, in case of a cycle)
+        for (long owner = owners[node]; owner != NO_OWNER && ancestors.size() < size; owner = owners[node]) {
+            ancestors.add(owner);
+            node = indexOf(owner);
+            if (node < 0) {
+                break;
+            }
+        }
+        return ancestors;
+    }
+
+    /**
+     * @return the ids of the object and of its owners, up to the first
+     *         collection that is a permission root (see
+     *         {@link PermissionServiceBean#getPermissionAncestors(DvObject)});
+     *         null if the object is unknown
+     */
+    public List<Long> getPermissionAncestorIds(long id) {
+        int node = indexOf(id);
+        if (node < 0) {
+            return null;
+        }
+        List<Long> ancestors = new ArrayList<>();
+        while (ancestors.size() <= size) {
+            ancestors.add(ids[node]);
+            if ((flags[node] & DATAVERSE) != 0 && ((flags[node] & PERMISSION_ROOT) != 0 || owners[node] == NO_OWNER)) {
+                break;
+            }
+            if (owners[node] == NO_OWNER || (node = indexOf(owners[node])) < 0) {
+                break;
+            }
+        }
+        return ancestors;
+    }
+
+    /**
+     * @return the ids of the collections from the one below the root down to
+     *         this collection, as the segments of its Solr path (see
+     *         {@link edu.harvard.iq.dataverse.search.IndexServiceBean#findPathSegments(Dataverse, List)});
+     *         null if the collection is unknown
+     */
+    public List<String> getPathSegments(long dataverseId) {
+        List<Long> ancestors = getAncestorIds(dataverseId);
+        if (ancestors == null) {
+            return null;
+        }
+        if (ancestors.isEmpty()) {
+            // the root
+            return new ArrayList<>();
+        }
+        List<String> segments = new ArrayList<>(ancestors.size());
+        // (the last ancestor is the root, which has no segment)
+        for (int i = ancestors.size() - 2; i >= 0; i--) {
+            segments.add(ancestors.get(i).toString());
+        }
+        segments.add(Long.toString(dataverseId));
+        return segments;
+    }
+
+    /**
+     * @return the ids, in ascending order, of the collections (or the
+     *         datasets) in the collection, at any depth; null if the
+     *         collection is unknown
+     */
+    public List<Long> getDescendantIds(long id, boolean dataverses) {
+        int node = indexOf(id);
+        if (node < 0) {
+            return null;
+        }
+        Children children = this.children;
+        if (children == null) {
+            children = buildChildren();
+            this.children = children;
+        }
+        byte type = dataverses ? DATAVERSE : DATASET;
+        long[] found = new long[16];
+        int count = 0;
+        // breadth first; only collections have children
+        int[] queue = new int[16];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = node;
+        boolean[] visited = new boolean[size];
+        visited[node] = true;
+        while (head < tail) {
+            int parent = queue[head++];
+            for (int c = children.start[parent]; c < children.start[parent + 1]; c++) {
+                int child = children.nodes[c];
+                if (visited[child]) {
+                    continue;
+                }
+                visited[child] = true;
+                if ((flags[child] & type) != 0) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = ids[child];
+                }
+                if ((flags[child] & DATAVERSE) != 0) {
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, tail * 2);
+                    }
+                    queue[tail++] = child;
+                }
+            }
+        }
+        Arrays.sort(found, 0, count);
+        List<Long> descendants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            descendants.add(found[i]);
+        }
+        return descendants;
+    }
+
+    private Children buildChildren() {
+        int[] start = new int[size + 1];
+        int[] ownerNodes = new int[size];
+        for (int i = 0; i < size; i++) {
+            ownerNodes[i] = owners[i] == NO_OWNER ? -1 : indexOf(owners[i]);
+            if (ownerNodes[i] >= 0) {
+                start[ownerNodes[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            start[i + 1] += start[i];
+        }
+        int[] nodes = new int[start[size]];
+        int[] next = Arrays.copyOf(start, size);
+        for (int i = 0; i < size; i++) {
+            if (ownerNodes[i] >= 0) {
+                nodes[next[ownerNodes[i]]++] = i;
+            }
+        }
+        return new Children(start, nodes);
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        owners = Arrays.copyOf(owners, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        slots = new int[slots.length * 2];
+        for (int i = 0; i < size; i++) {
+            insertSlot(ids[i], i);
+        }
+    }
+
+    private int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (slots.length - 1);
+    }
+
+    private int indexOf(long id) {
+        int slot = findSlot(id);
+        return slots[slot] - 1;
+    }
+
+    /**
+     * @return the slot of the id; or the free slot where it would go
+     */
+    private int findSlot(long id) {
+        int mask = slots.length - 1;
+        int slot = hash(id);
+        while (slots[slot] != 0 && ids[slots[slot] - 1] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insertSlot(long id, int node) {
+        slots[findSlot(id)] = node + 1;
+    }
+
+    private void removeSlot(long id) {
+        int mask = slots.length - 1;
+        int free = findSlot(id);
+        slots[free] = 0;
+        // moves the entries after it back, so that they are still found
+        for (int slot = (free + 1) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int home = hash(ids[slots[slot] - 1]);
+            if (((slot - home) & mask) >= ((slot - free) & mask)) {
+                slots[free] = slots[slot];
+                slots[slot] = 0;
+                free = slot;
+            }
+        }
+    }
+}
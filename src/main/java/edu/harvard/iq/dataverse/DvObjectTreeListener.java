@@ -0,0 +1,35 @@
+package edu.harvard.iq.dataverse;
+
+import jakarta.enterprise.inject.spi.CDI;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Keeps the {@link DvObjectTree} up to date as collections and datasets are
+ * created, moved and deleted.
+ *
+ * @see DvObjectTreeServiceBean
+ */
+public class DvObjectTreeListener {
+
+    private DvObjectTreeServiceBean dvObjectTree;
+
+    private DvObjectTreeServiceBean getDvObjectTree() {
+        if (dvObjectTree == null) {
+            dvObjectTree = CDI.current().select(DvObjectTreeServiceBean.class).get();
+        }
+        return dvObjectTree;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void update(DvObjectContainer container) {
+        getDvObjectTree().update(container);
+    }
+
+    @PostRemove
+    public void remove(DvObjectContainer container) {
+        getDvObjectTree().remove(container);
+    }
+}
@@ -0,0 +1,364 @@
+package edu.harvard.iq.dataverse;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.MutableEntry;
+
+/**
+ * The {@link DvObjectTree} of the installation: loaded at startup, and kept up
+ * to date by {@link DvObjectTreeListener} as collections and datasets are
+ * created, moved and deleted.
+ * <p>
+ * The changes flushed by a transaction are kept with the transaction, and
+ * applied to the tree only when it commits, so that the other transactions
+ * never see uncommitted changes; the transaction making them doesn't use the
+ * tree in the meantime (its find methods return null), so that it still sees
+ * its own changes (e.g. a moved collection is indexed under its new path).
+ * The nodes of a cluster share a version number (in a Hazelcast-backed JCache),
+ * incremented by every commit that changed the tree; a node checks it and, if
+ * another node has incremented it, loads the tree again before answering. For
+ * the permission lookups, which authorization depends on, it is checked every
+ * time; for the path and descendant lookups (used for indexing and searching),
+ * at most once every {@value #VERSION_CHECK_INTERVAL_MS} ms.
+ * <p>
+ * The find methods return null for an object that isn't in the tree (e.g. one
+ * created by a transaction that isn't committed yet); the callers then walk
+ * the entities, as they used to.
+ */
+@Singleton
+@Startup
+@DependsOn("StartupFlywayMigrator")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class DvObjectTreeServiceBean {
+
+    private static final Logger logger = Logger.getLogger(DvObjectTreeServiceBean.class.getCanonicalName());
+
+    public static final String VERSION_CACHE = "dvObjectTreeVersionCache";
+    private static final String VERSION_KEY = "version";
+    // how long the tree is trusted by the path and descendant lookups, before
+    // the shared version is read again:
+    static final long VERSION_CHECK_INTERVAL_MS = 1000;
+
+    static final String LOAD_QUERY = "SELECT o.id, o.owner_id, o.dtype, dv.permissionroot FROM dvobject o"
+            + " LEFT JOIN dataverse dv ON dv.id = o.id WHERE o.dtype IN ('Dataverse', 'Dataset')";
+
+    @PersistenceContext(unitName = "VDCNet-ejbPU")
+    private EntityManager em;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    @Inject
+    CacheManager manager;
+
+    private Cache<String, Long> versionCache;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // null when it has to be loaded (again)
+    private DvObjectTree tree = null;
+    // the shared version the tree is up to date with
+    private long version = 0;
+    // when the shared version was last found to be the same
+    private volatile long versionCheckedAt = 0;
+
+    /**
+     * A change to the tree, made by a transaction.
+     */
+    private static class Change {
+        final long id;
+        final Long ownerId;
+        final boolean dataverse;
+        final boolean permissionRoot;
+        final boolean removed;
+
+        Change(long id, Long ownerId, boolean dataverse, boolean permissionRoot, boolean removed) {
+            this.id = id;
+            this.ownerId = ownerId;
+            this.dataverse = dataverse;
+            this.permissionRoot = permissionRoot;
+            this.removed = removed;
+        }
+
+        void applyTo(DvObjectTree tree) {
+            if (removed) {
+                tree.remove(id);
+            } else {
+                tree.put(id, ownerId, dataverse, permissionRoot);
+            }
+        }
+    }
+
+    /**
+     * Increments the shared version, on whichever node owns it.
+     */
+    static class IncrementProcessor implements EntryProcessor<String, Long, Long>, Serializable {
+
+        @Override
+        public Long process(MutableEntry<String, Long> entry, Object... arguments) {
+            long incremented = (entry.exists() ? entry.getValue() : 0L) + 1;
+            entry.setValue(incremented);
+            return incremented;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            versionCache = manager.getCache(VERSION_CACHE);
+            if (versionCache == null) {
+                versionCache = manager.createCache(VERSION_CACHE, new MutableConfiguration<String, Long>().setTypes(String.class, Long.class));
+            }
+        } catch (RuntimeException ex) {
+            // (e.g. created concurrently by another node)
+            versionCache = manager.getCache(VERSION_CACHE);
+        }
+        lock.writeLock().lock();
+        try {
+            load();
+        } catch (RuntimeException ex) {
+            logger.log(Level.WARNING, "Could not load the collection hierarchy; will try again when it's needed", ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the ids of the collections in the collection, at any depth
+     */
+    public List<Long> findDataverseDescendantIds(Long dataverseId) {
+        return dataverseId == null ? null : read(tree -> tree.getDescendantIds(dataverseId, true), false);
+    }
+
+    /**
+     * @return the ids of the datasets in the collection, at any depth
+     */
+    public List<Long> findDatasetDescendantIds(Long dataverseId) {
+        return dataverseId == null ? null : read(tree -> tree.getDescendantIds(dataverseId, false), false);
+    }
+
+    /**
+     * (The shared version is read on every call: a permission check must not
+     * use a chain another node has changed.)
+     * @see DvObjectTree#getPermissionAncestorIds(long)
+     */
+    public List<Long> findPermissionAncestorIds(DvObjectContainer container) {
+        return container.getId() == null ? null
+                : read(tree -> isCurrent(tree, container) ? tree.getPermissionAncestorIds(container.getId()) : null, true);
+    }
+
+    /**
+     * @see DvObjectTree#getPathSegments(long)
+     */
+    public List<String> findPathSegments(Dataverse dataverse) {
+        return dataverse.getId() == null ? null
+                : read(tree -> isCurrent(tree, dataverse) ? tree.getPathSegments(dataverse.getId()) : null, false);
+    }
+
+    /**
+     * @return whether the tree has the collection or dataset with the owner
+     *         (and permission root flag) it has in memory; if it doesn't (e.g.
+     *         it was just moved, and isn't flushed yet), the caller walks the
+     *         entities rather than trust the tree
+     */
+    private static boolean isCurrent(DvObjectTree tree, DvObjectContainer container) {
+        Long ownerId = container.getOwner() == null ? null : container.getOwner().getId();
+        return tree.matches(container.getId(), ownerId, isPermissionRoot(container));
+    }
+
+    /**
+     * Records a collection or dataset created or updated (called when it's
+     * flushed).
+     */
+    public void update(DvObjectContainer container) {
+        if (container.getId() == null) {
+            return;
+        }
+        Long ownerId = container.getOwner() == null ? null : container.getOwner().getId();
+        boolean permissionRoot = isPermissionRoot(container);
+        // (a change already made by the transaction may have to be undone)
+        if (getTransactionChanges() == null) {
+            lock.readLock().lock();
+            try {
+                if (tree != null && tree.matches(container.getId(), ownerId, permissionRoot)) {
+                    return;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        apply(new Change(container.getId(), ownerId, container instanceof Dataverse, permissionRoot, false));
+    }
+
+    /**
+     * Records a collection or dataset deleted (called when it's flushed).
+     */
+    public void remove(DvObjectContainer container) {
+        if (container.getId() != null) {
+            apply(new Change(container.getId(), null, container instanceof Dataverse, false, true));
+        }
+    }
+
+    private static boolean isPermissionRoot(DvObjectContainer container) {
+        return container instanceof Dataverse && ((Dataverse) container).isPermissionRoot();
+    }
+
+    /**
+     * @return the changes made by the current transaction so far; null if
+     *         there is no transaction, or it hasn't changed the tree
+     */
+    @SuppressWarnings("unchecked")
+    private List<Change> getTransactionChanges() {
+        if (transactionSynchronizationRegistry.getTransactionKey() == null) {
+            return null;
+        }
+        return (List<Change>) transactionSynchronizationRegistry.getResource(DvObjectTreeServiceBean.class);
+    }
+
+    /**
+     * Applies the change when the current transaction commits (or right away,
+     * if there is no transaction).
+     */
+    private void apply(Change change) {
+        Object transaction = transactionSynchronizationRegistry.getTransactionKey();
+        if (transaction == null) {
+            committed(List.of(change));
+            return;
+        }
+        List<Change> changes = getTransactionChanges();
+        if (changes == null) {
+            List<Change> transactionChanges = new ArrayList<>();
+            transactionSynchronizationRegistry.putResource(DvObjectTreeServiceBean.class, transactionChanges);
+            transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        committed(transactionChanges);
+                    }
+                }
+            });
+            changes = transactionChanges;
+        }
+        changes.add(change);
+    }
+
+    /**
+     * Applies the changes of a committed transaction, and tells the other
+     * nodes.
+     */
+    private void committed(List<Change> changes) {
+        lock.writeLock().lock();
+        try {
+            if (tree != null) {
+                for (Change change : changes) {
+                    change.applyTo(tree);
+                }
+            }
+            long incremented = versionCache.invoke(VERSION_KEY, new IncrementProcessor());
+            if (incremented == version + 1) {
+                version = incremented;
+            } else {
+                // another node changed it too
+                tree = null;
+            }
+        } catch (RuntimeException ex) {
+            logger.log(Level.WARNING, "Could not update the version of the collection hierarchy", ex);
+            tree = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param checkVersion whether to read the shared version even if it was
+     *        read less than {@value #VERSION_CHECK_INTERVAL_MS} ms ago
+     */
+    private <T> T read(Function<DvObjectTree, T> query, boolean checkVersion) {
+        if (getTransactionChanges() != null) {
+            // the tree doesn't have the changes of this transaction yet
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            if (tree != null && isUpToDate(checkVersion)) {
+                return query.apply(tree);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            if (tree == null || !isUpToDate(checkVersion)) {
+                load();
+            }
+            return query.apply(tree);
+        } catch (RuntimeException ex) {
+            logger.log(Level.WARNING, "Could not load the collection hierarchy", ex);
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean isUpToDate(boolean checkVersion) {
+        long now = System.currentTimeMillis();
+        if (!checkVersion && now - versionCheckedAt < VERSION_CHECK_INTERVAL_MS) {
+            return true;
+        }
+        Long shared = versionCache.get(VERSION_KEY);
+        if (shared == null || shared == version) {
+            versionCheckedAt = now;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * (Called with the write lock held.)
+     */
+    private void load() {
+        long start = System.currentTimeMillis();
+        // (the version is read first: a change committed during the query
+        // makes the next read load the tree again)
+        Long shared = versionCache.get(VERSION_KEY);
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = em.createNativeQuery(LOAD_QUERY).getResultList();
+        DvObjectTree loaded = new DvObjectTree(rows.size() + rows.size() / 4);
+        for (Object[] row : rows) {
+            loaded.put(((Number) row[0]).longValue(), row[1] == null ? null : ((Number) row[1]).longValue(),
+                    "Dataverse".equals(row[2]), Boolean.TRUE.equals(row[3]));
+        }
+        tree = loaded;
+        version = shared == null ? 0 : shared;
+        versionCheckedAt = start;
+        logger.info("Loaded the collection hierarchy: " + loaded.size() + " collections and datasets, in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+}
@@ -10,6 +10,7 @@ import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
 import edu.harvard.iq.dataverse.authorization.users.User;
 import edu.harvard.iq.dataverse.branding.BrandingUtil;
 import edu.harvard.iq.dataverse.datasetutility.AddReplaceFileHelper;
+import edu.harvard.iq.dataverse.datasetutility.FileChecksumIndex;
 import edu.harvard.iq.dataverse.datasetutility.FileSizeChecker;
 import edu.harvard.iq.dataverse.datasetutility.FileReplaceException;
 import edu.harvard.iq.dataverse.datasetutility.FileReplacePageHelper;
@@ -964,8 +965,8 @@ public class EditDatafilesPage implements java.io.Serializable {
                 // Also remove checksum from the list of newly uploaded checksums (perhaps odd
                 // to delete and then try uploading the same file again, but it seems like it
                 // should be allowed/the checksum list is part of the state to clean-up
-                if (checksumMapNew != null && markedForDelete.getDataFile().getChecksumValue() != null) {
-                    checksumMapNew.remove(markedForDelete.getDataFile().getChecksumValue());
+                if (uploadedFilesIndex != null) {
+                    uploadedFilesIndex.remove(markedForDelete.getDataFile());
                 }
 
             }
@@ -2342,8 +2343,8 @@ public class EditDatafilesPage implements java.io.Serializable {
             // or if another file with the same checksum has already been 
             // uploaded.
             // -----------------------------------------------------------
-            if (isFileAlreadyInDataset(dataFile)) {
-                DataFile existingFile = fileAlreadyExists.get(dataFile);
+            DataFile existingFile;
+            if ((existingFile = findFileAlreadyInDataset(dataFile)) != null) {
 
                 // String alreadyExists = dataFile.getFileMetadata().getLabel() + " at " + existingFile.getDirectoryLabel() != null ? existingFile.getDirectoryLabel() + "/" + existingFile.getDisplayName() : existingFile.getDisplayName();
                 String uploadedDuplicateFileName = dataFile.getFileMetadata().getLabel();
@@ -2365,8 +2366,7 @@ public class EditDatafilesPage implements java.io.Serializable {
                 dataFile.setMarkedAsDuplicate(true);
                 dataFile.setDuplicateFilename(inLineMessage);
 
-            } else if (isFileAlreadyUploaded(dataFile)) {
-                DataFile existingFile = checksumMapNew.get(dataFile.getChecksumValue());
+            } else if ((existingFile = findFileAlreadyUploaded(dataFile)) != null) {
                 String alreadyUploadedWithSame = existingFile.getDisplayName();
                 String newlyUploadedDupe = dataFile.getFileMetadata().getLabel();
                 if (newlyUploadedFilesWithDupeContent == null) {
@@ -2544,54 +2544,33 @@ public class EditDatafilesPage implements java.io.Serializable {
         return IngestUtil.duplicateFilenameCheck(fileMetadata, fileLabelsExisting);
     }
 
-    private Map<String, DataFile> checksumMapOld = null; // checksums of the files already in the dataset
-    private Map<String, DataFile> checksumMapNew = null; // checksums of the new files already uploaded
-    private Map<DataFile, DataFile> fileAlreadyExists = null;
+    private FileChecksumIndex existingFilesIndex = null; // checksums of the files already in the dataset
+    private FileChecksumIndex uploadedFilesIndex = null; // checksums of the new files already uploaded
 
-    private void initChecksumMap() {
-        checksumMapOld = new HashMap<>();
-
-        Iterator<FileMetadata> fmIt = workingVersion.getFileMetadatas().iterator();
-
-        while (fmIt.hasNext()) {
-            FileMetadata fm = fmIt.next();
-            if (fm.getDataFile() != null && fm.getDataFile().getId() != null) {
-                String chksum = fm.getDataFile().getChecksumValue();
-                if (chksum != null) {
-                    checksumMapOld.put(chksum, fm.getDataFile());
-
-                }
-            }
+    /**
+     * @return the file already in the dataset with the same content; null if
+     *         there is none
+     */
+    private DataFile findFileAlreadyInDataset(DataFile dataFile) {
+        if (existingFilesIndex == null) {
+            existingFilesIndex = FileChecksumIndex.ofSavedFiles(workingVersion);
         }
-
+        return existingFilesIndex.findDuplicate(dataFile);
     }
 
-    private boolean isFileAlreadyInDataset(DataFile dataFile) {
-        if (checksumMapOld == null) {
-            initChecksumMap();
-        }
-
-        if (fileAlreadyExists == null) {
-            fileAlreadyExists = new HashMap<>();
+    /**
+     * @return the file uploaded earlier with the same content; null if there
+     *         is none (in which case this file is recorded as uploaded)
+     */
+    private DataFile findFileAlreadyUploaded(DataFile dataFile) {
+        if (uploadedFilesIndex == null) {
+            uploadedFilesIndex = new FileChecksumIndex();
         }
-
-        String chksum = dataFile.getChecksumValue();
-
-        if (checksumMapOld.get(chksum) != null) {
-            fileAlreadyExists.put(dataFile, checksumMapOld.get(chksum));
+        DataFile existingFile = uploadedFilesIndex.findDuplicate(dataFile);
+        if (existingFile == null) {
+            uploadedFilesIndex.add(dataFile);
         }
-
-        return chksum == null ? false : checksumMapOld.get(chksum) != null;
-    }
-
-    private boolean isFileAlreadyUploaded(DataFile dataFile) {
-
-        if (checksumMapNew == null) {
-            checksumMapNew = new HashMap<>();
-        }
-
-        return FileUtil.isFileAlreadyUploaded(dataFile, checksumMapNew, fileAlreadyExists);
-
+        return existingFile;
     }
 
     public boolean isLocked() {
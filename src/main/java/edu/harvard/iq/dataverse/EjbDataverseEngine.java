@@ -2,6 +2,7 @@ package edu.harvard.iq.dataverse;
 
 import edu.harvard.iq.dataverse.actionlogging.ActionLogRecord;
 import edu.harvard.iq.dataverse.actionlogging.ActionLogServiceBean;
+import edu.harvard.iq.dataverse.actionlogging.ActionLogWriter;
 import edu.harvard.iq.dataverse.authorization.AuthenticationServiceBean;
 import edu.harvard.iq.dataverse.authorization.providers.builtin.BuiltinUserServiceBean;
 import edu.harvard.iq.dataverse.util.cache.CacheFactoryBean;
@@ -14,6 +15,7 @@ import edu.harvard.iq.dataverse.confirmemail.ConfirmEmailServiceBean;
 import edu.harvard.iq.dataverse.datacapturemodule.DataCaptureModuleServiceBean;
 import edu.harvard.iq.dataverse.engine.command.Command;
 import edu.harvard.iq.dataverse.engine.command.CommandContext;
+import edu.harvard.iq.dataverse.engine.command.CommandHelper;
 import edu.harvard.iq.dataverse.engine.command.DataverseRequest;
 import edu.harvard.iq.dataverse.engine.command.exception.CommandException;
 import edu.harvard.iq.dataverse.engine.command.exception.PermissionException;
@@ -44,6 +46,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import jakarta.annotation.Resource;
 import jakarta.ejb.EJBContext;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 import jakarta.ejb.EJBException;
 import jakarta.ejb.TransactionAttribute;
 import static jakarta.ejb.TransactionAttributeType.REQUIRES_NEW;
@@ -169,6 +172,9 @@ public class EjbDataverseEngine {
     
     @EJB
     ActionLogServiceBean logSvc;
+
+    @EJB
+    ActionLogWriter actionLogWriter;
     
     @EJB
     WorkflowServiceBean workflowService;
@@ -191,6 +197,9 @@ public class EjbDataverseEngine {
     @Resource
     EJBContext ejbCtxt;
 
+    @Resource
+    ManagedExecutorService managedExecutor;
+
     private CommandContext ctxt;
     
     @TransactionAttribute(REQUIRES_NEW)
@@ -328,7 +337,7 @@ public class EjbDataverseEngine {
                 }                  
             }
             logRec.setEndTime(new java.util.Date());
-            logSvc.log(logRec);
+            actionLogWriter.log(logRec, logRec.getActionResult() == ActionLogRecord.Result.OK && CommandHelper.CH.isReadOnly(aCommand));
         }
     }
     
@@ -518,6 +527,11 @@ public class EjbDataverseEngine {
                     return dsField;
                 }
 
+                @Override
+                public ManagedExecutorService executor() {
+                    return managedExecutor;
+                }
+
                 @Override
                 public StorageUseServiceBean storageUse() {
                     return storageUseService;
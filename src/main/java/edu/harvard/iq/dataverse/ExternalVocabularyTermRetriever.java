@@ -0,0 +1,282 @@
+package edu.harvard.iq.dataverse;
+
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.json.Json;
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Retrieves the information about many external vocabulary terms (e.g. the
+ * ORCIDs, RORs and keywords of a dataset being saved) from their services:
+ * the calling thread, and up to dataverse.cvoc.retrieval-threads - 1 tasks on
+ * the default managed executor, send the requests, through one http client
+ * shared by all the retrievals. Across all the retrievals running on this
+ * node, at most dataverse.cvoc.retrieval-max-per-service requests are sent to
+ * the same service (host) at a time.
+ * <p>
+ * Only the calls to the services run on the executor; the responses are
+ * filtered and stored by the caller (see
+ * {@link DatasetFieldServiceBean#registerExternalVocabValues(List)}).
+ */
+@ApplicationScoped
+public class ExternalVocabularyTermRetriever {
+
+    private static final Logger logger = Logger.getLogger(ExternalVocabularyTermRetriever.class.getCanonicalName());
+
+    public static final int DEFAULT_THREADS = 8;
+    public static final int DEFAULT_MAX_PER_SERVICE = 4;
+
+    private static final Map<String, Semaphore> serviceLimits = new ConcurrentHashMap<>();
+
+    /**
+     * A term to retrieve; and, once retrieved, the response of its service.
+     */
+    public static class Retrieval {
+
+        private final JsonObject cvocEntry;
+        private final String term;
+        private final String retrievalUri;
+        private JsonObject response;
+
+        public Retrieval(JsonObject cvocEntry, String term, String retrievalUri) {
+            this.cvocEntry = cvocEntry;
+            this.term = term;
+            this.retrievalUri = retrievalUri;
+        }
+
+        public JsonObject getCvocEntry() {
+            return cvocEntry;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        public String getRetrievalUri() {
+            return retrievalUri;
+        }
+
+        /**
+         * @return the (unfiltered) response of the service; null if the term
+         *         could not be retrieved
+         */
+        public JsonObject getResponse() {
+            return response;
+        }
+    }
+
+    /**
+     * The call to the service of a term.
+     */
+    @FunctionalInterface
+    interface Fetcher {
+        JsonObject fetch(CloseableHttpClient httpClient, Retrieval retrieval) throws IOException;
+    }
+
+    @Resource
+    ManagedExecutorService managedExecutor;
+
+    private final int threads;
+    private final int maxPerService;
+    private final Fetcher fetcher;
+    // null: the requests are all sent by the calling thread
+    private ExecutorService executor;
+    private CloseableHttpClient httpClient;
+
+    public ExternalVocabularyTermRetriever() {
+        this(JvmSettings.CVOC_RETRIEVAL_THREADS.lookupOptional(Integer.class).orElse(DEFAULT_THREADS),
+                JvmSettings.CVOC_RETRIEVAL_MAX_PER_SERVICE.lookupOptional(Integer.class).orElse(DEFAULT_MAX_PER_SERVICE),
+                ExternalVocabularyTermRetriever::fetch, null);
+    }
+
+    ExternalVocabularyTermRetriever(int threads, int maxPerService, Fetcher fetcher, ExecutorService executor) {
+        this.threads = Math.max(1, threads);
+        this.maxPerService = Math.max(1, maxPerService);
+        this.fetcher = fetcher;
+        this.executor = executor;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (executor == null) {
+            executor = managedExecutor;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (httpClient != null) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                logger.warning("Could not close the http client: " + e.getMessage());
+            }
+            httpClient = null;
+        }
+    }
+
+    private synchronized CloseableHttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = createHttpClient(threads, maxPerService);
+        }
+        return httpClient;
+    }
+
+    /**
+     * Retrieves the terms, setting the response of each one that could be
+     * retrieved; returns once all of them have been tried.
+     */
+    public void retrieve(List<Retrieval> retrievals) {
+        if (retrievals.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        CloseableHttpClient client = getHttpClient();
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            int i;
+            while ((i = next.getAndIncrement()) < retrievals.size()) {
+                send(client, retrievals.get(i));
+            }
+        };
+
+        List<Future<?>> futures = new ArrayList<>();
+        if (executor != null) {
+            for (int w = 1; w < Math.min(threads, retrievals.size()); w++) {
+                try {
+                    futures.add(executor.submit(worker));
+                } catch (RejectedExecutionException e) {
+                    // (the workers already started, and this thread, send the rest)
+                    break;
+                }
+            }
+        }
+        worker.run();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // send() doesn't throw; should not happen
+            throw new IllegalStateException(e.getCause());
+        }
+        logger.fine("Retrieved " + retrievals.size() + " external vocabulary terms in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private void send(CloseableHttpClient httpClient, Retrieval retrieval) {
+        Semaphore limit = serviceLimits.computeIfAbsent(getService(retrieval.retrievalUri), service -> new Semaphore(maxPerService));
+        try {
+            limit.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            logger.fine("Calling " + retrieval.retrievalUri + " for " + retrieval.term);
+            retrieval.response = fetcher.fetch(httpClient, retrieval);
+        } catch (IOException ioe) {
+            logger.severe("IOException when retrieving url: " + retrieval.retrievalUri + " : " + ioe.getMessage());
+        } catch (RuntimeException e) {
+            logger.severe("Error retrieving: " + retrieval.retrievalUri + " : " + e.getMessage());
+        } finally {
+            limit.release();
+        }
+    }
+
+    /**
+     * @return the host the terms are retrieved from
+     */
+    static String getService(String retrievalUri) {
+        try {
+            String host = URI.create(retrievalUri).getHost();
+            return host == null ? retrievalUri : host.toLowerCase();
+        } catch (IllegalArgumentException e) {
+            return retrievalUri;
+        }
+    }
+
+    private static CloseableHttpClient createHttpClient(int threads, int maxPerService) {
+        return HttpClients.custom()
+                .addInterceptorLast(new HttpResponseInterceptor() {
+                    @Override
+                    public void process(HttpResponse response, HttpContext context) throws HttpException, IOException {
+                        int statusCode = response.getStatusLine().getStatusCode();
+                        if (statusCode == 504) {
+                            //Throwing an exception triggers the retry handler
+                            throw new IOException("Retry due to 504 response");
+                        }
+                    }
+                })
+                //The retry handler will also do retries for network errors/other things that cause an IOException
+                .setRetryHandler(new DefaultHttpRequestRetryHandler(3, false))
+                // (shared by the retrievals of all the datasets being saved;
+                // the requests beyond it wait for a connection)
+                .setMaxConnTotal(threads * maxPerService)
+                .setMaxConnPerRoute(maxPerService)
+                .build();
+    }
+
+    private static JsonObject fetch(CloseableHttpClient httpClient, Retrieval retrieval) throws IOException {
+        HttpGet httpGet = new HttpGet(retrieval.retrievalUri);
+        //application/json+ld is for backward compatibility
+        httpGet.addHeader("Accept", "application/ld+json, application/json+ld, application/json");
+        //Adding others custom HTTP request headers if exists
+        final JsonObject headers = retrieval.cvocEntry.getJsonObject("headers");
+        if (headers != null) {
+            final Set<String> headerKeys = headers.keySet();
+            for (final String hKey: headerKeys) {
+                httpGet.addHeader(hKey, headers.getString(hKey));
+            }
+        }
+        HttpResponse response = httpClient.execute(httpGet);
+        String data = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode != 200) {
+            logger.severe("Received response code : " + statusCode + " when retrieving " + retrieval.retrievalUri
+                    + " : " + data);
+            return null;
+        }
+        logger.fine("Returned data: " + data);
+        try (JsonReader jsonReader = Json.createReader(new StringReader(data))) {
+            return jsonReader.readObject();
+        } catch (JsonException je) {
+            logger.severe("Error retrieving: " + retrieval.retrievalUri + " : " + je.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package edu.harvard.iq.dataverse;
+
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.json.JsonObject;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The (parsed) values of the external vocabulary terms, as stored in the
+ * ExternalVocabularyValue table, kept in memory: indexing a dataset, or
+ * exporting its metadata, asks for the value of every term URI in it, and
+ * the same ORCIDs, RORs and keywords are used by many datasets.
+ * <p>
+ * At most dataverse.cvoc.cache-size values are kept; the least recently used
+ * ones are dropped first. A value older than dataverse.cvoc.cache-refresh-after
+ * seconds is read again from the database, on the default managed executor,
+ * once a request finds it; that request, and the others, are still answered
+ * with it in the meantime, rather than made to wait. A term that has no value yet is remembered as such for
+ * dataverse.cvoc.retrieval-failure-ttl seconds only; and so is a term that
+ * couldn't be retrieved from its service, so that saving the next dataset
+ * using it doesn't wait for the service to fail again.
+ */
+@ApplicationScoped
+public class ExternalVocabularyValueCache {
+
+    private static final Logger logger = Logger.getLogger(ExternalVocabularyValueCache.class.getCanonicalName());
+
+    public static final int DEFAULT_SIZE = 10000;
+    public static final long DEFAULT_REFRESH_AFTER_SECONDS = 600;
+    public static final long DEFAULT_FAILURE_TTL_SECONDS = 300;
+
+    private static class Entry {
+        // null if the term has no value
+        final JsonObject value;
+        final long loaded;
+
+        Entry(JsonObject value, long loaded) {
+            this.value = value;
+            this.loaded = loaded;
+        }
+    }
+
+    private final int maxSize;
+    private final long refreshAfterMillis;
+    private final long failureTtlMillis;
+    private final Map<String, Entry> entries;
+    private final Map<String, CompletableFuture<JsonObject>> loading = new ConcurrentHashMap<>();
+    // term URI -> when it may be retrieved again
+    private final Map<String, Long> failedRetrievals;
+
+    @Resource
+    ManagedExecutorService managedExecutor;
+
+    // runs the refreshes; null: they run on the thread of the request
+    private Executor refreshExecutor;
+
+    public ExternalVocabularyValueCache() {
+        this(JvmSettings.CVOC_CACHE_SIZE.lookupOptional(Integer.class).orElse(DEFAULT_SIZE),
+                JvmSettings.CVOC_CACHE_REFRESH_AFTER.lookupOptional(Long.class).orElse(DEFAULT_REFRESH_AFTER_SECONDS) * 1000,
+                JvmSettings.CVOC_RETRIEVAL_FAILURE_TTL.lookupOptional(Long.class).orElse(DEFAULT_FAILURE_TTL_SECONDS) * 1000,
+                null);
+    }
+
+    ExternalVocabularyValueCache(int maxSize, long refreshAfterMillis, long failureTtlMillis, Executor refreshExecutor) {
+        this.maxSize = maxSize;
+        this.refreshAfterMillis = refreshAfterMillis;
+        this.failureTtlMillis = failureTtlMillis;
+        this.refreshExecutor = refreshExecutor;
+        this.entries = new LruMap<>(maxSize);
+        this.failedRetrievals = new LruMap<>(maxSize);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (refreshExecutor == null) {
+            refreshExecutor = managedExecutor;
+        }
+    }
+
+    /**
+     * Returns the cached value of a term, or loads (and caches) it.
+     *
+     * @param loader reads the value from the database; returns null if the
+     *               term has none. May be called on another thread, to
+     *               refresh a stale value.
+     * @return the value; or null, if the term has none
+     */
+    public JsonObject get(String termUri, Function<String, JsonObject> loader) {
+        if (maxSize <= 0) {
+            return loader.apply(termUri);
+        }
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(termUri);
+        }
+        if (entry != null) {
+            long age = System.currentTimeMillis() - entry.loaded;
+            if (entry.value == null ? age < failureTtlMillis : age < refreshAfterMillis) {
+                return entry.value;
+            }
+            if (entry.value != null) {
+                refresh(termUri, loader);
+                return entry.value;
+            }
+        }
+
+        CompletableFuture<JsonObject> load = new CompletableFuture<>();
+        CompletableFuture<JsonObject> loadInProgress = loading.putIfAbsent(termUri, load);
+        if (loadInProgress != null) {
+            try {
+                return loadInProgress.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException ex) {
+                return null;
+            }
+        }
+
+        try {
+            JsonObject value = loader.apply(termUri);
+            put(termUri, value);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException ex) {
+            // (the error is not cached; the next request will try again)
+            logger.log(Level.WARNING, "Could not load the external vocabulary value of " + termUri, ex);
+            load.completeExceptionally(ex);
+            return null;
+        } finally {
+            loading.remove(termUri, load);
+        }
+    }
+
+    /**
+     * Reads the value of a term again, in the background; unless it's already
+     * being read.
+     */
+    private void refresh(String termUri, Function<String, JsonObject> loader) {
+        CompletableFuture<JsonObject> load = new CompletableFuture<>();
+        if (loading.putIfAbsent(termUri, load) != null) {
+            return;
+        }
+        Runnable refresh = () -> {
+            try {
+                JsonObject value = loader.apply(termUri);
+                put(termUri, value);
+                load.complete(value);
+            } catch (RuntimeException ex) {
+                // (the stale value is kept; the next request will try again)
+                logger.log(Level.WARNING, "Could not refresh the external vocabulary value of " + termUri, ex);
+                load.completeExceptionally(ex);
+            } finally {
+                loading.remove(termUri, load);
+            }
+        };
+        if (refreshExecutor == null) {
+            refresh.run();
+            return;
+        }
+        try {
+            refreshExecutor.execute(refresh);
+        } catch (RejectedExecutionException ex) {
+            logger.fine("Could not refresh the external vocabulary value of " + termUri + " now: " + ex.getMessage());
+            load.completeExceptionally(ex);
+            loading.remove(termUri, load);
+        }
+    }
+
+    /**
+     * Caches the value of a term, just written to the database (once the
+     * transaction writing it has committed).
+     */
+    public void put(String termUri, JsonObject value) {
+        if (maxSize <= 0) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(termUri, new Entry(value, System.currentTimeMillis()));
+        }
+        if (value != null) {
+            synchronized (failedRetrievals) {
+                failedRetrievals.remove(termUri);
+            }
+        }
+    }
+
+    /**
+     * Records that a term could not be retrieved from its service.
+     */
+    public void retrievalFailed(String termUri) {
+        if (failureTtlMillis > 0) {
+            synchronized (failedRetrievals) {
+                failedRetrievals.put(termUri, System.currentTimeMillis() + failureTtlMillis);
+            }
+        }
+    }
+
+    /**
+     * @return whether the retrieval of the term has failed recently, and
+     *         shouldn't be tried again yet
+     */
+    public boolean isRetrievalFailing(String termUri) {
+        synchronized (failedRetrievals) {
+            Long until = failedRetrievals.get(termUri);
+            if (until == null) {
+                return false;
+            }
+            if (until > System.currentTimeMillis()) {
+                return true;
+            }
+            failedRetrievals.remove(termUri);
+            return false;
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Drops the least recently used entries beyond its maximum size.
+     */
+    private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+
+        private final int maxSize;
+
+        LruMap(int maxSize) {
+            super(256, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package edu.harvard.iq.dataverse;
+
+import edu.harvard.iq.dataverse.actionlogging.ActionLogRecord;
+import edu.harvard.iq.dataverse.actionlogging.ActionLogServiceBean;
+import edu.harvard.iq.dataverse.dataaccess.FileChecksumValidator;
+import edu.harvard.iq.dataverse.dataaccess.StorageIO;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.FileUtil;
+import edu.harvard.iq.dataverse.util.SystemConfig;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Logger;
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * The scheduled fixity audit: re-validates the checksums of all the files
+ * in the repository with the {@link FileChecksumValidator}, once a week, on
+ * the timer server, when dataverse.files.checksum-validation.audit-enabled
+ * is set. The outcome is logged, and recorded in the action log.
+ */
+@Stateless
+public class FileFixityAuditServiceBean {
+
+    private static final Logger logger = Logger.getLogger(FileFixityAuditServiceBean.class.getCanonicalName());
+
+    private static final int BATCH_SIZE = 1000;
+
+    @EJB
+    SystemConfig systemConfig;
+
+    @EJB
+    ActionLogServiceBean actionLogSvc;
+
+    @Resource
+    ManagedExecutorService executor;
+
+    @PersistenceContext(unitName = "VDCNet-ejbPU")
+    private EntityManager em;
+
+    @Schedule(dayOfWeek = "Sat", hour = "2", minute = "0", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void auditTimer() {
+        if (systemConfig.isTimerServer() && JvmSettings.CHECKSUM_VALIDATION_AUDIT_ENABLED.lookupOptional(Boolean.class).orElse(false)) {
+            auditAllFiles();
+        }
+    }
+
+    /**
+     * Validates the files batch by batch, in the order of their ids; each
+     * batch is loaded outside of any transaction, so the files of the
+     * previous batches can be garbage collected.
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void auditAllFiles() {
+        ActionLogRecord alr = new ActionLogRecord(ActionLogRecord.ActionType.Admin, "fixityAudit");
+        logger.info("Starting the fixity audit of all the files");
+
+        long maxFileSize = systemConfig.getFileValidationSizeLimit();
+        FileChecksumValidator validator = new FileChecksumValidator(executor);
+        long lastId = 0;
+        int validated = 0;
+        int skipped = 0;
+        List<Long> invalidFileIds = new ArrayList<>();
+        try {
+            List<DataFile> batch;
+            do {
+                batch = em.createQuery("SELECT f FROM DataFile f, Dataset d WHERE f.owner.id = d.id AND d.harvestedFrom IS NULL"
+                        + " AND f.storageIdentifier IS NOT NULL AND f.id > :lastId ORDER BY f.id", DataFile.class)
+                        .setParameter("lastId", lastId)
+                        .setMaxResults(BATCH_SIZE)
+                        .getResultList();
+                List<DataFile> filesToValidate = new ArrayList<>();
+                for (DataFile dataFile : batch) {
+                    lastId = dataFile.getId();
+                    if (StorageIO.isDataverseAccessible(FileUtil.getStorageDriver(dataFile)) && (maxFileSize == -1 || dataFile.getFilesize() < maxFileSize)) {
+                        filesToValidate.add(dataFile);
+                    } else {
+                        skipped++;
+                    }
+                }
+                for (FileChecksumValidator.Result result : validator.validate(filesToValidate)) {
+                    validated++;
+                    if (!result.isValid()) {
+                        logger.warning("Fixity audit: " + result.getErrorMessage());
+                        invalidFileIds.add(result.getDataFile().getId());
+                    }
+                }
+            } while (batch.size() == BATCH_SIZE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            alr.setActionResult(ActionLogRecord.Result.InternalError);
+        }
+
+        String summary = "Validated " + validated + " file(s), skipped " + skipped + "; invalid: "
+                + (invalidFileIds.isEmpty() ? "none" : invalidFileIds.toString());
+        logger.info("Fixity audit finished. " + summary);
+        if (!invalidFileIds.isEmpty()) {
+            alr.setActionResult(ActionLogRecord.Result.InternalError);
+        }
+        alr.setInfo(summary);
+        alr.setEndTime(new Date());
+        actionLogSvc.log(alr);
+    }
+}
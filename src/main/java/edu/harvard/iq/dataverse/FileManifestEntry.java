@@ -0,0 +1,69 @@
+package edu.harvard.iq.dataverse;
+
+/**
+ * The fields of a file listed in the manifest of a dataset version; selected
+ * with a projection query, without loading the FileMetadata and DataFile
+ * entities (see {@link DatasetVersionFilesServiceBean#getFileManifestEntries}).
+ */
+public class FileManifestEntry {
+
+    private final Long id;
+    private final String directoryLabel;
+    private final String label;
+    private final Long filesize;
+    private final DataFile.ChecksumType checksumType;
+    private final String checksumValue;
+    private final String contentType;
+    private final boolean restricted;
+
+    public FileManifestEntry(Long id, String directoryLabel, String label, Long filesize, DataFile.ChecksumType checksumType,
+                             String checksumValue, String contentType, boolean restricted) {
+        this.id = id;
+        this.directoryLabel = directoryLabel;
+        this.label = label;
+        this.filesize = filesize;
+        this.checksumType = checksumType;
+        this.checksumValue = checksumValue;
+        this.contentType = contentType;
+        this.restricted = restricted;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getDirectoryLabel() {
+        return directoryLabel;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return the path of the file in the dataset (its folder and name)
+     */
+    public String getPath() {
+        return directoryLabel == null || directoryLabel.isEmpty() ? label : directoryLabel + "/" + label;
+    }
+
+    public Long getFilesize() {
+        return filesize;
+    }
+
+    public DataFile.ChecksumType getChecksumType() {
+        return checksumType;
+    }
+
+    public String getChecksumValue() {
+        return checksumValue;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public boolean isRestricted() {
+        return restricted;
+    }
+}
@@ -0,0 +1,183 @@
+package edu.harvard.iq.dataverse;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * A snapshot of the metadata schema of the installation: the field types by
+ * name, the controlled vocabulary values of each field type and their
+ * alternate spellings, and the external vocabulary configuration (the
+ * :CVocConf setting) by field type. Immutable once built; a new one is built
+ * when the metadata blocks or the setting change (see
+ * {@link MetadataSchemaServiceBean}).
+ * <p>
+ * The entities it holds are shared by all the requests using the snapshot:
+ * they may be referenced by new dataset fields, but must not be modified.
+ */
+public class MetadataSchema {
+
+    private static final Logger logger = Logger.getLogger(MetadataSchema.class.getCanonicalName());
+
+    private final long version;
+    private final Map<String, DatasetFieldType> fieldTypesByName = new HashMap<>();
+    // field type id -> strValue -> value; null if several values have the strValue
+    private final Map<Long, Map<String, ControlledVocabularyValue>> valuesByType = new HashMap<>();
+    // field type id -> alternate strValue -> value; null if ambiguous
+    private final Map<Long, Map<String, ControlledVocabularyValue>> alternateValuesByType = new HashMap<>();
+    // value id -> alternate strValue -> the alternate with the lowest id
+    private final Map<Long, Map<String, ControlledVocabAlternate>> alternatesByValue = new HashMap<>();
+    private final String cvocSetting;
+    private final Map<Long, JsonObject> cvocMap = new HashMap<>();
+    private final Map<Long, JsonObject> cvocMapByTermUri = new HashMap<>();
+
+    /**
+     * @param fieldTypes  all the field types, with their controlled
+     *                    vocabulary values and the alternates of these
+     *                    (which are not modified afterwards)
+     * @param cvocSetting the :CVocConf setting; null if not set
+     */
+    public MetadataSchema(long version, Collection<DatasetFieldType> fieldTypes, String cvocSetting) {
+        this.version = version;
+        this.cvocSetting = cvocSetting;
+        for (DatasetFieldType fieldType : fieldTypes) {
+            fieldTypesByName.put(fieldType.getName(), fieldType);
+            if (fieldType.getControlledVocabularyValues() == null) {
+                continue;
+            }
+            for (ControlledVocabularyValue cvv : fieldType.getControlledVocabularyValues()) {
+                putUnique(valuesByType.computeIfAbsent(fieldType.getId(), id -> new HashMap<>()), cvv.getStrValue(), cvv);
+                for (ControlledVocabAlternate alternate : cvv.getControlledVocabAlternates()) {
+                    DatasetFieldType alternateType = alternate.getDatasetFieldType() == null ? fieldType : alternate.getDatasetFieldType();
+                    putUnique(alternateValuesByType.computeIfAbsent(alternateType.getId(), id -> new HashMap<>()), alternate.getStrValue(), cvv);
+                    alternatesByValue.computeIfAbsent(cvv.getId(), id -> new HashMap<>()).merge(alternate.getStrValue(), alternate,
+                            (first, second) -> first.getId() != null && second.getId() != null && second.getId() < first.getId() ? second : first);
+                }
+            }
+            // (the lookup map of the field type is built now, rather than by
+            // concurrent readers)
+            if (fieldType.isControlledVocabulary()) {
+                fieldType.getControlledVocabularyValue("");
+            }
+        }
+        parseCVocConf();
+    }
+
+    private static void putUnique(Map<String, ControlledVocabularyValue> values, String strValue, ControlledVocabularyValue cvv) {
+        if (values.containsKey(strValue) && values.get(strValue) != cvv) {
+            values.put(strValue, null);
+        } else {
+            values.put(strValue, cvv);
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the field type; or null, if there is none by that name
+     */
+    public DatasetFieldType getFieldType(String name) {
+        return fieldTypesByName.get(name);
+    }
+
+    /**
+     * @see DatasetFieldServiceBean#findControlledVocabularyValueByDatasetFieldTypeAndStrValue(DatasetFieldType, String, boolean)
+     */
+    public ControlledVocabularyValue getControlledVocabularyValue(DatasetFieldType dsft, String strValue, boolean lenient) {
+        if (dsft == null || dsft.getId() == null) {
+            return null;
+        }
+        ControlledVocabularyValue cvv = valuesByType.getOrDefault(dsft.getId(), Collections.emptyMap()).get(strValue);
+        if (cvv == null && lenient) {
+            cvv = alternateValuesByType.getOrDefault(dsft.getId(), Collections.emptyMap()).get(strValue);
+        }
+        return cvv;
+    }
+
+    /**
+     * @see DatasetFieldServiceBean#findControlledVocabAlternateByControlledVocabularyValueAndStrValue(ControlledVocabularyValue, String)
+     */
+    public ControlledVocabAlternate getControlledVocabAlternate(ControlledVocabularyValue cvv, String strValue) {
+        if (cvv == null || cvv.getId() == null) {
+            return null;
+        }
+        return alternatesByValue.getOrDefault(cvv.getId(), Collections.emptyMap()).get(strValue);
+    }
+
+    /**
+     * @return the :CVocConf setting the snapshot was built with
+     */
+    public String getCVocSetting() {
+        return cvocSetting;
+    }
+
+    /**
+     * @see DatasetFieldServiceBean#getCVocConf(boolean)
+     */
+    public Map<Long, JsonObject> getCVocConf(boolean byTermUriField) {
+        return Collections.unmodifiableMap(byTermUriField ? cvocMapByTermUri : cvocMap);
+    }
+
+    private void parseCVocConf() {
+        if (cvocSetting == null || cvocSetting.isEmpty()) {
+            return;
+        }
+        try (JsonReader jsonReader = Json.createReader(new StringReader(cvocSetting))) {
+            JsonArray cvocConfJsonArray = jsonReader.readArray();
+            for (JsonObject jo : cvocConfJsonArray.getValuesAs(JsonObject.class)) {
+                DatasetFieldType dft = getFieldType(jo.getString("field-name"));
+                if (dft == null) {
+                    logger.warning("Ignoring External Vocabulary setting for non-existent field: "
+                      + jo.getString("field-name"));
+                    continue;
+                }
+                cvocMap.put(dft.getId(), jo);
+                if (jo.containsKey("term-uri-field")) {
+                    String termUriField = jo.getString("term-uri-field");
+                    if (!dft.isHasChildren()) {
+                        if (termUriField.equals(dft.getName())) {
+                            logger.fine("Found primitive field for term uri : " + dft.getName() + ": " + dft.getId());
+                            cvocMapByTermUri.put(dft.getId(), jo);
+                        }
+                    } else {
+                        DatasetFieldType childdft = getFieldType(termUriField);
+                        if (childdft == null) {
+                            logger.warning("Ignoring External Vocabulary setting for non-existent child field: "
+                              + termUriField);
+                        } else {
+                            logger.fine("Found term child field: " + childdft.getName()+ ": " + childdft.getId());
+                            cvocMapByTermUri.put(childdft.getId(), jo);
+                            if (childdft.getParentDatasetFieldType() != dft) {
+                                logger.warning("Term URI field (" + childdft.getDisplayName() + ") not a child of parent: "
+                                  + dft.getDisplayName());
+                            }
+                        }
+                    }
+                }
+                if (jo.containsKey("managed-fields")) {
+                    JsonObject managedFields = jo.getJsonObject("managed-fields");
+                    for (String s : managedFields.keySet()) {
+                        if (getFieldType(managedFields.getString(s)) == null) {
+                            logger.warning("Ignoring External Vocabulary setting for non-existent child field: "
+                                    + managedFields.getString(s));
+                        } else {
+                            logger.fine("Found: " + managedFields.getString(s));
+                        }
+                    }
+                }
+            }
+        } catch (JsonException e) {
+            logger.warning("Ignoring External Vocabulary setting due to parsing error: " + e.getLocalizedMessage());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package edu.harvard.iq.dataverse;
+
+import edu.harvard.iq.dataverse.settings.Setting;
+import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
+import jakarta.enterprise.inject.spi.CDI;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Has the {@link MetadataSchema} built again when a metadata block, field
+ * type, controlled vocabulary value or alternate, or the :CVocConf setting,
+ * is created, changed or deleted.
+ *
+ * @see MetadataSchemaServiceBean
+ */
+public class MetadataSchemaListener {
+
+    private MetadataSchemaServiceBean metadataSchema;
+
+    private MetadataSchemaServiceBean getMetadataSchema() {
+        if (metadataSchema == null) {
+            metadataSchema = CDI.current().select(MetadataSchemaServiceBean.class).get();
+        }
+        return metadataSchema;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void changed(Object entity) {
+        if (entity instanceof Setting && !SettingsServiceBean.Key.CVocConf.toString().equals(((Setting) entity).getName())) {
+            return;
+        }
+        getMetadataSchema().changed();
+    }
+}
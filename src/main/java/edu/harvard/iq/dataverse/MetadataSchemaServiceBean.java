@@ -0,0 +1,184 @@
+package edu.harvard.iq.dataverse;
+
+import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.configuration.MutableConfiguration;
+
+/**
+ * The current {@link MetadataSchema} of the installation: built when first
+ * needed, with one query, and built again when a metadata block, field type,
+ * controlled vocabulary value or alternate, or the :CVocConf setting, is
+ * changed (see {@link MetadataSchemaListener}). Readers keep the snapshot they
+ * got; a new one replaces it as a whole. The entities of a snapshot are read
+ * only, and not part of the persistence context of the transaction that
+ * happened to build it.
+ * <p>
+ * The nodes of a cluster share a version number (in a Hazelcast-backed
+ * JCache), incremented by every transaction that changed the schema; a node
+ * checks it (at most once every
+ * {@value DvObjectTreeServiceBean#VERSION_CHECK_INTERVAL_MS} ms), and builds a
+ * new snapshot if it has another version.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class MetadataSchemaServiceBean {
+
+    private static final Logger logger = Logger.getLogger(MetadataSchemaServiceBean.class.getCanonicalName());
+
+    public static final String VERSION_CACHE = "metadataSchemaVersionCache";
+    private static final String VERSION_KEY = "version";
+
+    @PersistenceContext(unitName = "VDCNet-ejbPU")
+    private EntityManager em;
+
+    @EJB
+    SettingsServiceBean settingsService;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    @Inject
+    CacheManager manager;
+
+    private Cache<String, Long> versionCache;
+    private final Object buildLock = new Object();
+    // null when it has to be built (again)
+    private volatile MetadataSchema schema = null;
+    // when the shared version was last found to be the one of the snapshot
+    private volatile long versionCheckedAt = 0;
+
+    @PostConstruct
+    public void init() {
+        try {
+            versionCache = manager.getCache(VERSION_CACHE);
+            if (versionCache == null) {
+                versionCache = manager.createCache(VERSION_CACHE, new MutableConfiguration<String, Long>().setTypes(String.class, Long.class));
+            }
+        } catch (RuntimeException ex) {
+            // (e.g. created concurrently by another node)
+            versionCache = manager.getCache(VERSION_CACHE);
+        }
+    }
+
+    /**
+     * @return the current snapshot of the schema
+     */
+    public MetadataSchema getSchema() {
+        MetadataSchema current = schema;
+        if (current != null && isUpToDate(current)) {
+            return current;
+        }
+        synchronized (buildLock) {
+            current = schema;
+            // (the version is read first: a change committed while building
+            // makes the next reader build the schema again)
+            long checked = System.currentTimeMillis();
+            long version = getSharedVersion(current);
+            if (current == null || current.getVersion() != version) {
+                current = build(version);
+                schema = current;
+            }
+            versionCheckedAt = checked;
+            return current;
+        }
+    }
+
+    private boolean isUpToDate(MetadataSchema current) {
+        long now = System.currentTimeMillis();
+        if (now - versionCheckedAt < DvObjectTreeServiceBean.VERSION_CHECK_INTERVAL_MS) {
+            return true;
+        }
+        if (current.getVersion() == getSharedVersion(current)) {
+            versionCheckedAt = now;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records that the schema is changed by the current transaction; the
+     * snapshot is dropped once the transaction is over (whether it's committed
+     * or not, since the snapshot may have been built by the transaction
+     * itself, with its changes).
+     */
+    public void changed() {
+        Object transaction = transactionSynchronizationRegistry.getTransactionKey();
+        if (transaction == null) {
+            invalidate();
+            return;
+        }
+        if (transactionSynchronizationRegistry.getResource(MetadataSchemaServiceBean.class) != null) {
+            return;
+        }
+        transactionSynchronizationRegistry.putResource(MetadataSchemaServiceBean.class, Boolean.TRUE);
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                invalidate();
+            }
+        });
+    }
+
+    private void invalidate() {
+        schema = null;
+        try {
+            versionCache.invoke(VERSION_KEY, new DvObjectTreeServiceBean.IncrementProcessor());
+        } catch (RuntimeException ex) {
+            logger.log(Level.WARNING, "Could not update the version of the metadata schema", ex);
+        }
+    }
+
+    /**
+     * @return the shared version; or, if it can't be read, the version of the
+     *         current snapshot (if any)
+     */
+    private long getSharedVersion(MetadataSchema current) {
+        try {
+            Long shared = versionCache.get(VERSION_KEY);
+            return shared == null ? 0 : shared;
+        } catch (RuntimeException ex) {
+            logger.log(Level.WARNING, "Could not read the version of the metadata schema", ex);
+            return current == null ? 0 : current.getVersion();
+        }
+    }
+
+    private MetadataSchema build(long version) {
+        long start = System.currentTimeMillis();
+        // (read only: the entities are shared by all the readers of the
+        // snapshot, so they are not registered with the caller's transaction)
+        List<DatasetFieldType> fieldTypes = em.createQuery("SELECT DISTINCT o FROM DatasetFieldType o", DatasetFieldType.class)
+                .setHint("eclipselink.read-only", "true")
+                .setHint("eclipselink.left-join-fetch", "o.metadataBlock")
+                .setHint("eclipselink.left-join-fetch", "o.parentDatasetFieldType")
+                .setHint("eclipselink.left-join-fetch", "o.childDatasetFieldTypes")
+                .setHint("eclipselink.left-join-fetch", "o.controlledVocabularyValues")
+                .setHint("eclipselink.left-join-fetch", "o.controlledVocabularyValues.controlledVocabAlternates")
+                .getResultList();
+        MetadataSchema built = new MetadataSchema(version, fieldTypes, settingsService.getValueForKey(SettingsServiceBean.Key.CVocConf));
+        logger.info("Loaded the metadata schema: " + fieldTypes.size() + " field types, in "
+                + (System.currentTimeMillis() - start) + " ms");
+        return built;
+    }
+}
@@ -91,6 +91,9 @@ public class PermissionServiceBean {
     @EJB
     GroupServiceBean groupService;
 
+    @EJB
+    DvObjectTreeServiceBean dvObjectTree;
+
     @Inject
     DataverseSession session;
 
@@ -266,10 +269,10 @@ public class PermissionServiceBean {
         }
               
         // Actually look at permissions
-        Set<DvObject> parents = getPermissionAncestors(dvo);
+        Set<Long> parents = getPermissionAncestorIds(dvo);
         Set<RoleAssignee> ras = new HashSet<>(groupService.groupsFor(req));
         ras.add(user);
-        List<RoleAssignment> parentsAsignments = roleService.directRoleAssignments(ras, parents);
+        List<RoleAssignment> parentsAsignments = roleService.directRoleAssignmentsByIds(ras, parents);
         
         for (RoleAssignment asmnt : parentsAsignments) {
             required.removeAll(asmnt.getRole().permissions());
@@ -472,8 +475,8 @@ public class PermissionServiceBean {
     }
 
     public Set<RoleAssignment> assignmentsFor(Set<RoleAssignee> ras, DvObject d) {
-        Set<DvObject> permAncestors = getPermissionAncestors(d);
-        return new HashSet<>(roleService.directRoleAssignments(ras, permAncestors));
+        Set<Long> permAncestors = getPermissionAncestorIds(d);
+        return new HashSet<>(roleService.directRoleAssignmentsByIds(ras, permAncestors));
     }
 
     public Set<DvObject> getPermissionAncestors(DvObject d) {
@@ -489,6 +492,36 @@ public class PermissionServiceBean {
         return ancestors;
     }
 
+    /**
+     * The ids of the {@link #getPermissionAncestors(DvObject)}: from the
+     * collection hierarchy, if it has the collection or dataset (or the
+     * dataset of the file) as it is in memory.
+     */
+    private Set<Long> getPermissionAncestorIds(DvObject d) {
+        Set<Long> ids = new HashSet<>();
+        DvObject container = d;
+        if (d instanceof DataFile) {
+            // (a file is never a permission root)
+            if (d.getId() != null) {
+                ids.add(d.getId());
+            }
+            container = d.getOwner();
+        }
+        if (container instanceof DvObjectContainer) {
+            List<Long> ancestors = dvObjectTree.findPermissionAncestorIds((DvObjectContainer) container);
+            if (ancestors != null) {
+                ids.addAll(ancestors);
+                return ids;
+            }
+        }
+        for (DvObject ancestor : getPermissionAncestors(container)) {
+            if (ancestor.getId() != null) {
+                ids.add(ancestor.getId());
+            }
+        }
+        return ids;
+    }
+
     /**
      * For commands with no named dvObjects, this allows a quick check whether a
      * user can issue the command on the dataverse or not.
@@ -0,0 +1,268 @@
+package edu.harvard.iq.dataverse;
+
+import edu.harvard.iq.dataverse.dataaccess.ImageThumbConverter;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.FileUtil;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.inject.Named;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Pre-renders file thumbnails in the background, in all the configured sizes,
+ * so that pages and API calls asking for them never have to wait for
+ * ImageIO/PDF rendering. The files are queued, and rendered by at most
+ * dataverse.files.thumbnails.max-async-generations
+ * {@link ThumbnailGenerationWorker}s, running on the default managed
+ * executor; a worker only runs while there are files in the queue, so
+ * that no container thread waits for its turn.
+ *
+ * @see edu.harvard.iq.dataverse.settings.FeatureFlags#ASYNC_THUMBNAIL_GENERATION
+ */
+@Stateless
+@Named
+public class ThumbnailGenerationServiceBean {
+
+    private static final Logger logger = Logger.getLogger(ThumbnailGenerationServiceBean.class.getCanonicalName());
+
+    private static final int MAX_ASYNC_GENERATIONS = Math.max(1, JvmSettings.THUMBNAILS_MAX_ASYNC_GENERATIONS.lookupOptional(Integer.class).orElse(2));
+    static final int BACKFILL_PAGE_SIZE = 1000;
+
+    private static final Queue<Long> queue = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger workers = new AtomicInteger();
+
+    // Ids of the files queued for, or in the middle of, thumbnail generation on
+    // this node; a page full of images that don't have thumbnails yet should
+    // not queue the same file once per request:
+    private static final Set<Long> pendingFileIds = ConcurrentHashMap.newKeySet();
+
+    // The backfill of the existing files: the id of the last file queued, and
+    // the number of files left to queue (if limited). The files are queued a
+    // page at a time, by the workers, once the queue is empty.
+    private static final Object backfillLock = new Object();
+    private static volatile boolean backfillRunning;
+    private static long backfillLastId;
+    private static Integer backfillRemaining;
+
+    @EJB
+    ThumbnailGenerationWorker thumbnailGenerationWorker;
+
+    @Resource
+    ManagedExecutorService executor;
+
+    @PersistenceContext(unitName = "VDCNet-ejbPU")
+    private EntityManager em;
+
+    /**
+     * @return the thumbnail sizes to pre-render, by default the sizes used
+     * for the card images, the file thumbnails, the dataset logos and the
+     * previews.
+     */
+    public static List<Integer> getThumbnailSizes() {
+        return JvmSettings.THUMBNAILS_SIZES.lookupOptional(Integer[].class)
+                .map(Arrays::asList)
+                .orElse(List.of(ImageThumbConverter.DEFAULT_CARDIMAGE_SIZE,
+                        ImageThumbConverter.DEFAULT_THUMBNAIL_SIZE,
+                        ImageThumbConverter.DEFAULT_DATASETLOGO_SIZE,
+                        ImageThumbConverter.DEFAULT_PREVIEW_SIZE));
+    }
+
+    public boolean isThumbnailGenerationPending(DataFile file) {
+        return file != null && pendingFileIds.contains(file.getId());
+    }
+
+    public void queueThumbnailGeneration(DataFile file) {
+        if (file == null || file.getId() == null || file.isPreviewImageFail() || !FileUtil.isThumbnailSupported(file)) {
+            return;
+        }
+        queueThumbnailGeneration(List.of(file.getId()));
+    }
+
+    /**
+     * Queues thumbnail generation for the files, skipping the ones already
+     * queued, and starts as many workers as needed (and allowed).
+     *
+     * @return the number of files that were queued
+     */
+    public int queueThumbnailGeneration(Collection<Long> fileIds) {
+        int queued = 0;
+        for (Long fileId : fileIds) {
+            if (fileId != null && pendingFileIds.add(fileId)) {
+                queue.add(fileId);
+                queued++;
+            }
+        }
+        if (queued > 0) {
+            logger.fine("Queueing thumbnail generation for " + queued + " file(s)");
+            startWorkers();
+        }
+        return queued;
+    }
+
+    /**
+     * Starts the backfill of the existing files that could have thumbnails
+     * but have neither a generated thumbnail nor a record of a failed
+     * attempt. The files are found a page at a time, as the workers get
+     * through the queue.
+     *
+     * @param limit the max number of files to queue; null for all of them
+     * @return false if a backfill is running already
+     */
+    public boolean startBackfill(Integer limit) {
+        synchronized (backfillLock) {
+            if (backfillRunning) {
+                return false;
+            }
+            backfillLastId = 0;
+            backfillRemaining = limit;
+            backfillRunning = true;
+        }
+        startWorkers();
+        return true;
+    }
+
+    static boolean isBackfillRunning() {
+        return backfillRunning;
+    }
+
+    static void stopBackfill() {
+        backfillRunning = false;
+    }
+
+    /**
+     * Queues the next page of the files of the backfill; or ends the backfill,
+     * if there are no more. Called by the workers once the queue is empty.
+     */
+    public void queueNextBackfillPage() {
+        synchronized (backfillLock) {
+            if (!backfillRunning || !queue.isEmpty()) {
+                // (another worker got here first)
+                return;
+            }
+            int pageSize = backfillRemaining == null ? BACKFILL_PAGE_SIZE : Math.min(BACKFILL_PAGE_SIZE, backfillRemaining);
+            List<Long> fileIds = pageSize > 0 ? findFileIdsWithoutThumbnails(backfillLastId, pageSize) : List.of();
+            if (fileIds.isEmpty()) {
+                logger.info("Thumbnail backfill done");
+                backfillRunning = false;
+                return;
+            }
+            backfillLastId = fileIds.get(fileIds.size() - 1);
+            if (backfillRemaining != null) {
+                backfillRemaining -= fileIds.size();
+            }
+            for (Long fileId : fileIds) {
+                if (pendingFileIds.add(fileId)) {
+                    queue.add(fileId);
+                }
+            }
+        }
+    }
+
+    private void startWorkers() {
+        while (true) {
+            int running = workers.get();
+            if (running >= MAX_ASYNC_GENERATIONS || (queue.isEmpty() && !backfillRunning)) {
+                return;
+            }
+            if (workers.compareAndSet(running, running + 1)) {
+                try {
+                    executor.submit(thumbnailGenerationWorker::generateQueuedThumbnails);
+                } catch (RejectedExecutionException e) {
+                    workers.decrementAndGet();
+                    logger.warning("Could not start a thumbnail generation worker: " + e.getMessage());
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the next file to render; null if the queue is empty
+     */
+    static Long pollQueue() {
+        // (the file stays pending until it's done; see generateThumbnails())
+        return queue.poll();
+    }
+
+    /**
+     * Called by a worker that found the queue empty.
+     *
+     * @return whether the worker should carry on, for the files queued (or a
+     *         backfill started) since, when all the other workers may have
+     *         stopped already
+     */
+    static boolean continueWorking() {
+        workers.decrementAndGet();
+        while (!queue.isEmpty() || backfillRunning) {
+            int running = workers.get();
+            if (running >= MAX_ASYNC_GENERATIONS) {
+                // the running workers will get to them
+                return false;
+            }
+            if (workers.compareAndSet(running, running + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Renders all the missing thumbnails of one file and records the outcome
+     * in the preview image flags of the file.
+     */
+    public void generateThumbnails(Long fileId) {
+        try {
+            DataFile file = em.find(DataFile.class, fileId);
+            if (file == null || file.isPreviewImageFail()) {
+                return;
+            }
+            // The renderer sets the flags of a file that fails; these are only
+            // saved with the query below, not by merging the DataFile:
+            em.detach(file);
+            boolean generated = ImageThumbConverter.generateMissingThumbnails(file, getThumbnailSizes());
+            logger.fine("Thumbnail generation for file " + fileId + (generated ? " succeeded" : " failed"));
+
+            // Only the flags are updated, with a native query, rather than
+            // merging the whole DataFile that may be edited at the same time:
+            em.createNativeQuery("UPDATE dvobject SET previewimageavailable = ?, previewimagefail = ? WHERE id = ?")
+                    .setParameter(1, generated)
+                    .setParameter(2, !generated)
+                    .setParameter(3, fileId)
+                    .executeUpdate();
+        } finally {
+            pendingFileIds.remove(fileId);
+        }
+    }
+
+    /**
+     * Finds the files that could have thumbnails but have neither a
+     * generated thumbnail nor a record of a failed attempt; used for the
+     * backfill of existing files.
+     *
+     * @param afterId the id after which to look (the last one of the
+     *                previous page)
+     */
+    public List<Long> findFileIdsWithoutThumbnails(long afterId, int pageSize) {
+        TypedQuery<Long> query = em.createQuery("SELECT f.id FROM DataFile f WHERE f.id > :afterId"
+                + " AND f.previewImageAvailable = false AND f.previewImageFail = false"
+                + " AND (f.contentType LIKE 'image/%' OR f.contentType = 'application/pdf') ORDER BY f.id", Long.class);
+        query.setParameter("afterId", afterId);
+        query.setMaxResults(pageSize);
+        return query.getResultList();
+    }
+}
@@ -0,0 +1,53 @@
+package edu.harvard.iq.dataverse;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+
+/**
+ * The background workers of {@link ThumbnailGenerationServiceBean}: each one
+ * runs as a task of the managed executor, and renders the queued files one
+ * after the other until the queue is empty.
+ */
+@Stateless
+public class ThumbnailGenerationWorker {
+
+    private static final Logger logger = Logger.getLogger(ThumbnailGenerationWorker.class.getCanonicalName());
+
+    @EJB
+    ThumbnailGenerationServiceBean thumbnailGenerationService;
+
+    // Not transactional itself, so that each file is rendered and flagged in
+    // its own (short) transaction:
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void generateQueuedThumbnails() {
+        do {
+            Long fileId;
+            while ((fileId = nextFileId()) != null) {
+                try {
+                    thumbnailGenerationService.generateThumbnails(fileId);
+                } catch (Exception e) {
+                    logger.log(Level.WARNING, "Thumbnail generation failed for file " + fileId, e);
+                }
+            }
+        } while (ThumbnailGenerationServiceBean.continueWorking());
+    }
+
+    private Long nextFileId() {
+        Long fileId = ThumbnailGenerationServiceBean.pollQueue();
+        // (each page moves the backfill on, or ends it, so this ends)
+        while (fileId == null && ThumbnailGenerationServiceBean.isBackfillRunning()) {
+            try {
+                thumbnailGenerationService.queueNextBackfillPage();
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Failed to queue the next files of the thumbnail backfill; stopping it", e);
+                ThumbnailGenerationServiceBean.stopBackfill();
+            }
+            fileId = ThumbnailGenerationServiceBean.pollQueue();
+        }
+        return fileId;
+    }
+}
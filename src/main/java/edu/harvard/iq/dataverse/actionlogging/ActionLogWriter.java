@@ -0,0 +1,179 @@
+package edu.harvard.iq.dataverse.actionlogging;
+
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.Timeout;
+import jakarta.ejb.TimerConfig;
+import jakarta.ejb.TimerService;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import javax.sql.DataSource;
+
+/**
+ * A write-behind buffer for the {@link ActionLogRecord}s of the commands:
+ * instead of one transaction and insert per command, the records are queued
+ * and inserted in JDBC batches, every dataverse.action-log.flush-interval-ms,
+ * and when the application shuts down.
+ * <p>
+ * When the queue is full, or write-behind is disabled, the records are
+ * persisted right away by {@link ActionLogServiceBean#log(ActionLogRecord)},
+ * as before. The successful executions of read-only commands can be sampled
+ * with dataverse.action-log.read-only-sample-rate.
+ *
+ * @see edu.harvard.iq.dataverse.engine.command.CommandHelper#isReadOnly
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ActionLogWriter {
+
+    private static final Logger logger = Logger.getLogger(ActionLogWriter.class.getCanonicalName());
+
+    static final String INSERT_SQL = "INSERT INTO actionlogrecord"
+            + " (id, actionresult, actionsubtype, actiontype, endtime, info, starttime, useridentifier)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Resource(lookup = "java:app/jdbc/dataverse")
+    DataSource dataSource;
+
+    @Resource
+    TimerService timerService;
+
+    @EJB
+    ActionLogServiceBean actionLogSvc;
+
+    private boolean writeBehind;
+    private int batchSize;
+    private double readOnlySampleRate;
+    private BlockingQueue<ActionLogRecord> queue;
+
+    @PostConstruct
+    public void init() {
+        writeBehind = JvmSettings.ACTION_LOG_WRITE_BEHIND.lookupOptional(Boolean.class).orElse(true);
+        batchSize = Math.max(1, JvmSettings.ACTION_LOG_BATCH_SIZE.lookupOptional(Integer.class).orElse(500));
+        readOnlySampleRate = JvmSettings.ACTION_LOG_READ_ONLY_SAMPLE_RATE.lookupOptional(Double.class).orElse(1.0);
+        queue = new ArrayBlockingQueue<>(Math.max(batchSize, JvmSettings.ACTION_LOG_QUEUE_SIZE.lookupOptional(Integer.class).orElse(10000)));
+        if (writeBehind) {
+            long interval = Math.max(100L, JvmSettings.ACTION_LOG_FLUSH_INTERVAL.lookupOptional(Long.class).orElse(1000L));
+            // Not persistent: every node flushes its own queue
+            timerService.createIntervalTimer(interval, interval, new TimerConfig(null, false));
+        }
+    }
+
+    /**
+     * Logs the record of the execution of a command.
+     *
+     * @param readOnly whether the command is read-only, in which case a
+     * successful execution is only logged at the configured sample rate.
+     */
+    public void log(ActionLogRecord rec, boolean readOnly) {
+        if (!isSampled(rec, readOnly, readOnlySampleRate)) {
+            return;
+        }
+        if (writeBehind) {
+            ActionLogServiceBean.setDefaults(rec);
+            if (queue.offer(rec)) {
+                return;
+            }
+            logger.fine("Action log queue is full; persisting the record right away");
+        }
+        actionLogSvc.log(rec);
+    }
+
+    static boolean isSampled(ActionLogRecord rec, boolean readOnly, double sampleRate) {
+        if (!readOnly || rec.getActionResult() != ActionLogRecord.Result.OK || sampleRate >= 1.0) {
+            return true;
+        }
+        return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void flushTimer() {
+        flush();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Inserts all the queued records, batch by batch. The timer and the
+     * shutdown may flush at the same time, hence the synchronization.
+     */
+    synchronized void flush() {
+        List<ActionLogRecord> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                insert(batch);
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Batch insert of " + batch.size() + " action log record(s) failed; persisting them one by one", e);
+                for (ActionLogRecord rec : batch) {
+                    try {
+                        actionLogSvc.log(rec);
+                    } catch (RuntimeException re) {
+                        logger.log(Level.SEVERE, "Could not persist action log record " + rec, re);
+                    }
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void insert(List<ActionLogRecord> batch) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                for (ActionLogRecord rec : batch) {
+                    if (rec.getId() == null) {
+                        rec.setId(UUID.randomUUID().toString());
+                    }
+                    statement.setString(1, rec.getId());
+                    statement.setString(2, rec.getActionResult() != null ? rec.getActionResult().name() : null);
+                    statement.setString(3, rec.getActionSubType());
+                    statement.setString(4, rec.getActionType() != null ? rec.getActionType().name() : null);
+                    setTimestamp(statement, 5, rec.getEndTime());
+                    statement.setString(6, rec.getInfo());
+                    setTimestamp(statement, 7, rec.getStartTime());
+                    statement.setString(8, rec.getUserIdentifier());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static void setTimestamp(PreparedStatement statement, int index, Date date) throws SQLException {
+        if (date != null) {
+            statement.setTimestamp(index, new Timestamp(date.getTime()));
+        } else {
+            statement.setNull(index, Types.TIMESTAMP);
+        }
+    }
+}
@@ -39,6 +39,7 @@ import jakarta.ejb.EJB;
 import jakarta.ejb.EJBException;
 import jakarta.json.*;
 import jakarta.json.JsonValue.ValueType;
+import jakarta.json.stream.JsonGenerator;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
@@ -50,13 +51,17 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.ResponseBuilder;
 import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.core.StreamingOutput;
 
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -702,6 +707,30 @@ public abstract class AbstractApiBean {
                 .type(MediaType.APPLICATION_JSON).build();
     }
 
+    /**
+     * Like {@link #ok(JsonArrayBuilder, long)}, but the "data" value is written
+     * straight to the response by {@code dataWriter}, so that large payloads
+     * (e.g. the files of a version) never have to be built in memory.
+     *
+     * @param totalCount written as "totalCount" unless {@code null}
+     * @param dataWriter writes exactly one JSON value, the "data" of the response
+     */
+    protected Response okStreaming(Long totalCount, Consumer<JsonGenerator> dataWriter) {
+        StreamingOutput stream = outputStream -> {
+            JsonGenerator generator = Json.createGenerator(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            generator.writeStartObject();
+            generator.write("status", ApiConstants.STATUS_OK);
+            if (totalCount != null) {
+                generator.write("totalCount", totalCount);
+            }
+            generator.writeKey("data");
+            dataWriter.accept(generator);
+            generator.writeEnd();
+            generator.close();
+        };
+        return Response.ok(stream).type(MediaType.APPLICATION_JSON).build();
+    }
+
     protected Response ok( JsonArray ja ) {
         return Response.ok(Json.createObjectBuilder()
             .add("status", ApiConstants.STATUS_OK)
@@ -102,8 +102,11 @@ import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 
 import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.CacheControl;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.UriInfo;
 
 
@@ -162,6 +165,8 @@ import edu.harvard.iq.dataverse.api.exceptions.AuthorizationRequiredException;
 @Path("access")
 public class Access extends AbstractApiBean {
     private static final Logger logger = Logger.getLogger(Access.class.getCanonicalName());
+    // (seconds)
+    private static final int CARD_IMAGE_MAX_AGE = 3600;
         
     @EJB
     DataFileServiceBean dataFileService;
@@ -199,6 +204,8 @@ public class Access extends AbstractApiBean {
     PermissionsWrapper permissionsWrapper;
     @Inject
     MakeDataCountLoggingServiceBean mdcLogService;
+    @Inject
+    CardImageCache cardImageCache;
     
     //@EJB
     
@@ -997,7 +1004,7 @@ public class Access extends AbstractApiBean {
     @Path("fileCardImage/{fileId}")
     @GET
     @Produces({ "image/png" })
-    public InputStream fileCardImage(@PathParam("fileId") Long fileId, @Context UriInfo uriInfo, @Context HttpHeaders headers, @Context HttpServletResponse response) /*throws NotFoundException, ServiceUnavailableException, PermissionDeniedException, AuthorizationRequiredException*/ {        
+    public Response fileCardImage(@PathParam("fileId") Long fileId, @Context UriInfo uriInfo, @Context HttpHeaders headers, @Context Request request, @Context HttpServletResponse response) /*throws NotFoundException, ServiceUnavailableException, PermissionDeniedException, AuthorizationRequiredException*/ {        
         
         
         
@@ -1008,28 +1015,13 @@ public class Access extends AbstractApiBean {
             return null; 
         }
         
-        StorageIO<DataFile> thumbnailDataAccess = null;
-        
-        try {
-            StorageIO<DataFile> dataAccess = df.getStorageIO();
-            if (dataAccess != null) { // && dataAccess.isLocalFile()) {
-                dataAccess.open();
-
-                if ("application/pdf".equalsIgnoreCase(df.getContentType())
-                        || df.isImage()
-                        || "application/zipped-shapefile".equalsIgnoreCase(df.getContentType())) {
-
-                    thumbnailDataAccess = ImageThumbConverter.getImageThumbnailAsInputStream(dataAccess, 48);
-                    if (thumbnailDataAccess != null && thumbnailDataAccess.getInputStream() != null) {
-                        return thumbnailDataAccess.getInputStream();
-                    }
-                }
-            }
-        } catch (IOException ioEx) {
+        if (!("application/pdf".equalsIgnoreCase(df.getContentType())
+                || df.isImage()
+                || "application/zipped-shapefile".equalsIgnoreCase(df.getContentType()))) {
             return null;
         }
 
-        return null; 
+        return cardImageResponse(request, getCardImageKey(df), () -> loadFileCardImage(df));
     }
     
     // Note:
@@ -1037,7 +1029,7 @@ public class Access extends AbstractApiBean {
     @Path("dsCardImage/{versionId}")
     @GET
     @Produces({ "image/png" })
-    public InputStream dsCardImage(@PathParam("versionId") Long versionId, @Context UriInfo uriInfo, @Context HttpHeaders headers, @Context HttpServletResponse response) /*throws NotFoundException, ServiceUnavailableException, PermissionDeniedException, AuthorizationRequiredException*/ {        
+    public Response dsCardImage(@PathParam("versionId") Long versionId, @Context UriInfo uriInfo, @Context HttpHeaders headers, @Context Request request, @Context HttpServletResponse response) /*throws NotFoundException, ServiceUnavailableException, PermissionDeniedException, AuthorizationRequiredException*/ {        
         
         
         DatasetVersion datasetVersion = versionService.find(versionId);
@@ -1047,28 +1039,14 @@ public class Access extends AbstractApiBean {
             return null; 
         }
         
-        //String imageThumbFileName = null; 
-        StorageIO thumbnailDataAccess = null;
-        
         // First, check if this dataset has a designated thumbnail image: 
         
         if (datasetVersion.getDataset() != null) {
             
             DataFile logoDataFile = datasetVersion.getDataset().getThumbnailFile();
             if (logoDataFile != null) {
-        
-                try {
-                    StorageIO<DataFile> dataAccess = logoDataFile.getStorageIO();
-                    if (dataAccess != null) { // && dataAccess.isLocalFile()) {
-                        dataAccess.open();
-                        thumbnailDataAccess = ImageThumbConverter.getImageThumbnailAsInputStream(dataAccess, 48);
-                    }
-                    if (thumbnailDataAccess != null && thumbnailDataAccess.getInputStream() != null) {
-                        return thumbnailDataAccess.getInputStream();
-                    } 
-                } catch (IOException ioEx) {
-                    thumbnailDataAccess = null; 
-                }
+                // (the card image of the dataset is the card image of the file)
+                return cardImageResponse(request, getCardImageKey(logoDataFile), () -> loadFileCardImage(logoDataFile));
             }
                 
                
@@ -1090,7 +1068,7 @@ public class Access extends AbstractApiBean {
     @Path("dvCardImage/{dataverseId}")
     @GET
     @Produces({ "image/png" })
-    public InputStream dvCardImage(@PathParam("dataverseId") Long dataverseId, @Context UriInfo uriInfo, @Context HttpHeaders headers, @Context HttpServletResponse response) /*throws NotFoundException, ServiceUnavailableException, PermissionDeniedException, AuthorizationRequiredException*/ {        
+    public Response dvCardImage(@PathParam("dataverseId") Long dataverseId, @Context UriInfo uriInfo, @Context HttpHeaders headers, @Context Request request, @Context HttpServletResponse response) /*throws NotFoundException, ServiceUnavailableException, PermissionDeniedException, AuthorizationRequiredException*/ {        
         logger.fine("entering dvCardImage");
         
         Dataverse dataverse = dataverseService.find(dataverseId);
@@ -1100,30 +1078,21 @@ public class Access extends AbstractApiBean {
             return null; 
         }
         
-        String imageThumbFileName = null; 
-        
         // First, check if the dataverse has a defined logo: 
         
         if (dataverse.getDataverseTheme()!=null && dataverse.getDataverseTheme().getLogo() != null && !dataverse.getDataverseTheme().getLogo().equals("")) {
             File dataverseLogoFile = getLogo(dataverse);
-            if (dataverseLogoFile != null) {
+            if (dataverseLogoFile != null && dataverseLogoFile.exists()) {
                 logger.fine("dvCardImage: logo file found");
-                String logoThumbNailPath = null;
-                InputStream in = null;
-
-                try {
-                    if (dataverseLogoFile.exists()) {
-                        logoThumbNailPath =  ImageThumbConverter.generateImageThumbnailFromFile(dataverseLogoFile.getAbsolutePath(), 48);
-                        if (logoThumbNailPath != null) {
-                            in = new FileInputStream(logoThumbNailPath);
-                        }
-                    }
-                } catch (Exception ex) {
-                    in = null; 
-                }
-                if (in != null) {
+                // (a new logo is a new file, and may have the same name)
+                String key = "dv-" + dataverseId + "-" + dataverseLogoFile.lastModified();
+                Response cardImage = cardImageResponse(request, key, () -> {
+                    String logoThumbNailPath = ImageThumbConverter.generateImageThumbnailFromFile(dataverseLogoFile.getAbsolutePath(), 48);
+                    return logoThumbNailPath == null ? null : java.nio.file.Files.readAllBytes(java.nio.file.Paths.get(logoThumbNailPath));
+                });
+                if (cardImage != null) {
                     logger.fine("dvCardImage: successfully obtained thumbnail for dataverse logo.");
-                    return in;
+                    return cardImage;
                 }    
             }
         }
@@ -1162,6 +1131,57 @@ public class Access extends AbstractApiBean {
     
     // helper methods:
     
+    // The card images may change when the object they are for does (as its
+    // modification time will):
+    private static String getCardImageKey(DataFile dataFile) {
+        Timestamp modified = dataFile.getModificationTime();
+        return "file-" + dataFile.getId() + "-" + (modified == null ? 0 : modified.getTime());
+    }
+    
+    private static byte[] loadFileCardImage(DataFile dataFile) throws IOException {
+        StorageIO<DataFile> dataAccess = dataFile.getStorageIO();
+        if (dataAccess == null) {
+            return null;
+        }
+        dataAccess.open();
+        StorageIO<DataFile> thumbnailDataAccess = ImageThumbConverter.getImageThumbnailAsInputStream(dataAccess, 48);
+        if (thumbnailDataAccess == null || thumbnailDataAccess.getInputStream() == null) {
+            return null;
+        }
+        try (InputStream in = thumbnailDataAccess.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+    
+    /**
+     * Serves a card image from the CardImageCache. The cache key is also 
+     * the ETag, so a browser that has the image already gets a 304; and 
+     * may reuse it without asking for an hour.
+     */
+    private Response cardImageResponse(Request request, String key, CardImageCache.Loader loader) {
+        EntityTag etag = new EntityTag(key);
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setPrivate(true);
+        cacheControl.setMaxAge(CARD_IMAGE_MAX_AGE);
+        
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            return notModified.cacheControl(cacheControl).build();
+        }
+        
+        byte[] image;
+        try {
+            image = cardImageCache.get(key, loader);
+        } catch (IOException ioEx) {
+            logger.fine("Failed to load the card image " + key + ": " + ioEx.getMessage());
+            return null;
+        }
+        if (image == null) {
+            return null;
+        }
+        return Response.ok(image, "image/png").tag(etag).cacheControl(cacheControl).build();
+    }
+    
     // What the method below does - going through all the files in the version -
     // is too expensive! Instead we are now selecting an available thumbnail and
     // giving the dataset card a direct link to that file thumbnail. -- L.A., 4.2.2
@@ -22,6 +22,7 @@ import edu.harvard.iq.dataverse.validation.EMailValidator;
 import edu.harvard.iq.dataverse.EjbDataverseEngine;
 import edu.harvard.iq.dataverse.Template;
 import edu.harvard.iq.dataverse.TemplateServiceBean;
+import edu.harvard.iq.dataverse.ThumbnailGenerationServiceBean;
 import edu.harvard.iq.dataverse.UserServiceBean;
 import edu.harvard.iq.dataverse.actionlogging.ActionLogRecord;
 import edu.harvard.iq.dataverse.api.dto.RoleDTO;
@@ -44,10 +45,13 @@ import edu.harvard.iq.dataverse.confirmemail.ConfirmEmailException;
 import edu.harvard.iq.dataverse.confirmemail.ConfirmEmailInitResponse;
 import edu.harvard.iq.dataverse.dataaccess.DataAccess;
 import edu.harvard.iq.dataverse.dataaccess.DataAccessOption;
+import edu.harvard.iq.dataverse.dataaccess.FileChecksumValidator;
 import edu.harvard.iq.dataverse.dataaccess.StorageIO;
 import edu.harvard.iq.dataverse.engine.command.impl.AbstractSubmitToArchiveCommand;
 import edu.harvard.iq.dataverse.engine.command.impl.PublishDataverseCommand;
 import edu.harvard.iq.dataverse.settings.Setting;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 import jakarta.json.Json;
 import jakarta.json.JsonArrayBuilder;
 import jakarta.json.JsonObjectBuilder;
@@ -112,6 +116,7 @@ import edu.harvard.iq.dataverse.util.UrlSignerUtil;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.OutputStream;
 
 import static edu.harvard.iq.dataverse.util.json.JsonPrinter.json;
@@ -177,6 +182,11 @@ public class Admin extends AbstractApiBean {
     BannerMessageServiceBean bannerMessageService;
     @EJB
     TemplateServiceBean templateService;
+    @EJB
+    ThumbnailGenerationServiceBean thumbnailGenerationService;
+
+    @Resource
+    ManagedExecutorService executor;
 
     // Make the session available
     @Inject
@@ -1237,42 +1247,39 @@ public class Admin extends AbstractApiBean {
                 
                 os.write("{\"dataFiles\": [\n".getBytes());
                 
-                boolean wroteObject = false;
-                for (DataFile dataFile : dataset.getFiles()) {
-                    // Potentially, there's a godzillion datasets in this Dataverse. 
-                    // This is why we go through the list of ids here, and instantiate 
-                    // only one dataset at a time. 
-                    boolean success = false;
-                    boolean constraintViolationDetected = false;
-                     
-                    JsonObjectBuilder output = Json.createObjectBuilder();
-                    output.add("datafileId", dataFile.getId());
-                    output.add("storageIdentifier", dataFile.getStorageIdentifier());
-
-                    
-                    try {
-                        FileUtil.validateDataFileChecksum(dataFile);
-                        success = true;
-                    } catch (IOException ex) {
-                        output.add("status", "invalid");
-                        output.add("errorMessage", ex.getMessage());
-                    }
-                    
-                    if (success) {
-                        output.add("status", "valid");
-                    } 
-                    
-                    // write it out:
-                    
-                    if (wroteObject) {
-                        os.write(",\n".getBytes());
-                    }
+                // The files are validated concurrently, and written out in
+                // the order in which their validation completes:
+                boolean[] wroteObject = {false};
+                try {
+                    new FileChecksumValidator(executor).validate(dataset.getFiles(), result -> {
+                        DataFile dataFile = result.getDataFile();
+                        JsonObjectBuilder output = Json.createObjectBuilder();
+                        output.add("datafileId", dataFile.getId());
+                        output.add("storageIdentifier", dataFile.getStorageIdentifier());
+                        if (result.isValid()) {
+                            output.add("status", "valid");
+                        } else {
+                            output.add("status", "invalid");
+                            output.add("errorMessage", result.getErrorMessage());
+                        }
+                        output.add("durationMillis", result.getDurationMillis());
 
-                    os.write(output.build().toString().getBytes(StandardCharsets.UTF_8));
-                    
-                    if (!wroteObject) {
-                        wroteObject = true;
-                    }
+                        // write it out:
+                        try {
+                            if (wroteObject[0]) {
+                                os.write(",\n".getBytes());
+                            }
+                            os.write(output.build().toString().getBytes(StandardCharsets.UTF_8));
+                            wroteObject[0] = true;
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    });
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while validating the files of dataset " + id);
+                } catch (UncheckedIOException ex) {
+                    throw ex.getCause();
                 }
                 
                 os.write("\n]\n}\n".getBytes());
@@ -2490,6 +2497,22 @@ public class Admin extends AbstractApiBean {
         }
     }
 
+    /**
+     * Queues the background generation of the thumbnails of the existing 
+     * files that don't have them yet (and haven't failed before), for 
+     * installations switching to async. thumbnail generation. The files 
+     * are found a page at a time, as the generation goes on.
+     * @param limit - max number of files to queue
+     */
+    @POST
+    @Path("/generateMissingThumbnails")
+    public Response generateMissingThumbnails(@QueryParam("limit") Integer limit) {
+        if (!thumbnailGenerationService.startBackfill(limit)) {
+            return error(Status.CONFLICT, "The generation of the missing thumbnails is already running.");
+        }
+        return ok("Generation of the missing thumbnails started.");
+    }
+
     /**
      * For testing only. Download a file from /tmp.
      */
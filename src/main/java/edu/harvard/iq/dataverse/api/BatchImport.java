@@ -48,9 +48,10 @@ public class BatchImport extends AbstractApiBean {
     @GET
     @AuthRequired
     @Path("harvest")
-    public Response harvest(@Context ContainerRequestContext crc, @QueryParam("path") String fileDir, @QueryParam("dv") String parentIdtf, @QueryParam("createDV") Boolean createDV, @QueryParam("key") String apiKey) throws IOException {
+    public Response harvest(@Context ContainerRequestContext crc, @QueryParam("path") String fileDir, @QueryParam("dv") String parentIdtf, @QueryParam("createDV") Boolean createDV, @QueryParam("key") String apiKey,
+            @QueryParam("pipelined") boolean pipelined, @QueryParam("resume") boolean resume) throws IOException {
         try {
-            return startBatchJob(getRequestAuthenticatedUserOrDie(crc), fileDir, parentIdtf, apiKey, ImportType.HARVEST, createDV);
+            return startBatchJob(getRequestAuthenticatedUserOrDie(crc), fileDir, parentIdtf, apiKey, ImportType.HARVEST, createDV, pipelined, resume);
         } catch (WrappedResponse wr) {
             return wr.getResponse();
         }
@@ -100,20 +101,25 @@ public class BatchImport extends AbstractApiBean {
      * within the directory will be imported
      * @param parentIdtf the dataverse to import into (id or alias)
      * @param apiKey user's api key
+     * @param pipelined whether to parse the files in parallel, save the
+     * datasets in chunks, and index them at the end
+     * @param resume whether to skip the files imported by an earlier
+     * (pipelined) import of the same path
      * @return import status (including id's of the datasets created)
      */
     @GET
     @AuthRequired
     @Path("import")
-    public Response getImport(@Context ContainerRequestContext crc, @QueryParam("path") String fileDir, @QueryParam("dv") String parentIdtf, @QueryParam("createDV") Boolean createDV, @QueryParam("key") String apiKey) {
+    public Response getImport(@Context ContainerRequestContext crc, @QueryParam("path") String fileDir, @QueryParam("dv") String parentIdtf, @QueryParam("createDV") Boolean createDV, @QueryParam("key") String apiKey,
+            @QueryParam("pipelined") boolean pipelined, @QueryParam("resume") boolean resume) {
         try {
-            return startBatchJob(getRequestAuthenticatedUserOrDie(crc), fileDir, parentIdtf, apiKey, ImportType.NEW, createDV);
+            return startBatchJob(getRequestAuthenticatedUserOrDie(crc), fileDir, parentIdtf, apiKey, ImportType.NEW, createDV, pipelined, resume);
         } catch (WrappedResponse wr) {
             return wr.getResponse();
         }
     }
 
-    private Response startBatchJob(User user, String fileDir, String parentIdtf, String apiKey, ImportType importType, Boolean createDV) {
+    private Response startBatchJob(User user, String fileDir, String parentIdtf, String apiKey, ImportType importType, Boolean createDV, boolean pipelined, boolean resume) {
         if (createDV == null) {
             createDV = Boolean.FALSE;
         }
@@ -131,7 +137,11 @@ public class BatchImport extends AbstractApiBean {
                     return error(Response.Status.NOT_FOUND, "Can't find dataverse with identifier='" + parentIdtf + "'");
                 }
             }
-            batchService.processFilePath(fileDir, parentIdtf, dataverseRequest, owner, importType, createDV);
+            if (pipelined) {
+                batchService.processFilePathPipelined(fileDir, dataverseRequest, owner, importType, createDV, resume);
+            } else {
+                batchService.processFilePath(fileDir, parentIdtf, dataverseRequest, owner, importType, createDV);
+            }
 
         } catch (ImportException e) {
             return this.error(Response.Status.BAD_REQUEST, "Import Exception, " + e.getMessage());
@@ -1,25 +1,48 @@
 package edu.harvard.iq.dataverse.api;
 
 import edu.harvard.iq.dataverse.api.imports.ImportServiceBean;
+import edu.harvard.iq.dataverse.Dataset;
 import edu.harvard.iq.dataverse.Dataverse;
 import edu.harvard.iq.dataverse.DataverseServiceBean;
+import edu.harvard.iq.dataverse.api.imports.BatchImportProgress;
 import edu.harvard.iq.dataverse.api.imports.ImportException;
 import edu.harvard.iq.dataverse.api.imports.ImportUtil;
 import edu.harvard.iq.dataverse.engine.command.DataverseRequest;
+import edu.harvard.iq.dataverse.search.IndexServiceBean;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import jakarta.annotation.Resource;
 import jakarta.ejb.Asynchronous;
 import jakarta.ejb.EJB;
+import jakarta.ejb.EJBException;
 import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 import jakarta.json.Json;
 import jakarta.json.JsonArrayBuilder;
 import jakarta.json.JsonObjectBuilder;
+import org.apache.commons.codec.digest.DigestUtils;
 
 /**
  * EJB for kicking off big batch jobs asynchronously from the REST API  (BatchImport.java)
@@ -33,6 +56,13 @@ public class BatchServiceBean {
     DataverseServiceBean dataverseService;
     @EJB
     ImportServiceBean importService;
+    @EJB
+    IndexServiceBean indexService;
+    @Resource
+    ManagedExecutorService executor;
+
+    public static final int DEFAULT_THREADS = 4;
+    public static final int DEFAULT_CHUNK_SIZE = 20;
     
 
     @Asynchronous
@@ -107,4 +137,297 @@ public class BatchServiceBean {
         return status;
     }
 
+    /**
+     * A file of a batch import, and the collection it's imported into.
+     */
+    static class Record {
+        final File file;
+        final Dataverse owner;
+        // the path of the file within the directory imported
+        final String name;
+
+        Record(File file, Dataverse owner, String name) {
+            this.file = file;
+            this.owner = owner;
+            this.name = name;
+        }
+    }
+
+    /**
+     * A record parsed by a worker; or why it couldn't be.
+     */
+    static class Parsed {
+        final Record record;
+        final Dataset dataset;
+        final String error;
+
+        Parsed(Record record, Dataset dataset, String error) {
+            this.record = record;
+            this.dataset = dataset;
+            this.error = error;
+        }
+    }
+
+    /**
+     * What a pipelined import did.
+     */
+    static class Report {
+        int records = 0;
+        int skipped = 0;
+        int imported = 0;
+        int failed = 0;
+        int indexed = 0;
+        final JsonArrayBuilder failures = Json.createArrayBuilder();
+
+        void failed(String name, String message, PrintWriter validationLog) {
+            String msg = "Import Exception processing file " + name + ", msg:" + message;
+            logger.info(msg);
+            validationLog.println(msg);
+            failures.add(Json.createObjectBuilder().add("file", name).add("message", String.valueOf(message)));
+            failed++;
+        }
+    }
+
+    /**
+     * Imports a file, or a directory of files, like
+     * {@link #processFilePath}, but as a pipeline: the files are parsed by
+     * dataverse.batch-import.threads workers on the managed executor, while the datasets parsed are
+     * saved in chunks of dataverse.batch-import.chunk-size, one transaction
+     * per chunk; the datasets are indexed once they're all saved.
+     * <p>
+     * The files saved are recorded in a progress file in the logs directory;
+     * with resume, an import that was interrupted skips them. A report (the
+     * numbers of files imported, skipped and failed, the files imported per
+     * second, and the failures) is written there at the end.
+     */
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void processFilePathPipelined(String fileDir, DataverseRequest dataverseRequest, Dataverse owner, ImportUtil.ImportType importType, Boolean createDV, boolean resume) {
+        logger.info("BEGIN PIPELINED IMPORT");
+        int threads = Math.max(1, JvmSettings.BATCH_IMPORT_THREADS.lookupOptional(Integer.class).orElse(DEFAULT_THREADS));
+        int chunkSize = Math.max(1, JvmSettings.BATCH_IMPORT_CHUNK_SIZE.lookupOptional(Integer.class).orElse(DEFAULT_CHUNK_SIZE));
+        String logDir = System.getProperty("com.sun.aas.instanceRoot") + File.separator + "logs" + File.separator;
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH:mm:ss").format(new Date());
+        File dir = new File(fileDir);
+        Report report = new Report();
+        long start = System.currentTimeMillis();
+        long indexStart = start;
+        try (PrintWriter validationLog = new PrintWriter(new FileWriter(logDir + "validationLog" + timestamp + ".txt"));
+                PrintWriter cleanupLog = new PrintWriter(new FileWriter(logDir + "cleanupLog" + timestamp + ".txt"));
+                BatchImportProgress progress = new BatchImportProgress(
+                        Paths.get(logDir + "batchImportProgress_" + DigestUtils.md5Hex(dir.getAbsolutePath()) + ".txt"), resume)) {
+            List<Record> pending = new ArrayList<>();
+            for (Record record : listRecords(dir, owner, dataverseRequest, createDV, report, validationLog)) {
+                report.records++;
+                if (progress.isImported(record.name)) {
+                    report.skipped++;
+                } else {
+                    pending.add(record);
+                }
+            }
+            logger.info("Importing " + pending.size() + " files; skipping " + report.skipped + " imported already");
+
+            // Only a few files are parsed ahead of the chunk being saved (the
+            // workers wait for room in the queue), so that the datasets of a
+            // large import are never held at once:
+            Queue<Record> toParse = new ConcurrentLinkedQueue<>(pending);
+            BlockingQueue<Parsed> parsedQueue = new LinkedBlockingQueue<>(chunkSize + threads);
+            Runnable worker = () -> {
+                try {
+                    Record record;
+                    while ((record = toParse.poll()) != null) {
+                        parsedQueue.put(parse(record, importType));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+            List<Future<?>> workers = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                try {
+                    workers.add(executor.submit(worker));
+                } catch (RejectedExecutionException e) {
+                    // (the files left are parsed on this thread, see nextParsed())
+                    logger.info("Started " + i + " of " + threads + " batch import workers; the executor is busy");
+                    break;
+                }
+            }
+            List<Parsed> chunk = new ArrayList<>(chunkSize);
+            try {
+                Parsed parsed;
+                while ((parsed = nextParsed(parsedQueue, toParse, workers, importType)) != null) {
+                    if (parsed.dataset == null) {
+                        report.failed(parsed.record.name, parsed.error, validationLog);
+                        continue;
+                    }
+                    try {
+                        // (on this thread: it loads the metadata blocks of the collection)
+                        importService.prepareImport(parsed.dataset, parsed.record.owner, parsed.record.name, importType, cleanupLog);
+                        chunk.add(parsed);
+                    } catch (ImportException | RuntimeException e) {
+                        report.failed(parsed.record.name, e.getMessage(), validationLog);
+                    }
+                    if (chunk.size() >= chunkSize) {
+                        saveChunk(dataverseRequest, chunk, importType, cleanupLog, progress, report, validationLog);
+                        chunk.clear();
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    saveChunk(dataverseRequest, chunk, importType, cleanupLog, progress, report, validationLog);
+                }
+            } finally {
+                // (the executor is shared: only the workers of this import are stopped)
+                toParse.clear();
+                for (Future<?> w : workers) {
+                    w.cancel(true);
+                }
+            }
+
+            indexStart = System.currentTimeMillis();
+            for (Long datasetId : progress.getDatasetIds()) {
+                try {
+                    indexService.indexDatasetInNewTransaction(datasetId);
+                    report.indexed++;
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Could not index dataset " + datasetId, e);
+                }
+            }
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Exception in processFilePathPipelined()", e);
+        }
+
+        long end = System.currentTimeMillis();
+        double importSeconds = (indexStart - start) / 1000.0;
+        JsonObjectBuilder reportJson = Json.createObjectBuilder()
+                .add("path", dir.getAbsolutePath())
+                .add("importType", importType.toString())
+                .add("files", report.records)
+                .add("skipped", report.skipped)
+                .add("imported", report.imported)
+                .add("failed", report.failed)
+                .add("indexed", report.indexed)
+                .add("importSeconds", importSeconds)
+                .add("indexSeconds", (end - indexStart) / 1000.0)
+                .add("filesPerSecond", importSeconds > 0 ? report.imported / importSeconds : 0)
+                .add("failures", report.failures);
+        String reportFile = logDir + "batchImportReport" + timestamp + ".json";
+        try {
+            Files.write(Paths.get(reportFile), reportJson.build().toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not write the report of the import to " + reportFile, e);
+        }
+        logger.info("END PIPELINED IMPORT: " + report.imported + " files imported, " + report.failed + " failed, "
+                + report.skipped + " skipped, in " + (end - start) / 1000 + " s; see " + reportFile);
+    }
+
+    /**
+     * @return the files to import (sorted, so that an import that is resumed
+     *         goes through them in the same order); the subdirectories of a
+     *         directory are imported into the collections of the same alias
+     */
+    private List<Record> listRecords(File dir, Dataverse owner, DataverseRequest dataverseRequest, Boolean createDV, Report report, PrintWriter validationLog) {
+        List<Record> records = new ArrayList<>();
+        if (!dir.isDirectory()) {
+            records.add(new Record(dir, owner, dir.getName()));
+            return records;
+        }
+        File[] files = dir.listFiles();
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isHidden()) {
+                continue;
+            }
+            if (!file.isDirectory()) {
+                records.add(new Record(file, owner, file.getName()));
+                continue;
+            }
+            Dataverse dirOwner = dataverseService.findByAlias(file.getName());
+            try {
+                if (dirOwner == null) {
+                    if (!createDV) {
+                        throw new ImportException("Can't find dataverse with identifier='" + file.getName() + "'");
+                    }
+                    logger.info("creating new dataverse: " + file.getName());
+                    dirOwner = importService.createDataverse(file.getName(), dataverseRequest);
+                }
+            } catch (ImportException e) {
+                report.failed(file.getName(), e.getMessage(), validationLog);
+                continue;
+            }
+            File[] dirFiles = file.listFiles();
+            Arrays.sort(dirFiles);
+            for (File dirFile : dirFiles) {
+                if (!dirFile.isHidden() && !dirFile.isDirectory()) {
+                    records.add(new Record(dirFile, dirOwner, file.getName() + "/" + dirFile.getName()));
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * @return the next file parsed by the workers; once they have all
+     *         stopped (or if none could be started), the files left are
+     *         parsed on this thread. Null when all the files have been parsed.
+     */
+    private Parsed nextParsed(BlockingQueue<Parsed> parsedQueue, Queue<Record> toParse, List<Future<?>> workers,
+            ImportUtil.ImportType importType) throws InterruptedException {
+        while (true) {
+            boolean stopped = workers.stream().allMatch(Future::isDone);
+            Parsed parsed = stopped ? parsedQueue.poll() : parsedQueue.poll(1, TimeUnit.SECONDS);
+            if (parsed != null) {
+                return parsed;
+            }
+            if (stopped) {
+                Record record = toParse.poll();
+                return record == null ? null : parse(record, importType);
+            }
+        }
+    }
+
+    private Parsed parse(Record record, ImportUtil.ImportType importType) {
+        try {
+            String xml = new String(Files.readAllBytes(record.file.toPath()));
+            return new Parsed(record, importService.parseImport(xml, importType), null);
+        } catch (ImportException | IOException | RuntimeException e) {
+            return new Parsed(record, null, e.getMessage());
+        }
+    }
+
+    void saveChunk(DataverseRequest dataverseRequest, List<Parsed> chunk, ImportUtil.ImportType importType, PrintWriter cleanupLog,
+            BatchImportProgress progress, Report report, PrintWriter validationLog) throws IOException {
+        List<Dataset> datasets = new ArrayList<>(chunk.size());
+        List<String> names = new ArrayList<>(chunk.size());
+        for (Parsed parsed : chunk) {
+            datasets.add(parsed.dataset);
+            names.add(parsed.record.name);
+        }
+        try {
+            List<Long> datasetIds = importService.importChunk(dataverseRequest, datasets, importType);
+            progress.imported(names, datasetIds);
+            report.imported += datasetIds.size();
+            return;
+        } catch (ImportException | EJBException e) {
+            logger.log(Level.INFO, "Could not save a chunk of " + chunk.size() + " files (" + e.getMessage() + "); saving them one at a time");
+        }
+
+        // The chunk was rolled back, and its datasets can't be persisted
+        // again: each file is parsed again, and saved on its own, so that
+        // only the one at fault fails.
+        for (Parsed parsed : chunk) {
+            Record record = parsed.record;
+            List<Long> datasetIds;
+            try {
+                Dataset dataset = importService.parseImport(new String(Files.readAllBytes(record.file.toPath())), importType);
+                importService.prepareImport(dataset, record.owner, record.name, importType, cleanupLog);
+                datasetIds = importService.importChunk(dataverseRequest, List.of(dataset), importType);
+            } catch (ImportException | IOException | RuntimeException e) {
+                report.failed(record.name, e.getMessage(), validationLog);
+                continue;
+            }
+            progress.imported(List.of(record.name), datasetIds);
+            report.imported++;
+        }
+    }
+
 }
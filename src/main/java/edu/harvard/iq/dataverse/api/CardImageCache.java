@@ -0,0 +1,152 @@
+package edu.harvard.iq.dataverse.api;
+
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Logger;
+
+/**
+ * The small (card-size) images served by the /api/access/*CardImage
+ * endpoints, kept in memory; a page of search results asks for dozens of
+ * them at once, and again every time it's viewed.
+ *
+ * The images are kept by a key that includes the last modification time of
+ * the object they are for, so an image is not served after the object has
+ * changed; the least recently used ones are dropped when the total size of
+ * the images exceeds dataverse.files.thumbnails.card-cache-size (in MB).
+ * Concurrent requests for an image that isn't cached share one load. An
+ * object that has no image is remembered as such for a minute only, since
+ * its thumbnail may still be in the making.
+ */
+@ApplicationScoped
+public class CardImageCache {
+
+    private static final Logger logger = Logger.getLogger(CardImageCache.class.getCanonicalName());
+
+    private static final long DEFAULT_SIZE_MB = 16;
+    static final long NO_IMAGE_TTL_MILLIS = 60 * 1000;
+    // (what an entry takes, on top of the image itself)
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private static final byte[] NO_IMAGE = new byte[0];
+
+    interface Loader {
+        /**
+         * @return the image; or null, if there is none
+         */
+        byte[] load() throws IOException;
+    }
+
+    private static class Entry {
+        final byte[] image;
+        final long loaded;
+
+        Entry(byte[] image, long loaded) {
+            this.image = image;
+            this.loaded = loaded;
+        }
+    }
+
+    private final long maxBytes;
+    private long totalBytes = 0;
+    // least recently used first:
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, CompletableFuture<byte[]>> loading = new ConcurrentHashMap<>();
+
+    public CardImageCache() {
+        this(JvmSettings.THUMBNAILS_CARD_CACHE_SIZE.lookupOptional(Long.class).orElse(DEFAULT_SIZE_MB) * 1024 * 1024);
+    }
+
+    CardImageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cached image, or loads (and caches) it.
+     *
+     * @return the image; or null, if there is none
+     */
+    public byte[] get(String key, Loader loader) throws IOException {
+        if (maxBytes <= 0) {
+            return loader.load();
+        }
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.image != NO_IMAGE) {
+                    return entry.image;
+                }
+                if (System.currentTimeMillis() - entry.loaded < NO_IMAGE_TTL_MILLIS) {
+                    return null;
+                }
+                remove(key);
+            }
+        }
+
+        CompletableFuture<byte[]> load = new CompletableFuture<>();
+        CompletableFuture<byte[]> loadInProgress = loading.putIfAbsent(key, load);
+        if (loadInProgress != null) {
+            try {
+                byte[] image = loadInProgress.get();
+                return image == NO_IMAGE ? null : image;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the image " + key);
+            } catch (ExecutionException ex) {
+                throw new IOException("Failed to load the image " + key, ex.getCause());
+            }
+        }
+
+        try {
+            byte[] image = loader.load();
+            if (image == null || image.length == 0) {
+                image = NO_IMAGE;
+            }
+            put(key, image);
+            load.complete(image);
+            return image == NO_IMAGE ? null : image;
+        } catch (IOException | RuntimeException ex) {
+            // (the error is not cached; the next request will try again)
+            load.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    private void put(String key, byte[] image) {
+        synchronized (entries) {
+            remove(key);
+            entries.put(key, new Entry(image, System.currentTimeMillis()));
+            totalBytes += image.length + ENTRY_OVERHEAD;
+
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Entry evicted = eldest.next().getValue();
+                eldest.remove();
+                totalBytes -= evicted.image.length + ENTRY_OVERHEAD;
+            }
+        }
+        logger.fine("Cached card image " + key + " (" + image.length + " bytes)");
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.image.length + ENTRY_OVERHEAD;
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
@@ -400,7 +400,7 @@ public class DatasetFieldServiceApi extends AbstractApiBean {
     private String parseDatasetField(String[] values) {
         
         //First see if it exists
-        DatasetFieldType dsf = datasetFieldService.findByName(values[1]);
+        DatasetFieldType dsf = datasetFieldService.findManagedByName(values[1]);
         if (dsf == null) {
             //if not create new
             dsf = new DatasetFieldType();
@@ -420,7 +420,7 @@ public class DatasetFieldServiceApi extends AbstractApiBean {
         dsf.setDisplayOnCreate(Boolean.parseBoolean(values[12]));
         dsf.setRequired(Boolean.parseBoolean(values[13]));
         if (!StringUtils.isEmpty(values[14])) {
-            dsf.setParentDatasetFieldType(datasetFieldService.findByName(values[14]));
+            dsf.setParentDatasetFieldType(datasetFieldService.findManagedByName(values[14]));
         } else {
             dsf.setParentDatasetFieldType(null);
         }
@@ -434,14 +434,14 @@ public class DatasetFieldServiceApi extends AbstractApiBean {
 
     private String parseControlledVocabulary(String[] values) {
         
-        DatasetFieldType dsv = datasetFieldService.findByName(values[1]);
+        DatasetFieldType dsv = datasetFieldService.findManagedByName(values[1]);
         //See if it already exists
         /*
          Matching relies on assumption that only one cv value will exist for a given identifier or display value
         If the lookup queries return multiple matches then retval is null 
         */
         //First see if cvv exists based on display name
-        ControlledVocabularyValue cvv = datasetFieldService.findControlledVocabularyValueByDatasetFieldTypeAndStrValue(dsv, values[2], true);
+        ControlledVocabularyValue cvv = datasetFieldService.findManagedControlledVocabularyValueByDatasetFieldTypeAndStrValue(dsv, values[2], true);
         
         //then see if there's a match on identifier
         ControlledVocabularyValue cvvi = null;
@@ -59,6 +59,7 @@ import jakarta.ejb.EJB;
 import jakarta.ejb.EJBException;
 import jakarta.inject.Inject;
 import jakarta.json.*;
+import jakarta.json.stream.JsonGenerator;
 import jakarta.json.stream.JsonParsingException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -107,6 +108,11 @@ public class Datasets extends AbstractApiBean {
 
     private static final Logger logger = Logger.getLogger(Datasets.class.getCanonicalName());
     private static final Pattern dataFilePattern = Pattern.compile("^[0-9a-f]{11}-[0-9a-f]{12}\\.?.*");
+
+    // Number of FileMetadatas loaded per query when streaming file listings:
+    private static final int FILE_LISTING_PAGE_SIZE = 500;
+    // (the manifest entries are flat rows, not entities, so a page can be larger)
+    private static final int FILE_MANIFEST_PAGE_SIZE = 5000;
     
     @Inject DataverseSession session;
 
@@ -456,15 +462,26 @@ public class Datasets extends AbstractApiBean {
                 return notFound("Dataset version not found");
             }
 
-            if (excludeFiles == null ? true : !excludeFiles) {
-                requestedDatasetVersion = datasetversionService.findDeep(requestedDatasetVersion.getId());
-            }
-
             JsonObjectBuilder jsonBuilder = json(requestedDatasetVersion,
                                                  null, 
-                                                 excludeFiles == null ? true : !excludeFiles, 
+                                                 false, 
                                                  returnOwners);
-            return ok(jsonBuilder);
+            if (excludeFiles != null && excludeFiles) {
+                return ok(jsonBuilder);
+            }
+
+            // The files are streamed into the response one page at a time,
+            // in the label order of DatasetVersion.getFileMetadatas():
+            JsonObject versionJson = jsonBuilder.build();
+            DatasetVersion version = requestedDatasetVersion;
+            return okStreaming(null, generator -> {
+                generator.writeStartObject();
+                versionJson.forEach(generator::write);
+                generator.writeStartArray("files");
+                writeFileMetadatas(generator, version, null, null, new FileSearchCriteria(null, null, null, null, null), DatasetVersionFilesServiceBean.FileOrderCriteria.NameAZ);
+                generator.writeEnd();
+                generator.writeEnd();
+            });
 
         }, getRequestUser(crc));
     }
@@ -506,11 +523,111 @@ public class Datasets extends AbstractApiBean {
             } catch (IllegalArgumentException e) {
                 return badRequest(BundleUtil.getStringFromBundle("datasets.api.version.files.invalid.access.status", List.of(accessStatus)));
             }
-            return ok(jsonFileMetadatas(datasetVersionFilesServiceBean.getFileMetadatas(datasetVersion, limit, offset, fileSearchCriteria, fileOrderCriteria)),
-                    datasetVersionFilesServiceBean.getFileMetadataCount(datasetVersion, fileSearchCriteria));
+            return okStreaming(datasetVersionFilesServiceBean.getFileMetadataCount(datasetVersion, fileSearchCriteria), generator -> {
+                generator.writeStartArray();
+                writeFileMetadatas(generator, datasetVersion, limit, offset, fileSearchCriteria, fileOrderCriteria);
+                generator.writeEnd();
+            });
+        }, getRequestUser(crc));
+    }
+
+    /**
+     * Writes the json of the matching FileMetadatas of the version to the
+     * generator, querying them {@link #FILE_LISTING_PAGE_SIZE} at a time. Each
+     * page is loaded in its own persistence context, so memory use does not
+     * grow with the number of files; and each page after the first one is
+     * found from the last file of the previous page (keyset pagination), so
+     * the listing takes linear rather than quadratic time.
+     */
+    private void writeFileMetadatas(JsonGenerator generator, DatasetVersion datasetVersion, Integer limit, Integer offset,
+                                    FileSearchCriteria searchCriteria, DatasetVersionFilesServiceBean.FileOrderCriteria orderCriteria) {
+        int remaining = limit != null ? limit : Integer.MAX_VALUE;
+        FileMetadata last = null;
+        while (remaining > 0) {
+            int pageSize = Math.min(remaining, FILE_LISTING_PAGE_SIZE);
+            List<FileMetadata> page = last == null
+                    ? datasetVersionFilesServiceBean.getFileMetadatas(datasetVersion, pageSize, offset, searchCriteria, orderCriteria)
+                    : datasetVersionFilesServiceBean.getFileMetadatasAfter(datasetVersion, last, pageSize, searchCriteria, orderCriteria);
+            for (FileMetadata fileMetadata : page) {
+                generator.write(json(fileMetadata).build());
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+            last = page.get(page.size() - 1);
+            remaining -= pageSize;
+        }
+    }
+
+    /**
+     * A manifest of the files of the version, for clients that mirror
+     * datasets: the path, size, checksum, content type and restriction of
+     * each file, ordered by file id. The entries are selected with a
+     * projection query and streamed into the response a page at a time; a
+     * listing that was interrupted can be resumed by passing the id of the
+     * last file received as "after".
+     */
+    @GET
+    @AuthRequired
+    @Path("{id}/versions/{versionId}/files/manifest")
+    public Response getVersionFileManifest(@Context ContainerRequestContext crc,
+                                           @PathParam("id") String datasetId,
+                                           @PathParam("versionId") String versionId,
+                                           @QueryParam("after") Long after,
+                                           @QueryParam("limit") Integer limit,
+                                           @QueryParam("includeDeaccessioned") boolean includeDeaccessioned,
+                                           @Context UriInfo uriInfo,
+                                           @Context HttpHeaders headers) {
+        return response(req -> {
+            DatasetVersion datasetVersion = getDatasetVersionOrDie(req, versionId, findDatasetOrDie(datasetId, false), uriInfo, headers, includeDeaccessioned);
+            if (limit != null && limit < 0) {
+                return badRequest("limit must not be negative");
+            }
+            return okStreaming(datasetVersionFilesServiceBean.getFileMetadataCount(datasetVersion), generator -> {
+                generator.writeStartArray();
+                Long afterId = after;
+                int remaining = limit != null ? limit : Integer.MAX_VALUE;
+                while (remaining > 0) {
+                    int pageSize = Math.min(remaining, FILE_MANIFEST_PAGE_SIZE);
+                    List<FileManifestEntry> page = datasetVersionFilesServiceBean.getFileManifestEntries(datasetVersion, afterId, pageSize);
+                    for (FileManifestEntry entry : page) {
+                        writeFileManifestEntry(generator, entry);
+                    }
+                    if (page.size() < pageSize) {
+                        break;
+                    }
+                    afterId = page.get(page.size() - 1).getId();
+                    remaining -= pageSize;
+                }
+                generator.writeEnd();
+            });
         }, getRequestUser(crc));
     }
 
+    private void writeFileManifestEntry(JsonGenerator generator, FileManifestEntry entry) {
+        generator.writeStartObject();
+        generator.write("id", entry.getId());
+        generator.write("path", entry.getPath());
+        if (entry.getDirectoryLabel() != null && !entry.getDirectoryLabel().isEmpty()) {
+            generator.write("directoryLabel", entry.getDirectoryLabel());
+        }
+        generator.write("filename", entry.getLabel());
+        if (entry.getFilesize() != null) {
+            generator.write("filesize", entry.getFilesize());
+        }
+        if (entry.getContentType() != null) {
+            generator.write("contentType", entry.getContentType());
+        }
+        if (entry.getChecksumType() != null && entry.getChecksumValue() != null) {
+            generator.writeStartObject("checksum");
+            generator.write("type", entry.getChecksumType().toString());
+            generator.write("value", entry.getChecksumValue());
+            generator.writeEnd();
+        }
+        generator.write("restricted", entry.isRestricted());
+        generator.writeEnd();
+    }
+
     @GET
     @AuthRequired
     @Path("{id}/versions/{versionId}/files/counts")
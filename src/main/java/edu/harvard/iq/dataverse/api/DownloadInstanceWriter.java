@@ -38,9 +38,11 @@ import java.io.FileInputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jakarta.inject.Inject;
@@ -68,6 +70,11 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
     GlobusServiceBean globusService;
 
     private static final Logger logger = Logger.getLogger(DownloadInstanceWriter.class.getCanonicalName());
+    // maximum number of ranges in a Range header (for a multipart/byteranges response):
+    static final int MAX_RANGES = 100;
+    // size of the blocks the content is copied into the response in (large
+    // enough for a local file to be read in few system calls):
+    private static final int BUFFER_SIZE = 256 * 1024;
 
     @Override
     public boolean isWriteable(Class<?> clazz, Type type, Annotation[] annotation, MediaType mediaType) {
@@ -450,8 +457,40 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
 
                 } 
 
-                try (InputStream instream = storageIO.getInputStream()) {
-                    if (instream != null) {
+                // User may have requested a rangeHeader of bytes.
+                // Ranges are only supported when the size of the content 
+                // stream is known (i.e., it's not a dynamically generated 
+                // stream. 
+                // The ranges are worked out before any stream is opened: for
+                // a range request, the storage driver opens streams of just 
+                // the requested bytes (see StorageIO.getRangeInputStream()), 
+                // and the main input stream is not used. 
+                List<Range> ranges = new ArrayList<>();
+                String rangeHeader = null;
+                HttpHeaders headers = di.getRequestHttpHeaders();
+                if (headers != null) {
+                    rangeHeader = headers.getHeaderString("Range");
+                }
+                long contentSize = getContentSize(storageIO);
+
+                if (contentSize > 0) {
+                    try {
+                        ranges = coalesceRanges(getRanges(rangeHeader, contentSize));
+                    } catch (Exception ex) {
+                        logger.fine("Exception caught processing Range header: " + ex.getLocalizedMessage());
+                        throw new ClientErrorException("Error due to Range header: " + ex.getLocalizedMessage(), Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE);
+                    }
+                } else {
+                    // Content size unknown, must be a dynamically
+                    // generated stream, such as a subsetting request.
+                    // We do NOT want to support rangeHeader requests on such streams:
+                    if (rangeHeader != null) {
+                        throw new NotFoundException("Range headers are not supported on dynamically-generated content, such as tabular subsetting.");
+                    }
+                }
+
+                try (InputStream instream = ranges.isEmpty() ? storageIO.getInputStream() : null) {
+                    if (instream != null || !ranges.isEmpty()) {
                         // headers:
 
                         String fileName = storageIO.getFileName();
@@ -463,146 +502,75 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
                         // a space to + so we change it back to a space (%20).
                         String finalFileName = URLEncoder.encode(fileName, "UTF-8").replaceAll("\\+", "%20");
                         httpHeaders.add("Content-disposition", "attachment; filename=\"" + finalFileName + "\"");
-                        httpHeaders.add("Content-Type", mimeType + "; name=\"" + finalFileName + "\"");
-
-                        long contentSize;
-                        
-                        // User may have requested a rangeHeader of bytes.
-                        // Ranges are only supported when the size of the content 
-                        // stream is known (i.e., it's not a dynamically generated 
-                        // stream. 
-                        List<Range> ranges = new ArrayList<>();
-                        String rangeHeader = null;
-                        HttpHeaders headers = di.getRequestHttpHeaders();
-                        if (headers != null) {
-                            rangeHeader = headers.getHeaderString("Range");
-                        }
-                        long offset = 0;
-                        long leftToRead = -1L; 
-                        // Moving the "left to read" var. here; - since we may need 
-                        // to start counting our rangeHeader bytes outside the main .write()
-                        // loop, if it's a tabular file with a header. 
-                        
-                        if ((contentSize = getContentSize(storageIO)) > 0) {
-                            try {
-                                ranges = getRanges(rangeHeader, contentSize);
-                            } catch (Exception ex) {
-                                logger.fine("Exception caught processing Range header: " + ex.getLocalizedMessage());
-                                throw new ClientErrorException("Error due to Range header: " + ex.getLocalizedMessage(), Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE);
-                            }
-                            
-                            if (ranges.isEmpty()) {
-                                logger.fine("Content size (retrieved from the AccessObject): " + contentSize);
-                                httpHeaders.add("Content-Length", contentSize);
-                            } else  {
-                                // For now we only support a single rangeHeader.
-                                long rangeContentSize = ranges.get(0).getLength();
-                                logger.fine("Content size (Range header in use): " + rangeContentSize);
-                                httpHeaders.add("Content-Length", rangeContentSize);
-                                
-                                offset = ranges.get(0).getStart();
-                                leftToRead = rangeContentSize;
-                                httpHeaders.add("Accept-Ranges", "bytes");
-                                httpHeaders.add("Content-Range", "bytes "+offset+"-"+(offset+rangeContentSize-1)+"/"+contentSize);
 
-                            }
-                        } else {
-                            // Content size unknown, must be a dynamically
-                            // generated stream, such as a subsetting request.
-                            // We do NOT want to support rangeHeader requests on such streams:
-                            if (rangeHeader != null) {
-                                throw new NotFoundException("Range headers are not supported on dynamically-generated content, such as tabular subsetting.");
-                            }
-                            
+                        byte[] varHeader = null;
+                        if (storageIO.getVarHeader() != null) {
+                            logger.fine("storageIO.getVarHeader().getBytes().length: " + storageIO.getVarHeader().getBytes().length);
+                            varHeader = storageIO.getVarHeader().getBytes();
                         }
 
                         // (the httpHeaders map must be modified *before* writing any
                         // data in the output stream!)
-                        int bufsize;
-                        byte[] bffr = new byte[4 * 8192];
 
-                        // Before writing out any bytes from the input stream, write
-                        // any extra content, such as the variable header for the 
-                        // subsettable files: 
-                        if (storageIO.getVarHeader() != null) {
-                            logger.fine("storageIO.getVarHeader().getBytes().length: " + storageIO.getVarHeader().getBytes().length);
-                            if (storageIO.getVarHeader().getBytes().length > 0) {
-                                // If a rangeHeader is not being requested, let's call that the normal case.
-                                // Write the entire line of variable headers. Later, the rest of the file
-                                // will be written.
-                                if (ranges.isEmpty()) {
-                                    logger.fine("writing the entire variable header");
-                                    outstream.write(storageIO.getVarHeader().getBytes());
-                                } else {
-                                    // Range requested. Since the output stream of a 
-                                    // tabular file is made up of the varHeader and the body of 
-                                    // the physical file, we should assume that the requested 
-                                    // rangeHeader may span any portion of the combined stream.
-                                    // Thus we may or may not have to write the header, or a 
-                                    // portion thereof. 
-                                    int headerLength = storageIO.getVarHeader().getBytes().length;
-                                    if (offset >= headerLength) {
-                                        // We can skip the entire header. 
-                                        // All we need to do is adjust the byte offset 
-                                        // in the physical file; the number of bytes
-                                        // left to write stays unchanged, since we haven't
-                                        // written anything.
-                                        logger.fine("Skipping the variable header completely.");
-                                        offset -= headerLength;
-                                    } else {
-                                        // We need to write some portion of the header; 
-                                        // Once we are done, we may or may not still have 
-                                        // some bytes left to write from the main physical file.
-                                        if (offset + leftToRead <= headerLength) {
-                                            // This is a more straightforward case - we just need to 
-                                            // write a portion of the header, and then we are done!
-                                            logger.fine("Writing this many bytes of the variable header line: " + leftToRead);
-                                            outstream.write(Arrays.copyOfRange(storageIO.getVarHeader().getBytes(), (int)offset, (int)offset + (int)leftToRead));
-                                            // set "left to read" to zero, indicating that we are done:
-                                            leftToRead = 0; 
-                                        } else {
-                                            // write the requested portion of the header:
-                                            logger.fine("Writing this many bytes of the variable header line: " + (headerLength - offset));
-                                            outstream.write(Arrays.copyOfRange(storageIO.getVarHeader().getBytes(), (int)offset, headerLength));
-                                            // and adjust the file offset and remaining number of bytes accordingly: 
-                                            leftToRead -= (headerLength - offset);
-                                            offset = 0;
-                                        }
-                                        
-                                    }
-                                }
-                            }
-                        }
-
-                        // Dynamic streams, etc. Normal operation. No leftToRead.
                         if (ranges.isEmpty()) {
+                            // Dynamic streams, etc. Normal operation.
+                            httpHeaders.add("Content-Type", mimeType + "; name=\"" + finalFileName + "\"");
+                            if (contentSize > 0) {
+                                logger.fine("Content size (retrieved from the AccessObject): " + contentSize);
+                                httpHeaders.add("Content-Length", contentSize);
+                            }
                             logger.fine("Normal, non-range request of file id " + dataFile.getId());
+
+                            // Before writing out any bytes from the input stream, write
+                            // any extra content, such as the variable header for the 
+                            // subsettable files: 
+                            if (varHeader != null && varHeader.length > 0) {
+                                logger.fine("writing the entire variable header");
+                                outstream.write(varHeader);
+                            }
+
+                            int bufsize;
+                            byte[] bffr = new byte[BUFFER_SIZE];
                             while ((bufsize = instream.read(bffr)) != -1) {
                                 outstream.write(bffr, 0, bufsize);
                             }
-                        } else if (leftToRead > 0) {
-                            // This is a rangeHeader request, and we still have bytes to read 
-                            // (for a tabular file, we may have already written enough
-                            // bytes from the variable header!)
-                            storageIO.setOffset(offset);
-                            // Thinking about it, we could just do instream.skip(offset) 
-                            // here... But I would like to have this offset functionality 
-                            // in StorageIO, for any future cases where we may not 
-                            // be able to do that on the stream directly (?) -- L.A.
+                        } else if (ranges.size() == 1) {
+                            Range range = ranges.get(0);
+                            logger.fine("Content size (Range header in use): " + range.getLength());
+                            httpHeaders.add("Content-Type", mimeType + "; name=\"" + finalFileName + "\"");
+                            httpHeaders.add("Content-Length", range.getLength());
+                            httpHeaders.add("Accept-Ranges", "bytes");
+                            httpHeaders.add("Content-Range", "bytes " + range.getStart() + "-" + range.getEnd() + "/" + contentSize);
+
                             logger.fine("Range request of file id " + dataFile.getId());
-                            // Read a rangeHeader of bytes instead of the whole file. We'll count down as we write.
-                            // For now we only support a single rangeHeader.
-                            while ((bufsize = instream.read(bffr)) != -1) {
-                                if ((leftToRead -= bufsize) > 0) {
-                                    // Just do a normal write. Potentially lots to go. Don't break.
-                                    outstream.write(bffr, 0, bufsize);
-                                } else {
-                                    // Get those last bytes or bytes equal to bufsize. Last one. Then break.
-                                    outstream.write(bffr, 0, (int) leftToRead + bufsize);
-                                    break;
-                                }
+                            writeRange(storageIO, varHeader, range, outstream);
+                        } else {
+                            // Several ranges; sent as the parts of a 
+                            // multipart/byteranges response:
+                            String boundary = "DATAVERSE_BYTERANGES_" + UUID.randomUUID().toString().replace("-", "");
+                            List<byte[]> partHeaders = new ArrayList<>();
+                            long multipartLength = 0;
+                            for (Range range : ranges) {
+                                byte[] partHeader = ("\r\n--" + boundary + "\r\n"
+                                        + "Content-Type: " + mimeType + "\r\n"
+                                        + "Content-Range: bytes " + range.getStart() + "-" + range.getEnd() + "/" + contentSize + "\r\n"
+                                        + "\r\n").getBytes(StandardCharsets.US_ASCII);
+                                partHeaders.add(partHeader);
+                                multipartLength += partHeader.length + range.getLength();
                             }
+                            byte[] closingBoundary = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+                            multipartLength += closingBoundary.length;
 
+                            httpHeaders.add("Content-Type", "multipart/byteranges; boundary=" + boundary);
+                            httpHeaders.add("Content-Length", multipartLength);
+                            httpHeaders.add("Accept-Ranges", "bytes");
+
+                            logger.fine("Multiple range request (" + ranges.size() + " ranges) of file id " + dataFile.getId());
+                            for (int i = 0; i < ranges.size(); i++) {
+                                outstream.write(partHeaders.get(i));
+                                writeRange(storageIO, varHeader, ranges.get(i), outstream);
+                            }
+                            outstream.write(closingBoundary);
                         }
 
                         logger.fine("di conversion param: " + di.getConversionParam() + ", value: " + di.getConversionParamValue());
@@ -626,6 +594,9 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
                         outstream.close();
                         return;
                     }
+                } finally {
+                    // (a range may have been read from the main input stream)
+                    storageIO.closeInputStream();
                 }
             }
         }
@@ -743,6 +714,71 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
         return -1;
     }
 
+    /**
+     * Writes one range of the content: the content is the variable header
+     * line, if any (for a tabular file), followed by the stored file; so the
+     * range may span any portion of the two. Only the requested bytes of the
+     * stored file are read.
+     */
+    private void writeRange(StorageIO<?> storageIO, byte[] varHeader, Range range, OutputStream outstream) throws IOException {
+        long offset = range.getStart();
+        long leftToRead = range.getLength();
+
+        if (varHeader != null && varHeader.length > 0) {
+            if (offset >= varHeader.length) {
+                // We can skip the entire header. 
+                // All we need to do is adjust the byte offset 
+                // in the physical file.
+                logger.fine("Skipping the variable header completely.");
+                offset -= varHeader.length;
+            } else {
+                // We need to write some portion of the header; 
+                // Once we are done, we may or may not still have 
+                // some bytes left to write from the main physical file.
+                int headerBytes = (int) Math.min(leftToRead, varHeader.length - offset);
+                logger.fine("Writing this many bytes of the variable header line: " + headerBytes);
+                outstream.write(varHeader, (int) offset, headerBytes);
+                leftToRead -= headerBytes;
+                offset = 0;
+            }
+        }
+
+        if (leftToRead > 0) {
+            try (InputStream rangeStream = storageIO.getRangeInputStream(offset, leftToRead)) {
+                int bufsize;
+                byte[] bffr = new byte[BUFFER_SIZE];
+                while ((bufsize = rangeStream.read(bffr)) != -1) {
+                    outstream.write(bffr, 0, bufsize);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorts the ranges, and merges the ones that overlap; so that they can be
+     * read in one pass through the file, even by the storage drivers that can
+     * only skip forward in the file.
+     */
+    static List<Range> coalesceRanges(List<Range> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        List<Range> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingLong(Range::getStart));
+        List<Range> coalesced = new ArrayList<>();
+        Range current = sorted.get(0);
+        for (Range next : sorted.subList(1, sorted.size())) {
+            if (next.getStart() <= current.getEnd() + 1) {
+                current = new Range(current.getStart(), Math.max(current.getEnd(), next.getEnd()));
+            } else {
+                coalesced.add(current);
+                current = next;
+            }
+        }
+        coalesced.add(current);
+        return coalesced;
+    }
+
     /**
      * @param range "bytes 0-10" for example. Found in the "Range" HTTP header.
      * @param fileSize File size in bytes.
@@ -756,19 +792,16 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
         if (range != null) {
             logger.fine("Range header supplied: " + range);
 
-            // Technically this regex supports multiple ranges.
-            // Below we have a check to enforce a single range.
+            // This regex supports multiple ranges.
             if (!range.matches("^bytes=\\d*-\\d*(,\\d*-\\d*)*$")) {
                 throw new RuntimeException("The format is bytes=<range-start>-<range-end> where start and end are optional.");
             }
 
             // The 6 is to remove "bytes="
             String[] parts = range.substring(6).split(",");
-            if (parts.length > 1) {
-                // Only allow a single range.
-                throw new RuntimeException("Only one range is allowed.");
+            if (parts.length > MAX_RANGES) {
+                throw new RuntimeException("No more than " + MAX_RANGES + " ranges are allowed.");
             }
-            // This loop is here in case we ever want to support multiple ranges.
             for (String part : parts) {
 
                 long start = getRangeStart(part);
@@ -0,0 +1,94 @@
+package edu.harvard.iq.dataverse.api.imports;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * The records of a batch import saved so far, and the datasets they were
+ * saved into: one line per record, appended to a file as each chunk of
+ * records is committed. Running the same import again with {@code resume}
+ * skips the records found in the file (and indexes their datasets, in case
+ * the interrupted import didn't get to it).
+ */
+public class BatchImportProgress implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(BatchImportProgress.class.getCanonicalName());
+
+    // record -> dataset id
+    private final Map<String, Long> imported = new LinkedHashMap<>();
+    private final BufferedWriter writer;
+
+    /**
+     * @param resume whether to read the records saved by an earlier run from
+     *               the file, rather than start it over
+     */
+    public BatchImportProgress(Path path, boolean resume) throws IOException {
+        if (resume && Files.exists(path)) {
+            String content = Files.readString(path, StandardCharsets.UTF_8);
+            for (String line : content.split("\n")) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                int tab = line.lastIndexOf('\t');
+                try {
+                    imported.put(line.substring(0, tab), Long.valueOf(line.substring(tab + 1)));
+                } catch (IndexOutOfBoundsException | NumberFormatException e) {
+                    // (e.g. the last line of a run that was killed while writing it)
+                    logger.warning("Ignoring line of " + path + ": " + line);
+                }
+            }
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            if (!content.isEmpty() && !content.endsWith("\n")) {
+                writer.write("\n");
+            }
+        } else {
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        }
+    }
+
+    public boolean isImported(String record) {
+        return imported.containsKey(record);
+    }
+
+    /**
+     * Records a chunk of records, just committed.
+     *
+     * @param datasetIds the ids of the datasets the records were saved into,
+     *                   in the same order
+     */
+    public void imported(List<String> records, List<Long> datasetIds) throws IOException {
+        for (int i = 0; i < records.size(); i++) {
+            imported.put(records.get(i), datasetIds.get(i));
+            writer.write(records.get(i) + "\t" + datasetIds.get(i) + "\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return the ids of the datasets imported so far, by this run and the
+     *         earlier ones
+     */
+    public Set<Long> getDatasetIds() {
+        return new LinkedHashSet<>(imported.values());
+    }
+
+    public int size() {
+        return imported.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -53,7 +53,9 @@ import java.util.logging.Formatter;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
+import jakarta.annotation.Resource;
 import jakarta.ejb.EJB;
+import jakarta.ejb.EJBContext;
 import jakarta.ejb.EJBException;
 import jakarta.ejb.Stateless;
 import jakarta.ejb.TransactionAttribute;
@@ -106,6 +108,10 @@ public class ImportServiceBean {
     IndexServiceBean indexService;
     @EJB
     LicenseServiceBean licenseService;
+
+    @Resource
+    EJBContext ejbCtxt;
+
     /**
      * This is just a convenience method, for testing migration.  It creates 
      * a dummy dataverse with the directory name as dataverse name & alias.
@@ -401,9 +407,17 @@ public class ImportServiceBean {
     }
     
     public JsonObjectBuilder doImport(DataverseRequest dataverseRequest, Dataverse owner, String xmlToParse, String fileName, ImportType importType, PrintWriter cleanupLog) throws ImportException, IOException {
+        Dataset ds = parseImport(xmlToParse, importType);
+        prepareImport(ds, owner, fileName, importType, cleanupLog);
+        return Json.createObjectBuilder().add("message", saveImport(dataverseRequest, ds, importType, true).status);
+    }
 
-        String status = "";
-        Long createdId = null;
+    /**
+     * Parses a DDI record into a new dataset, which is not attached to a
+     * collection yet. Only reads the metadata configuration; the batch import
+     * calls it on several threads at a time.
+     */
+    public Dataset parseImport(String xmlToParse, ImportType importType) throws ImportException {
         DatasetDTO dsDTO = null;
         try {
            
@@ -429,72 +443,102 @@ public class ImportServiceBean {
                     throw new ImportException("Could not register id " + ds.getGlobalId().asString() + ", protocol not supported");
                 }
             }
+            return ds;
 
-            ds.setOwner(owner);
-            ds.getLatestVersion().setDatasetFields(ds.getLatestVersion().initDatasetFields());
+        } catch (JsonParseException ex) {
+            logger.log(Level.INFO, "Error parsing datasetVersion: {0}", ex.getMessage());
+            throw new ImportException("Error parsing datasetVersion: " + ex.getMessage(), ex);
+        }
+    }
 
-            // Check data against required contraints
-            List<ConstraintViolation<DatasetField>> violations = ds.getVersions().get(0).validateRequired();
-            if (!violations.isEmpty()) {
-                if ( importType.equals(ImportType.HARVEST) ) {
-                    // For migration and harvest, add NA for missing required values
-                    for (ConstraintViolation<DatasetField> v : violations) {
-                        DatasetField f = v.getRootBean();
-                         f.setSingleValue(DatasetField.NA_VALUE);
-                    }
-                } else {
-                    // when importing a new dataset, the import will fail
-                    // if required values are missing.
-                    String errMsg = "Error importing data:";
-                    for (ConstraintViolation<DatasetField> v : violations) {
-                        errMsg += " " + v.getMessage();
-                    }
-                    throw new ImportException(errMsg);
+    /**
+     * Attaches a parsed dataset to its collection, and validates its metadata:
+     * missing or invalid values fail the import of a new dataset, and are
+     * replaced (and logged to the cleanup log) for a harvested one.
+     */
+    public void prepareImport(Dataset ds, Dataverse owner, String fileName, ImportType importType, PrintWriter cleanupLog) throws ImportException {
+        ds.setOwner(owner);
+        ds.getLatestVersion().setDatasetFields(ds.getLatestVersion().initDatasetFields());
+
+        // Check data against required contraints
+        List<ConstraintViolation<DatasetField>> violations = ds.getVersions().get(0).validateRequired();
+        if (!violations.isEmpty()) {
+            if ( importType.equals(ImportType.HARVEST) ) {
+                // For migration and harvest, add NA for missing required values
+                for (ConstraintViolation<DatasetField> v : violations) {
+                    DatasetField f = v.getRootBean();
+                     f.setSingleValue(DatasetField.NA_VALUE);
                 }
+            } else {
+                // when importing a new dataset, the import will fail
+                // if required values are missing.
+                String errMsg = "Error importing data:";
+                for (ConstraintViolation<DatasetField> v : violations) {
+                    errMsg += " " + v.getMessage();
+                }
+                throw new ImportException(errMsg);
             }
+        }
 
-            // Check data against validation constraints
-            // If we are migrating and "scrub migration data" is true we attempt to fix invalid data
-            // if the fix fails stop processing of this file by throwing exception
-            Set<ConstraintViolation> invalidViolations = ds.getVersions().get(0).validate();
+        // Check data against validation constraints
+        // If we are migrating and "scrub migration data" is true we attempt to fix invalid data
+        // if the fix fails stop processing of this file by throwing exception
+        Set<ConstraintViolation> invalidViolations = ds.getVersions().get(0).validate();
+        if (!invalidViolations.isEmpty()) {
             ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
             Validator validator = factory.getValidator();
-            if (!invalidViolations.isEmpty()) {
-                for (ConstraintViolation<DatasetFieldValue> v : invalidViolations) {
-                    DatasetFieldValue f = v.getRootBean();
-                    boolean fixed = false;
-                    boolean converted = false;
-                    if ( importType.equals(ImportType.HARVEST) && 
-                         settingsService.isTrueForKey(SettingsServiceBean.Key.ScrubMigrationData, false)) {
-                        fixed = processMigrationValidationError(f, cleanupLog, fileName);
-                        converted = true;
-                        if (fixed) {
-                            Set<ConstraintViolation<DatasetFieldValue>> scrubbedViolations = validator.validate(f);
-                            if (!scrubbedViolations.isEmpty()) {
-                                fixed = false;
-                            }
+            for (ConstraintViolation<DatasetFieldValue> v : invalidViolations) {
+                DatasetFieldValue f = v.getRootBean();
+                boolean fixed = false;
+                boolean converted = false;
+                if ( importType.equals(ImportType.HARVEST) && 
+                     settingsService.isTrueForKey(SettingsServiceBean.Key.ScrubMigrationData, false)) {
+                    fixed = processMigrationValidationError(f, cleanupLog, fileName);
+                    converted = true;
+                    if (fixed) {
+                        Set<ConstraintViolation<DatasetFieldValue>> scrubbedViolations = validator.validate(f);
+                        if (!scrubbedViolations.isEmpty()) {
+                            fixed = false;
                         }
                     }
-                    if (!fixed) {
-                        if (importType.equals(ImportType.HARVEST)) {
-                            String msg = "Data modified - File: " + fileName + "; Field: " + f.getDatasetField().getDatasetFieldType().getDisplayName() + "; "
-                                    + "Invalid value:  '" + f.getValue() + "'" + " Converted Value:'" + DatasetField.NA_VALUE + "'";
-                            cleanupLog.println(msg);
-                            f.setValue(DatasetField.NA_VALUE);
-
-                        } else {
-                            String msg = " Validation error for ";
-                            if (converted) {
-                                msg += "converted ";
-                            }
-                            msg += "value: " + f.getValue() + ", " + f.getValidationMessage();
-                            throw new ImportException(msg);
+                }
+                if (!fixed) {
+                    if (importType.equals(ImportType.HARVEST)) {
+                        String msg = "Data modified - File: " + fileName + "; Field: " + f.getDatasetField().getDatasetFieldType().getDisplayName() + "; "
+                                + "Invalid value:  '" + f.getValue() + "'" + " Converted Value:'" + DatasetField.NA_VALUE + "'";
+                        cleanupLog.println(msg);
+                        f.setValue(DatasetField.NA_VALUE);
+
+                    } else {
+                        String msg = " Validation error for ";
+                        if (converted) {
+                            msg += "converted ";
                         }
+                        msg += "value: " + f.getValue() + ", " + f.getValidationMessage();
+                        throw new ImportException(msg);
                     }
                 }
             }
+        }
+    }
 
+    /**
+     * The outcome of saving an imported dataset.
+     */
+    private static class SavedImport {
+        final Long datasetId;
+        final String status;
 
+        SavedImport(Long datasetId, String status) {
+            this.datasetId = datasetId;
+            this.status = status;
+        }
+    }
+
+    private SavedImport saveImport(DataverseRequest dataverseRequest, Dataset ds, ImportType importType, boolean index) throws ImportException {
+        String status = "";
+        Long datasetId = null;
+        try {
             Dataset existingDs = datasetService.findByGlobalId(ds.getGlobalId().asString());
 
             if (existingDs != null) {
@@ -506,8 +550,11 @@ public class ImportServiceBean {
                     }
                     // harvested datasets don't have physical files - so no need to worry about that.
                     engineSvc.submit(new DestroyDatasetCommand(existingDs, dataverseRequest));
-                    Dataset managedDs = engineSvc.submit(new CreateHarvestedDatasetCommand(ds, dataverseRequest));
+                    CreateHarvestedDatasetCommand createCommand = new CreateHarvestedDatasetCommand(ds, dataverseRequest);
+                    createCommand.setIndex(index);
+                    Dataset managedDs = engineSvc.submit(createCommand);
                     status = " updated dataset, id=" + managedDs.getId() + ".";
+                    datasetId = managedDs.getId();
                     
                 } else {
                     // If we are adding a new version to an existing dataset,
@@ -517,25 +564,47 @@ public class ImportServiceBean {
                             throw new ImportException("VersionNumber " + ds.getLatestVersion().getVersionNumber() + " already exists in dataset " + existingDs.getGlobalId().asString());
                         }
                     }
-                    DatasetVersion dsv = engineSvc.submit(new CreateDatasetVersionCommand(dataverseRequest, existingDs, ds.getVersions().get(0)));
+                    CreateDatasetVersionCommand createCommand = new CreateDatasetVersionCommand(dataverseRequest, existingDs, ds.getVersions().get(0));
+                    createCommand.setIndex(index);
+                    DatasetVersion dsv = engineSvc.submit(createCommand);
                     status = " created datasetVersion, for dataset "+ dsv.getDataset().getGlobalId().asString();
-                    createdId = dsv.getId();
+                    datasetId = dsv.getDataset().getId();
                 }
 
             } else {
-                Dataset managedDs = engineSvc.submit(new CreateNewDatasetCommand(ds, dataverseRequest));
+                CreateNewDatasetCommand createCommand = new CreateNewDatasetCommand(ds, dataverseRequest);
+                createCommand.setIndex(index);
+                Dataset managedDs = engineSvc.submit(createCommand);
                 status = " created dataset, id=" + managedDs.getId() + ".";
-                createdId = managedDs.getId();
+                datasetId = managedDs.getId();
             }
 
-        } catch (JsonParseException ex) {
-            logger.log(Level.INFO, "Error parsing datasetVersion: {0}", ex.getMessage());
-            throw new ImportException("Error parsing datasetVersion: " + ex.getMessage(), ex);
         } catch (CommandException ex) {
             logger.log(Level.INFO, "Error excuting Create dataset command: {0}", ex.getMessage());
             throw new ImportException("Error excuting dataverse command: " + ex.getMessage(), ex);
         }
-        return Json.createObjectBuilder().add("message", status);
+        return new SavedImport(datasetId, status);
+    }
+
+    /**
+     * Saves a chunk of datasets, prepared by {@link #prepareImport}, in one
+     * transaction, without indexing them. If one of them can't be saved,
+     * none is.
+     *
+     * @return the ids of the datasets created or updated
+     */
+    @TransactionAttribute(REQUIRES_NEW)
+    public List<Long> importChunk(DataverseRequest dataverseRequest, List<Dataset> datasets, ImportType importType) throws ImportException {
+        List<Long> datasetIds = new ArrayList<>(datasets.size());
+        try {
+            for (Dataset ds : datasets) {
+                datasetIds.add(saveImport(dataverseRequest, ds, importType, false).datasetId);
+            }
+        } catch (ImportException ex) {
+            ejbCtxt.setRollbackOnly();
+            throw ex;
+        }
+        return datasetIds;
     }
     
     private boolean processMigrationValidationError(DatasetFieldValue f, PrintWriter cleanupLog, String fileName) {
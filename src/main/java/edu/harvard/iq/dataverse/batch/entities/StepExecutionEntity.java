@@ -25,6 +25,8 @@ public class StepExecutionEntity {
 
     private String persistentUserData;
 
+    private Long itemsPerSecond;
+
     public static StepExecutionEntity create(final StepExecution stepExecution) {
 
         final StepExecutionEntity result = new StepExecutionEntity();
@@ -42,6 +44,13 @@ public class StepExecutionEntity {
             result.metrics.put(m.getType().name().toLowerCase(), m.getValue());
         }
 
+        // throughput so far (the counts are updated as each chunk is committed)
+        Long writeCount = result.metrics.get("write_count");
+        if (writeCount != null && result.startTime != null) {
+            long end = result.endTime != null ? result.endTime.getTime() : System.currentTimeMillis();
+            result.itemsPerSecond = writeCount * 1000 / Math.max(1, end - result.startTime.getTime());
+        }
+
         if (stepExecution.getPersistentUserData() != null) {
             result.setPersistentUserData(stepExecution.getPersistentUserData().toString());
         }
@@ -112,4 +121,12 @@ public class StepExecutionEntity {
     public void setPersistentUserData(String persistentUserData) {
         this.persistentUserData = persistentUserData;
     }
+
+    public Long getItemsPerSecond() {
+        return itemsPerSecond;
+    }
+
+    public void setItemsPerSecond(Long itemsPerSecond) {
+        this.itemsPerSecond = itemsPerSecond;
+    }
 }
@@ -19,7 +19,6 @@
 
 package edu.harvard.iq.dataverse.batch.jobs.importer.filesystem;
 
-import edu.harvard.iq.dataverse.DataFile;
 import edu.harvard.iq.dataverse.DataFileServiceBean;
 import edu.harvard.iq.dataverse.Dataset;
 import edu.harvard.iq.dataverse.DatasetServiceBean;
@@ -36,6 +35,7 @@ import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import java.io.File;
 import java.util.Properties;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -54,6 +54,10 @@ public class FileRecordProcessor implements ItemProcessor {
     DataFileServiceBean dataFileServiceBean;
 
     Dataset dataset;
+
+    // the storage identifiers of the files already in the version, looked up
+    // in one query rather than one per file:
+    Set<String> existingStorageIdentifiers;
     
     @PostConstruct
     public void init() {
@@ -73,8 +77,10 @@ public class FileRecordProcessor implements ItemProcessor {
         String relativePath = path.substring(path.indexOf(gid) + gid.length() + 1);
         
         // skip if it already exists
-        DataFile datafile = dataFileServiceBean.findByStorageIdandDatasetVersion(relativePath, version);
-        if (datafile == null) {
+        if (existingStorageIdentifiers == null) {
+            existingStorageIdentifiers = dataFileServiceBean.findStorageIdentifiersByDatasetVersion(version);
+        }
+        if (!existingStorageIdentifiers.contains(relativePath)) {
             return new File(path);
         } else {
             Logger.getLogger("job-"+jobContext.getInstanceId()).log(Level.INFO, "Skipping " + relativePath + ", DataFile already exists.");
@@ -29,6 +29,7 @@ import org.apache.commons.io.filefilter.NotFileFilter;
 import org.apache.commons.io.filefilter.WildcardFileFilter;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
 import jakarta.batch.api.BatchProperty;
 import jakarta.batch.api.chunk.AbstractItemReader;
 import jakarta.batch.operations.JobOperator;
@@ -36,18 +37,30 @@ import jakarta.batch.runtime.BatchRuntime;
 import jakarta.batch.runtime.context.JobContext;
 import jakarta.batch.runtime.context.StepContext;
 import jakarta.ejb.EJB;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 import jakarta.enterprise.context.Dependent;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -73,6 +86,9 @@ public class FileRecordReader extends AbstractItemReader {
     @EJB
     AuthenticationServiceBean authenticationServiceBean;
 
+    @Resource
+    ManagedExecutorService executor;
+
     File directory;
     List<File> files;
     Iterator<File> iterator;
@@ -115,11 +131,21 @@ public class FileRecordReader extends AbstractItemReader {
         getJobLogger().log(Level.INFO, "Reading dataset directory: " + directory.getAbsolutePath() 
                 + " (excluding: " + excludes + ")");
         if (isValidDirectory(directory)) {
-            files = getFiles(directory);
-            iterator = files.listIterator();
+            int threads = JvmSettings.FILESYSTEM_IMPORT_THREADS.lookupOptional(Integer.class).orElse(FileRecordWriter.DEFAULT_THREADS);
+            long start = System.currentTimeMillis();
+            files = getFiles(directory, excludes, executor, threads);
             currentRecordNumber = 0;
             totalRecordNumber = (long) files.size();
-            getJobLogger().log(Level.INFO, "Files found = " + totalRecordNumber);
+            getJobLogger().log(Level.INFO, "Files found = " + totalRecordNumber + " (in " + (System.currentTimeMillis() - start) + " ms)");
+            // (shown as the persistentUserData of the step by /api/admin/batch/jobs, next to the read and write counts)
+            stepContext.setPersistentUserData(totalRecordNumber);
+            // on restart, resume after the last chunk committed (the files are
+            // listed in the same order every time):
+            if (checkpoint != null) {
+                currentRecordNumber = Math.min((Long) checkpoint, totalRecordNumber);
+                getJobLogger().log(Level.INFO, "Resuming after file " + currentRecordNumber);
+            }
+            iterator = files.listIterator((int) currentRecordNumber);
             // report if checksum total not equal to file total
             int checksumCount = ((HashMap<String, String>) jobContext.getTransientUserData()).size();
             if (checksumCount != files.size()) {
@@ -137,6 +163,11 @@ public class FileRecordReader extends AbstractItemReader {
         getJobLogger().log(Level.INFO, "Files read  = " + currentRecordNumber);
     }
 
+    @Override
+    public Serializable checkpointInfo() {
+        return currentRecordNumber;
+    }
+
     @Override
     public File readItem() {
         if (iterator.hasNext()) {
@@ -147,27 +178,83 @@ public class FileRecordReader extends AbstractItemReader {
     }
 
     /**
-     * Get the list of files in the directory, minus any in the skip list.
+     * Get the list of files in the directory, minus any in the skip list. The
+     * subdirectories are listed in parallel, since on the network filesystems
+     * big data packages are usually kept on, a listing spends most of its time
+     * waiting; the files are returned sorted by path, so that they are read
+     * in the same order every time.
      * @param directory directory where dataset files can be found
+     * @param excludes comma-separated wildcards of the names of files and directories to skip
+     * @param executor executor the directories are listed on (when busy, or
+     * null, they are listed by the caller)
+     * @param threads number of directories listed at the same time
      * @return list of files
+     * @throws InterruptedException if interrupted while waiting for a listing
      */
-    private List<File> getFiles(final File directory) {
+    static List<File> getFiles(final File directory, String excludes, Executor executor, int threads) throws InterruptedException {
         // create filter from job xml excludes property
         FileFilter excludeFilter = new NotFileFilter(new WildcardFileFilter(Arrays.asList(excludes.split("\\s*,\\s*"))));
+        CompletionService<Listing> listings = new ExecutorCompletionService<>(command -> {
+            if (executor == null) {
+                command.run();
+                return;
+            }
+            try {
+                executor.execute(command);
+            } catch (RejectedExecutionException e) {
+                command.run();
+            }
+        });
+        Set<Future<Listing>> inFlight = new HashSet<>();
+        Deque<File> directories = new ArrayDeque<>();
+        directories.add(directory);
         List<File> files = new ArrayList<>();
-        File[] filesList = directory.listFiles(excludeFilter);
-        if (filesList != null) {
-            for (File file : filesList) {
-                if (file.isFile()) {
-                    files.add(file);
-                } else {
-                    files.addAll(getFiles(file));
+        try {
+            while (!directories.isEmpty() || !inFlight.isEmpty()) {
+                // (the subdirectories found are listed as soon as a thread is free)
+                while (!directories.isEmpty() && inFlight.size() < Math.max(1, threads)) {
+                    File next = directories.poll();
+                    inFlight.add(listings.submit(() -> new Listing(next, excludeFilter)));
                 }
+                Future<Listing> done = listings.take();
+                inFlight.remove(done);
+                Listing listing = done.get();
+                files.addAll(listing.files);
+                directories.addAll(listing.subdirectories);
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for (Future<Listing> future : inFlight) {
+                future.cancel(true);
             }
         }
+        files.sort(Comparator.naturalOrder());
         return files;
     }
 
+    private static class Listing {
+
+        private final List<File> files = new ArrayList<>();
+        private final List<File> subdirectories = new ArrayList<>();
+
+        Listing(File directory, FileFilter filter) {
+            File[] filesList = directory.listFiles(filter);
+            if (filesList != null) {
+                for (File file : filesList) {
+                    if (file.isFile()) {
+                        files.add(file);
+                    } else {
+                        subdirectories.add(file);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Make sure the directory path is truly a directory, exists and we can read it.
      * @return isValid
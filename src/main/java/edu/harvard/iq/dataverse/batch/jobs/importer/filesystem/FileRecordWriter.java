@@ -34,10 +34,12 @@ import edu.harvard.iq.dataverse.engine.command.DataverseRequest;
 import edu.harvard.iq.dataverse.engine.command.exception.CommandException;
 import edu.harvard.iq.dataverse.engine.command.impl.UpdateDatasetVersionCommand;
 import edu.harvard.iq.dataverse.pidproviders.PidProvider;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
 import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
 import edu.harvard.iq.dataverse.util.FileUtil;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
 import jakarta.batch.api.BatchProperty;
 import jakarta.batch.api.chunk.AbstractItemWriter;
 import jakarta.batch.operations.JobOperator;
@@ -45,17 +47,30 @@ import jakarta.batch.runtime.BatchRuntime;
 import jakarta.batch.runtime.context.JobContext;
 import jakarta.batch.runtime.context.StepContext;
 import jakarta.ejb.EJB;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 import jakarta.enterprise.context.Dependent;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.channels.FileChannel;
 import java.sql.Timestamp;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jakarta.servlet.http.HttpServletRequest;
@@ -102,6 +117,20 @@ public class FileRecordWriter extends AbstractItemWriter {
 
     public static String FILE_MODE_INDIVIDUAL_FILES = "individual_files";
     public static String FILE_MODE_PACKAGE_FILE = "package_file";
+
+    // files committed per chunk, in the individual files mode
+    // (dataverse.files.filesystem-import.chunk-size):
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    // directories listed, and checksums calculated, at the same time
+    // (dataverse.files.filesystem-import.threads):
+    public static final int DEFAULT_THREADS = 4;
+
+    // calculates the checksums missing from the manifest:
+    @Resource
+    ManagedExecutorService executor;
+    int threads = DEFAULT_THREADS;
+    long filesWritten = 0;
+    long startTime;
     
     @PostConstruct
     public void init() {
@@ -126,7 +155,10 @@ public class FileRecordWriter extends AbstractItemWriter {
     
     @Override
     public void open(Serializable checkpoint) throws Exception {
-        // no-op   
+        if (FILE_MODE_INDIVIDUAL_FILES.equals(fileMode)) {
+            threads = Math.max(1, JvmSettings.FILESYSTEM_IMPORT_THREADS.lookupOptional(Integer.class).orElse(DEFAULT_THREADS));
+        }
+        startTime = System.currentTimeMillis();
     }
 
     @Override
@@ -138,9 +170,11 @@ public class FileRecordWriter extends AbstractItemWriter {
     public void writeItems(List list) {
         if (!list.isEmpty()) {
             if (FILE_MODE_INDIVIDUAL_FILES.equals(fileMode)) {
+                DataFile.ChecksumType jobChecksumType = getJobChecksumType();
+                Map<File, String> calculatedChecksums = calculateMissingChecksums(list, jobChecksumType);
                 List<DataFile> datafiles = dataset.getFiles();
                 for (Object file : list) {
-                    DataFile df = createDataFile((File) file);
+                    DataFile df = createDataFile((File) file, jobChecksumType, calculatedChecksums.get((File) file));
                     if (df != null) {
                         // log success if the dataset isn't huge
                         if (fileCount < 20000) {
@@ -152,6 +186,9 @@ public class FileRecordWriter extends AbstractItemWriter {
                     }
                 }
                 dataset.getLatestVersion().getDataset().setFiles(datafiles);
+                filesWritten += list.size();
+                long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+                getJobLogger().log(Level.INFO, "Files written = " + filesWritten + " (" + (filesWritten * 1000 / elapsed) + " files/sec)");
             } else if (FILE_MODE_PACKAGE_FILE.equals(fileMode)) {
                 DataFile packageFile = createPackageDataFile(list);
                 if (packageFile == null) {
@@ -387,18 +424,117 @@ public class FileRecordWriter extends AbstractItemWriter {
         return packageFile;
     }
     
+    /**
+     * The checksum type of the job: the checksumType system property if set,
+     * otherwise the batch job property; SHA1, if neither is a known type.
+     */
+    private DataFile.ChecksumType getJobChecksumType() {
+        // check system property first, otherwise use the batch job property
+        String jobChecksumType;
+        if (System.getProperty("checksumType") != null) {
+            jobChecksumType = System.getProperty("checksumType");
+        } else {
+            jobChecksumType = checksumType;
+        }
+        for (DataFile.ChecksumType type : DataFile.ChecksumType.values()) {
+            if (jobChecksumType.equalsIgnoreCase(type.name())) {
+                return type;
+            }
+        }
+        return DataFile.ChecksumType.SHA1; // initial default
+    }
+
+    /**
+     * Calculate the checksums of the files that are not in the checksum
+     * manifest, several at a time.
+     * @param files the files of the chunk
+     * @return the checksums calculated, by file; the files whose checksums
+     *         could not be calculated are left out
+     */
+    private Map<File, String> calculateMissingChecksums(List<File> files, DataFile.ChecksumType type) {
+        Map<File, String> checksums = new HashMap<>();
+        Map<String, String> manifest = (Map<String, String>) jobContext.getTransientUserData();
+        if (manifest == null) {
+            return checksums;
+        }
+        // (at most "threads" files are read at the same time; when the managed
+        // executor is busy, the checksum is calculated by this thread)
+        CompletionService<Entry<File, String>> calculations = new ExecutorCompletionService<>(command -> {
+            try {
+                executor.execute(command);
+            } catch (RejectedExecutionException e) {
+                command.run();
+            }
+        });
+        Set<Future<Entry<File, String>>> inFlight = new HashSet<>();
+        try {
+            for (File file : files) {
+                if (manifest.containsKey(getRelativePath(file))) {
+                    continue;
+                }
+                if (inFlight.size() == threads) {
+                    collectChecksum(calculations, inFlight, checksums);
+                }
+                inFlight.add(calculations.submit(() -> {
+                    try {
+                        return new SimpleImmutableEntry<>(file, calculateChecksum(file, type));
+                    } catch (IOException ex) {
+                        getJobLogger().log(Level.WARNING, "Unable to calculate checksum for: " + file.getAbsolutePath()
+                                + " (" + ex.getMessage() + ")");
+                        return new SimpleImmutableEntry<>(file, null);
+                    }
+                }));
+            }
+            while (!inFlight.isEmpty()) {
+                collectChecksum(calculations, inFlight, checksums);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Future<Entry<File, String>> calculation : inFlight) {
+                calculation.cancel(true);
+            }
+        }
+        return checksums;
+    }
+
+    private void collectChecksum(CompletionService<Entry<File, String>> calculations, Set<Future<Entry<File, String>>> inFlight,
+            Map<File, String> checksums) throws InterruptedException {
+        Future<Entry<File, String>> calculation = calculations.take();
+        inFlight.remove(calculation);
+        try {
+            Entry<File, String> checksum = calculation.get();
+            if (checksum.getValue() != null) {
+                checksums.put(checksum.getKey(), checksum.getValue());
+            }
+        } catch (ExecutionException ex) {
+            getJobLogger().log(Level.WARNING, "Unable to calculate checksum (" + ex.getCause() + ")");
+        }
+    }
+
+    static String calculateChecksum(File file, DataFile.ChecksumType type) throws IOException {
+        // (the channel is closed by calculateChecksum)
+        return FileUtil.calculateChecksum(FileChannel.open(file.toPath()), type);
+    }
+
+    private String getRelativePath(File file) {
+        String path = file.getAbsolutePath();
+        String gid = dataset.getAuthority() + "/" + dataset.getIdentifier();
+        return path.substring(path.indexOf(gid) + gid.length() + 1);
+    }
+
     /**
      * Create a DatasetFile and corresponding FileMetadata for a file on the filesystem and add it to the
      * latest dataset version (if the user has AddDataset permissions for the dataset).
      * @param file file to create dataFile from
+     * @param jobChecksumType checksum type of the job
+     * @param calculatedChecksum checksum of the file, if it isn't in the checksum manifest
      * @return datafile
      */
-    private DataFile createDataFile(File file) {
+    private DataFile createDataFile(File file, DataFile.ChecksumType jobChecksumType, String calculatedChecksum) {
         
         DatasetVersion version = dataset.getLatestVersion();
-        String path = file.getAbsolutePath();
-        String gid = dataset.getAuthority() + "/" + dataset.getIdentifier();
-        String relativePath = path.substring(path.indexOf(gid) + gid.length() + 1);
+        String relativePath = getRelativePath(file);
         
         DataFile datafile = new DataFile("application/octet-stream"); // we don't determine mime type
         datafile.setStorageIdentifier(relativePath);
@@ -409,20 +545,7 @@ public class FileRecordWriter extends AbstractItemWriter {
         datafile.setOwner(dataset);
         datafile.setIngestDone();
 
-        // check system property first, otherwise use the batch job property
-        String jobChecksumType;
-        if (System.getProperty("checksumType") != null) {
-            jobChecksumType = System.getProperty("checksumType");
-        } else {
-            jobChecksumType = checksumType;
-        }
-        datafile.setChecksumType(DataFile.ChecksumType.SHA1); // initial default
-        for (DataFile.ChecksumType type : DataFile.ChecksumType.values()) {
-            if (jobChecksumType.equalsIgnoreCase(type.name())) {
-                datafile.setChecksumType(type);
-                break;
-            }
-        }
+        datafile.setChecksumType(jobChecksumType);
         // lookup the checksum value in the job's manifest hashmap
         if (jobContext.getTransientUserData() != null) {
             String checksumVal = ((Map<String, String>) jobContext.getTransientUserData()).get(relativePath);
@@ -430,6 +553,9 @@ public class FileRecordWriter extends AbstractItemWriter {
                 datafile.setChecksumValue(checksumVal);
                 // remove the key, so we can check for unused checksums when the job is complete
                 ((Map<String, String>) jobContext.getTransientUserData()).remove(relativePath);
+            } else if (calculatedChecksum != null) {
+                datafile.setChecksumValue(calculatedChecksum);
+                getJobLogger().log(Level.INFO, "Checksum not in manifest, calculated for: " + file.getAbsolutePath());
             } else {
                 datafile.setChecksumValue("Unknown");
                 getJobLogger().log(Level.WARNING, "Unable to find checksum in manifest for: " + file.getAbsolutePath());
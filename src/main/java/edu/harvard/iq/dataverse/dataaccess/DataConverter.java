@@ -41,6 +41,7 @@ import edu.harvard.iq.dataverse.datavariable.DataVariable;
 import edu.harvard.iq.dataverse.datavariable.VariableCategory;
 import edu.harvard.iq.dataverse.util.FileUtil;
 import edu.harvard.iq.dataverse.rserve.*;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.InputStream;
@@ -52,6 +53,11 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 
 
@@ -76,6 +82,10 @@ public class DataConverter {
     
     public static String SERVICE_REQUEST_CONVERT = "convert";
     
+    // the conversions running on this node, by file id and format:
+    private static final Map<String, CompletableFuture<File>> conversionsInProgress = new ConcurrentHashMap<>();
+    private static final long DEFAULT_CONVERSION_WAIT_TIMEOUT_SECONDS = 600;
+    
     
     public static StorageIO<DataFile> performFormatConversion(DataFile file, StorageIO<DataFile> storageIO, String formatRequested, String formatType) {
         if (!file.isTabularData()) {
@@ -102,39 +112,32 @@ public class DataConverter {
             convertedFileStream = null;
         }
 
-        // If not cached, run the conversion:
+        // If not cached, run the conversion (or wait for the one already 
+        // running for the same file and format):
         if (convertedFileStream == null) {
 
-            File tabFile = downloadFromStorageIO(storageIO);
+            File formatConvertedFile = convertAndCache(file, storageIO, formatRequested);
 
-            if (tabFile == null) {
-                return null;
+            if (formatConvertedFile != null) {
+                // open the generated file:
+                try {
+                    convertedFileStream = new FileInputStream(formatConvertedFile);
+                    convertedFileSize = formatConvertedFile.length();
+                } catch (FileNotFoundException ioex) {
+                    // (the conversion we waited for was run after ingest, and
+                    // its file deleted once cached)
+                    logger.fine("Generated format " + formatRequested + " for " + file.getStorageIdentifier() + " is gone; opening the cached copy");
+                }
             }
-
-            if (tabFile.length() > 0) {
-                File formatConvertedFile = runFormatConversion(file, tabFile, formatRequested);
-
-                // cache the result for future use:
-                if (formatConvertedFile != null && formatConvertedFile.exists()) {
-
-                    try {
-                        storageIO.savePathAsAux(Paths.get(formatConvertedFile.getAbsolutePath()), formatRequested);
-
-                    } catch (IOException ex) {
-                        logger.warning("failed to save cached format " + formatRequested + " for " + file.getStorageIdentifier());
-                        // We'll assume that this is a non-fatal condition.
-                    }
-
-                    // re-open the generated file:
-                    try {
-                        convertedFileStream = new FileInputStream(formatConvertedFile);
-                        convertedFileSize = formatConvertedFile.length();
-                    } catch (FileNotFoundException ioex) {
-                        logger.warning("Failed to open generated format " + formatRequested + " for " + file.getStorageIdentifier());
-                        return null;
-                    }
+            if (convertedFileStream == null) {
+                // the conversion failed; or the format has been cached in 
+                // the meantime:
+                try {
+                    convertedFileStream = Channels.newInputStream((ReadableByteChannel) storageIO.openAuxChannel(formatRequested));
+                    convertedFileSize = storageIO.getAuxObjectSize(formatRequested);
+                } catch (IOException ioex) {
+                    return null;
                 }
-
             }
         }
 
@@ -163,6 +166,87 @@ public class DataConverter {
         return null;
     }
 
+    /**
+     * Converts the tabular file into the requested format, and caches the 
+     * result as an aux object of the file. Only one conversion of the same 
+     * file into the same format runs at a time (on this node): concurrent 
+     * requests wait for the conversion in progress (for up to 
+     * dataverse.ingest.conversion-wait-timeout seconds), and share its result.
+     * 
+     * @return the converted file (a local temp file); or null, if the 
+     * conversion failed, or if the format was already cached, or if the 
+     * conversion in progress didn't finish in time. 
+     */
+    public static File convertAndCache(DataFile file, StorageIO<DataFile> storageIO, String formatRequested) {
+        long waitTimeout = JvmSettings.INGEST_CONVERSION_WAIT_TIMEOUT.lookupOptional(Long.class).orElse(DEFAULT_CONVERSION_WAIT_TIMEOUT_SECONDS);
+        return convertAndCache(file, storageIO, formatRequested, TimeUnit.SECONDS.toMillis(waitTimeout));
+    }
+
+    static File convertAndCache(DataFile file, StorageIO<DataFile> storageIO, String formatRequested, long waitTimeoutMillis) {
+        String conversionKey = file.getId() + ":" + formatRequested;
+        CompletableFuture<File> conversion = new CompletableFuture<>();
+        CompletableFuture<File> conversionInProgress = conversionsInProgress.putIfAbsent(conversionKey, conversion);
+
+        if (conversionInProgress != null) {
+            logger.fine("Waiting for the conversion of file " + file.getId() + " to " + formatRequested + " in progress");
+            try {
+                return conversionInProgress.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException ex) {
+                return null;
+            } catch (TimeoutException ex) {
+                logger.warning("Gave up waiting for the conversion of file " + file.getId() + " to " + formatRequested + " in progress");
+                return null;
+            }
+        }
+
+        File formatConvertedFile = null;
+        try {
+            // (a conversion may have finished, and been cached, since the
+            // caller checked)
+            if (storageIO.isAuxObjectCached(formatRequested)) {
+                return null;
+            }
+            
+            File tabFile = downloadFromStorageIO(storageIO);
+
+            if (tabFile == null) {
+                return null;
+            }
+
+            if (tabFile.length() > 0) {
+                formatConvertedFile = runFormatConversion(file, tabFile, formatRequested);
+
+                // cache the result for future use:
+                if (formatConvertedFile != null && formatConvertedFile.exists()) {
+
+                    try {
+                        storageIO.savePathAsAux(Paths.get(formatConvertedFile.getAbsolutePath()), formatRequested);
+
+                    } catch (IOException ex) {
+                        logger.warning("failed to save cached format " + formatRequested + " for " + file.getStorageIdentifier());
+                        // We'll assume that this is a non-fatal condition.
+                    }
+                } else {
+                    formatConvertedFile = null;
+                }
+            }
+
+            // delete the temp copy of a tab file from remote storage:
+            if (!storageIO.isLocalFile() && !tabFile.equals(formatConvertedFile)) {
+                tabFile.delete();
+            }
+        } catch (IOException ioex) {
+            logger.warning("Failed to convert file " + file.getStorageIdentifier() + " to " + formatRequested + ": " + ioex.getMessage());
+        } finally {
+            conversion.complete(formatConvertedFile);
+            conversionsInProgress.remove(conversionKey, conversion);
+        }
+        return formatConvertedFile;
+    }
+
     public static File downloadFromStorageIO(StorageIO<DataFile> storageIO) {
         if (storageIO.isLocalFile()){
             try {
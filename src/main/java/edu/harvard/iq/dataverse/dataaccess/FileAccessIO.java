@@ -633,6 +633,18 @@ public class FileAccessIO<T extends DvObject> extends StorageIO<T> {
         return auxItems;
     }
 
+    @Override
+    public InputStream getRangeInputStream(long offset, long length) throws IOException {
+        if (!(getInputStream() instanceof FileInputStream)) {
+            return super.getRangeInputStream(offset, length);
+        }
+        // A local file can be read from any position; the ranges can be
+        // read in any order:
+        FileInputStream fin = (FileInputStream) getInputStream();
+        fin.getChannel().position(offset);
+        return new RangeInputStream(fin, offset, length, false);
+    }
+
     @Override
     public InputStream getAuxFileAsInputStream(String auxItemTag) throws IOException {
         InputStream in = null;
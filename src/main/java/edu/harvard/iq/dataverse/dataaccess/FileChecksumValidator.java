@@ -0,0 +1,236 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import edu.harvard.iq.dataverse.DataFile;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.FileUtil;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Validates the checksums of many files at once, in the way of
+ * {@link FileUtil#validateDataFileChecksum(DataFile)}, reading up to
+ * dataverse.files.checksum-validation.threads files at the same time on the
+ * (managed) executor given. How many of them may be read from the same store
+ * at the same time is limited per store, by
+ * dataverse.files.&lt;id&gt;.checksum-validation-threads, across all the
+ * validations running on this node (publishing, the admin API and the
+ * scheduled fixity audit).
+ * <p>
+ * Everything that may need the database (the storage of each file, the
+ * checksum it should have, the recovery of a saved original) is done on the
+ * calling thread; the executor only reads the opened files and calculates
+ * their checksums.
+ */
+public class FileChecksumValidator {
+
+    private static final Logger logger = Logger.getLogger(FileChecksumValidator.class.getCanonicalName());
+
+    public static final int DEFAULT_THREADS = 4;
+
+    private static final Map<String, Semaphore> storePermits = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor;
+    private final int threads;
+
+    public FileChecksumValidator(ExecutorService executor) {
+        this(executor, JvmSettings.CHECKSUM_VALIDATION_THREADS.lookupOptional(Integer.class).orElse(DEFAULT_THREADS));
+    }
+
+    public FileChecksumValidator(ExecutorService executor, int threads) {
+        this.executor = executor;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * The outcome of the validation of one file, with the time it took
+     * (including the time spent waiting for the store).
+     */
+    public static class Result {
+
+        private final DataFile dataFile;
+        private final String errorMessage;
+        private final long durationMillis;
+
+        Result(DataFile dataFile, String errorMessage, long durationMillis) {
+            this.dataFile = dataFile;
+            this.errorMessage = errorMessage;
+            this.durationMillis = durationMillis;
+        }
+
+        public DataFile getDataFile() {
+            return dataFile;
+        }
+
+        public boolean isValid() {
+            return errorMessage == null;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+    }
+
+    /**
+     * @return the results, in the order of the files.
+     */
+    public List<Result> validate(Collection<DataFile> dataFiles) throws InterruptedException {
+        Map<DataFile, Integer> positions = new IdentityHashMap<>();
+        for (DataFile dataFile : dataFiles) {
+            positions.putIfAbsent(dataFile, positions.size());
+        }
+        List<Result> results = new ArrayList<>(dataFiles.size());
+        validate(dataFiles, results::add);
+        results.sort(Comparator.comparing(result -> positions.get(result.getDataFile())));
+        return results;
+    }
+
+    /**
+     * Validates the files, handing each result to the consumer as soon as it
+     * is available. The consumer is always called on the calling thread, so
+     * it does not need to be thread-safe (it may, for example, write to a
+     * response).
+     */
+    public void validate(Collection<DataFile> dataFiles, Consumer<Result> resultConsumer) throws InterruptedException {
+        if (dataFiles.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        CompletionService<Reading> completionService = new ExecutorCompletionService<>(executor);
+        int running = 0;
+        int invalid = 0;
+        // (if interrupted, or if the consumer fails, the files still being
+        // read, at most one per thread, are left to be read to the end; each
+        // one then closes its file and releases its permit)
+        for (DataFile dataFile : dataFiles) {
+            if (running == threads) {
+                Result result = finish(take(completionService));
+                running--;
+                invalid += result.isValid() ? 0 : 1;
+                resultConsumer.accept(result);
+            }
+            long fileStart = System.currentTimeMillis();
+            Semaphore permits = storePermits.computeIfAbsent(FileUtil.getStorageDriver(dataFile), driverId
+                    -> new Semaphore(JvmSettings.CHECKSUM_VALIDATION_STORE_THREADS.lookupOptional(Integer.class, driverId).orElse(DEFAULT_THREADS), true));
+            permits.acquire();
+            Reading reading;
+            try {
+                StorageIO<DataFile> storage = dataFile.getStorageIO();
+                reading = new Reading(dataFile, fileStart, storage, FileUtil.openDataFileForChecksumValidation(dataFile, storage), permits);
+            } catch (IOException | RuntimeException e) {
+                permits.release();
+                Result result = failed(dataFile, fileStart, e);
+                invalid++;
+                resultConsumer.accept(result);
+                continue;
+            }
+            try {
+                completionService.submit(reading);
+                running++;
+            } catch (RejectedExecutionException e) {
+                logger.fine("Checksum validation executor busy; validating datafile " + dataFile.getId() + " on the calling thread");
+                Result result = finish(reading.call());
+                invalid += result.isValid() ? 0 : 1;
+                resultConsumer.accept(result);
+            }
+        }
+        for (; running > 0; running--) {
+            Result result = finish(take(completionService));
+            invalid += result.isValid() ? 0 : 1;
+            resultConsumer.accept(result);
+        }
+        logger.log(Level.INFO, "Validated the checksums of {0} file(s) in {1} ms; {2} invalid",
+                new Object[]{dataFiles.size(), System.currentTimeMillis() - start, invalid});
+    }
+
+    private static Reading take(CompletionService<Reading> completionService) throws InterruptedException {
+        try {
+            return completionService.take().get();
+        } catch (ExecutionException e) {
+            // Reading.call() doesn't throw; should not happen
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Checks the checksum read against the one of the file (on the calling
+     * thread, as this may recover the saved original of the file).
+     */
+    private Result finish(Reading reading) {
+        DataFile dataFile = reading.dataFile;
+        if (reading.failure != null) {
+            logger.log(Level.SEVERE, "failed to calculated checksum, one retry", reading.failure);
+        }
+        try {
+            FileUtil.validateRecalculatedChecksum(dataFile, reading.storage, reading.checksum);
+            return new Result(dataFile, null, System.currentTimeMillis() - reading.start);
+        } catch (IOException | RuntimeException e) {
+            return failed(dataFile, reading.start, e);
+        }
+    }
+
+    private static Result failed(DataFile dataFile, long start, Exception e) {
+        if (e instanceof RuntimeException) {
+            logger.log(Level.WARNING, "Checksum validation failed for datafile " + dataFile.getId(), e);
+        }
+        return new Result(dataFile, e.getMessage() != null ? e.getMessage() : e.toString(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * The reading of one opened file, on the executor: the checksum is
+     * calculated from the channel, without going back to the DataFile.
+     */
+    private static class Reading implements Callable<Reading> {
+
+        private final DataFile dataFile;
+        private final long start;
+        private final StorageIO<DataFile> storage;
+        private final ReadableByteChannel channel;
+        private final DataFile.ChecksumType checksumType;
+        private final Semaphore permits;
+        private String checksum;
+        private RuntimeException failure;
+
+        Reading(DataFile dataFile, long start, StorageIO<DataFile> storage, ReadableByteChannel channel, Semaphore permits) {
+            this.dataFile = dataFile;
+            this.start = start;
+            this.storage = storage;
+            this.channel = channel;
+            this.checksumType = dataFile.getChecksumType();
+            this.permits = permits;
+        }
+
+        @Override
+        public Reading call() {
+            try {
+                // (closes the channel)
+                checksum = FileUtil.calculateChecksum(channel, checksumType);
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                permits.release();
+            }
+            return this;
+        }
+    }
+}
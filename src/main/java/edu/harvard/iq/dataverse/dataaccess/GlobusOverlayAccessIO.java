@@ -246,6 +246,15 @@ public class GlobusOverlayAccessIO<T extends DvObject> extends AbstractRemoteOve
             throw new IOException("Not implemented");
         }
     }
+
+    @Override
+    public InputStream getRangeInputStream(long offset, long length) throws IOException {
+        if(StorageIO.isDataverseAccessible(endpoint)) {
+            return baseStore.getRangeInputStream(offset, length);
+        } else {
+            throw new IOException("Not implemented");
+        }
+    }
     
     @Override
     public void delete() throws IOException {
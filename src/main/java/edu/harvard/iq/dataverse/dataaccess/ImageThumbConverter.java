@@ -24,7 +24,9 @@ import java.io.InputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import java.awt.Graphics2D;
 import java.awt.Image;
@@ -36,6 +38,8 @@ import javax.imageio.stream.ImageOutputStream;
 
 import edu.harvard.iq.dataverse.DataFile;
 import edu.harvard.iq.dataverse.DataFileServiceBean;
+import edu.harvard.iq.dataverse.ThumbnailGenerationServiceBean;
+import edu.harvard.iq.dataverse.settings.FeatureFlags;
 import edu.harvard.iq.dataverse.util.FileUtil;
 import edu.harvard.iq.dataverse.util.SystemConfig;
 import java.io.ByteArrayOutputStream;
@@ -120,10 +124,70 @@ public class ImageThumbConverter {
             logger.fine("Found cached thumbnail for " + file.getId());
             return true;
         }
+        if (FeatureFlags.ASYNC_THUMBNAIL_GENERATION.enabled()) {
+            // Don't make the request wait for the rendering; the caller will 
+            // show the placeholder icon until the background worker has 
+            // saved the thumbnail:
+            queueThumbnailGeneration(file);
+            return false;
+        }
         return generateThumbnail(file, storageIO, size);
 
     }
 
+    private static void queueThumbnailGeneration(DataFile file) {
+        ThumbnailGenerationServiceBean thumbnailGenerationService = CDI.current().select(ThumbnailGenerationServiceBean.class).get();
+        thumbnailGenerationService.queueThumbnailGeneration(file);
+    }
+
+    /**
+     * Generates all the thumbnails in the requested sizes that are not cached 
+     * yet. For images, the full size image is read from storage only once and 
+     * then rescaled to each size. This is used by the background 
+     * thumbnail generation (see ThumbnailGenerationServiceBean), so unlike 
+     * the lazy generation on request it never consults the feature flag. 
+     * 
+     * @return true if all the thumbnails are available after the call
+     */
+    public static boolean generateMissingThumbnails(DataFile file, List<Integer> sizes) {
+        if (!FileUtil.isThumbnailSupported(file) || file.isPreviewImageFail()) {
+            return false;
+        }
+        StorageIO<DataFile> storageIO;
+        try {
+            storageIO = file.getStorageIO();
+        } catch (IOException ioEx) {
+            logger.warning("Failed to open StorageIO to generate thumbnails for file " + file.getId() + ": " + ioEx.getMessage());
+            return false;
+        }
+
+        List<Integer> missingSizes = new ArrayList<>();
+        for (Integer size : sizes) {
+            if (!isThumbnailCached(storageIO, size)) {
+                missingSizes.add(size);
+            }
+        }
+        if (missingSizes.isEmpty()) {
+            return true;
+        }
+
+        boolean thumbnailsGenerated;
+        if (file.getContentType().substring(0, 6).equalsIgnoreCase("image/")) {
+            thumbnailsGenerated = generateImageThumbnails(storageIO, missingSizes);
+        } else {
+            thumbnailsGenerated = true;
+            for (Integer size : missingSizes) {
+                thumbnailsGenerated = thumbnailsGenerated && generateThumbnail(file, storageIO, size);
+            }
+        }
+        if (!thumbnailsGenerated) {
+            file.setPreviewImageFail(true);
+            file.setPreviewImageAvailable(false);
+            logger.fine("Failed to generate thumbnails for " + file.getId());
+        }
+        return thumbnailsGenerated;
+    }
+
     private static boolean generateThumbnail(DataFile file, StorageIO<DataFile> storageIO, int size) {
         logger.fine((file.isPreviewImageFail() ? "Not trying" : "Trying") + " to generate thumbnail, file id: " + file.getId());
         boolean thumbnailGenerated = false;
@@ -322,27 +386,75 @@ public class ImageThumbConverter {
         
     }
 
+    /*
+     * Same as above, but for several sizes at once; the full size image is 
+     * only read (and decoded) once: 
+     */
+    private static boolean generateImageThumbnails(StorageIO<DataFile> storageIO, List<Integer> sizes) {
+
+        if (isImageOverSizeLimit(storageIO.getDataFile().getFilesize())) {
+            logger.fine("Image file too large - skipping");
+            return false;
+        }
+
+        BufferedImage fullSizeImage;
+        try {
+            storageIO.open();
+            try (InputStream inputStream = storageIO.getInputStream()) {
+                fullSizeImage = readFullSizeImage(storageIO, inputStream);
+            }
+        } catch (IOException ioex) {
+            logger.warning("caught IOException trying to open an input stream for " + storageIO.getDataFile().getStorageIdentifier() + ioex);
+            return false;
+        }
+
+        if (fullSizeImage == null) {
+            return false;
+        }
+
+        for (Integer size : sizes) {
+            if (!saveRescaledImageThumbnail(storageIO, fullSizeImage, size)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /*
      * This is the actual workhorse method that does the rescaling of the full 
      * size image: 
      */
     private static boolean generateImageThumbnailFromInputStream(StorageIO<DataFile> storageIO, int size, InputStream inputStream) {
 
+        BufferedImage fullSizeImage = readFullSizeImage(storageIO, inputStream);
+
+        if (fullSizeImage == null) {
+            return false;
+        }
+
+        return saveRescaledImageThumbnail(storageIO, fullSizeImage, size);
+    }
+
+    private static BufferedImage readFullSizeImage(StorageIO<DataFile> storageIO, InputStream inputStream) {
         BufferedImage fullSizeImage;
-        boolean thumbnailGenerated = false;
 
         try {
             logger.fine("attempting to read the image file with ImageIO.read(InputStream), " + storageIO.getDataFile().getStorageIdentifier());
             fullSizeImage = ImageIO.read(inputStream);
         } catch (Exception ioex) {
             logger.warning("Caught exception attempting to read the image file with ImageIO.read(InputStream)");
-            return false;
+            return null;
         }
 
         if (fullSizeImage == null) {
             logger.warning("could not read image with ImageIO.read()");
-            return false;
         }
+        return fullSizeImage;
+    }
+
+    private static boolean saveRescaledImageThumbnail(StorageIO<DataFile> storageIO, BufferedImage fullSizeImage, int size) {
+
+        boolean thumbnailGenerated = false;
 
         int width = fullSizeImage.getWidth(null);
         int height = fullSizeImage.getHeight(null);
@@ -486,6 +598,11 @@ public class ImageThumbConverter {
         if (cachedThumbnailChannel == null) {
             logger.fine("Null channel for aux object " + THUMBNAIL_SUFFIX + size);
 
+            if (FeatureFlags.ASYNC_THUMBNAIL_GENERATION.enabled()) {
+                queueThumbnailGeneration(file);
+                return null;
+            }
+
             // try to generate, if not available and hasn't failed before
             if(generateThumbnail(file, storageIO, size)) {
                 try {
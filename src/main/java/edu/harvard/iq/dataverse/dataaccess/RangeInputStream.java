@@ -0,0 +1,104 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A byte range of an underlying stream: reads at most the given number of
+ * bytes from it. Closing the range closes the underlying stream only if asked
+ * to; a range read from the main input stream of a StorageIO leaves that
+ * stream open, to be closed as usual (with closeInputStream()).
+ */
+class RangeInputStream extends FilterInputStream {
+
+    private final long start;
+    private final boolean closeSource;
+    private long remaining;
+    private long consumed = 0;
+
+    /**
+     * @param in positioned at the start of the range
+     * @param start offset of the range in the stored object
+     * @param length number of bytes in the range
+     * @param closeSource whether closing the range closes the underlying stream
+     */
+    RangeInputStream(InputStream in, long start, long length, boolean closeSource) {
+        super(in);
+        this.start = start;
+        this.remaining = length;
+        this.closeSource = closeSource;
+    }
+
+    /**
+     * @return the offset, in the stored object, of the next byte to read
+     */
+    long getPosition() {
+        return start + consumed;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining <= 0) {
+            return -1;
+        }
+        int b = in.read();
+        if (b >= 0) {
+            remaining--;
+            consumed++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (remaining <= 0) {
+            return -1;
+        }
+        int n = in.read(b, off, (int) Math.min(len, remaining));
+        if (n > 0) {
+            remaining -= n;
+            consumed += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(Math.min(n, remaining));
+        if (skipped > 0) {
+            remaining -= skipped;
+            consumed += skipped;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(in.available(), remaining);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closeSource) {
+            in.close();
+        }
+    }
+}
@@ -20,6 +20,7 @@ import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
 import java.util.List;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.http.Header;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpDelete;
@@ -212,6 +213,42 @@ public class RemoteOverlayAccessIO<T extends DvObject> extends AbstractRemoteOve
         return super.getInputStream();
     }
 
+    @Override
+    public InputStream getRangeInputStream(long offset, long length) throws IOException {
+        // Only the requested bytes are requested from the remote server (the 
+        // main input stream is not opened at all):
+        try {
+            HttpGet get = new HttpGet(generateTemporaryDownloadUrl(null, null, null));
+            get.addHeader("Range", "bytes=" + offset + "-" + (offset + length - 1));
+            CloseableHttpResponse response = getSharedHttpClient().execute(get, localContext);
+
+            int code = response.getStatusLine().getStatusCode();
+            switch (code) {
+            case 206:
+                return new RangeInputStream(response.getEntity().getContent(), offset, length, true);
+            case 200:
+                // The server doesn't support ranges, and is sending the whole file:
+                InputStream in = response.getEntity().getContent();
+                try {
+                    IOUtils.skipFully(in, offset);
+                } catch (IOException ex) {
+                    response.close();
+                    throw ex;
+                }
+                return new RangeInputStream(in, offset, length, true);
+            default:
+                response.close();
+                logger.warning("Response from " + get.getURI().toString() + " was " + code);
+                throw new IOException("Cannot retrieve: " + baseUrl + "/" + path + " code: " + code);
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.warning(e.getMessage());
+            throw new IOException("Error retrieving: " + baseUrl + "/" + path + " " + e.getMessage());
+        }
+    }
+
     @Override
     public Channel getChannel() throws IOException {
         if (super.getChannel() == null) {
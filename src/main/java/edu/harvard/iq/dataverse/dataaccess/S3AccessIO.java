@@ -310,6 +310,17 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         return super.getInputStream();
     }
     
+    @Override
+    public InputStream getRangeInputStream(long offset, long length) throws IOException {
+        // Only the requested bytes are requested from S3 (the main input stream
+        // is not opened at all):
+        try {
+            return s3.getObject(new GetObjectRequest(bucketName, key).withRange(offset, offset + length - 1)).getObjectContent();
+        } catch (SdkClientException sce) {
+            throw new IOException("Cannot get S3 object " + key + " (" + sce.getMessage() + ")");
+        }
+    }
+
     @Override
     public Channel getChannel() throws IOException {
         if(super.getChannel()==null) {
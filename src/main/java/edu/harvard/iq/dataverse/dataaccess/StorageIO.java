@@ -43,6 +43,8 @@ import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.commons.io.IOUtils;
+
 /**
  *
  * @author Leonid Andreev
@@ -213,6 +215,8 @@ public abstract class StorageIO<T extends DvObject> {
      * of the file).
      */
     private long offset;
+    // the last range read from the main input stream (see getRangeInputStream())
+    private RangeInputStream lastRange;
 
     private String mimeType;
     private String fileName;
@@ -422,11 +426,40 @@ public abstract class StorageIO<T extends DvObject> {
             inputStream.skip(offset);
             // The skip has already been done. Why not record it.
             this.offset = offset;
+            lastRange = null;
         } else {
             throw new IOException("Could not skip into InputStream because it is null");
         }
     }
 
+    /**
+     * Returns a stream of length bytes of the stored object (the data file
+     * itself, not including the variable header of a tabular file), starting
+     * at offset; for byte range requests.
+     *
+     * The drivers that can open a ranged stream from the storage itself
+     * override this method, so that only the requested bytes are read. This
+     * default implementation skips forward in the main input stream; so,
+     * when several ranges are read from the same StorageIO, they must be
+     * read in order, without overlaps.
+     *
+     * Closing the returned stream does not close the main input stream,
+     * which is closed with closeInputStream(), as usual.
+     */
+    public InputStream getRangeInputStream(long offset, long length) throws IOException {
+        InputStream inputStream = getInputStream();
+        if (inputStream == null) {
+            throw new IOException("Could not skip into InputStream because it is null");
+        }
+        long position = lastRange != null ? lastRange.getPosition() : this.offset;
+        if (offset < position) {
+            throw new IOException("Cannot read the range starting at byte " + offset + "; the InputStream is already at byte " + position);
+        }
+        IOUtils.skipFully(inputStream, offset - position);
+        lastRange = new RangeInputStream(inputStream, offset, length, false);
+        return lastRange;
+    }
+
     public void setInputStream(InputStream is) {
         in = is;
     }
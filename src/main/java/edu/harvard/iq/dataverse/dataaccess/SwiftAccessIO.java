@@ -12,6 +12,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.channels.Channel;
 import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
 import java.security.InvalidKeyException;
@@ -29,6 +30,8 @@ import java.util.stream.Collectors;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import org.javaswift.joss.client.factory.AccountFactory;
+import org.javaswift.joss.headers.object.range.MidPartRange;
+import org.javaswift.joss.instructions.DownloadInstructions;
 import static org.javaswift.joss.client.factory.AuthenticationMethod.BASIC;
 import static org.javaswift.joss.client.factory.AuthenticationMethod.KEYSTONE_V3;
 import org.javaswift.joss.model.Account;
@@ -129,14 +132,11 @@ public class SwiftAccessIO<T extends DvObject> extends StorageIO<T> {
             }
 
             if (isReadAccess) {
-                InputStream fin = openSwiftFileAsInputStream();
-
-                if (fin == null) {
-                    throw new IOException("Failed to open Swift file " + getStorageLocation());
-                }
-
-                this.setInputStream(fin);
-                setChannel(Channels.newChannel(fin));
+                // The object itself is only downloaded when (and if) the 
+                // input stream is requested; a range request downloads 
+                // just the range (see getRangeInputStream()):
+                swiftFileObject = initializeSwiftFileObject(false);
+                this.setSize(swiftFileObject.getContentLength());
 
                 if (dataFile.getContentType() != null
                         && dataFile.getContentType().equals("text/tab-separated-values")
@@ -732,6 +732,45 @@ public class SwiftAccessIO<T extends DvObject> extends StorageIO<T> {
 
     }
     
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (super.getInputStream() == null && isReadAccess && swiftFileObject != null) {
+            InputStream fin = swiftFileObject.downloadObjectAsInputStream();
+
+            if (fin == null) {
+                throw new IOException("Failed to open Swift file " + getStorageLocation());
+            }
+
+            this.setInputStream(fin);
+            setChannel(Channels.newChannel(fin));
+        }
+        return super.getInputStream();
+    }
+
+    @Override
+    public Channel getChannel() throws IOException {
+        if (super.getChannel() == null) {
+            getInputStream();
+        }
+        return super.getChannel();
+    }
+
+    @Override
+    public ReadableByteChannel getReadChannel() throws IOException {
+        getChannel();
+        return super.getReadChannel();
+    }
+
+    @Override
+    public InputStream getRangeInputStream(long offset, long length) throws IOException {
+        if (swiftFileObject == null) {
+            return super.getRangeInputStream(offset, length);
+        }
+        DownloadInstructions instructions = new DownloadInstructions()
+                .setRange(new MidPartRange(offset, offset + length - 1));
+        return swiftFileObject.downloadObjectAsInputStream(instructions);
+    }
+
     private InputStream openSwiftFileAsInputStream() throws IOException {
         swiftFileObject = initializeSwiftFileObject(false);
         this.setSize(swiftFileObject.getContentLength());
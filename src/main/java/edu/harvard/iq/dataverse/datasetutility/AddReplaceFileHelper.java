@@ -144,6 +144,9 @@ public class AddReplaceFileHelper{
     
     private DatasetVersion workingVersion;
     private DatasetVersion clone;
+    // the files of the working version by checksum; kept from one file to
+    // the next when many files are added (see addFiles())
+    private FileChecksumIndex checksumIndex;
     List<DataFile> initialFileList; 
     List<DataFile> finalFileList;
     
@@ -1300,6 +1303,11 @@ public class AddReplaceFileHelper{
         // Initialize new file list
         this.finalFileList = new ArrayList<>();
 
+        if (checksumIndex == null || !checksumIndex.isCurrent(workingVersion)) {
+            checksumIndex = FileChecksumIndex.of(workingVersion);
+        }
+        Map<DataFile, DataFile> duplicates = checksumIndex.findDuplicates(initialFileList, false);
+
         if (isFileReplaceOperation() && this.fileToReplace == null){
             // This error shouldn't happen if steps called correctly
             this.addErrorSevere(getBundleErr("existing_file_to_replace_is_null") + " (This error shouldn't happen if steps called in sequence....checkForFileReplaceDuplicate)");
@@ -1335,7 +1343,10 @@ public class AddReplaceFileHelper{
                 break;
             } 
             
-            if (DuplicateFileChecker.isDuplicateOriginalWay(workingVersion, df.getFileMetadata())){
+            DataFile existingFile = duplicates.get(df);
+            if (existingFile != null){
+                df.setDuplicateFilename(BundleUtil.getStringFromBundle("dataset.file.inline.message", 
+                                Arrays.asList(existingFile.getDisplayName())));
                 String dupeName = df.getFileMetadata().getLabel();
                 this.duplicateFileWarningFound = true;
                 this.duplicateFileWarningString = BundleUtil.getStringFromBundle("file.addreplace.warning.duplicate_file", 
@@ -1594,6 +1605,14 @@ public class AddReplaceFileHelper{
         
         int nFiles = finalFileList.size();
         finalFileList = ingestService.saveAndAddFilesToDataset(workingVersion, finalFileList, fileToReplace, tabIngest);
+        if (checksumIndex != null) {
+            if (isFileReplaceOperation()) {
+                // (the file replaced is removed from the version later on)
+                checksumIndex = null;
+            } else {
+                checksumIndex.addedToVersion(finalFileList);
+            }
+        }
 
         if (nFiles != finalFileList.size()) {
             if (nFiles == 1) {
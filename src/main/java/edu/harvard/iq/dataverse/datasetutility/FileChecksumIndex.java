@@ -0,0 +1,154 @@
+package edu.harvard.iq.dataverse.datasetutility;
+
+import edu.harvard.iq.dataverse.DataFile;
+import edu.harvard.iq.dataverse.DatasetVersion;
+import edu.harvard.iq.dataverse.FileMetadata;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The files of a dataset version (or of an upload session) by checksum, for
+ * finding the files being added that have the same content as a file
+ * already there, without going through all the files for each one.
+ * <p>
+ * An index of a version is built once (e.g. for all the files added to it
+ * through the API in one call), and kept up to date by the caller with
+ * {@link #addedToVersion(Collection)}; {@link #isCurrent(DatasetVersion)}
+ * tells whether the files of the version have changed otherwise, in which
+ * case the index should be built again.
+ */
+public class FileChecksumIndex {
+
+    // checksum -> the first file with it
+    private final Map<String, DataFile> filesByChecksum = new HashMap<>();
+    private final DatasetVersion version;
+    // the number of files of the version indexed (or added since)
+    private int versionFiles;
+
+    /**
+     * An empty index, e.g. of the files uploaded so far in an upload session.
+     */
+    public FileChecksumIndex() {
+        this.version = null;
+    }
+
+    private FileChecksumIndex(DatasetVersion version, boolean savedFilesOnly) {
+        this.version = version;
+        // (a "defensive copy", as files may be added to the version while
+        // it's being indexed)
+        for (FileMetadata fm : new ArrayList<>(version.getFileMetadatas())) {
+            DataFile dataFile = fm.getDataFile();
+            if (dataFile != null && (!savedFilesOnly || dataFile.getId() != null)) {
+                add(dataFile);
+            }
+            versionFiles++;
+        }
+    }
+
+    /**
+     * @return the index of all the files of the version, saved or not
+     */
+    public static FileChecksumIndex of(DatasetVersion version) {
+        if (version == null) {
+            throw new NullPointerException("datasetVersion cannot be null");
+        }
+        return new FileChecksumIndex(version, false);
+    }
+
+    /**
+     * @return the index of the files of the version that have been saved
+     */
+    public static FileChecksumIndex ofSavedFiles(DatasetVersion version) {
+        if (version == null) {
+            throw new NullPointerException("datasetVersion cannot be null");
+        }
+        return new FileChecksumIndex(version, true);
+    }
+
+    /**
+     * @return whether this is an index of the version, and the version has
+     *         the same number of files as when it was indexed (plus the ones
+     *         recorded with {@link #addedToVersion(Collection)})
+     */
+    public boolean isCurrent(DatasetVersion datasetVersion) {
+        return version != null && version == datasetVersion && version.getFileMetadatas().size() == versionFiles;
+    }
+
+    /**
+     * @return the file indexed with the checksum; null if there is none (or
+     *         if the checksum is null)
+     */
+    public DataFile get(String checksum) {
+        return checksum == null ? null : filesByChecksum.get(checksum);
+    }
+
+    /**
+     * @return the file indexed with the same checksum as the file, other than
+     *         the file itself; null if there is none
+     */
+    public DataFile findDuplicate(DataFile dataFile) {
+        DataFile existingFile = get(dataFile.getChecksumValue());
+        return existingFile == dataFile ? null : existingFile;
+    }
+
+    /**
+     * Finds the duplicates of a batch of files in one pass.
+     *
+     * @param addToIndex whether to add the files that are not duplicates to
+     *                   the index, so that the files of the batch with the
+     *                   same content as an earlier one are duplicates too
+     * @return the files of the batch that are duplicates, each with the file
+     *         it has the same content as (by identity, as the new files have
+     *         no id, and are all equal)
+     */
+    public Map<DataFile, DataFile> findDuplicates(Collection<DataFile> dataFiles, boolean addToIndex) {
+        Map<DataFile, DataFile> duplicates = new IdentityHashMap<>();
+        for (DataFile dataFile : dataFiles) {
+            DataFile existingFile = findDuplicate(dataFile);
+            if (existingFile != null) {
+                duplicates.put(dataFile, existingFile);
+            } else if (addToIndex) {
+                add(dataFile);
+            }
+        }
+        return duplicates;
+    }
+
+    /**
+     * Adds the file, unless a file with the same checksum is indexed already
+     * (or the file has no checksum).
+     *
+     * @return whether the file was added
+     */
+    public boolean add(DataFile dataFile) {
+        String checksum = dataFile.getChecksumValue();
+        return checksum != null && filesByChecksum.putIfAbsent(checksum, dataFile) == null;
+    }
+
+    /**
+     * Records that the files have been added to the version indexed.
+     */
+    public void addedToVersion(Collection<DataFile> dataFiles) {
+        for (DataFile dataFile : dataFiles) {
+            add(dataFile);
+            versionFiles++;
+        }
+    }
+
+    /**
+     * Removes the file, if it is the file indexed with its checksum.
+     */
+    public void remove(DataFile dataFile) {
+        String checksum = dataFile.getChecksumValue();
+        if (checksum != null && filesByChecksum.get(checksum) == dataFile) {
+            filesByChecksum.remove(checksum);
+        }
+    }
+
+    public int size() {
+        return filesByChecksum.size();
+    }
+}
@@ -41,6 +41,7 @@ import edu.harvard.iq.dataverse.storageuse.StorageUseServiceBean;
 import edu.harvard.iq.dataverse.util.SystemConfig;
 import edu.harvard.iq.dataverse.workflow.WorkflowServiceBean;
 import java.util.Stack;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 import jakarta.persistence.EntityManager;
 
 /**
@@ -149,4 +150,10 @@ public interface CommandContext {
     public void addCommand(Command command);
 
     public DatasetFieldServiceBean dsField();
+
+    /**
+     * @return the container's default managed executor, for work that a
+     *         command spreads over several threads
+     */
+    public ManagedExecutorService executor();
 }
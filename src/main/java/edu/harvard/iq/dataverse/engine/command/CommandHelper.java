@@ -63,6 +63,34 @@ public class CommandHelper {
 		return permissionsRequired(c.getClass());
 	}
 	
+    /**
+     * Tells whether a command only reads: a "Get" or "List" command that
+     * requires no permission beyond the read permissions, i.e. the ones
+     * that don't require an authenticated user. Used to decide which
+     * commands may be sampled in the action log.
+     *
+     * @param c The command
+     * @return {@code true} if the command is read-only.
+     */
+    public boolean isReadOnly(Command c) {
+        String name = c.getClass().getSimpleName();
+        if (!name.startsWith("Get") && !name.startsWith("List")) {
+            return false;
+        }
+        Map<String, Set<Permission>> required = c.getRequiredPermissions();
+        if (required == null) {
+            return false;
+        }
+        for (Set<Permission> permissions : required.values()) {
+            for (Permission permission : permissions) {
+                if (permission.requiresAuthenticatedUser()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+	
     private Set<Permission> asPermissionSet(Permission[] permissionArray) {
         return (permissionArray.length == 0) ? EnumSet.noneOf(Permission.class)
                 : (permissionArray.length == 1) ? EnumSet.of(permissionArray[0])
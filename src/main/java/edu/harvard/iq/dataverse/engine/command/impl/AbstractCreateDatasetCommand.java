@@ -27,6 +27,7 @@ public abstract class AbstractCreateDatasetCommand extends AbstractDatasetComman
     
     final protected boolean harvested;
     final protected boolean validate;
+    private boolean index = true;
     
     public AbstractCreateDatasetCommand(Dataset theDataset, DataverseRequest aRequest) {
         this(theDataset, aRequest, false);
@@ -44,6 +45,14 @@ public abstract class AbstractCreateDatasetCommand extends AbstractDatasetComman
         this.validate = validate;
     }
    
+    /**
+     * @param index whether the new dataset is indexed (the default); a batch
+     *              import indexes the datasets it created once it's done
+     */
+    public void setIndex(boolean index) {
+        this.index = index;
+    }
+
     protected void additionalParameterTests(CommandContext ctxt) throws CommandException {
         // base class - do nothing.
     }
@@ -136,7 +145,9 @@ public abstract class AbstractCreateDatasetCommand extends AbstractDatasetComman
         //Use for code that requires database ids
         postDBFlush(theDataset, ctxt);
         
-        ctxt.index().asyncIndexDataset(theDataset, true);
+        if (index) {
+            ctxt.index().asyncIndexDataset(theDataset, true);
+        }
                  
         return theDataset;
     }
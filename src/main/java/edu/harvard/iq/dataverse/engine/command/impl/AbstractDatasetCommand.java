@@ -21,7 +21,9 @@ import edu.harvard.iq.dataverse.pidproviders.PidUtil;
 import edu.harvard.iq.dataverse.util.BundleUtil;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -235,11 +237,16 @@ public abstract class AbstractDatasetCommand<T> extends AbstractCommand<T> {
     }
 
     protected void registerExternalVocabValuesIfAny(CommandContext ctxt, DatasetVersion newVersion) {
+        List<DatasetField> cvocFields = new ArrayList<>();
         for (DatasetField df : newVersion.getFlatDatasetFields()) {
             logger.fine("Found id: " + df.getDatasetFieldType().getId());
             if (ctxt.dsField().getCVocConf(true).containsKey(df.getDatasetFieldType().getId())) {
-                ctxt.dsField().registerExternalVocabValues(df);
+                cvocFields.add(df);
             }
         }
+        // (all the terms of the version are retrieved at once)
+        if (!cvocFields.isEmpty()) {
+            ctxt.dsField().registerExternalVocabValues(cvocFields);
+        }
     }
 }
@@ -91,6 +91,22 @@ public abstract class AbstractSubmitToArchiveCommand extends AbstractCommand<Dat
         return DEFAULT_THREADS;
     }
 
+    /**
+     * @return the most data (in bytes) the BagGenerator retrieves ahead of the
+     *         zip it writes
+     */
+    protected long getBagGeneratorBufferSize() {
+        if (requestedSettings.get(BagGenerator.BAG_GENERATOR_BUFFER_SIZE) != null) {
+            try {
+                return Long.valueOf(requestedSettings.get(BagGenerator.BAG_GENERATOR_BUFFER_SIZE)) * 1024 * 1024;
+            } catch (NumberFormatException nfe) {
+                logger.warning("Can't parse the value of setting " + BagGenerator.BAG_GENERATOR_BUFFER_SIZE
+                        + " as an integer - using default:" + BagGenerator.DEFAULT_BUFFER_SIZE_MB);
+            }
+        }
+        return BagGenerator.DEFAULT_BUFFER_SIZE_MB * 1024 * 1024;
+    }
+
     @Override
     public String describe() {
         return super.describe() + "DatasetVersion: [" + version.getId() + " (v"
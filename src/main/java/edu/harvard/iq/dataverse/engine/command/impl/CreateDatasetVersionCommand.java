@@ -28,6 +28,7 @@ public class CreateDatasetVersionCommand extends AbstractDatasetCommand<DatasetV
     final DatasetVersion newVersion;
     final Dataset dataset;
     final boolean validate;
+    private boolean index = true;
     
     public CreateDatasetVersionCommand(DataverseRequest aRequest, Dataset theDataset, DatasetVersion aVersion) {
         this(aRequest, theDataset, aVersion, true);
@@ -40,6 +41,14 @@ public class CreateDatasetVersionCommand extends AbstractDatasetCommand<DatasetV
         this.validate = validate;
     }
     
+    /**
+     * @param index whether the dataset is indexed once the version is created
+     *              (the default)
+     */
+    public void setIndex(boolean index) {
+        this.index = index;
+    }
+    
     @Override
     public DatasetVersion execute(CommandContext ctxt) throws CommandException {
         /*
@@ -76,7 +85,7 @@ public class CreateDatasetVersionCommand extends AbstractDatasetCommand<DatasetV
         prepareDatasetAndVersion();
         
         DatasetVersion version = ctxt.datasets().storeVersion(newVersion);
-        if (ctxt.index() != null) {
+        if (index && ctxt.index() != null) {
             ctxt.index().asyncIndexDataset(dataset, true);
         }
         return version;
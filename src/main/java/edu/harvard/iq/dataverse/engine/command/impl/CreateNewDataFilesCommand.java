@@ -30,6 +30,7 @@ import edu.harvard.iq.dataverse.util.StringUtil;
 import edu.harvard.iq.dataverse.util.file.BagItFileHandler;
 import edu.harvard.iq.dataverse.util.file.BagItFileHandlerFactory;
 import edu.harvard.iq.dataverse.util.file.CreateDataFileResult;
+import edu.harvard.iq.dataverse.util.file.UnzippedFileTypeDetector;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -40,6 +41,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.text.MessageFormat;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
@@ -54,9 +56,11 @@ import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
+import jakarta.enterprise.inject.Instance;
 import jakarta.enterprise.inject.spi.CDI;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.eclipse.microprofile.metrics.MetricRegistry;
 
 /**
  *
@@ -137,6 +141,7 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
         String finalType = null;
         File newFile = null;    // this File will be used for a single-file, local (non-direct) upload
         long fileSize = -1; 
+        String uploadCheckSum = null; // the checksum of the temp file, if calculated as it was saved
 
 
         if (newStorageIdentifier == null) {
@@ -148,7 +153,14 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
                     // temp files will always be stored on the local filesystem.
                     // -- L.A. Jul. 2014
                     logger.fine("Will attempt to save the file as: " + tempFile.toString());
-                    Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                    if (newCheckSum == null && !StringUtils.endsWithIgnoreCase(fileName, ".zip")) {
+                        // (the checksum is calculated as the upload is saved, rather than
+                        // by reading the file again, should it be saved as is; zip files
+                        // are usually unpacked, and their checksum not needed)
+                        uploadCheckSum = FileUtil.saveInputStreamWithChecksum(inputStream, tempFile, newCheckSumType);
+                    } else {
+                        Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                    }
                 } catch (IOException ioex) {
                     throw new CommandExecutionException("Failed to save the upload as a temp file (temp disk space?)", ioex, this);
                 }
@@ -263,6 +275,10 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
                 ZipFile zipFile = null;
                 ZipInputStream unZippedIn = null;
                 ZipEntry zipEntry = null;
+                // (the types of the unpacked files are determined in the background,
+                // while the next ones are being unpacked)
+                UnzippedFileTypeDetector typeDetector = null;
+                long unpackStart = 0;
 
                 int fileNumberLimit = ctxt.systemConfig().getZipUploadFilesLimit();
                 Long combinedUnzippedFileSize = 0L;
@@ -378,6 +394,10 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
                         unZippedIn = new ZipInputStream(new FileInputStream(tempFile.toFile()));
                     }
 
+                    typeDetector = new UnzippedFileTypeDetector(ctxt.executor());
+                    unpackStart = System.nanoTime();
+                    DataFile.ChecksumType checksumType = ctxt.systemConfig().getFileFixityChecksumAlgorithm();
+
                     while (true) {
                         try {
                             zipEntry = unZippedIn.getNextEntry();
@@ -424,13 +444,15 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
 
                                     String storageIdentifier = FileUtil.generateStorageIdentifier();
                                     File unzippedFile = new File(getFilesTempDirectory() + "/" + storageIdentifier);
-                                    Files.copy(unZippedIn, unzippedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                                    // (the checksum is calculated as the file is unpacked, rather
+                                    // than by reading the file again)
+                                    String checksum = FileUtil.saveInputStreamWithChecksum(unZippedIn, unzippedFile.toPath(), checksumType);
                                     // No need to check the size of this unpacked file against the size limit, 
                                     // since we've already checked for that in the first pass.
                                     
                                     DataFile datafile = FileUtil.createSingleDataFile(version, null, storageIdentifier, shortName,
                                             MIME_TYPE_UNDETERMINED_DEFAULT,
-                                            ctxt.systemConfig().getFileFixityChecksumAlgorithm(), null, false);
+                                            checksumType, checksum, false);
                                     
                                     if (!fileEntryName.equals(shortName)) {
                                         // If the filename looks like a hierarchical folder name (i.e., contains slashes and backslashes),
@@ -450,20 +472,7 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
                                         // We have created this datafile with the mime type "unknown";
                                         // Now that we have it saved in a temporary location,
                                         // let's try and determine its real type:
-
-                                        String tempFileName = getFilesTempDirectory() + "/" + datafile.getStorageIdentifier();
-
-                                        try {
-                                            recognizedType = determineFileType(unzippedFile, shortName);
-                                            // null the File explicitly, to release any open FDs:
-                                            unzippedFile = null;
-                                            logger.fine("File utility recognized unzipped file as " + recognizedType);
-                                            if (recognizedType != null && !recognizedType.equals("")) {
-                                                datafile.setContentType(recognizedType);
-                                            }
-                                        } catch (Exception ex) {
-                                            logger.warning("Failed to run the file utility mime type check on file " + fileName);
-                                        }
+                                        typeDetector.detect(datafile, unzippedFile, shortName);
 
                                         datafiles.add(datafile);
                                         combinedUnzippedFileSize += datafile.getFilesize();
@@ -474,6 +483,9 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
                         unZippedIn.closeEntry();
 
                     }
+                    long unpackNanos = System.nanoTime() - unpackStart;
+                    typeDetector.await();
+                    recordUnzipMetrics(datafiles.size(), unpackNanos, typeDetector.getDetectionNanos(), System.nanoTime() - unpackStart);
 
                 } catch (IOException ioex) {
                     // just clear the datafiles list and let
@@ -489,12 +501,18 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
                     logger.warning("One of the unzipped files exceeds the size limit; resorting to saving the file as is. " + femsx.getMessage());
                     warningMessage =  BundleUtil.getStringFromBundle("file.addreplace.warning.unzip.failed.size", Arrays.asList(FileSizeChecker.bytesToHumanReadable(fileSizeLimit)));
                     datafiles.clear();
+                } catch (InterruptedException iex) {
+                    Thread.currentThread().interrupt();
+                    throw new CommandExecutionException("Interrupted while unpacking the zip file", iex, this);
                 } /*catch (FileExceedsStorageQuotaException fesqx) {
                     //logger.warning("One of the unzipped files exceeds the storage quota limit; resorting to saving the file as is. " + fesqx.getMessage());
                     //warningMessage =  BundleUtil.getStringFromBundle("file.addreplace.warning.unzip.failed.quota", Arrays.asList(FileSizeChecker.bytesToHumanReadable(storageQuotaLimit)));
                     //datafiles.clear();
                     throw new CommandExecutionException(fesqx.getMessage(), fesqx, this);
                 }*/ finally {
+                    if (typeDetector != null) {
+                        typeDetector.close();
+                    }
                     if (zipFile != null) {
                         try {
                             zipFile.close();
@@ -699,7 +717,8 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
             throw new CommandExecutionException(MessageFormat.format(BundleUtil.getStringFromBundle("file.addreplace.error.quota_exceeded"), bytesToHumanReadable(fileSize), bytesToHumanReadable(storageQuotaLimit)), this);
         } 
         
-        DataFile datafile = FileUtil.createSingleDataFile(version, newFile, newStorageIdentifier, fileName, finalType, newCheckSumType, newCheckSum);
+        DataFile datafile = FileUtil.createSingleDataFile(version, newFile, newStorageIdentifier, fileName, finalType, newCheckSumType,
+                newCheckSum != null ? newCheckSum : uploadCheckSum);
 
         if (datafile != null) {
 
@@ -730,7 +749,30 @@ public class CreateNewDataFilesCommand extends AbstractCommand<CreateDataFileRes
 
         return CreateDataFileResult.error(fileName, finalType);
     }   // end createDataFiles
-    
+
+    /**
+     * Records the time taken by the stages of unpacking a zip file: unpacking
+     * the files and calculating their checksums ("zip_upload_unpack_time");
+     * determining their types, added up over the workers
+     * ("zip_upload_type_detection_time"); and the whole
+     * ("zip_upload_total_time").
+     */
+    private void recordUnzipMetrics(int files, long unpackNanos, long detectionNanos, long totalNanos) {
+        logger.fine("Unpacked " + files + " files in " + unpackNanos / 1000000 + " ms (types determined in "
+                + detectionNanos / 1000000 + " ms, over all the workers); " + totalNanos / 1000000 + " ms in all");
+        try {
+            Instance<MetricRegistry> metricRegistry = CDI.current().select(MetricRegistry.class);
+            if (metricRegistry.isResolvable()) {
+                metricRegistry.get().timer("zip_upload_unpack_time").update(Duration.ofNanos(unpackNanos));
+                metricRegistry.get().timer("zip_upload_type_detection_time").update(Duration.ofNanos(detectionNanos));
+                metricRegistry.get().timer("zip_upload_total_time").update(Duration.ofNanos(totalNanos));
+            }
+        } catch (IllegalStateException e) {
+            // no CDI container (e.g. in unit tests)
+            logger.fine("Could not record the unzip metrics: " + e.getMessage());
+        }
+    }
+
     @Override
     public Map<String, Set<Permission>> getRequiredPermissions() {
         Map<String, Set<Permission>> ret = new HashMap<>();
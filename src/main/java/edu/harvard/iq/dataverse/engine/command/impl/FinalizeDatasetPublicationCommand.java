@@ -28,12 +28,16 @@ import edu.harvard.iq.dataverse.util.BundleUtil;
 import edu.harvard.iq.dataverse.workflow.WorkflowContext.TriggerType;
 import java.io.IOException;
 import java.sql.Timestamp;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import edu.harvard.iq.dataverse.batch.util.LoggingUtil;
+import edu.harvard.iq.dataverse.dataaccess.FileChecksumValidator;
 import edu.harvard.iq.dataverse.dataaccess.StorageIO;
 import edu.harvard.iq.dataverse.engine.command.Command;
 import edu.harvard.iq.dataverse.util.FileUtil;
@@ -62,6 +66,14 @@ public class FinalizeDatasetPublicationCommand extends AbstractPublishDatasetCom
     
     List<Dataverse> dataversesToIndex = new ArrayList<>();
     
+    // The last update of the draft, before this command sets it; files whose
+    // PIDs were publicized after it, by an earlier attempt to publish the
+    // same draft, are not publicized again:
+    private Date draftLastUpdateTime;
+    // The files whose PIDs this attempt publicized, by id, with the
+    // identifier publicized:
+    private final Map<Long, String> publicizedFileIdentifiers = new HashMap<>();
+    
     public static final String FILE_VALIDATION_ERROR = "FILE VALIDATION ERROR";
     
     public FinalizeDatasetPublicationCommand(Dataset aDataset, DataverseRequest aRequest) {
@@ -75,6 +87,7 @@ public class FinalizeDatasetPublicationCommand extends AbstractPublishDatasetCom
     @Override
     public Dataset execute(CommandContext ctxt) throws CommandException {
         Dataset theDataset = getDataset();
+        draftLastUpdateTime = theDataset.getLatestVersion().getLastUpdateTime();
         
         logger.info("Finalizing publication of the dataset "+theDataset.getGlobalId().asString());
         
@@ -344,6 +357,7 @@ public class FinalizeDatasetPublicationCommand extends AbstractPublishDatasetCom
 
             long datasetSize = DatasetUtil.getDownloadSizeNumeric(dataset.getLatestVersion(), false);
             if (maxDatasetSize == -1 || datasetSize < maxDatasetSize) {
+                List<DataFile> filesToValidate = new ArrayList<>();
                 for (DataFile dataFile : dataset.getFiles()) {
                     // TODO: Should we validate all the files in the dataset, or only
                     // the files that haven't been published previously?
@@ -352,13 +366,25 @@ public class FinalizeDatasetPublicationCommand extends AbstractPublishDatasetCom
                     // indication that this makes publishing take significantly longer.
                     String driverId = FileUtil.getStorageDriver(dataFile);
                     if(StorageIO.isDataverseAccessible(driverId) && (maxFileSize == -1 || dataFile.getFilesize() < maxFileSize)) {
-                        FileUtil.validateDataFileChecksum(dataFile);
+                        filesToValidate.add(dataFile);
                     }
                     else {
                         String message = "Checksum Validation skipped for this datafile: " + dataFile.getId() + ", because of the size of the datafile limit (set to " + maxFileSize + " ); ";
                         logger.info(message);
                     }
                 }
+                // The files are validated concurrently; all of them are
+                // checked, so that every invalid one gets logged:
+                boolean allValid = true;
+                for (FileChecksumValidator.Result result : new FileChecksumValidator(ctxt.executor()).validate(filesToValidate)) {
+                    if (!result.isValid()) {
+                        logger.warning(result.getErrorMessage());
+                        allValid = false;
+                    }
+                }
+                if (!allValid) {
+                    throw new IOException("Checksum validation failed for dataset " + dataset.getId());
+                }
             }
             else {
                 String message = "Checksum Validation skipped for this dataset: " + dataset.getId() + ", because of the size of the dataset limit (set to " + maxDatasetSize + " ); ";
@@ -404,16 +430,7 @@ public class FinalizeDatasetPublicationCommand extends AbstractPublishDatasetCom
             if (registerGlobalIdsForFiles 
                     && dataset.getLatestVersion().getMinorVersionNumber() != null
                     && dataset.getLatestVersion().getMinorVersionNumber().equals((long) 0)) {
-                // A false return value indicates a failure in calling the service
-                for (DataFile df : dataset.getFiles()) {
-                    logger.log(Level.FINE, "registering global id for file {0}", df.getId());
-                    // A false return value indicates a failure in calling the service
-                    if (!pidProvider.publicizeIdentifier(df)) {
-                        throw new Exception();
-                    }
-                    df.setGlobalIdCreateTime(getTimestamp());
-                    df.setIdentifierRegistered(true);
-                }
+                publicizeFileIdentifiers(dataset, pidProvider, ctxt);
             }
             if (!pidProvider.publicizeIdentifier(dataset)) {
                 throw new Exception();
@@ -425,6 +442,15 @@ public class FinalizeDatasetPublicationCommand extends AbstractPublishDatasetCom
             logger.warning("Failed to register the identifier " + dataset.getGlobalId().asString()
                     + ", or to register a file in the dataset; notifying the user(s), unlocking the dataset");
 
+            // Remember the files that were done, for the next attempt:
+            if (!publicizedFileIdentifiers.isEmpty()) {
+                try {
+                    ctxt.files().savePidPublicizeProgress(dataset.getId(), publicizedFileIdentifiers, getTimestamp());
+                } catch (RuntimeException re) {
+                    logger.log(Level.WARNING, "Could not record the publicized file PIDs of " + dataset.getGlobalId().asString(), re);
+                }
+            }
+
             // Send failure notification to the user:
             notifyUsersDatasetPublishStatus(ctxt, dataset, UserNotification.Type.PUBLISHFAILED_PIDREG);
 
@@ -435,6 +461,44 @@ public class FinalizeDatasetPublicationCommand extends AbstractPublishDatasetCom
         }
     }
     
+    /**
+     * Publicizes the PIDs of the files, concurrently if the provider supports
+     * it. If some fail, the ones that succeeded are recorded (in their own
+     * transaction, since this one will be rolled back), and skipped when the
+     * publication is retried; unless the file no longer has the identifier
+     * publicized, as when the identifier was generated by the failed attempt
+     * (and lost with its rollback).
+     */
+    private void publicizeFileIdentifiers(Dataset dataset, PidProvider pidProvider, CommandContext ctxt) throws Exception {
+        Map<Long, String> alreadyPublicized = draftLastUpdateTime != null
+                ? ctxt.files().findPidPublicizeProgress(dataset.getId(), draftLastUpdateTime)
+                : Collections.emptyMap();
+        List<DataFile> toPublicize = new ArrayList<>();
+        for (DataFile df : dataset.getFiles()) {
+            String publicizedIdentifier = alreadyPublicized.get(df.getId());
+            if (publicizedIdentifier != null && publicizedIdentifier.equals(df.getIdentifier())) {
+                logger.log(Level.FINE, "global id for file {0} was publicized by an earlier attempt", df.getId());
+                df.setGlobalIdCreateTime(getTimestamp());
+                df.setIdentifierRegistered(true);
+            } else {
+                toPublicize.add(df);
+            }
+        }
+        List<DataFile> failed = pidProvider.publicizeIdentifiers(toPublicize, ctxt.executor(), df -> {
+            df.setGlobalIdCreateTime(getTimestamp());
+            df.setIdentifierRegistered(true);
+            publicizedFileIdentifiers.put(df.getId(), df.getIdentifier());
+        });
+        if (!failed.isEmpty()) {
+            logger.warning("Failed to publicize " + failed.size() + " file PID(s) of " + dataset.getGlobalId().asString()
+                    + "; " + (dataset.getFiles().size() - failed.size()) + " done so far");
+            throw new Exception();
+        }
+        if (!alreadyPublicized.isEmpty()) {
+            ctxt.files().deletePidPublicizeProgress(dataset.getId());
+        }
+    }
+    
     private void updateFiles(Timestamp updateTime, CommandContext ctxt) throws CommandException {
         for (DataFile dataFile : getDataset().getFiles()) {
             if (dataFile.getPublicationDate() == null) {
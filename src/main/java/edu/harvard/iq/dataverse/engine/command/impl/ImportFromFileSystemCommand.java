@@ -128,6 +128,15 @@ public class ImportFromFileSystemCommand extends AbstractCommand<JsonObject> {
                 props.setProperty("mode", mode);
                 props.setProperty("fileMode", fileMode);
                 props.setProperty("uploadFolder", uploadFolder);
+                // A package file is made of all its files at once, so they are
+                // written in a single chunk; individual files are committed a
+                // chunk at a time:
+                if (fileMode.equals(FileRecordWriter.FILE_MODE_INDIVIDUAL_FILES)) {
+                    props.setProperty("chunkSize", JvmSettings.FILESYSTEM_IMPORT_CHUNK_SIZE.lookupOptional(Integer.class)
+                            .orElse(FileRecordWriter.DEFAULT_CHUNK_SIZE).toString());
+                } else {
+                    props.setProperty("chunkSize", Integer.toString(Integer.MAX_VALUE));
+                }
                 if (totalSize != null && totalSize > 0) {
                     props.setProperty("totalSize", totalSize.toString());
                 }
@@ -21,7 +21,6 @@ import jakarta.json.Json;
 import jakarta.json.JsonObjectBuilder;
 
 import java.io.File;
-import java.io.FileOutputStream;
 
 import org.apache.commons.io.FileUtils;
 
@@ -63,20 +62,16 @@ public class LocalSubmitToArchiveCommand extends AbstractSubmitToArchiveCommand
                         dataciteXml, StandardCharsets.UTF_8);
                 BagGenerator bagger = new BagGenerator(new OREMap(dv, false), dataciteXml);
                 bagger.setNumConnections(getNumberOfBagGeneratorThreads());
+                bagger.setMaxBufferedBytes(getBagGeneratorBufferSize());
                 bagger.setAuthenticationKey(token.getTokenString());
                 zipName = localPath + "/" + spaceName + "v" + dv.getFriendlyVersionNumber() + ".zip";
-                //ToDo: generateBag(File f, true) seems to do the same thing (with a .tmp extension) - since we don't have to use a stream here, could probably just reuse the existing code? 
-                bagger.generateBag(new FileOutputStream(zipName + ".partial"));
-
-                File srcFile = new File(zipName + ".partial");
-                File destFile = new File(zipName);
-
-                if (srcFile.renameTo(destFile)) {
+                // (if it fails, the next attempt reuses what was written into the .partial zip)
+                if (bagger.generateResumableBag(new File(zipName))) {
                     logger.fine("Localhost Submission step: Content Transferred");
                     statusObject.add(DatasetVersion.ARCHIVAL_STATUS, DatasetVersion.ARCHIVAL_STATUS_SUCCESS);
                     statusObject.add(DatasetVersion.ARCHIVAL_STATUS_MESSAGE, "file://" + zipName);
                 } else {
-                    logger.warning("Unable to move " + zipName + ".partial to " + zipName);
+                    logger.warning("Unable to generate " + zipName);
                 }
             } else {
                 logger.warning(
@@ -108,9 +108,11 @@ public class S3SubmitToArchiveCommand extends AbstractSubmitToArchiveCommand {
 
                         // Generate bag
                         BagGenerator bagger = new BagGenerator(new OREMap(dv, false), dataciteXml);
+                        bagger.setNumConnections(getNumberOfBagGeneratorThreads());
+                        bagger.setMaxBufferedBytes(getBagGeneratorBufferSize());
                         bagger.setAuthenticationKey(token.getTokenString());
-                        if (bagger.generateBag(fileName, false)) {
-                            File bagFile = bagger.getBagFile(fileName);
+                        File bagFile = bagger.getBagFile(fileName);
+                        if (bagger.generateResumableBag(bagFile)) {
 
                             try (FileInputStream in = new FileInputStream(bagFile)) {
                                 om = new ObjectMetadata();
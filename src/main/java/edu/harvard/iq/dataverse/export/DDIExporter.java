@@ -48,8 +48,19 @@ public class DDIExporter implements XMLExporter {
             XMLStreamWriter xmlw = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream);
             xmlw.writeStartDocument();
             xmlw.flush();
-            DdiExportUtil.datasetJson2ddi(dataProvider.getDatasetJson(), dataProvider.getDatasetFileDetails(),
-                    outputStream);
+            JsonObject datasetJson;
+            Iterable<JsonObject> fileDetails;
+            if (dataProvider instanceof InternalExportDataProvider internalProvider) {
+                // The file details are streamed (once per section of the codebook),
+                // so that only one file's details and variables are held in memory;
+                // the files of the dataset json are not needed
+                datasetJson = internalProvider.getDatasetJson(false);
+                fileDetails = () -> internalProvider.getDatasetFileDetailsStream().iterator();
+            } else {
+                datasetJson = dataProvider.getDatasetJson();
+                fileDetails = dataProvider.getDatasetFileDetails().getValuesAs(JsonObject.class);
+            }
+            DdiExportUtil.datasetJson2ddi(datasetJson, fileDetails, outputStream);
         } catch (XMLStreamException xse) {
             throw new ExportException("Caught XMLStreamException performing DDI export", xse);
         }
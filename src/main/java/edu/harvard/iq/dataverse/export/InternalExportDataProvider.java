@@ -2,6 +2,7 @@ package edu.harvard.iq.dataverse.export;
 
 import java.io.InputStream;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import jakarta.json.Json;
 import jakarta.json.JsonArray;
@@ -11,7 +12,6 @@ import jakarta.json.JsonObjectBuilder;
 import edu.harvard.iq.dataverse.DataCitation;
 import edu.harvard.iq.dataverse.DataFile;
 import edu.harvard.iq.dataverse.DatasetVersion;
-import edu.harvard.iq.dataverse.FileMetadata;
 import edu.harvard.iq.dataverse.pidproviders.doi.datacite.DOIDataCiteRegisterService;
 import io.gdcc.spi.export.ExportDataProvider;
 import edu.harvard.iq.dataverse.util.bagit.OREMap;
@@ -48,6 +48,27 @@ public class InternalExportDataProvider implements ExportDataProvider {
         return jsonRepresentation;
     }
 
+    /**
+     * @param includeFiles whether the "files" array of the version should be
+     *                     included
+     * @return the dataset json; without the files, it is built directly,
+     *         without creating the json for every file in the version first
+     */
+    public JsonObject getDatasetJson(boolean includeFiles) {
+        if (includeFiles) {
+            return getDatasetJson();
+        }
+        return JsonPrinter.jsonAsDatasetDto(dv, false).build();
+    }
+
+    /**
+     * @return the entries of the "files" array of the version, created as the
+     *         stream reaches them
+     */
+    public Stream<JsonObject> getDatasetFilesStream() {
+        return dv.getFileMetadatas().stream().map(fileMetadata -> JsonPrinter.json(fileMetadata).build());
+    }
+
     @Override
     public JsonObject getDatasetSchemaDotOrg() {
         if (schemaDotOrgRepresentation == null) {
@@ -74,12 +95,20 @@ public class InternalExportDataProvider implements ExportDataProvider {
     @Override
     public JsonArray getDatasetFileDetails() {
         JsonArrayBuilder jab = Json.createArrayBuilder();
-        for (FileMetadata fileMetadata : dv.getFileMetadatas()) {
-            DataFile dataFile = fileMetadata.getDataFile();
-            jab.add(JsonPrinter.json(dataFile, fileMetadata, true));
-        }
+        getDatasetFileDetailsStream().forEach(jab::add);
         return jab.build();
     }
+
+    /**
+     * @return the same details as {@link #getDatasetFileDetails()}, created as
+     *         the stream reaches them
+     */
+    public Stream<JsonObject> getDatasetFileDetailsStream() {
+        return dv.getFileMetadatas().stream().map(fileMetadata -> {
+            DataFile dataFile = fileMetadata.getDataFile();
+            return JsonPrinter.json(dataFile, fileMetadata, true).build();
+        });
+    }
     
     @Override
     public Optional<InputStream> getPrerequisiteInputStream() {
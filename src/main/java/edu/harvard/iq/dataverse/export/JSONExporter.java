@@ -7,10 +7,16 @@ import io.gdcc.spi.export.ExportException;
 import io.gdcc.spi.export.Exporter;
 import edu.harvard.iq.dataverse.util.BundleUtil;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonGenerator;
 import jakarta.ws.rs.core.MediaType;
 
 
@@ -21,6 +27,8 @@ import jakarta.ws.rs.core.MediaType;
 @AutoService(Exporter.class)
 public class JSONExporter implements Exporter {
 
+    private static final String DATASET_VERSION = "datasetVersion";
+
     @Override
     public String getFormatName() {
         return "dataverse_json";
@@ -35,13 +43,43 @@ public class JSONExporter implements Exporter {
     @Override
     public void exportDataset(ExportDataProvider dataProvider, OutputStream outputStream) throws ExportException {
         try{
-            outputStream.write(dataProvider.getDatasetJson().toString().getBytes(StandardCharsets.UTF_8));
+            if (!(dataProvider instanceof InternalExportDataProvider internalProvider)) {
+                outputStream.write(dataProvider.getDatasetJson().toString().getBytes(StandardCharsets.UTF_8));
+                outputStream.flush();
+                return;
+            }
+            // The dataset json is written without the files, which are then
+            // streamed into the "files" array of the version one at a time:
+            JsonObject datasetJson = internalProvider.getDatasetJson(false);
+            JsonGenerator generator = Json.createGenerator(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            generator.writeStartObject();
+            for (Map.Entry<String, JsonValue> entry : datasetJson.entrySet()) {
+                if (DATASET_VERSION.equals(entry.getKey())) {
+                    writeDatasetVersion(generator, entry.getValue().asJsonObject(), internalProvider);
+                } else {
+                    generator.write(entry.getKey(), entry.getValue());
+                }
+            }
+            generator.writeEnd();
+            // Not closing the generator, as that would close the output stream
+            generator.flush();
             outputStream.flush();
         } catch (Exception e){
             throw new ExportException("Unknown exception caught during JSON export.");
         }
     }
 
+    private void writeDatasetVersion(JsonGenerator generator, JsonObject versionJson, InternalExportDataProvider dataProvider) {
+        generator.writeStartObject(DATASET_VERSION);
+        for (Map.Entry<String, JsonValue> entry : versionJson.entrySet()) {
+            generator.write(entry.getKey(), entry.getValue());
+        }
+        generator.writeStartArray("files");
+        dataProvider.getDatasetFilesStream().forEach(generator::write);
+        generator.writeEnd(); // files
+        generator.writeEnd(); // datasetVersion
+    }
+
     @Override
     public Boolean isHarvestable() {
         return true;
@@ -27,7 +27,9 @@ import edu.harvard.iq.dataverse.util.BundleUtil;
 
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.logging.Logger;
 import jakarta.ejb.ActivationConfigProperty;
 import jakarta.ejb.EJB;
@@ -70,6 +72,7 @@ public class IngestMessageBean implements MessageListener {
         IngestMessage ingestMessage = null;
 
         AuthenticatedUser authenticatedUser = null;
+        List<Long> ingestedFileIds = new ArrayList<>();
         
         try {
             ObjectMessage om = (ObjectMessage) message;
@@ -107,6 +110,7 @@ public class IngestMessageBean implements MessageListener {
                     if (ingestService.ingestAsTabular(datafile_id)) {
                         //Thread.sleep(10000);
                         logger.fine("Finished ingest job;");
+                        ingestedFileIds.add(datafile_id);
                         // We used to list the successfully ingested files in the "success"
                         // and "mixed success and failure" emails. Now we never list successfully
                         // ingested files so this line is commented out.
@@ -188,6 +192,12 @@ public class IngestMessageBean implements MessageListener {
                 ex.printStackTrace(); // application was unable to remove the datasetLock
             }
         }
+
+        // With the dataset unlocked, produce the cached copies of the
+        // configured download formats of the ingested files, in the background:
+        if (!ingestedFileIds.isEmpty()) {
+            ingestService.produceConvertedFormats(ingestedFileIds);
+        }
     }
  
     
@@ -41,9 +41,11 @@ import edu.harvard.iq.dataverse.DatasetVersion;
 import edu.harvard.iq.dataverse.DvObject;
 import edu.harvard.iq.dataverse.FileMetadata;
 import edu.harvard.iq.dataverse.MetadataBlock;
+import edu.harvard.iq.dataverse.ThumbnailGenerationServiceBean;
 import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
 import edu.harvard.iq.dataverse.dataaccess.DataAccess;
 import edu.harvard.iq.dataverse.dataaccess.DataAccessOption;
+import edu.harvard.iq.dataverse.dataaccess.DataConverter;
 import edu.harvard.iq.dataverse.dataaccess.StorageIO;
 import edu.harvard.iq.dataverse.dataaccess.ImageThumbConverter;
 import edu.harvard.iq.dataverse.dataaccess.S3AccessIO;
@@ -71,6 +73,7 @@ import edu.harvard.iq.dataverse.ingest.tabulardata.impl.plugins.sav.SAVFileReade
 import edu.harvard.iq.dataverse.ingest.tabulardata.impl.plugins.sav.SAVFileReaderSpi;
 import edu.harvard.iq.dataverse.ingest.tabulardata.impl.plugins.por.PORFileReader;
 import edu.harvard.iq.dataverse.ingest.tabulardata.impl.plugins.por.PORFileReaderSpi;
+import edu.harvard.iq.dataverse.settings.FeatureFlags;
 import edu.harvard.iq.dataverse.settings.JvmSettings;
 import edu.harvard.iq.dataverse.storageuse.StorageUseServiceBean;
 import edu.harvard.iq.dataverse.storageuse.UploadSessionQuotaLimit;
@@ -119,6 +122,8 @@ import jakarta.jms.Queue;
 import jakarta.jms.QueueConnectionFactory;
 import jakarta.annotation.Resource;
 import jakarta.ejb.Asynchronous;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
 import jakarta.jms.JMSException;
 import jakarta.jms.QueueConnection;
 import jakarta.jms.QueueSender;
@@ -155,6 +160,8 @@ public class IngestServiceBean {
     StorageUseServiceBean storageUseService; 
     @EJB
     SystemConfig systemConfig;
+    @EJB
+    ThumbnailGenerationServiceBean thumbnailGenerationService;
 
     @Resource(lookup = "java:app/jms/queue/ingest")
     Queue queue;
@@ -592,6 +599,8 @@ public class IngestServiceBean {
     // -- L.A. 4.6
     public void startIngestJobsForDataset(Dataset dataset, AuthenticatedUser user) {
         List<DataFile> scheduledFiles = new ArrayList<>();
+        List<Long> thumbnailFileIds = new ArrayList<>();
+        boolean asyncThumbnails = FeatureFlags.ASYNC_THUMBNAIL_GENERATION.enabled();
                 
         for (DataFile dataFile : dataset.getFiles()) {
             if (dataFile.isIngestScheduled()) {
@@ -602,10 +611,19 @@ public class IngestServiceBean {
                 // we make sure that the roles assignment added at create is flushed
                 dataFile = fileService.find(dataFile.getId());
                 scheduledFiles.add(dataFile);
+            } else if (asyncThumbnails && !dataFile.isPreviewImageAvailable() 
+                    && !dataFile.isPreviewImageFail() && FileUtil.isThumbnailSupported(dataFile)) {
+                // New image/pdf files: pre-render their thumbnails in the 
+                // background, instead of making the first page that shows 
+                // them wait for it
+                thumbnailFileIds.add(dataFile.getId());
             }
         }
 
         startIngestJobs(dataset.getId(), scheduledFiles, user);
+        if (!thumbnailFileIds.isEmpty()) {
+            thumbnailGenerationService.queueThumbnailGeneration(thumbnailFileIds);
+        }
     }
     
     public String startIngestJobs(Long datasetId, List<DataFile> dataFiles, AuthenticatedUser user) {
@@ -2094,6 +2112,55 @@ public class IngestServiceBean {
         }
     }
     
+    // This method takes a list of ids of newly ingested tabular files, and 
+    // produces the cached copies of the alternative download formats listed in
+    // dataverse.ingest.pre-convert-formats (RData, prep), so that the first 
+    // download of each format doesn't have to wait for the conversion. 
+    // It is called by the IngestMessageBean, once the dataset is unlocked. 
+    // A conversion that fails here is only logged; it will be attempted
+    // again on download, as usual. (No transaction: the conversions, in R,
+    // can take a while.)
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void produceConvertedFormats(List<Long> datafileIds) {
+        List<String> formats = JvmSettings.INGEST_PRE_CONVERT_FORMATS.lookupOptional(String[].class)
+                .map(Arrays::asList)
+                .orElse(List.of());
+        if (formats.isEmpty() || datafileIds.isEmpty()) {
+            return;
+        }
+        for (Long fileId : datafileIds) {
+            DataFile dataFile = fileService.find(fileId);
+            if (dataFile == null || !dataFile.isTabularData()) {
+                continue;
+            }
+            for (String format : formats) {
+                try {
+                    StorageIO<DataFile> storageIO = dataFile.getStorageIO();
+                    storageIO.open();
+                    if (storageIO.isAuxObjectCached(format)) {
+                        continue;
+                    }
+                    File formatConvertedFile = DataConverter.convertAndCache(dataFile, storageIO, format);
+                    if (formatConvertedFile == null && !storageIO.isAuxObjectCached(format)) {
+                        logger.warning("Failed to produce the " + format + " copy of the ingested file " + fileId);
+                    } else {
+                        logger.fine("Produced the " + format + " copy of the ingested file " + fileId);
+                    }
+                    // nobody downloads it from here, so the converted temp file
+                    // is deleted once it has been cached (unless it is the
+                    // stored tab file itself):
+                    if (formatConvertedFile != null && !(storageIO.isLocalFile()
+                            && formatConvertedFile.toPath().equals(storageIO.getFileSystemPath()))) {
+                        Files.deleteIfExists(formatConvertedFile.toPath());
+                    }
+                } catch (IOException ioex) {
+                    logger.warning("Failed to produce the " + format + " copy of the ingested file " + fileId + ": " + ioex.getMessage());
+                }
+            }
+        }
+    }
+
     // This method takes a list of file ids, checks the format type of the ingested 
     // original, and attempts to fix it if it's missing. 
     // Note the @Asynchronous attribute - this allows us to just kick off and run this 
@@ -19,7 +19,6 @@
  */
 package edu.harvard.iq.dataverse.ingest.tabulardata.impl.plugins.csv;
 
-import java.io.FileReader;
 import java.io.InputStreamReader;
 
 import edu.harvard.iq.dataverse.DataTable;
@@ -30,29 +29,38 @@ import edu.harvard.iq.dataverse.ingest.tabulardata.spi.TabularDataFileReaderSpi;
 import edu.harvard.iq.dataverse.ingest.tabulardata.TabularDataIngest;
 import edu.harvard.iq.dataverse.util.BundleUtil;
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.ParseException;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.logging.Logger;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.CSVRecord;
 
 /**
@@ -63,6 +71,14 @@ import org.apache.commons.csv.CSVRecord;
  * @author Oscar Smith
  *
  * This implementation uses the Apache CSV Parser
+ *
+ * The file is parsed once. Every case is written to the tab file as soon as it
+ * is read, formatted according to the variable types inferred so far; the
+ * types can only be widened (integer, then numeric, then date/time, then
+ * string). When a type is widened, and the wider type formats the cases
+ * already written for that variable differently, they are re-formatted at the
+ * end of the ingest, from the beginning of the tab file up to the last case
+ * written before the widening; the rest of the file is copied as it is.
  */
 public class CSVFileReader extends TabularDataFileReader {
 
@@ -122,9 +138,8 @@ public class CSVFileReader extends TabularDataFileReader {
         BufferedReader localBufferedReader = new BufferedReader(new InputStreamReader(stream));
 
         File tabFileDestination = File.createTempFile("data-", ".tab");
-        PrintWriter tabFileWriter = new PrintWriter(tabFileDestination.getAbsolutePath());
 
-        int lineCount = readFile(localBufferedReader, dataTable, saveWithVariableHeader, tabFileWriter);
+        int lineCount = readFile(localBufferedReader, dataTable, saveWithVariableHeader, tabFileDestination);
 
         logger.fine("Tab file produced: " + tabFileDestination.getAbsolutePath());
 
@@ -136,7 +151,7 @@ public class CSVFileReader extends TabularDataFileReader {
 
     }
 
-    public int readFile(BufferedReader csvReader, DataTable dataTable, boolean saveWithVariableHeader, PrintWriter finalOut) throws IOException {
+    public int readFile(BufferedReader csvReader, DataTable dataTable, boolean saveWithVariableHeader, File tabFile) throws IOException {
 
         List<DataVariable> variableList = new ArrayList<>();
         CSVParser parser = new CSVParser(csvReader, inFormat.withHeader());
@@ -174,35 +189,54 @@ public class CSVFileReader extends TabularDataFileReader {
         dataTable.setVarQuantity((long) variableList.size());
         dataTable.setDataVariables(variableList);
 
-        boolean[] isNumericVariable = new boolean[headers.size()];
-        boolean[] isIntegerVariable = new boolean[headers.size()];
-        boolean[] isTimeVariable = new boolean[headers.size()];
-        boolean[] isDateVariable = new boolean[headers.size()];
-
+        // OK, let's assume that every variable is numeric (and integer);
+        // but we'll go through the file and examine every value; the
+        // moment we find a value that's not a legit numeric one, we'll
+        // assume that it is in fact a String.
+        ColumnType[] columnTypes = new ColumnType[headers.size()];
         for (i = 0; i < headers.size(); i++) {
-            // OK, let's assume that every variable is numeric;
-            // but we'll go through the file and examine every value; the
-            // moment we find a value that's not a legit numeric one, we'll
-            // assume that it is in fact a String.
-            isNumericVariable[i] = true;
-            isIntegerVariable[i] = true;
-            isDateVariable[i] = true;
-            isTimeVariable[i] = true;
+            columnTypes[i] = new ColumnType(tabFile.getParentFile());
         }
 
-        // First, "learning" pass.
-        // (we'll save the incoming stream in another temp file:)
-        SimpleDateFormat[] selectedDateTimeFormat = new SimpleDateFormat[headers.size()];
-        SimpleDateFormat[] selectedDateFormat = new SimpleDateFormat[headers.size()];
+        try {
+            return readCases(parser, csvReader, headers, dataTable, columnTypes, saveWithVariableHeader, variableNameHeader, tabFile);
+        } finally {
+            for (ColumnType columnType : columnTypes) {
+                columnType.originalValues.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the cases, writing them to the tab file, and re-types the
+     * variables according to all the values read.
+     */
+    private int readCases(CSVParser parser, BufferedReader csvReader, Map<String, Integer> headers, DataTable dataTable,
+                          ColumnType[] columnTypes, boolean saveWithVariableHeader, String variableNameHeader,
+                          File tabFile) throws IOException {
+        int i;
+
+        // The cases are written before the types are final; the beginning of
+        // the tab file, up to (and not including) case number rewriteCases,
+        // found at byte rewriteOffset, may need to be re-formatted.
+        long caseNumber = 0;
+        long rewriteCases = 0;
+        long rewriteOffset = 0;
+
+        try (FileOutputStream tabFileStream = new FileOutputStream(tabFile);
+             Writer tabFileWriter = new BufferedWriter(new OutputStreamWriter(tabFileStream))) {
+            String[] caseRow = new String[headers.size()];
 
-        File firstPassTempFile = File.createTempFile("firstpass-", ".csv");
+            // Save the variable name header, if requested
+            if (saveWithVariableHeader) {
+                if (variableNameHeader == null) {
+                    throw new IOException("failed to generate the Variable Names header");
+                }
+                tabFileWriter.write(variableNameHeader);
+                tabFileWriter.write('\n');
+            }
 
-        try (CSVPrinter csvFilePrinter = new CSVPrinter(
-                // TODO allow other parsers of tabular data to use this parser by changin inFormat
-                new FileWriter(firstPassTempFile.getAbsolutePath()), inFormat)) {
-            //Write  headers
-            csvFilePrinter.printRecord(headers.keySet());
-            for (CSVRecord record : parser.getRecords()) {
+            for (CSVRecord record : parser) {
                 // Checks if #records = #columns in header
                 if (!record.isConsistent()) {
                     List<String> args = Arrays.asList(new String[]{"" + (parser.getCurrentLineNumber() - 1),
@@ -213,114 +247,44 @@ public class CSVFileReader extends TabularDataFileReader {
 
                 for (i = 0; i < headers.size(); i++) {
                     String varString = record.get(i);
-                    isIntegerVariable[i] = isIntegerVariable[i]
-                                           && varString != null
-                                           && (varString.isEmpty()
-                                               || varString.equals("null")
-                                               || (StringUtils.isNumeric(varString)
-                                                    || (varString.substring(0,1).matches("[+-]") 
-                                                        && StringUtils.isNumeric(varString.substring(1)))));
-                    if (isNumericVariable[i]) {
-                        // If variable might be "numeric" test to see if this value is a parsable number:
-                        if (varString != null && !varString.isEmpty()) {
-
-                            boolean isNumeric = false;
-                            boolean isInteger = false;
-
-                            if (varString.equalsIgnoreCase("NaN")
-                                || varString.equalsIgnoreCase("NA")
-                                || varString.equalsIgnoreCase("Inf")
-                                || varString.equalsIgnoreCase("+Inf")
-                                || varString.equalsIgnoreCase("-Inf")
-                                || varString.equalsIgnoreCase("null")) {
-                                continue;
-                            } else {
-                                try {
-                                    Double testDoubleValue = new Double(varString);
-                                    continue;
-                                } catch (NumberFormatException ex) {
-                                    // the token failed to parse as a double
-                                    // so the column is a string variable.
+                    ColumnType columnType = columnTypes[i];
+
+                    if (columnType.format != CellFormat.STRING) {
+                        columnType.learn(varString);
+
+                        CellFormat format = columnType.getCellFormat();
+                        if (format != columnType.format) {
+                            // The type was widened; the cases already
+                            // written for this variable will be re-formatted,
+                            // unless they are written the same way in the
+                            // wider type.
+                            boolean reformat = columnType.formatsDifferently(format);
+                            columnType.format = format;
+                            if (reformat) {
+                                columnType.formattedFrom = caseNumber;
+                                if (caseNumber > rewriteCases) {
+                                    tabFileWriter.flush();
+                                    rewriteCases = caseNumber;
+                                    rewriteOffset = tabFileStream.getChannel().position();
                                 }
                             }
-                            isNumericVariable[i] = false;
                         }
                     }
 
-                    // If this is not a numeric column, see if it is a date collumn
-                    // by parsing the cell as a date or date-time value:
-                    if (!isNumericVariable[i]) {
-
-                        Date dateResult = null;
-
-                        if (isTimeVariable[i]) {
-                            if (varString != null && !varString.isEmpty()) {
-                                boolean isTime = false;
-
-                                if (selectedDateTimeFormat[i] != null) {
-                                    ParsePosition pos = new ParsePosition(0);
-                                    dateResult = selectedDateTimeFormat[i].parse(varString, pos);
-
-                                    if (dateResult != null && pos.getIndex() == varString.length()) {
-                                        // OK, successfully parsed a value!
-                                        isTime = true;
-                                    }
-                                } else {
-                                    for (SimpleDateFormat format : TIME_FORMATS) {
-                                        ParsePosition pos = new ParsePosition(0);
-                                        dateResult = format.parse(varString, pos);
-                                        if (dateResult != null && pos.getIndex() == varString.length()) {
-                                            // OK, successfully parsed a value!
-                                            isTime = true;
-                                            selectedDateTimeFormat[i] = format;
-                                            break;
-                                        }
-                                    }
-                                }
-                                if (!isTime) {
-                                    isTimeVariable[i] = false;
-                                    // if the token didn't parse as a time value,
-                                    // we will still try to parse it as a date, below.
-                                    // unless this column is NOT a date.
-                                } else {
-                                    // And if it is a time value, we are going to assume it's
-                                    // NOT a date.
-                                    isDateVariable[i] = false;
-                                }
-                            }
-                        }
+                    caseRow[i] = formatValue(columnType, varString);
 
-                        if (isDateVariable[i]) {
-                            if (varString != null && !varString.isEmpty()) {
-                                boolean isDate = false;
-
-                                // TODO:
-                                // Strictly speaking, we should be doing the same thing
-                                // here as with the time formats above; select the
-                                // first one that works, then insist that all the
-                                // other values in this column match it... but we
-                                // only have one, as of now, so it should be ok.
-                                // -- L.A. 4.0 beta
-                                for (SimpleDateFormat format : DATE_FORMATS) {
-                                    // Strict parsing - it will throw an
-                                    // exception if it doesn't parse!
-                                    format.setLenient(false);
-                                    try {
-                                        format.parse(varString);
-                                        isDate = true;
-                                        selectedDateFormat[i] = format;
-                                        break;
-                                    } catch (ParseException ex) {
-                                        //Do nothing
-                                    }
-                                }
-                                isDateVariable[i] = isDate;
-                            }
+                    if (columnType.format != CellFormat.STRING && !caseRow[i].equals(varString)) {
+                        // The original value can't be recovered from the
+                        // tab file; keep it, in case the type is widened.
+                        columnType.originalValues.add(caseNumber, varString);
+                        if (columnType.format == CellFormat.INTEGER && "null".equalsIgnoreCase(varString)) {
+                            columnType.integerZeros = true;
                         }
                     }
                 }
-
-                csvFilePrinter.printRecord(record);
+                tabFileWriter.write(StringUtils.join(caseRow, "\t"));
+                tabFileWriter.write('\n');
+                caseNumber++;
             }
         }
         dataTable.setCaseQuantity(parser.getRecordNumber());
@@ -329,158 +293,539 @@ public class CSVFileReader extends TabularDataFileReader {
 
         // Re-type the variables that we've determined are numerics:
         for (i = 0; i < headers.size(); i++) {
-            if (isNumericVariable[i]) {
+            ColumnType columnType = columnTypes[i];
+            if (columnType.isNumeric) {
                 dataTable.getDataVariables().get(i).setTypeNumeric();
 
-                if (isIntegerVariable[i]) {
+                if (columnType.isInteger) {
                     dataTable.getDataVariables().get(i).setIntervalDiscrete();
                 } else {
                     dataTable.getDataVariables().get(i).setIntervalContinuous();
                 }
-            } else if (isDateVariable[i] && selectedDateFormat[i] != null) {
+            } else if (columnType.isDate && columnType.selectedDateFormat != null) {
                 // Dates are still Strings, i.e., they are "character" and "discrete";
                 // But we add special format values for them:
                 dataTable.getDataVariables().get(i).setFormat(DATE_FORMATS[0].toPattern());
                 dataTable.getDataVariables().get(i).setFormatCategory("date");
-            } else if (isTimeVariable[i] && selectedDateTimeFormat[i] != null) {
+            } else if (columnType.isTime && columnType.selectedDateTimeFormat != null) {
                 // Same for time values:
-                dataTable.getDataVariables().get(i).setFormat(selectedDateTimeFormat[i].toPattern());
+                dataTable.getDataVariables().get(i).setFormat(columnType.selectedDateTimeFormat.toPattern());
                 dataTable.getDataVariables().get(i).setFormatCategory("time");
             }
         }
-        // Second, final pass.
-        try (BufferedReader secondPassReader = new BufferedReader(new FileReader(firstPassTempFile))) {
-            parser = new CSVParser(secondPassReader, inFormat.withHeader());
-            String[] caseRow = new String[headers.size()];
-            
-            // Save the variable name header, if requested
-            if (saveWithVariableHeader) {
-                if (variableNameHeader == null) {
-                    throw new IOException("failed to generate the Variable Names header");
+
+        for (ColumnType columnType : columnTypes) {
+            if (columnType.formattedFrom == 0) {
+                // Nothing to re-format for this variable:
+                columnType.originalValues.close();
+            } else {
+                // (only the cases written before the last widening are
+                // re-formatted)
+                columnType.originalValues.discardFrom(columnType.formattedFrom);
+            }
+        }
+
+        if (rewriteCases > 0) {
+            rewriteTabFile(tabFile, columnTypes, saveWithVariableHeader, rewriteCases, rewriteOffset);
+        }
+
+        return (int) caseNumber;
+    }
+
+    /**
+     * Re-formats the first cases of the tab file, written before some of the
+     * variable types were widened, and copies the remaining cases unchanged.
+     */
+    private void rewriteTabFile(File tabFile, ColumnType[] columnTypes, boolean saveWithVariableHeader,
+                                long rewriteCases, long rewriteOffset) throws IOException {
+        File rewrittenTabFile = File.createTempFile("data-", ".tab", tabFile.getParentFile());
+        logger.fine("Re-formatting the first " + rewriteCases + " cases of " + tabFile.getAbsolutePath());
+
+        try {
+            try (Reader tabFileReader = new BufferedReader(new InputStreamReader(new FileInputStream(tabFile)));
+                 FileInputStream tailStream = new FileInputStream(tabFile);
+                 FileOutputStream rewrittenStream = new FileOutputStream(rewrittenTabFile)) {
+                Writer rewrittenWriter = new BufferedWriter(new OutputStreamWriter(rewrittenStream));
+                StringBuilder line = new StringBuilder();
+
+                if (saveWithVariableHeader) {
+                    readTabLine(tabFileReader, line);
+                    rewrittenWriter.append(line).write('\n');
+                }
+
+                for (long caseNumber = 0; caseNumber < rewriteCases; caseNumber++) {
+                    if (!readTabLine(tabFileReader, line)) {
+                        throw new IOException("Unexpected end of the tab file " + tabFile.getAbsolutePath() + " at case " + caseNumber);
+                    }
+                    // Unquoted values can't contain tabs, and the tabs in the
+                    // strings are escaped; so this splits the line into
+                    // exactly one value per variable.
+                    String[] caseRow = line.toString().split("\t", -1);
+                    for (int i = 0; i < columnTypes.length; i++) {
+                        ColumnType columnType = columnTypes[i];
+                        if (caseNumber < columnType.formattedFrom) {
+                            String varString = columnType.originalValues.take(caseNumber);
+                            caseRow[i] = formatValue(columnType, varString != null ? varString : caseRow[i]);
+                            if (caseNumber + 1 == columnType.formattedFrom) {
+                                columnType.originalValues.close();
+                            }
+                        }
+                    }
+                    rewrittenWriter.write(StringUtils.join(caseRow, "\t"));
+                    rewrittenWriter.write('\n');
+                }
+                rewrittenWriter.flush();
+
+                FileChannel tail = tailStream.getChannel();
+                FileChannel rewritten = rewrittenStream.getChannel();
+                long position = rewriteOffset;
+                long size = tail.size();
+                while (position < size) {
+                    position += tail.transferTo(position, size - position, rewritten);
                 }
-                finalOut.println(variableNameHeader);
             }
+            Files.move(rewrittenTabFile.toPath(), tabFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(rewrittenTabFile.toPath());
+        }
+    }
 
-            for (CSVRecord record : parser) {
-                if (!record.isConsistent()) {
-                    List<String> args = Arrays.asList(new String[]{"" + (parser.getCurrentLineNumber() - 1),
-                                                                   "" + headers.size(),
-                                                                   "" + record.size()});
-                    throw new IOException(BundleUtil.getStringFromBundle("ingest.csv.recordMismatch", args));
+    /**
+     * Reads one line of a tab file into the buffer supplied. Only '\n' ends a
+     * line, as a '\r' in a string value is saved as it is.
+     *
+     * @return false if there was nothing left to read.
+     */
+    private static boolean readTabLine(Reader reader, StringBuilder line) throws IOException {
+        line.setLength(0);
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (c == '\n') {
+                return true;
+            }
+            line.append((char) c);
+        }
+        return line.length() > 0;
+    }
+
+    /**
+     * Formats a value for the tab file, according to the type currently
+     * inferred for its variable.
+     */
+    private static String formatValue(ColumnType columnType, String varString) {
+        switch (columnType.format) {
+            case INTEGER:
+            case NUMERIC:
+                if (varString == null || varString.isEmpty() || varString.equalsIgnoreCase("NA")) {
+                    // Missing value - represented as an empty string in
+                    // the final tab file
+                    return "";
+                } else if (varString.equalsIgnoreCase("NaN")) {
+                    // "Not a Number" special value:
+                    return "NaN";
+                } else if (varString.equalsIgnoreCase("Inf")
+                        || varString.equalsIgnoreCase("+Inf")) {
+                    // Positive infinity:
+                    return "Inf";
+                } else if (varString.equalsIgnoreCase("-Inf")) {
+                    // Negative infinity:
+                    return "-Inf";
+                } else if (varString.equalsIgnoreCase("null")) {
+                    // By request from Gus - "NULL" is recognized as a
+                    // numeric zero:
+                    return columnType.format == CellFormat.INTEGER ? "0" : "0.0";
                 }
+                /* No re-formatting is done on any other numeric values.
+                 * We'll save them as they were, for archival purposes.
+                 * The alternative solution - formatting in sci. notation
+                 * is commented-out below.
+                 */
+                /*
+                if (columnType.format == CellFormat.NUMERIC) {
+                    try {
+                        Double testDoubleValue = new Double(varString);
+                        if (testDoubleValue.equals(0.0)) {
+                            return "0.0";
+                        }
+                        // One possible implementation:
+                        //
+                        // Round our fractional values to 15 digits
+                        // (minimum number of digits of precision guaranteed by
+                        // type Double) and format the resulting representations
+                        // in a IEEE 754-like "scientific notation" - for ex.,
+                        // 753.24 will be encoded as 7.5324e2
+                        BigDecimal testBigDecimal = new BigDecimal(varString, doubleMathContext);
+                        String formatted = String.format(FORMAT_IEEE754, testBigDecimal);
+
+                        // Strip meaningless zeros and extra + signs:
+                        formatted = formatted.replaceFirst("00*e", "e");
+                        formatted = formatted.replaceFirst("\\.e", ".0e");
+                        formatted = formatted.replaceFirst("e\\+00", "");
+                        return formatted.replaceFirst("^\\+", "");
+                    } catch (NumberFormatException ex) {
+                        throw new IOException("Failed to parse a value recognized as numeric! (?)");
+                    }
+                }
+                 */
+                return varString;
+            case DATE_TIME:
+                // Time and Dates are stored NOT quoted (don't ask).
+                if (varString != null) {
+                    // Dealing with quotes:
+                    // remove the leading and trailing quotes, if present:
+                    varString = varString.replaceFirst("^\"*", "");
+                    return varString.replaceFirst("\"*$", "");
+                }
+                return "";
+            default:
+                // Treat as a String:
+                // Strings are stored in tab files quoted;
+                // Missing values are stored as an empty string
+                // between two tabs (or one tab and the new line);
+                // Empty strings stored as "" (quoted empty string).
+                // For the purposes  of this CSV ingest reader, we are going
+                // to assume that all the empty strings in the file are
+                // indeed empty strings, and NOT missing values:
+                if (varString != null) {
+                    // escape the quotes, newlines, and tabs:
+                    varString = varString.replace("\"", "\\\"");
+                    varString = varString.replace("\n", "\\n");
+                    varString = varString.replace("\t", "\\t");
+                    // final pair of quotes:
+                    return "\"" + varString + "\"";
+                }
+                return "\"\"";
+        }
+    }
 
-                for (i = 0; i < headers.size(); i++) {
-                    String varString = record.get(i);
-                    if (isNumericVariable[i]) {
-                        if (varString == null || varString.isEmpty() || varString.equalsIgnoreCase("NA")) {
-                            // Missing value - represented as an empty string in
-                            // the final tab file
-                            caseRow[i] = "";
-                        } else if (varString.equalsIgnoreCase("NaN")) {
-                            // "Not a Number" special value:
-                            caseRow[i] = "NaN";
-                        } else if (varString.equalsIgnoreCase("Inf")
-                                || varString.equalsIgnoreCase("+Inf")) {
-                            // Positive infinity:
-                            caseRow[i] = "Inf";
-                        } else if (varString.equalsIgnoreCase("-Inf")) {
-                            // Negative infinity:
-                            caseRow[i] = "-Inf";
-                        } else if (varString.equalsIgnoreCase("null")) {
-                            // By request from Gus - "NULL" is recognized as a
-                            // numeric zero:
-                            caseRow[i] = isIntegerVariable[i] ? "0" : "0.0";
+    /**
+     * How the values of a variable are written to the tab file; in the order
+     * in which the inferred type of the variable can be widened.
+     */
+    private enum CellFormat {
+        INTEGER, NUMERIC, DATE_TIME, STRING
+    }
+
+    /**
+     * The type inferred for a variable, from the values read so far.
+     */
+    private static class ColumnType {
+
+        boolean isNumeric = true;
+        boolean isInteger = true;
+        boolean isTime = true;
+        boolean isDate = true;
+        SimpleDateFormat selectedDateTimeFormat;
+        SimpleDateFormat selectedDateFormat;
+
+        // The format of the values written since case number formattedFrom:
+        CellFormat format = CellFormat.INTEGER;
+        long formattedFrom = 0;
+        // The values that were altered when they were written:
+        final OriginalValues originalValues;
+        // Whether a "null" was written as an integer zero ("0", rather than
+        // the numeric "0.0"):
+        boolean integerZeros = false;
+
+        ColumnType(File spillDirectory) {
+            originalValues = new OriginalValues(spillDirectory);
+        }
+
+        CellFormat getCellFormat() {
+            if (isNumeric) {
+                return isInteger ? CellFormat.INTEGER : CellFormat.NUMERIC;
+            } else if (isTime || isDate) {
+                return CellFormat.DATE_TIME;
+            }
+            return CellFormat.STRING;
+        }
+
+        /**
+         * @return whether the values written in the current format may be
+         * written differently in the wider format: a date or time, or a
+         * string, may differ; a numeric only differs in the zeros written for
+         * "null" as integers (the rest are written the same)
+         */
+        boolean formatsDifferently(CellFormat widened) {
+            if (widened == CellFormat.DATE_TIME || widened == CellFormat.STRING) {
+                return true;
+            }
+            return format == CellFormat.INTEGER && integerZeros;
+        }
+
+        void learn(String varString) {
+            if (varString != null && StringUtils.containsAny(varString, '\t', '\n', '\r')) {
+                // Only strings are escaped in the tab file.
+                isNumeric = false;
+                isInteger = false;
+                isTime = false;
+                isDate = false;
+                return;
+            }
+
+            isInteger = isInteger
+                        && varString != null
+                        && (varString.isEmpty()
+                            || varString.equals("null")
+                            || (StringUtils.isNumeric(varString)
+                                 || (varString.substring(0,1).matches("[+-]") 
+                                     && StringUtils.isNumeric(varString.substring(1)))));
+            if (isNumeric) {
+                // If variable might be "numeric" test to see if this value is a parsable number:
+                if (varString != null && !varString.isEmpty()) {
+
+                    if (varString.equalsIgnoreCase("NaN")
+                        || varString.equalsIgnoreCase("NA")
+                        || varString.equalsIgnoreCase("Inf")
+                        || varString.equalsIgnoreCase("+Inf")
+                        || varString.equalsIgnoreCase("-Inf")
+                        || varString.equalsIgnoreCase("null")) {
+                        return;
+                    } else {
+                        try {
+                            Double.parseDouble(varString);
+                            return;
+                        } catch (NumberFormatException ex) {
+                            // the token failed to parse as a double
+                            // so the column is a string variable.
+                        }
+                    }
+                    isNumeric = false;
+                }
+            }
+
+            // If this is not a numeric column, see if it is a date collumn
+            // by parsing the cell as a date or date-time value:
+            if (!isNumeric) {
+
+                Date dateResult = null;
+
+                if (isTime) {
+                    if (varString != null && !varString.isEmpty()) {
+                        boolean isTimeValue = false;
+
+                        if (selectedDateTimeFormat != null) {
+                            ParsePosition pos = new ParsePosition(0);
+                            dateResult = selectedDateTimeFormat.parse(varString, pos);
+
+                            if (dateResult != null && pos.getIndex() == varString.length()) {
+                                // OK, successfully parsed a value!
+                                isTimeValue = true;
+                            }
                         } else {
-                            /* No re-formatting is done on any other numeric values.
-                             * We'll save them as they were, for archival purposes.
-                             * The alternative solution - formatting in sci. notation
-                             * is commented-out below.
-                             */
-                            caseRow[i] = varString;
-                            /*
-                             if (isIntegerVariable[i]) {
-                                try {
-                                    Integer testIntegerValue = new Integer(varString);
-                                    caseRow[i] = testIntegerValue.toString();
-                                } catch (NumberFormatException ex) {
-                                    throw new IOException("Failed to parse a value recognized as an integer in the first pass! (?)");
-                                }
-                            } else {
-                                try {
-                                    Double testDoubleValue = new Double(varString);
-                                    if (testDoubleValue.equals(0.0)) {
-                                        caseRow[i] = "0.0";
-                                    } else {
-                                                                            // One possible implementation:
-                                        //
-                                        // Round our fractional values to 15 digits
-                                        // (minimum number of digits of precision guaranteed by
-                                        // type Double) and format the resulting representations
-                                        // in a IEEE 754-like "scientific notation" - for ex.,
-                                        // 753.24 will be encoded as 7.5324e2
-                                        BigDecimal testBigDecimal = new BigDecimal(varString, doubleMathContext);
-                                        caseRow[i] = String.format(FORMAT_IEEE754, testBigDecimal);
-
-                                        // Strip meaningless zeros and extra + signs:
-                                        caseRow[i] = caseRow[i].replaceFirst("00*e", "e");
-                                        caseRow[i] = caseRow[i].replaceFirst("\\.e", ".0e");
-                                        caseRow[i] = caseRow[i].replaceFirst("e\\+00", "");
-                                        caseRow[i] = caseRow[i].replaceFirst("^\\+", "");
-                                    }
-                                } catch (NumberFormatException ex) {
-                                    throw new IOException("Failed to parse a value recognized as numeric in the first pass! (?)");
+                            for (SimpleDateFormat format : TIME_FORMATS) {
+                                ParsePosition pos = new ParsePosition(0);
+                                dateResult = format.parse(varString, pos);
+                                if (dateResult != null && pos.getIndex() == varString.length()) {
+                                    // OK, successfully parsed a value!
+                                    isTimeValue = true;
+                                    selectedDateTimeFormat = format;
+                                    break;
                                 }
                             }
-                             */
                         }
-                    } else if (isTimeVariable[i] || isDateVariable[i]) {
-                        // Time and Dates are stored NOT quoted (don't ask).
-                        if (varString != null) {
-                            // Dealing with quotes:
-                            // remove the leading and trailing quotes, if present:
-                            varString = varString.replaceFirst("^\"*", "");
-                            varString = varString.replaceFirst("\"*$", "");
-                            caseRow[i] = varString;
+                        if (!isTimeValue) {
+                            isTime = false;
+                            // if the token didn't parse as a time value,
+                            // we will still try to parse it as a date, below.
+                            // unless this column is NOT a date.
                         } else {
-                            caseRow[i] = "";
+                            // And if it is a time value, we are going to assume it's
+                            // NOT a date.
+                            isDate = false;
                         }
-                    } else {
-                        // Treat as a String:
-                        // Strings are stored in tab files quoted;
-                        // Missing values are stored as an empty string
-                        // between two tabs (or one tab and the new line);
-                        // Empty strings stored as "" (quoted empty string).
-                        // For the purposes  of this CSV ingest reader, we are going
-                        // to assume that all the empty strings in the file are
-                        // indeed empty strings, and NOT missing values:
-                        if (varString != null) {
-                            // escape the quotes, newlines, and tabs:
-                            varString = varString.replace("\"", "\\\"");
-                            varString = varString.replace("\n", "\\n");
-                            varString = varString.replace("\t", "\\t");
-                            // final pair of quotes:
-                            varString = "\"" + varString + "\"";
-                            caseRow[i] = varString;
-                        } else {
-                            caseRow[i] = "\"\"";
+                    }
+                }
+
+                if (isDate) {
+                    if (varString != null && !varString.isEmpty()) {
+                        boolean isDateValue = false;
+
+                        // TODO:
+                        // Strictly speaking, we should be doing the same thing
+                        // here as with the time formats above; select the
+                        // first one that works, then insist that all the
+                        // other values in this column match it... but we
+                        // only have one, as of now, so it should be ok.
+                        // -- L.A. 4.0 beta
+                        for (SimpleDateFormat format : DATE_FORMATS) {
+                            // Strict parsing - it will throw an
+                            // exception if it doesn't parse!
+                            format.setLenient(false);
+                            try {
+                                format.parse(varString);
+                                isDateValue = true;
+                                selectedDateFormat = format;
+                                break;
+                            } catch (ParseException ex) {
+                                //Do nothing
+                            }
                         }
+                        isDate = isDateValue;
                     }
                 }
-                finalOut.println(StringUtils.join(caseRow, "\t"));
             }
         }
-        long linecount = parser.getRecordNumber();
-        finalOut.close();
-        parser.close();
-        logger.fine("Tmp File: " + firstPassTempFile);
-        // Firstpass file is deleted to prevent tmp from filling up.
-        firstPassTempFile.delete();
-        if (dataTable.getCaseQuantity().intValue() != linecount) {
-            List<String> args = Arrays.asList(new String[]{"" + dataTable.getCaseQuantity().intValue(),
-                                                           "" + linecount});
-            throw new IOException(BundleUtil.getStringFromBundle("ingest.csv.line_mismatch", args));
+    }
+
+    /**
+     * The original values of the cases of a variable that were altered when
+     * written to the tab file (e.g. "NA" written as a missing value), indexed
+     * by case number. Values are added, and taken back, in case order.
+     * <p>
+     * Only the last values added are kept in memory; the earlier ones are
+     * spilled to a temp file, read back (in order) as they are taken, so that
+     * a variable with many missing values doesn't hold the whole column.
+     */
+    private static class OriginalValues implements Closeable {
+
+        static final int MAX_IN_MEMORY = 1024;
+
+        private final File directory;
+        private long[] caseNumbers = new long[16];
+        private String[] values = new String[16];
+        private int size = 0;
+        private int next = 0;
+
+        private File spillFile;
+        private DataOutputStream spillOutput;
+        private DataInputStream spillInput;
+        private long spilled = 0;
+        // the next spilled value, once read back:
+        private long spilledCaseNumber = -1;
+        private String spilledValue;
+
+        OriginalValues(File directory) {
+            this.directory = directory;
+        }
+
+        void add(long caseNumber, String value) throws IOException {
+            if (size == MAX_IN_MEMORY) {
+                spill();
+            } else if (size == values.length) {
+                caseNumbers = Arrays.copyOf(caseNumbers, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            caseNumbers[size] = caseNumber;
+            values[size++] = value;
+        }
+
+        private void spill() throws IOException {
+            if (spillOutput == null) {
+                spillFile = File.createTempFile("csv-values-", ".tmp", directory);
+                spillOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile)));
+            }
+            for (int i = 0; i < size; i++) {
+                spillOutput.writeLong(caseNumbers[i]);
+                writeValue(spillOutput, values[i]);
+                values[i] = null;
+            }
+            spilled += size;
+            size = 0;
+        }
+
+        /**
+         * @return the original value of the case, or null if it was written
+         * as it was.
+         */
+        String take(long caseNumber) throws IOException {
+            while (spilledCaseNumber < caseNumber && nextSpilled()) {
+                // skipping the spilled values of the cases before this one
+            }
+            if (spilledCaseNumber == caseNumber) {
+                spilledCaseNumber = -1;
+                return spilledValue;
+            }
+            if (spilledCaseNumber > caseNumber) {
+                return null;
+            }
+            while (next < size && caseNumbers[next] < caseNumber) {
+                next++;
+            }
+            if (next < size && caseNumbers[next] == caseNumber) {
+                String value = values[next];
+                values[next++] = null;
+                return value;
+            }
+            return null;
+        }
+
+        /**
+         * Reads back the next spilled value, if any is left.
+         */
+        private boolean nextSpilled() throws IOException {
+            if (spilled == 0) {
+                spilledCaseNumber = -1;
+                return false;
+            }
+            if (spillInput == null) {
+                spillOutput.close();
+                spillInput = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile)));
+            }
+            spilledCaseNumber = spillInput.readLong();
+            spilledValue = readValue(spillInput);
+            spilled--;
+            return true;
+        }
+
+        private static void writeValue(DataOutputStream output, String value) throws IOException {
+            if (value == null) {
+                output.writeInt(-1);
+            } else {
+                // (not writeUTF(), limited to 64K bytes per value)
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+        }
+
+        private static String readValue(DataInputStream input) throws IOException {
+            int length = input.readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            input.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Drops the values of the cases from caseNumber on, which are not
+         * taken; the ones already spilled are never read back.
+         */
+        void discardFrom(long caseNumber) {
+            while (size > next && caseNumbers[size - 1] >= caseNumber) {
+                values[--size] = null;
+            }
+        }
+
+        /**
+         * Drops the values, and the temp file they were spilled to, if any.
+         */
+        @Override
+        public void close() throws IOException {
+            caseNumbers = new long[0];
+            values = new String[0];
+            size = 0;
+            next = 0;
+            spilled = 0;
+            spilledCaseNumber = -1;
+            spilledValue = null;
+            try {
+                if (spillInput != null) {
+                    spillInput.close();
+                } else if (spillOutput != null) {
+                    spillOutput.close();
+                }
+            } finally {
+                spillInput = null;
+                spillOutput = null;
+                if (spillFile != null) {
+                    Files.deleteIfExists(spillFile.toPath());
+                    spillFile = null;
+                }
+            }
         }
-        return (int) linecount;
     }
 
 }
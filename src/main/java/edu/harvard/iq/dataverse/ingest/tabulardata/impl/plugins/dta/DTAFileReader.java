@@ -1726,32 +1726,51 @@ public class DTAFileReader extends TabularDataFileReader{
             pwout.println(generateVariableHeader(dataTable.getDataVariables())); 
         }
 
-        for (int i = 0; i < nobs; i++) {
-            byte[] dataRowBytes = new byte[bytes_per_row];
-            Object[] dataRow = new Object[nvar];
+        // The type of each column doesn't change from row to row; 
+        // let's look it up once:
+        Integer[] columnTypes = new Integer[variableTypes.length];
+        boolean[] isDateTimeVariable = new boolean[variableTypes.length];
+        for (int columnCounter = 0; columnCounter < variableTypes.length; columnCounter++) {
+            columnTypes[columnCounter] = variableTypeMap.get(variableTypes[columnCounter]);
+            String formatCategory = dataTable.getDataVariables().get(columnCounter).getFormatCategory();
+            isDateTimeVariable[columnCounter] = formatCategory != null && (formatCategory.equals("time") || formatCategory.equals("date"));
+        }
+
+        // The row buffers are reused: every row is written out before the 
+        // next one is read; and the numeric values are decoded in place, 
+        // in the byte order of the file.
+        byte[] dataRowBytes = new byte[bytes_per_row];
+        ByteBuffer dataRowBuffer = ByteBuffer.wrap(dataRowBytes);
+        if (isLittleEndian) {
+            dataRowBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        Object[] dataRow = new Object[nvar];
 
+        for (int i = 0; i < nobs; i++) {
             int nbytes = stream.read(dataRowBytes, 0, bytes_per_row);
 
-            if (nbytes == 0) {
+            if (nbytes <= 0) {
                 String errorMessage = "reading data: no data were read at("
                         + i + "th row)";
                 throw new IOException(errorMessage);
             }
+            while (nbytes < bytes_per_row) {
+                int morebytes = stream.read(dataRowBytes, nbytes, bytes_per_row - nbytes);
+                if (morebytes <= 0) {
+                    throw new IOException("reading data: unexpected end of data at(" + i + "th row)");
+                }
+                nbytes += morebytes;
+            }
             // decoding each row
             int byte_offset = 0;
             for (int columnCounter = 0;
                     columnCounter < variableTypes.length; columnCounter++) {
 
-                Integer varType
-                        = variableTypeMap.get(variableTypes[columnCounter]);
+                Integer varType = columnTypes[columnCounter];
 
 
                 // 4.0 Check if this is a time/date variable: 
-                boolean isDateTimeDatum = false; 
-                String formatCategory = dataTable.getDataVariables().get(columnCounter).getFormatCategory();
-                if (formatCategory != null && (formatCategory.equals("time") || formatCategory.equals("date"))) {
-                    isDateTimeDatum = true; 
-                }
+                boolean isDateTimeDatum = isDateTimeVariable[columnCounter];
 
                 String variableFormat = dateVariableFormats[columnCounter];
 
@@ -1780,13 +1799,7 @@ public class DTAFileReader extends TabularDataFileReader{
                     case -4:
                         // Stata-int (=java's short: 2byte) case
                         // note: 2-byte signed int, not java's int
-                        ByteBuffer int_buffer
-                                = ByteBuffer.wrap(dataRowBytes, byte_offset, 2);
-                        if (isLittleEndian) {
-                            int_buffer.order(ByteOrder.LITTLE_ENDIAN);
-
-                        }
-                        short short_datum = int_buffer.getShort();
+                        short short_datum = dataRowBuffer.getShort(byte_offset);
 
                         if (dbgLog.isLoggable(Level.FINER)) {
                             dbgLog.finer(i + "-th row " + columnCounter
@@ -1821,13 +1834,7 @@ public class DTAFileReader extends TabularDataFileReader{
                         // note: 4-byte singed, not java's long
                         //dbgLog.fine("DATreader: stata long");
 
-                        ByteBuffer long_buffer
-                                = ByteBuffer.wrap(dataRowBytes, byte_offset, 4);
-                        if (isLittleEndian) {
-                            long_buffer.order(ByteOrder.LITTLE_ENDIAN);
-
-                        }
-                        int int_datum = long_buffer.getInt();
+                        int int_datum = dataRowBuffer.getInt(byte_offset);
 
                         if (dbgLog.isLoggable(Level.FINE)) {
                             //dbgLog.fine(i + "-th row " + columnCounter
@@ -1858,12 +1865,7 @@ public class DTAFileReader extends TabularDataFileReader{
                     case -2:
                         // float case
                         // note: 4-byte
-                        ByteBuffer float_buffer
-                                = ByteBuffer.wrap(dataRowBytes, byte_offset, 4);
-                        if (isLittleEndian) {
-                            float_buffer.order(ByteOrder.LITTLE_ENDIAN);
-                        }
-                        float float_datum = float_buffer.getFloat();
+                        float float_datum = dataRowBuffer.getFloat(byte_offset);
 
                         if (dbgLog.isLoggable(Level.FINER)) {
                             dbgLog.finer(i + "-th row " + columnCounter
@@ -1900,12 +1902,7 @@ public class DTAFileReader extends TabularDataFileReader{
                     case -1:
                         // double case
                         // note: 8-byte
-                        ByteBuffer double_buffer
-                                = ByteBuffer.wrap(dataRowBytes, byte_offset, 8);
-                        if (isLittleEndian) {
-                            double_buffer.order(ByteOrder.LITTLE_ENDIAN);
-                        }
-                        double double_datum = double_buffer.getDouble();
+                        double double_datum = dataRowBuffer.getDouble(byte_offset);
 
                         if (DOUBLE_MISSING_VALUE_SET.contains(double_datum)) {
                             if (dbgLog.isLoggable(Level.FINER)) {
@@ -1932,8 +1929,8 @@ public class DTAFileReader extends TabularDataFileReader{
                     case 0:
                         // String case
                         int strVarLength = StringLengthTable.get(columnCounter);
-                        String raw_datum = new String(Arrays.copyOfRange(dataRowBytes, byte_offset,
-                                (byte_offset + strVarLength)), StandardCharsets.ISO_8859_1);
+                        String raw_datum = new String(dataRowBytes, byte_offset,
+                                strVarLength, StandardCharsets.ISO_8859_1);
                         // TODO: 
                         // is it the right thing to do, to default to "ISO-8859-1"?
                         // (it may be; since there's no mechanism for specifying
@@ -4,6 +4,7 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.logging.Logger;
@@ -13,6 +14,8 @@ public class DataReader {
     private BufferedInputStream stream;
     private int DEFAULT_BUFFER_SIZE = 8192;// * 2;
     private byte[] buffer;
+    // the same bytes, for decoding the primitive types in place:
+    private ByteBuffer byteBuffer;
     private int buffer_size;
     private long byte_offset;
     private int buffer_byte_offset;
@@ -23,11 +26,12 @@ public class DataReader {
     }
 
     public DataReader(BufferedInputStream stream, int size) throws IOException {
-        if (buffer_size > 0) {
+        if (size > 0) {
             this.DEFAULT_BUFFER_SIZE = size;
         }
         this.stream = stream;
         buffer = new byte[DEFAULT_BUFFER_SIZE];
+        byteBuffer = ByteBuffer.wrap(buffer);
         byte_offset = 0;
         buffer_byte_offset = 0;
 
@@ -36,6 +40,7 @@ public class DataReader {
 
     public void setLSF(boolean lsf) {
         LSF = lsf;
+        byteBuffer.order(lsf ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
     }
 
     // this returns the *absolute* byte offest in the stream. 
@@ -124,7 +129,9 @@ public class DataReader {
             System.arraycopy(buffer, buffer_byte_offset, buffer, 0, buffer_size - buffer_byte_offset);
             this.buffer_size = buffer_size - buffer_byte_offset;
             actual_bytes_read = stream.read(buffer, buffer_size, DEFAULT_BUFFER_SIZE - buffer_size);
-            buffer_size += actual_bytes_read;
+            if (actual_bytes_read > 0) {
+                buffer_size += actual_bytes_read;
+            }
 
         } else {
             throw new IOException("Offset already past the buffer boundary");
@@ -135,13 +142,43 @@ public class DataReader {
     }
 
     /*
-     * Checks that LSF is not null, and sets the buffer byte order accordingly
+     * Makes sure that the next n bytes (no more than the size of the buffer)
+     * are in the buffer, reading more from the stream if necessary.
+     */
+    private void ensureBuffered(int n) throws IOException {
+        while (this.buffer_size - buffer_byte_offset < n) {
+            if (bufferMoreBytes() < 1) {
+                throw new IOException("reached the end of data stream prematurely.");
+            }
+        }
+    }
+
+    /*
+     * Checks that LSF is not null; i.e., that the byte order of the 
+     * buffer has been set.
      */
-    private void checkLSF(ByteBuffer buffer) throws IOException{
+    private void checkLSF() throws IOException{
         if (LSF == null) {
             throw new IOException("Byte order not determined for reading numeric values.");
-        } else if (LSF) {
-            buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /*
+     * Skips the next n bytes, without copying them anywhere.
+     */
+    public void skipBytes(long n) throws IOException {
+        if (n < 0) {
+            throw new IOException("DataReader.skipBytes called to skip a negative number of bytes.");
+        }
+        while (n > 0) {
+            if (buffer_byte_offset >= this.buffer_size) {
+                if (bufferMoreBytes() < 1) {
+                    throw new IOException("reached the end of data stream prematurely.");
+                }
+            }
+            int skipped = (int) Math.min(n, this.buffer_size - buffer_byte_offset);
+            buffer_byte_offset += skipped;
+            n -= skipped;
         }
     }
 
@@ -189,9 +226,10 @@ public class DataReader {
      * (signed integer and floating-point types), and to read numeric 
      * values encoded as unsigned bytes in various sections of the file, 
      * advertising the lengths of the data sections that follow. 
-     * Note that the internal methods bytesToInt() and bytesToSignedInt()
-     * will throw an exception if LSF (byte order flag) has not yet been 
-     * set.
+     * The values are decoded directly from the read buffer, so reading 
+     * them doesn't allocate anything. 
+     * Note that these methods will throw an exception if LSF (byte order
+     * flag) has not yet been set.
      */
     // Unsigned integer methods readUInt() and readUShort()
     // return long (8 byte) and int (4 byte) integers for overflow reasons
@@ -208,34 +246,36 @@ public class DataReader {
     }
 
     public short readShort() throws IOException {
-        ByteBuffer byte_buffer = ByteBuffer.wrap(readBytes(2));
-        checkLSF(byte_buffer);
-        return byte_buffer.getShort();
+        checkLSF();
+        ensureBuffered(2);
+        short ret = byteBuffer.getShort(buffer_byte_offset);
+        buffer_byte_offset += 2;
+        return ret;
     }
 
     public int readInt() throws IOException {
-        ByteBuffer byte_buffer = ByteBuffer.wrap(readBytes(4));
-        checkLSF(byte_buffer);
-        return byte_buffer.getInt();
+        checkLSF();
+        ensureBuffered(4);
+        int ret = byteBuffer.getInt(buffer_byte_offset);
+        buffer_byte_offset += 4;
+        return ret;
     }
 
     public long readULong(int n) throws IOException {
-        byte[] raw_bytes = readBytes(n);
-        if (LSF == null) {
-            throw new IOException("Byte order not determined for reading numeric values.");
-        }
+        checkLSF();
 
         if (n != 2 && n != 4 && n != 6 && n != 8) {
             throw new IOException("Unsupported number of bytes in an integer: " + n);
         }
+        ensureBuffered(n);
         long ret = 0;
         short unsigned_byte_value;
 
         for (int i = 0; i < n; i++) {
             if (LSF) {
-                unsigned_byte_value = raw_bytes[i];
+                unsigned_byte_value = buffer[buffer_byte_offset + i];
             } else {
-                unsigned_byte_value = raw_bytes[n - i - 1];
+                unsigned_byte_value = buffer[buffer_byte_offset + n - i - 1];
             }
 
             if (unsigned_byte_value < 0) {
@@ -244,6 +284,7 @@ public class DataReader {
 
             ret += unsigned_byte_value * (1L << (8 * i));
         }
+        buffer_byte_offset += n;
         if(ret < 0){
             throw new IOException("Sorry for hoping this wouldn't be used with values over 2^63-1");
         }
@@ -252,15 +293,19 @@ public class DataReader {
 
     // Floating point reader methods: 
     public double readDouble() throws IOException {
-        ByteBuffer byte_buffer = ByteBuffer.wrap(readBytes(8));
-        checkLSF(byte_buffer);
-        return byte_buffer.getDouble();
+        checkLSF();
+        ensureBuffered(8);
+        double ret = byteBuffer.getDouble(buffer_byte_offset);
+        buffer_byte_offset += 8;
+        return ret;
     }
 
     public float readFloat() throws IOException {
-        ByteBuffer byte_buffer = ByteBuffer.wrap(readBytes(4));
-        checkLSF(byte_buffer);
-        return byte_buffer.getFloat();
+        checkLSF();
+        ensureBuffered(4);
+        float ret = byteBuffer.getFloat(buffer_byte_offset);
+        buffer_byte_offset += 4;
+        return ret;
     }
 
 
@@ -273,27 +318,36 @@ public class DataReader {
      * a String as is. 
      */
     public String readString(int n) throws IOException {
-
-        String ret = new String(readBytes(n), StandardCharsets.US_ASCII);
-
-        // Remove the terminating and/or padding zero bytes:
-        if (ret != null && ret.indexOf(0) > -1) {
-            return ret.substring(0, ret.indexOf(0));
-        }
-        return ret;
+        return readNullTerminatedString(n, StandardCharsets.US_ASCII);
     }
     
     /* 
      * Same, but expecting potential Unicode characters.
      */
     public String readUtfString(int n) throws IOException {
+        return readNullTerminatedString(n, StandardCharsets.UTF_8);
+    }
 
-        String ret = new String(readBytes(n), StandardCharsets.UTF_8);
+    private String readNullTerminatedString(int n, Charset charset) throws IOException {
+        if (n <= 0 || n > DEFAULT_BUFFER_SIZE) {
+            String ret = new String(readBytes(n), charset);
+
+            // Remove the terminating and/or padding zero bytes:
+            if (ret.indexOf(0) > -1) {
+                return ret.substring(0, ret.indexOf(0));
+            }
+            return ret;
+        }
 
-        // Remove the terminating and/or padding zero bytes:
-        if (ret.indexOf(0) > -1) {
-            return ret.substring(0, ret.indexOf(0));
+        // Decode the string straight from the buffer, up to the first 
+        // terminating and/or padding zero byte:
+        ensureBuffered(n);
+        int length = 0;
+        while (length < n && buffer[buffer_byte_offset + length] != 0) {
+            length++;
         }
+        String ret = new String(buffer, buffer_byte_offset, length, charset);
+        buffer_byte_offset += n;
         return ret;
     }
 
@@ -386,7 +440,7 @@ public class DataReader {
             if (number < 0) {
                 throw new IOException("<negative number of bytes in skipDefinedSection(\"tag\")?>");
             }
-            byte[] skipped_bytes = readBytes((int) number);
+            skipBytes(number);
             readClosingTag(tag);
             logger.fine("read closing tag </" + tag + ">;");
 
@@ -25,6 +25,7 @@ import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import edu.harvard.iq.dataverse.DataTable;
@@ -743,10 +744,26 @@ public class NewDTAFileReader extends TabularDataFileReader {
             pwout.println(variableHeaderLine); 
         }
         
+        // The type of each column doesn't change from row to row; 
+        // let's look it up once:
+        boolean[] isDateTimeVariable = new boolean[nvar];
+        boolean[] isFixedStringVariable = new boolean[nvar];
+        for (int columnCounter = 0; columnCounter < nvar; columnCounter++) {
+            String formatCategory = dataTable.getDataVariables().get(columnCounter).getFormatCategory();
+            isDateTimeVariable[columnCounter] = formatCategory != null && (formatCategory.equals("time") || formatCategory.equals("date"));
+            isFixedStringVariable[columnCounter] = variableTypes[columnCounter] != null && variableTypes[columnCounter].matches("^STR[1-9][0-9]*");
+        }
+
+        // Building the logging messages below is expensive enough to be 
+        // avoided for every value, unless they are actually logged:
+        boolean logValues = logger.isLoggable(Level.FINE);
+
         logger.fine("Beginning to read data stream.");
 
+        // (the row array is reused; every row is written out before the next one is read)
+        Object[] dataRow = new Object[nvar];
+
         for (int i = 0; i < nobs; i++) {
-            Object[] dataRow = new Object[nvar];
 
             // TODO: 
             // maybe intercept any potential exceptions here, and add more 
@@ -757,11 +774,7 @@ public class NewDTAFileReader extends TabularDataFileReader {
                 String varType = variableTypes[columnCounter];
 
                 // 4.0 Check if this is a time/date variable: 
-                boolean isDateTimeDatum = false;
-                String formatCategory = dataTable.getDataVariables().get(columnCounter).getFormatCategory();
-                if (formatCategory != null && (formatCategory.equals("time") || formatCategory.equals("date"))) {
-                    isDateTimeDatum = true;
-                }
+                boolean isDateTimeDatum = isDateTimeVariable[columnCounter];
 
                 String variableFormat = dateVariableFormats[columnCounter];
 
@@ -772,42 +785,56 @@ public class NewDTAFileReader extends TabularDataFileReader {
                 if (varType.equals("Byte")) { // signed
                     byte byte_datum = reader.readByte();
 
-                    logger.fine(i + "-th row " + columnCounter
-                            + "=th column byte =" + byte_datum);
-                    if (byte_datum >= BYTE_MISSING_VALUE) {
+                    if (logValues) {
                         logger.fine(i + "-th row " + columnCounter
-                                + "=th column byte MV=" + byte_datum);
+                                + "=th column byte =" + byte_datum);
+                    }
+                    if (byte_datum >= BYTE_MISSING_VALUE) {
+                        if (logValues) {
+                            logger.fine(i + "-th row " + columnCounter
+                                    + "=th column byte MV=" + byte_datum);
+                        }
                         dataRow[columnCounter] = MissingValueForTabDelimitedFile;
                     } else {
                         dataRow[columnCounter] = byte_datum;
-                        logger.fine(i + "-th row " + columnCounter
-                                + "-th column byte value=" + byte_datum);
+                        if (logValues) {
+                            logger.fine(i + "-th row " + columnCounter
+                                    + "-th column byte value=" + byte_datum);
+                        }
                     }
 
                     byte_offset++;
                 } else if (varType.equals("Integer")) { // signed
                     short short_datum = (short) reader.readShort();
 
-                    logger.fine(i + "-th row " + columnCounter
-                            + "=th column stata int =" + short_datum);
+                    if (logValues) {
+                        logger.fine(i + "-th row " + columnCounter
+                                + "=th column stata int =" + short_datum);
+                    }
 
                     if (short_datum >= INT_MISSIG_VALUE) {
-                        logger.fine(i + "-th row " + columnCounter
-                                + "=th column stata long missing value=" + short_datum);
+                        if (logValues) {
+                            logger.fine(i + "-th row " + columnCounter
+                                    + "=th column stata long missing value=" + short_datum);
+                        }
                         dataRow[columnCounter] = MissingValueForTabDelimitedFile;
                     } else {
 
                         if (isDateTimeDatum) {
 
                             DecodedDateTime ddt = decodeDateTimeData("short", variableFormat, Short.toString(short_datum));
-                            logger.fine(i + "-th row , decodedDateTime " + ddt.decodedDateTime + ", format=" + ddt.format);
+                            if (logValues) {
+                                logger.fine(i + "-th row , decodedDateTime " + ddt.decodedDateTime + ", format=" + ddt.format);
+                            }
                             dataRow[columnCounter] = ddt.decodedDateTime;
                             dataTable.getDataVariables().get(columnCounter).setFormat(ddt.format);
 
                         } else {
                             dataRow[columnCounter] = short_datum;
-                            logger.fine(i + "-th row " + columnCounter
-                                    + "-th column \"integer\" value=" + short_datum);
+                            if (logValues) {
+                                logger.fine(i + "-th row " + columnCounter
+                                        + "-th column \"integer\" value=" + short_datum);
+                            }
                         }
                     }
                     byte_offset += 2;
@@ -819,14 +846,18 @@ public class NewDTAFileReader extends TabularDataFileReader {
                     } else {
                         if (isDateTimeDatum) {
                             DecodedDateTime ddt = decodeDateTimeData("int", variableFormat, Integer.toString(int_datum));
-                            logger.fine(i + "-th row , decodedDateTime " + ddt.decodedDateTime + ", format=" + ddt.format);
+                            if (logValues) {
+                                logger.fine(i + "-th row , decodedDateTime " + ddt.decodedDateTime + ", format=" + ddt.format);
+                            }
                             dataRow[columnCounter] = ddt.decodedDateTime;
                             dataTable.getDataVariables().get(columnCounter).setFormat(ddt.format);
 
                         } else {
                             dataRow[columnCounter] = int_datum;
-                            logger.fine(i + "-th row " + columnCounter
-                                    + "-th column \"long\" value=" + int_datum);
+                            if (logValues) {
+                                logger.fine(i + "-th row " + columnCounter
+                                        + "-th column \"long\" value=" + int_datum);
+                            }
                         }
 
                     }
@@ -835,24 +866,32 @@ public class NewDTAFileReader extends TabularDataFileReader {
 
                     float float_datum = reader.readFloat();
 
-                    logger.fine(i + "-th row " + columnCounter
-                            + "=th column float =" + float_datum);
-                    if (FLOAT_MISSING_VALUE_SET.contains(float_datum)) {
+                    if (logValues) {
                         logger.fine(i + "-th row " + columnCounter
-                                + "=th column float missing value=" + float_datum);
+                                + "=th column float =" + float_datum);
+                    }
+                    if (FLOAT_MISSING_VALUE_SET.contains(float_datum)) {
+                        if (logValues) {
+                            logger.fine(i + "-th row " + columnCounter
+                                    + "=th column float missing value=" + float_datum);
+                        }
                         dataRow[columnCounter] = MissingValueForTabDelimitedFile;
 
                     } else {
 
                         if (isDateTimeDatum) {
                             DecodedDateTime ddt = decodeDateTimeData("float", variableFormat, doubleNumberFormatter.format(float_datum));
-                            logger.fine(i + "-th row , decodedDateTime " + ddt.decodedDateTime + ", format=" + ddt.format);
+                            if (logValues) {
+                                logger.fine(i + "-th row , decodedDateTime " + ddt.decodedDateTime + ", format=" + ddt.format);
+                            }
                             dataRow[columnCounter] = ddt.decodedDateTime;
                             dataTable.getDataVariables().get(columnCounter).setFormat(ddt.format);
                         } else {
                             dataRow[columnCounter] = float_datum;
-                            logger.fine(i + "-th row " + columnCounter
-                                    + "=th column float value:" + float_datum);
+                            if (logValues) {
+                                logger.fine(i + "-th row " + columnCounter
+                                        + "=th column float value:" + float_datum);
+                            }
                             // This may be temporary - but for now (as in, while I'm testing 
                             // 4.0 ingest against 3.* ingest, I need to be able to tell if a 
                             // floating point value was a single, or double float in the 
@@ -867,38 +906,48 @@ public class NewDTAFileReader extends TabularDataFileReader {
 
                     double double_datum = reader.readDouble();
                     if (DOUBLE_MISSING_VALUE_SET.contains(double_datum)) {
-                        logger.finer(i + "-th row " + columnCounter
-                                + "=th column double missing value=" + double_datum);
+                        if (logValues) {
+                            logger.finer(i + "-th row " + columnCounter
+                                    + "=th column double missing value=" + double_datum);
+                        }
                         dataRow[columnCounter] = MissingValueForTabDelimitedFile;
                     } else {
 
                         if (isDateTimeDatum) {
                             DecodedDateTime ddt = decodeDateTimeData("double", variableFormat, doubleNumberFormatter.format(double_datum));
-                            logger.finer(i + "-th row , decodedDateTime " + ddt.decodedDateTime + ", format=" + ddt.format);
+                            if (logValues) {
+                                logger.finer(i + "-th row , decodedDateTime " + ddt.decodedDateTime + ", format=" + ddt.format);
+                            }
                             dataRow[columnCounter] = ddt.decodedDateTime;
                             dataTable.getDataVariables().get(columnCounter).setFormat(ddt.format);
                         } else {
-                            logger.fine(i + "-th row " + columnCounter
-                                    + "=th column double value:" + double_datum); //doubleNumberFormatter.format(double_datum));
+                            if (logValues) {
+                                logger.fine(i + "-th row " + columnCounter
+                                        + "=th column double value:" + double_datum); //doubleNumberFormatter.format(double_datum));
+                            }
 
                             dataRow[columnCounter] = double_datum; //doubleNumberFormatter.format(double_datum);
                         }
 
                     }
                     byte_offset += 8;
-                } else if (varType.matches("^STR[1-9][0-9]*")) {
+                } else if (isFixedStringVariable[columnCounter]) {
                     // String case
                     int strVarLength = variableByteLengths[columnCounter];
-                    logger.fine(i + "-th row " + columnCounter
-                            + "=th column is a string (" + strVarLength + " bytes)");
+                    if (logValues) {
+                        logger.fine(i + "-th row " + columnCounter
+                                + "=th column is a string (" + strVarLength + " bytes)");
+                    }
                     // In STATA13+, STRF strings *MUST*
                     // be limited to ASCII. UTF8 strings can be stored as 
                     // STRLs. 
                     String string_datum = reader.readString(strVarLength);
                     if (string_datum.equals("")) {
 
-                        logger.fine(i + "-th row " + columnCounter
-                                + "=th column string missing value=" + string_datum);
+                        if (logValues) {
+                            logger.fine(i + "-th row " + columnCounter
+                                    + "=th column string missing value=" + string_datum);
+                        }
 
                         /* Note: 
                          * In Stata, an empty string ("") in a String vector is 
@@ -920,7 +969,9 @@ public class NewDTAFileReader extends TabularDataFileReader {
                     }
                     byte_offset += strVarLength;
                 } else if (varType.equals("STRL")) {
-                    logger.fine("STRL encountered.");
+                    if (logValues) {
+                        logger.fine("STRL encountered.");
+                    }
 
                     if (cachedGSOs == null) {
                         cachedGSOs = new LinkedHashMap<>();
@@ -974,7 +1025,9 @@ public class NewDTAFileReader extends TabularDataFileReader {
             // Dump the row of data to the tab-delimited file:
             pwout.println(StringUtils.join(dataRow, "\t"));
 
-            logger.fine("finished reading " + i + "-th row");
+            if (logValues) {
+                logger.fine("finished reading " + i + "-th row");
+            }
 
         }  // for (rows)
 
@@ -1090,7 +1143,7 @@ public class NewDTAFileReader extends TabularDataFileReader {
         }
 
         // Skipping the GSO header - fixed string "GSO":
-        reader.readBytes(STRL_GSO_HEAD.length());
+        reader.skipBytes(STRL_GSO_HEAD.length());
 
         // Reading the stored (v,o) pair: 
         long vStored = reader.readUInt();
@@ -1163,7 +1216,7 @@ public class NewDTAFileReader extends TabularDataFileReader {
 
             String label_table_name = reader.readString(DTAVersion == 117? 33: 129);
             
-            reader.readBytes(3); 
+            reader.skipBytes(3); 
 
             // read the value_label_table that follows. 
             // should be label_table_length. 
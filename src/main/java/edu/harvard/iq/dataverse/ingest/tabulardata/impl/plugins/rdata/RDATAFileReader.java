@@ -32,8 +32,6 @@ import edu.harvard.iq.dataverse.settings.JvmSettings;
 import org.rosuda.REngine.REXP;
 import org.rosuda.REngine.REXPMismatchException;
 import org.rosuda.REngine.RList;
-import org.rosuda.REngine.Rserve.RFileInputStream;
-import org.rosuda.REngine.Rserve.RFileOutputStream;
 import org.rosuda.REngine.Rserve.*;
 
 import edu.harvard.iq.dataverse.DataTable;
@@ -260,25 +258,9 @@ public class RDATAFileReader extends TabularDataFileReader {
       String fileName = String.format("DVN.dataframe.%s.Rdata", mPID);
       
       mDataFile = new File(mParent, fileName);
-                
-      RFileInputStream RInStream = null;
-      OutputStream outStream = null;
       
-      RRequest req = mRequestBuilder.build();
-      
-      try {
-        outStream = new BufferedOutputStream(new FileOutputStream(mDataFile));
-        RInStream = req.getRConnection().openFile(target);
-        
-        if (size < 1024*1024*500) {
-          int bufferSize = size;
-          byte [] outputBuffer = new byte[bufferSize];
-          RInStream.read(outputBuffer);
-          outStream.write(outputBuffer, 0, size);
-        }
-        
-        RInStream.close();
-        outStream.close();
+      try (RserveSession session = RservePool.getInstance(RSERVE_HOST, RSERVE_PORT, RSERVE_USER, RSERVE_PASSWORD).borrow()) {
+        session.download(target, mDataFile);
         return mDataFile;
       }
       catch (FileNotFoundException exc) {
@@ -286,28 +268,10 @@ public class RDATAFileReader extends TabularDataFileReader {
         LOG.warning("RDATAFileReader: FileNotFound exception occurred");
         return mDataFile;
       }
-      catch (IOException exc) {
+      catch (IOException | RserveException exc) {
         exc.printStackTrace();
         LOG.warning("RDATAFileReader: IO exception occurred");
       }
-
-      // Close R input data stream
-      if (RInStream != null) {
-        try {
-          RInStream.close();
-        }
-        catch (IOException exc) {
-        }
-      }
-
-      // Close output data stream
-      if (outStream != null) {
-        try {
-          outStream.close();
-        }
-        catch (IOException ex) {
-        }
-      }
       
       return mDataFile;
     }
@@ -329,54 +293,27 @@ public class RDATAFileReader extends TabularDataFileReader {
         return null;
       }
       
-      byte [] buffer = new byte [1024];
-      int bytesRead = 0;
-      RFileOutputStream outStream = null;
-      RConnection rServerConnection = null;
+      if (mDataFile == null) {
+        LOG.warning("RDATAFileReader: Data file has not been specified");
+        return null;
+      }
       
-      try {
-        LOG.fine("RDATAFileReader: Opening R connection");
-        rServerConnection = new RConnection(RSERVE_HOST, RSERVE_PORT);
-        
-        LOG.fine("RDATAFileReader: Logging into R connection");
-        rServerConnection.login(RSERVE_USER, RSERVE_PASSWORD);
-        
-        LOG.fine("RDATAFileReader: Attempting to create file");
-        outStream = rServerConnection.createFile(mDataFile.getAbsolutePath());
-        
+      LOG.fine("RDATAFileReader: Getting an R connection from the pool");
+      try (RserveSession session = RservePool.getInstance(RSERVE_HOST, RSERVE_PORT, RSERVE_USER, RSERVE_PASSWORD).borrow()) {
+        /*
+         * Read stream and write to destination file, in large blocks
+         */
+        session.upload(mInStream, mDataFile.getAbsolutePath());
         LOG.fine(String.format("RDATAFileReader: File created on server at %s", mDataFile.getAbsolutePath()));
       }
       catch (IOException ex) {
-        LOG.warning("RDATAFileReader: Could not create file on R Server");
+        LOG.warning("RDATAFileReader: Could not write to file on R Server");
+        LOG.fine(String.format("Error message: %s", ex.getMessage()));
       }
       catch (RserveException ex) {
         LOG.warning("RDATAFileReader: Could not connect to R Server");
       }
       
-      /*
-       * Read stream and write to destination file
-       */
-      try {
-        // Read from local file and write to rserver 1kb at a time
-        while (mInStream.read(buffer) != -1) {
-          outStream.write(buffer);
-          bytesRead++;
-        }
-      }
-      catch (IOException ex) {
-        LOG.warning("RDATAFileReader: Could not write to file");
-        LOG.fine(String.format("Error message: %s", ex.getMessage()));
-      }
-      catch (NullPointerException ex) {
-        LOG.warning("RDATAFileReader: Data file has not been specified");
-      }
-      
-      // Closing R server connection
-      if (rServerConnection != null) {
-        LOG.fine("RDATAFileReader: Closing R server connection");
-        rServerConnection.close();
-      }
-      
       return mDataFile;
     }
     private File saveCsvFile () {
@@ -535,42 +472,25 @@ public class RDATAFileReader extends TabularDataFileReader {
    */
   private File transferCsvFile (File target) {
     File destination;
-    FileOutputStream csvDestinationStream;
     
     try {
       destination = File.createTempFile("data", ".csv");
       LOG.fine(String.format("RDATAFileReader: Writing local CSV File to `%s`", destination.getAbsolutePath()));
-      csvDestinationStream = new FileOutputStream(destination);
     }
     catch (IOException ex) {
       LOG.warning("RDATAFileReader: Could not create temporary file!");
       return null;
     }
     
-    try {
-      // Open connection to R-serve
-      RConnection rServeConnection = new RConnection(RSERVE_HOST, RSERVE_PORT);
-      rServeConnection.login(RSERVE_USER, RSERVE_PASSWORD);
-      
-      // Open file for reading from R-serve
-      RFileInputStream rServeInputStream = rServeConnection.openFile(target.getAbsolutePath());
-      
-      int b;
-      
+    // Get a connection to R-serve from the pool
+    try (RserveSession session = RservePool.getInstance(RSERVE_HOST, RSERVE_PORT, RSERVE_USER, RSERVE_PASSWORD).borrow()) {
       LOG.fine("RDATAFileReader: Beginning to write to local destination file");
       
-      // Read from stream one character at a time
-      while ((b = rServeInputStream.read()) != -1) {
-        // Write to the *local* destination file
-        csvDestinationStream.write(b);
-      }
+      // Read from R-serve in large blocks, and write to the *local* destination file
+      session.download(target.getAbsolutePath(), destination);
       
       LOG.fine(String.format("RDATAFileReader: Finished writing from destination `%s`", target.getAbsolutePath()));
       LOG.fine(String.format("RDATAFileReader: Finished copying to source `%s`", destination.getAbsolutePath()));
-      
-      
-      LOG.fine("RDATAFileReader: Closing CSVFileReader R Connection");
-      rServeConnection.close();
     }
     /*
      * TO DO: Make this error catching more intelligent
@@ -47,6 +47,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -2413,6 +2414,15 @@ public class SAVFileReader  extends TabularDataFileReader{
         // -- L.A. 4.0 alpha
         List<String> casewiseRecordForTabFile = new ArrayList<String>();
 
+        // The octate buffers are reused from block to block; the uncompressed
+        // numeric values are decoded in place, in the byte order of the file.
+        byte[] octate = new byte[LENGTH_SAV_OBS_BLOCK];
+        byte[] uncompressedByte = new byte[LENGTH_SAV_OBS_BLOCK];
+        ByteBuffer bb_double = ByteBuffer.wrap(uncompressedByte);
+        if (isLittleEndian) {
+            bb_double.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
         try {
             // this compression is applied only to non-float data, i.e. integer;
             // 8-byte float datum is kept in tact
@@ -2423,9 +2433,12 @@ public class SAVFileReader  extends TabularDataFileReader{
 
                 dbgLog.fine("SAV Reader: compressed: ii=" + ii + "-th iteration");
 
-                byte[] octate = new byte[LENGTH_SAV_OBS_BLOCK];
 
                 int nbytes = stream.read(octate);
+                if (nbytes < LENGTH_SAV_OBS_BLOCK) {
+                    // (don't leave the bytes of the last block in the buffer)
+                    Arrays.fill(octate, Math.max(nbytes, 0), LENGTH_SAV_OBS_BLOCK, (byte) 0);
+                }
 
                 // processCompressedOBSblock ()
 
@@ -2456,41 +2469,37 @@ public class SAVFileReader  extends TabularDataFileReader{
                             // FD: uncompressed data follows after this octate
                             // long string datum or float datum
                             // read the following octate
-                            byte[] uncompressedByte = new byte[LENGTH_SAV_OBS_BLOCK];
                             int ucbytes = stream.read(uncompressedByte);
+                            if (ucbytes < LENGTH_SAV_OBS_BLOCK) {
+                                Arrays.fill(uncompressedByte, Math.max(ucbytes, 0), LENGTH_SAV_OBS_BLOCK, (byte) 0);
+                            }
                             int typeIndex = (ii * OBS + i) % nOBS;
 
                             if ((OBSwiseTypelList.get(typeIndex) > 0) ||
                                     (OBSwiseTypelList.get(typeIndex) == -1)) {
                                 // code= >0 |-1: string or its conitiguous block
                                 // decode as a string object
-                                String strdatum = new String(
-                                        Arrays.copyOfRange(uncompressedByte,
-                                        0, LENGTH_SAV_OBS_BLOCK), defaultCharSet);
+                                String strdatum = new String(uncompressedByte,
+                                        0, LENGTH_SAV_OBS_BLOCK, defaultCharSet);
                                 //out.println("str_datum="+strdatum+"<-");
                                 // add this non-missing-value string datum
                                 casewiseRecordForTabFile.add(strdatum);
                             //out.println("casewiseRecordForTabFile(String)="+casewiseRecordForTabFile);
                             } else if (OBSwiseTypelList.get(typeIndex) == -2) {
-                                String strdatum = new String(
-                                        Arrays.copyOfRange(uncompressedByte,
-                                        0, LENGTH_SAV_OBS_BLOCK - 1), defaultCharSet);
+                                String strdatum = new String(uncompressedByte,
+                                        0, LENGTH_SAV_OBS_BLOCK - 1, defaultCharSet);
                                 casewiseRecordForTabFile.add(strdatum);
                             //out.println("casewiseRecordForTabFile(String)="+casewiseRecordForTabFile);
                             } else if (OBSwiseTypelList.get(typeIndex) == 0) {
                                 // code= 0: numeric
 
-                                ByteBuffer bb_double = ByteBuffer.wrap(
-                                        uncompressedByte, 0, LENGTH_SAV_OBS_BLOCK);
-                                if (isLittleEndian) {
-                                    bb_double.order(ByteOrder.LITTLE_ENDIAN);
-                                }
-
-                                Double ddatum = bb_double.getDouble();
+                                double ddatum = bb_double.getDouble(0);
                                 // out.println("ddatum="+ddatum);
                                 // add this non-missing-value numeric datum
                                 casewiseRecordForTabFile.add(doubleNumberFormatter.format(ddatum));
-                                dbgLog.fine("SAV Reader: compressed: added value to dataLine: " + ddatum);
+                                if (dbgLog.isLoggable(Level.FINE)) {
+                                    dbgLog.fine("SAV Reader: compressed: added value to dataLine: " + ddatum);
+                                }
 
                             } else {
                                 dbgLog.fine("SAV Reader: out-of-range exception");
@@ -3019,12 +3028,22 @@ public class SAVFileReader  extends TabularDataFileReader{
             pwout.println(generateVariableHeader(dataTable.getDataVariables()));
         }
 
+        // The case buffer is reused from case to case; the numeric values 
+        // are decoded in place, in the byte order of the file.
+        byte[] buffer = new byte[OBS*nOBS];
+        ByteBuffer bb_case = ByteBuffer.wrap(buffer);
+        if (isLittleEndian){
+            bb_case.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
         try {
             for (int i = 0; ; i++){  // case-wise loop
                 
-                byte[] buffer = new byte[OBS*nOBS];
-                
                 int nbytesuc =  stream.read(buffer);
+                if (nbytesuc < buffer.length) {
+                    // (don't leave the bytes of the last case in the buffer)
+                    Arrays.fill(buffer, Math.max(nbytesuc, 0), buffer.length, (byte) 0);
+                }
                 
                 StringBuilder sb_stringStorage = new StringBuilder("");
 
@@ -3046,26 +3065,23 @@ public class SAVFileReader  extends TabularDataFileReader{
                     if (isNumeric){
                         dbgLog.finer(k+"-th variable is numeric");
                         // interprete as double
-                        ByteBuffer bb_double = ByteBuffer.wrap(
-                            buffer, offset , LENGTH_SAV_OBS_BLOCK);
-                        if (isLittleEndian){
-                            bb_double.order(ByteOrder.LITTLE_ENDIAN);
-                        }
-                        //char[] hexpattern =
-                        String dphex = new String(Hex.encodeHex(
-                                Arrays.copyOfRange(bb_double.array(),
-                                offset, offset+LENGTH_SAV_OBS_BLOCK)));
-                        dbgLog.finer("dphex="+ dphex);
+                        // (sysmis is "ff ff ff ff ff ff ef ff" in little endian 
+                        // files, and "ff ef ff ff ff ff ff ff" in big endian ones;
+                        // either byte sequence is one of these two longs, in
+                        // either byte order)
+                        long dpbits = bb_case.getLong(offset);
                             
-                        if ((dphex.equals("ffffffffffffefff"))||
-                            (dphex.equals("ffefffffffffffff"))){
+                        if ((dpbits == 0xffffffffffffefffL)||
+                            (dpbits == 0xffefffffffffffffL)){
                             //casewiseRecordForTabFile.add(systemMissingValue);
                             // add the numeric missing value
 			    dbgLog.fine("SAV Reader: adding: Missing Value (numeric)");
                             casewiseRecordForTabFile.add(MissingValueForTextDataFileNumeric);
                         } else {
-                            Double ddatum  = bb_double.getDouble();
-                            dbgLog.fine("SAV Reader: adding: ddatum="+ddatum);
+                            double ddatum  = bb_case.getDouble(offset);
+                            if (dbgLog.isLoggable(Level.FINE)) {
+                                dbgLog.fine("SAV Reader: adding: ddatum="+ddatum);
+                            }
 
                             // add this non-missing-value numeric datum
                             casewiseRecordForTabFile.add(doubleNumberFormatter.format(ddatum)) ;
@@ -3080,9 +3096,8 @@ public class SAVFileReader  extends TabularDataFileReader{
                         // "20 20 20 20 20 20 20 20"
                         
                         
-                        String strdatum = new String(
-                            Arrays.copyOfRange(buffer,
-                            offset, (offset+LENGTH_SAV_OBS_BLOCK)),defaultCharSet);
+                        String strdatum = new String(buffer,
+                            offset, LENGTH_SAV_OBS_BLOCK, defaultCharSet);
                         dbgLog.finer("str_datum="+strdatum);
                         // add this non-missing-value string datum 
                         casewiseRecordForTabFile.add(strdatum);
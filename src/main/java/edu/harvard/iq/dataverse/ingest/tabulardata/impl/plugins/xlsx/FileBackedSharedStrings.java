@@ -0,0 +1,249 @@
+package edu.harvard.iq.dataverse.ingest.tabulardata.impl.plugins.xlsx;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import javax.xml.parsers.ParserConfigurationException;
+import org.apache.poi.util.XMLHelper;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * The shared strings table of an XLSX workbook, saved in temp files instead
+ * of being kept in memory; a workbook can have millions of shared strings.
+ *
+ * The strings are saved, UTF-8 encoded, one after another in one file; and
+ * their offsets and lengths in fixed-size entries in an index file. Looking
+ * up a string reads one index entry and the string itself. The most recently
+ * used strings are cached, since the same strings tend to be repeated in
+ * nearby rows.
+ */
+class FileBackedSharedStrings implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(FileBackedSharedStrings.class.getCanonicalName());
+
+    // offset (long) and length (int) of a string:
+    private static final int INDEX_ENTRY_LENGTH = 12;
+    private static final int CACHE_SIZE = 4096;
+
+    private final File stringsFile;
+    private final File indexFile;
+    private FileChannel strings;
+    private FileChannel index;
+    private int count = 0;
+
+    private final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_LENGTH);
+    private ByteBuffer stringBuffer = ByteBuffer.allocate(1024);
+
+    private final Map<Integer, String> cache = new LinkedHashMap<Integer, String>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private FileBackedSharedStrings() throws IOException {
+        stringsFile = File.createTempFile("sharedstrings-", ".txt");
+        indexFile = File.createTempFile("sharedstrings-", ".idx");
+    }
+
+    /**
+     * Saves the shared strings read from the sharedStrings.xml part of a
+     * workbook.
+     *
+     * @param sharedStringsData the sharedStrings.xml part; or null, if the
+     * workbook has no shared strings.
+     */
+    static FileBackedSharedStrings load(InputStream sharedStringsData) throws IOException, SAXException {
+        FileBackedSharedStrings sharedStrings = new FileBackedSharedStrings();
+        try {
+            try (DataOutputStream stringsOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(sharedStrings.stringsFile)));
+                 DataOutputStream indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(sharedStrings.indexFile)))) {
+                if (sharedStringsData != null) {
+                    // (a reader with the external entities and DTDs disabled)
+                    XMLReader xReader = XMLHelper.newXMLReader();
+                    xReader.setContentHandler(new SharedStringsHandler(sharedStrings, stringsOut, indexOut));
+                    xReader.parse(new InputSource(sharedStringsData));
+                }
+            }
+            sharedStrings.strings = FileChannel.open(sharedStrings.stringsFile.toPath(), StandardOpenOption.READ);
+            sharedStrings.index = FileChannel.open(sharedStrings.indexFile.toPath(), StandardOpenOption.READ);
+        } catch (ParserConfigurationException ex) {
+            sharedStrings.close();
+            throw new SAXException(ex);
+        } catch (IOException | SAXException | RuntimeException ex) {
+            sharedStrings.close();
+            throw ex;
+        }
+        logger.fine("Saved " + sharedStrings.count + " shared strings in " + sharedStrings.stringsFile.getAbsolutePath());
+        return sharedStrings;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    String getString(int idx) throws IOException {
+        if (idx < 0 || idx >= count) {
+            throw new IOException("Shared string index out of range: " + idx + " (" + count + " shared strings)");
+        }
+        String string = cache.get(idx);
+        if (string != null) {
+            return string;
+        }
+
+        indexEntry.clear();
+        readFully(index, indexEntry, (long) idx * INDEX_ENTRY_LENGTH);
+        long offset = indexEntry.getLong(0);
+        int length = indexEntry.getInt(8);
+
+        if (stringBuffer.capacity() < length) {
+            stringBuffer = ByteBuffer.allocate(Math.max(length, stringBuffer.capacity() * 2));
+        }
+        stringBuffer.clear().limit(length);
+        readFully(strings, stringBuffer, offset);
+        string = new String(stringBuffer.array(), 0, length, StandardCharsets.UTF_8);
+
+        cache.put(idx, string);
+        return string;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of the shared strings file");
+            }
+            position += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (strings != null) {
+                strings.close();
+            }
+            if (index != null) {
+                index.close();
+            }
+        } finally {
+            Files.deleteIfExists(stringsFile.toPath());
+            Files.deleteIfExists(indexFile.toPath());
+        }
+    }
+
+    /**
+     * Decodes the "_xHHHH_" escapes used in OOXML strings for characters
+     * that can't be stored in XML, the same way POI does.
+     */
+    static String decodeEscapes(String value) {
+        if (value.indexOf("_x") < 0) {
+            return value;
+        }
+        StringBuilder decoded = new StringBuilder(value.length());
+        int i = 0;
+        while (i < value.length()) {
+            char c = value.charAt(i);
+            if (c == '_' && i + 6 < value.length() && value.charAt(i + 1) == 'x' && value.charAt(i + 6) == '_'
+                    && isHex(value, i + 2, i + 6)) {
+                decoded.append((char) Integer.parseInt(value.substring(i + 2, i + 6), 16));
+                i += 7;
+            } else {
+                decoded.append(c);
+                i++;
+            }
+        }
+        return decoded.toString();
+    }
+
+    private static boolean isHex(String value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Each shared string is an <si> element; its text is either in a single
+     * <t> element, or in the <t> elements of its rich text runs (<r>).
+     * Phonetic runs (<rPh>) are not part of the text.
+     */
+    private static class SharedStringsHandler extends DefaultHandler {
+
+        private final FileBackedSharedStrings sharedStrings;
+        private final DataOutputStream stringsOut;
+        private final DataOutputStream indexOut;
+        private final StringBuilder text = new StringBuilder();
+        private boolean inText = false;
+        private boolean inPhoneticRun = false;
+        private long offset = 0;
+
+        SharedStringsHandler(FileBackedSharedStrings sharedStrings, DataOutputStream stringsOut, DataOutputStream indexOut) {
+            this.sharedStrings = sharedStrings;
+            this.stringsOut = stringsOut;
+            this.indexOut = indexOut;
+        }
+
+        private static String elementName(String localName, String qName) {
+            return localName == null || localName.isEmpty() ? qName : localName;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            String name = elementName(localName, qName);
+            if (name.equals("si")) {
+                text.setLength(0);
+            } else if (name.equals("rPh")) {
+                inPhoneticRun = true;
+            } else if (name.equals("t") && !inPhoneticRun) {
+                inText = true;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            String name = elementName(localName, qName);
+            if (name.equals("t")) {
+                inText = false;
+            } else if (name.equals("rPh")) {
+                inPhoneticRun = false;
+            } else if (name.equals("si")) {
+                byte[] bytes = decodeEscapes(text.toString()).getBytes(StandardCharsets.UTF_8);
+                try {
+                    stringsOut.write(bytes);
+                    indexOut.writeLong(offset);
+                    indexOut.writeInt(bytes.length);
+                } catch (IOException ex) {
+                    throw new SAXException(ex);
+                }
+                offset += bytes.length;
+                sharedStrings.count++;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inText) {
+                text.append(ch, start, length);
+            }
+        }
+    }
+}
@@ -22,8 +22,11 @@ package edu.harvard.iq.dataverse.ingest.tabulardata.impl.plugins.xlsx;
 
 import java.io.*;
 import java.io.FileReader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.logging.*;
 import java.util.*;
+import javax.xml.parsers.ParserConfigurationException;
 
 import edu.harvard.iq.dataverse.DataTable;
 import edu.harvard.iq.dataverse.datavariable.DataVariable;
@@ -36,15 +39,15 @@ import edu.harvard.iq.dataverse.util.BundleUtil;
 import org.apache.commons.lang3.StringUtils;
 
 import org.apache.poi.xssf.eventusermodel.XSSFReader;
-import org.apache.poi.xssf.model.SharedStrings;
 import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.util.XMLHelper;
 import org.xml.sax.Attributes;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
-import org.xml.sax.helpers.XMLReaderFactory;
 
 
 /**
@@ -54,6 +57,9 @@ import org.xml.sax.helpers.XMLReaderFactory;
  * event-based, SAX model for parsing the extracted XML. This way spreadsheets
  * of any size can be converted into tab-delimited data with a fairly small 
  * memory footprint.
+ * The workbook is opened from a file (the zip entries are read as they 
+ * are needed, instead of all being loaded in memory), and the shared strings
+ * are kept in temp files too (see FileBackedSharedStrings).
  * 
  * @author Leonid Andreev
  *
@@ -226,27 +232,46 @@ public class XLSXFileReader extends TabularDataFileReader {
     }
 
     public void processSheet(String filename, DataTable dataTable, PrintWriter tempOut) throws Exception {
-        BufferedInputStream xlsxInputStream = new BufferedInputStream(new FileInputStream(new File(filename)));
-        processSheet(xlsxInputStream, dataTable, tempOut);
+        processSheet(new File(filename), dataTable, tempOut);
     }
 
     public void processSheet(InputStream inputStream, DataTable dataTable, PrintWriter tempOut) throws Exception {
+        // Opening the package from a stream would load all of it in memory;
+        // so we save the stream in a temp file and open that instead:
+        File xlsxTempFile = File.createTempFile("xlsx-", ".xlsx");
+        try {
+            Files.copy(inputStream, xlsxTempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            processSheet(xlsxTempFile, dataTable, tempOut);
+        } finally {
+            Files.deleteIfExists(xlsxTempFile.toPath());
+        }
+    }
+
+    public void processSheet(File xlsxFile, DataTable dataTable, PrintWriter tempOut) throws Exception {
         dbglog.info("entering processSheet");
-        OPCPackage pkg = OPCPackage.open(inputStream);
-        XSSFReader r = new XSSFReader(pkg);
-        SharedStrings sst = r.getSharedStringsTable();
-
-        XMLReader parser = fetchSheetParser(sst, dataTable, tempOut);
-
-        // rId2 found by processing the Workbook
-        // Seems to either be rId# or rSheet#
-        InputStream sheet1 = r.getSheet("rId1");
-        InputSource sheetSource = new InputSource(sheet1);
-        parser.parse(sheetSource);
-        sheet1.close();
+        OPCPackage pkg = OPCPackage.open(xlsxFile, PackageAccess.READ);
+        try {
+            XSSFReader r = new XSSFReader(pkg);
+
+            try (FileBackedSharedStrings sst = FileBackedSharedStrings.load(r.getSharedStringsData())) {
+                XMLReader parser = fetchSheetParser(sst, dataTable, tempOut);
+
+                // rId2 found by processing the Workbook
+                // Seems to either be rId# or rSheet#
+                try (InputStream sheet1 = r.getSheet("rId1")) {
+                    InputSource sheetSource = new InputSource(sheet1);
+                    parser.parse(sheetSource);
+                }
+            }
+        } finally {
+            // (the package was opened read-only; there's nothing to save)
+            pkg.revert();
+        }
     }
     
-    public XMLReader fetchSheetParser(SharedStrings sst, DataTable dataTable, PrintWriter tempOut) throws SAXException {
+    // (package-private, as is the FileBackedSharedStrings it reads the shared
+    // strings from)
+    XMLReader fetchSheetParser(FileBackedSharedStrings sst, DataTable dataTable, PrintWriter tempOut) throws SAXException {
         // An attempt to use org.apache.xerces.parsers.SAXParser resulted 
         // in some weird conflict in the app; the default XMLReader obtained 
         // from the XMLReaderFactory (from xml-apis.jar) appears to be working
@@ -259,8 +284,15 @@ public class XLSXFileReader extends TabularDataFileReader {
         // have some hard-coded versions in our pom.xml that are both old and 
         // unnecessary.
         // -- L.A. 4.0 alpha 1
+        // (the reader is now obtained from POI, with the external entities
+        // and DTDs disabled, as for the shared strings)
  
-        XMLReader xReader = XMLReaderFactory.createXMLReader();
+        XMLReader xReader;
+        try {
+            xReader = XMLHelper.newXMLReader();
+        } catch (ParserConfigurationException ex) {
+            throw new SAXException(ex);
+        }
         dbglog.fine("creating new SheetHandler;");
         ContentHandler handler = new SheetHandler(sst, dataTable, tempOut);
         xReader.setContentHandler(handler);
@@ -270,7 +302,7 @@ public class XLSXFileReader extends TabularDataFileReader {
     private static class SheetHandler extends DefaultHandler {
 
         private DataTable dataTable;
-        private SharedStrings sst;
+        private FileBackedSharedStrings sst;
         private String cellContents;
         private boolean nextIsString;
         private boolean variableHeader;
@@ -282,11 +314,11 @@ public class XLSXFileReader extends TabularDataFileReader {
         String[] dataRow; 
         PrintWriter tempOut; 
 
-        private SheetHandler(SharedStrings sst) {
+        private SheetHandler(FileBackedSharedStrings sst) {
             this(sst, null, null);
         }
 
-        private SheetHandler(SharedStrings sst, DataTable dataTable, PrintWriter tempOut) {
+        private SheetHandler(FileBackedSharedStrings sst, DataTable dataTable, PrintWriter tempOut) {
             this.sst = sst;
             this.dataTable = dataTable;
             this.tempOut = tempOut; 
@@ -415,7 +447,11 @@ public class XLSXFileReader extends TabularDataFileReader {
             // Do it now, as characters() may be called more than once
             if (nextIsString) {
                 int idx = Integer.parseInt(cellContents);
-                cellContents = sst.getItemAt(idx).getString();
+                try {
+                    cellContents = sst.getString(idx);
+                } catch (IOException ex) {
+                    throw new SAXException(ex);
+                }
                 nextIsString = false;
             }
 
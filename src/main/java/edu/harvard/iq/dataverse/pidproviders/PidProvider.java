@@ -6,6 +6,8 @@ import jakarta.json.JsonObject;
 import jakarta.json.JsonValue;
 
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 public interface PidProvider {
@@ -54,6 +56,27 @@ public interface PidProvider {
     
     boolean publicizeIdentifier(DvObject studyIn);
     
+    /**
+     * Publicizes the identifiers of several objects, e.g. the files of a
+     * dataset being published. Each object that was publicized is handed to
+     * the consumer, on the calling thread. Stops at the first failure. By
+     * default, the objects are publicized one at a time; providers with a
+     * remote service may send them concurrently, see {@link PidPublicizer}.
+     * 
+     * @param executor the executor to send them on, if they are sent
+     *                 concurrently (e.g. the container's managed executor)
+     * @return the objects that were not publicized; empty if all of them were.
+     */
+    default <T extends DvObject> List<T> publicizeIdentifiers(List<T> dvObjects, Executor executor, Consumer<T> onPublicized) {
+        for (int i = 0; i < dvObjects.size(); i++) {
+            if (!publicizeIdentifier(dvObjects.get(i))) {
+                return new ArrayList<>(dvObjects.subList(i, dvObjects.size()));
+            }
+            onPublicized.accept(dvObjects.get(i));
+        }
+        return new ArrayList<>();
+    }
+    
     boolean updateIdentifier(DvObject dvObject);
     
     boolean isGlobalIdUnique(GlobalId globalId);
@@ -0,0 +1,237 @@
+package edu.harvard.iq.dataverse.pidproviders;
+
+import edu.harvard.iq.dataverse.DvObject;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Publicizes the identifiers of many objects with a remote PID service, e.g.
+ * the files of a dataset being published, with up to
+ * dataverse.pid.&lt;id&gt;.publicize-threads requests at a time on the
+ * (shared) executor; if the executor is busy, the request is sent on the
+ * calling thread. The requests sent to
+ * each provider are limited, across all the publications running on this
+ * node, to dataverse.pid.&lt;id&gt;.publicize-rate objects per second; a
+ * failed request is retried dataverse.pid.&lt;id&gt;.publicize-retries times,
+ * with an exponential backoff.
+ * <p>
+ * Everything that needs the database (generating the PID, building the
+ * metadata) is done by the "prepare" function, on the calling thread; only
+ * the calls to the service run on the workers.
+ */
+public class PidPublicizer {
+
+    private static final Logger logger = Logger.getLogger(PidPublicizer.class.getCanonicalName());
+
+    public static final int DEFAULT_THREADS = 4;
+    public static final double DEFAULT_RATE = 5.0;
+    public static final int DEFAULT_RETRIES = 3;
+    static final long INITIAL_BACKOFF_MILLIS = 1000L;
+
+    private static final Map<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
+    /**
+     * The call(s) to the PID service that publicize one object.
+     */
+    @FunctionalInterface
+    public interface Publication {
+        void send() throws Exception;
+    }
+
+    private final String providerId;
+    private final Executor executor;
+    private final int threads;
+    private final int retries;
+    private final long backoffMillis;
+    private final RateLimiter rateLimiter;
+
+    /**
+     * @param executor the executor the requests are sent on (e.g. the
+     *                 container's managed executor); if null, they are sent
+     *                 one at a time on the calling thread
+     */
+    public PidPublicizer(String providerId, Executor executor) {
+        this(providerId, executor,
+                JvmSettings.PID_PROVIDER_PUBLICIZE_THREADS.lookupOptional(Integer.class, providerId).orElse(DEFAULT_THREADS),
+                JvmSettings.PID_PROVIDER_PUBLICIZE_RATE.lookupOptional(Double.class, providerId).orElse(DEFAULT_RATE),
+                JvmSettings.PID_PROVIDER_PUBLICIZE_RETRIES.lookupOptional(Integer.class, providerId).orElse(DEFAULT_RETRIES),
+                INITIAL_BACKOFF_MILLIS);
+    }
+
+    PidPublicizer(String providerId, Executor executor, int threads, double rate, int retries, long backoffMillis) {
+        this.providerId = providerId;
+        this.executor = executor != null ? executor : Runnable::run;
+        this.threads = Math.max(1, threads);
+        this.retries = Math.max(0, retries);
+        this.backoffMillis = backoffMillis;
+        // The first publicizer of a provider sets its rate:
+        this.rateLimiter = rateLimiters.computeIfAbsent(providerId, id -> new RateLimiter(rate));
+    }
+
+    /**
+     * Publicizes the objects, handing each one that was publicized to the
+     * consumer, on the calling thread. Once an object fails (after all its
+     * retries), no more objects are sent.
+     *
+     * @return the objects that failed, or were not sent because of an earlier
+     * failure; an empty list if all of them were publicized.
+     */
+    public <T extends DvObject> List<T> publicize(List<T> dvObjects, Function<T, Publication> prepare, Consumer<T> onPublicized) {
+        if (dvObjects.isEmpty()) {
+            return new ArrayList<>();
+        }
+        long start = System.currentTimeMillis();
+        CompletionService<Entry<T, Boolean>> completionService = new ExecutorCompletionService<>(command -> {
+            try {
+                executor.execute(command);
+            } catch (RejectedExecutionException e) {
+                command.run();
+            }
+        });
+        Set<Future<Entry<T, Boolean>>> inFlight = new HashSet<>();
+        Iterator<T> toSend = dvObjects.iterator();
+        Set<T> publicized = Collections.newSetFromMap(new IdentityHashMap<>());
+        Entry<T, Publication> next = null;
+        boolean aborted = false;
+        try {
+            while (true) {
+                // At most threads requests are in flight, and only the next
+                // object is prepared ahead of them, so that the metadata of
+                // thousands of files is never held at once:
+                while (!aborted && inFlight.size() < threads && (next != null || toSend.hasNext())) {
+                    Entry<T, Publication> toSubmit = next != null ? next : prepareOne(toSend.next(), prepare);
+                    next = null;
+                    if (toSubmit == null) {
+                        aborted = true;
+                        break;
+                    }
+                    inFlight.add(completionService.submit(
+                            () -> new SimpleImmutableEntry<>(toSubmit.getKey(), send(toSubmit.getKey(), toSubmit.getValue()))));
+                }
+                if (!aborted && next == null && toSend.hasNext()) {
+                    // (while the requests in flight are being sent)
+                    next = prepareOne(toSend.next(), prepare);
+                    aborted = next == null;
+                }
+                if (inFlight.isEmpty()) {
+                    break;
+                }
+                Future<Entry<T, Boolean>> done = completionService.take();
+                inFlight.remove(done);
+                Entry<T, Boolean> outcome = done.get();
+                if (outcome.getValue()) {
+                    publicized.add(outcome.getKey());
+                    onPublicized.accept(outcome.getKey());
+                } else {
+                    aborted = true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            aborted = true;
+        } catch (ExecutionException e) {
+            // send() doesn't throw; should not happen
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // (the executor is shared: only the requests of this call are stopped)
+            for (Future<Entry<T, Boolean>> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+        List<T> failed = new ArrayList<>();
+        if (aborted) {
+            for (T dvObject : dvObjects) {
+                if (!publicized.contains(dvObject)) {
+                    failed.add(dvObject);
+                }
+            }
+        }
+        logger.log(Level.INFO, "Publicized {0} of {1} identifier(s) with {2} in {3} ms",
+                new Object[]{publicized.size(), dvObjects.size(), providerId, System.currentTimeMillis() - start});
+        return failed;
+    }
+
+    /**
+     * @return the object with its publication; null if it could not be
+     *         prepared
+     */
+    private <T extends DvObject> Entry<T, Publication> prepareOne(T dvObject, Function<T, Publication> prepare) {
+        try {
+            return new SimpleImmutableEntry<>(dvObject, prepare.apply(dvObject));
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not prepare the publication of " + dvObject.getId(), e);
+            return null;
+        }
+    }
+
+    private boolean send(DvObject dvObject, Publication publication) {
+        for (int attempt = 0; attempt <= retries; attempt++) {
+            try {
+                if (attempt > 0) {
+                    Thread.sleep(backoffMillis << (attempt - 1));
+                }
+                rateLimiter.acquire();
+                publication.send();
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Attempt " + (attempt + 1) + " to publicize the identifier of " + dvObject.getId()
+                        + " with " + providerId + " failed: " + e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Spaces the requests to a provider evenly, 1 / rate seconds apart; a rate
+     * of 0 or less means no limit.
+     */
+    static class RateLimiter {
+
+        private final long intervalNanos;
+        private long nextSlot = Long.MIN_VALUE;
+
+        RateLimiter(double rate) {
+            intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+        }
+
+        void acquire() throws InterruptedException {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long slot;
+            synchronized (this) {
+                long now = System.nanoTime();
+                slot = Math.max(now, nextSlot);
+                nextSlot = slot + intervalNanos;
+            }
+            long wait = slot - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+}
@@ -66,11 +66,18 @@ public class DOIDataCiteRegisterService {
     }
 
     public String registerIdentifier(String identifier, Map<String, String> metadata, DvObject dvObject) throws IOException {
-        String retString = "";
         String xmlMetadata = getMetadataFromDvObject(identifier, metadata, dvObject);
         String target = metadata.get("_target");
         
-        retString = client.postMetadata(xmlMetadata);
+        return registerIdentifier(identifier, xmlMetadata, target);
+    }
+
+    /**
+     * Registers the identifier with metadata already converted to XML; only
+     * calls DataCite, so it may be called from any thread.
+     */
+    public String registerIdentifier(String identifier, String xmlMetadata, String target) throws IOException {
+        String retString = client.postMetadata(xmlMetadata);
         client.postUrl(identifier.substring(identifier.indexOf(":") + 1), target);
 
         return retString;
@@ -7,6 +7,8 @@ import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -16,6 +18,7 @@ import edu.harvard.iq.dataverse.DatasetVersion;
 import edu.harvard.iq.dataverse.DvObject;
 import edu.harvard.iq.dataverse.FileMetadata;
 import edu.harvard.iq.dataverse.GlobalId;
+import edu.harvard.iq.dataverse.pidproviders.PidPublicizer;
 import edu.harvard.iq.dataverse.pidproviders.doi.AbstractDOIProvider;
 import org.apache.commons.httpclient.HttpException;
 import org.apache.commons.httpclient.HttpStatus;
@@ -211,6 +214,28 @@ public class DataCiteDOIProvider extends AbstractDOIProvider {
         }
     }
 
+    /**
+     * Sends the files concurrently, with the limits of {@link PidPublicizer}.
+     * The metadata of each file is built here, on the calling thread, as for
+     * {@link #publicizeIdentifier(DvObject)}.
+     */
+    @Override
+    public <T extends DvObject> List<T> publicizeIdentifiers(List<T> dvObjects, Executor executor, Consumer<T> onPublicized) {
+        return new PidPublicizer(getId(), executor).publicize(dvObjects, dvObject -> {
+            if (dvObject.getIdentifier() == null || dvObject.getIdentifier().isEmpty()) {
+                generatePid(dvObject);
+            }
+            String identifier = getIdentifier(dvObject);
+            Map<String, String> metadata = getUpdateMetadata(dvObject);
+            metadata.put("_status", FINDABLE);
+            metadata.put("datacite.publicationyear", generateYear(dvObject));
+            metadata.put("_target", getTargetUrl(dvObject));
+            String xmlMetadata = DOIDataCiteRegisterService.getMetadataFromDvObject(identifier, metadata, dvObject);
+            String target = metadata.get("_target");
+            return () -> doiDataCiteRegisterService.registerIdentifier(identifier, xmlMetadata, target);
+        }, onPublicized);
+    }
+
     @Override
     public List<String> getProviderInformation() {
         return List.of(getId(), "https://status.datacite.org");
@@ -7,7 +7,6 @@
 package edu.harvard.iq.dataverse.rserve;
 
 import java.util.logging.Logger;
-import org.rosuda.REngine.Rserve.*;
 import org.rosuda.REngine.Rserve.RserveException;
 import org.rosuda.REngine.REXP;
 
@@ -21,7 +20,6 @@ public class RRequest {
   
   private static final Logger LOG = Logger.getLogger(RRequest.class.getPackage().getName());
 
-  private RConnection mRC;
   private String mHost, mUser, mPassword, mScript;
   private int mPort;
 
@@ -50,23 +48,20 @@ public class RRequest {
     return this;
   }
   /**
-   * Evaluate script
+   * Evaluate script, on a connection from the (shared) Rserve pool
    * @return R-Expression
    */
   public REXP eval () {
     REXP result = null;
     
-    try {
-      open();
-      
-      result = mRC.eval(mScript);
+    try (RserveSession session = open()) {
+      if (session != null) {
+        result = session.getConnection().eval(mScript);
+      }
     }
     catch (RserveException e) {
       LOG.warning(String.format("RRequest: %s", e.getMessage()));
     }
-    finally {
-      close();
-    }
     
     return result;
   }
@@ -79,26 +74,23 @@ public class RRequest {
     return "Host: " + mHost + "\nPort: " + String.valueOf(mPort) + "\n";
   }
   /*
-   * Open the R Connection
+   * Get an R Connection from the pool
    */
-  private void open () {
+  private RserveSession open () {
     LOG.fine(String.format("RRequest: Attempting connection to RSERVE %s on port %d", mHost, mPort));
 
     try {
-      // Attempt connection
-      mRC = new RConnection(mHost, mPort);
-      
-      // Attempt login
-      mRC.login(mUser, mPassword);
+      // Attempt connection (and login, if the connection is a new one)
+      RserveSession session = RservePool.getInstance(mHost, mPort, mUser, mPassword).borrow();
       
       // SERVER VERSION
-      LOG.fine("SERVER VERSION = " + mRC.getServerVersion());
+      LOG.fine("SERVER VERSION = " + session.getConnection().getServerVersion());
       
       // Output everything is cool message
       LOG.fine(String.format("RRequest: Successful Connection to RSERVE on %s %d", mHost, mPort));
+      return session;
     }
     catch (RserveException exc) {
-      mRC = null;
       int code = exc.getRequestReturnCode();
       
       // If bad hostname *OR* bad port
@@ -114,18 +106,7 @@ public class RRequest {
       
       // Stack trace...
       exc.printStackTrace();
+      return null;
     }
   }
-  /*
-   * Close the R Connection
-   */
-  private void close () {
-    mRC.close();
-  }
-  /*
-   * Get R Connection
-   */
-  public RConnection getRConnection () {
-    return mRC;
-  }
 }
\ No newline at end of file
@@ -24,15 +24,12 @@ import edu.harvard.iq.dataverse.dataaccess.DataAccess;
 import edu.harvard.iq.dataverse.dataaccess.StorageIO;
 import edu.harvard.iq.dataverse.dataaccess.DataAccessRequest;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -118,18 +115,15 @@ public class RemoteDataFrameService {
     public Map<String, String> directConvert(File originalFile, String fmt){
         
         Map<String, String> result = new HashMap<>();
-        try {
-            RConnection connection = setupConnection();
+        try (RserveSession session = openSession()) {
+            RConnection connection = session.getConnection();
             // send the data file to the Rserve side:
-            InputStream inFile = new BufferedInputStream(new FileInputStream(originalFile));
-
-            RFileOutputStream rOutFile = connection.createFile(tempFileNameIn);
-            copyWithBuffer(inFile, rOutFile, 1024);
+            session.upload(originalFile, tempFileNameIn);
                         
             // We need to initialize our R session:
-            // send custom R code library over to the Rserve and load the code:
-            String rscript = readLocalResource(DATAVERSE_R_FUNCTIONS);
-            connection.voidEval(rscript);
+            // send custom R code library over to the Rserve and load the code
+            // (unless this pooled R session has it loaded already):
+            session.loadScript(DATAVERSE_R_FUNCTIONS, readLocalResource(DATAVERSE_R_FUNCTIONS));
             
             String dataFileName = "Data." + PID + ".RData";
             
@@ -142,7 +136,7 @@ public class RemoteDataFrameService {
             connection.voidEval(command);
             
             int wbFileSize = getFileSize(connection, dsnprfx);
-            File localDataFrameFile = transferRemoteFile(connection, dsnprfx, RWRKSP_FILE_PREFIX,"RData", wbFileSize);
+            File localDataFrameFile = transferRemoteFile(session, dsnprfx, RWRKSP_FILE_PREFIX,"RData", wbFileSize);
             
             if (localDataFrameFile != null){
                 logger.fine("data frame file name: "+localDataFrameFile.getAbsolutePath());
@@ -158,8 +152,6 @@ public class RemoteDataFrameService {
             
             String deleteLine = "file.remove('"+tempFileNameIn+"')";
             connection.eval(deleteLine);
- 
-            connection.close();
         
         } catch (IOException | REXPMismatchException | RserveException e) {
             logger.severe(e.getMessage());
@@ -185,22 +177,18 @@ public class RemoteDataFrameService {
     
         Map<String, String> result = new HashMap<>();
         
-        try {
-            RConnection connection = setupConnection();
+        try (RserveSession session = openSession()) {
+            RConnection connection = session.getConnection();
             // send the data file to the Rserve side:
-            InputStream inFile = new BufferedInputStream(new FileInputStream(
-                                     jobRequest.getTabularDataFileName()));
-
-            RFileOutputStream rOutFile = connection.createFile(tempFileNameIn);
-            copyWithBuffer(inFile, rOutFile, 1024);
+            session.upload(new File(jobRequest.getTabularDataFileName()), tempFileNameIn);
             
             // Rserve code starts here
             logger.fine("wrkdir="+RSERVE_TMP_DIR);
                         
             // We need to initialize our R session:
-            // send custom R code library over to the Rserve and load the code:
-            String rscript = readLocalResource(DATAVERSE_R_FUNCTIONS);
-            connection.voidEval(rscript);
+            // send custom R code library over to the Rserve and load the code
+            // (unless this pooled R session has it loaded already):
+            session.loadScript(DATAVERSE_R_FUNCTIONS, readLocalResource(DATAVERSE_R_FUNCTIONS));
             logger.fine("raw variable type="+Arrays.toString(jobRequest.getVariableTypes()));
             connection.assign("vartyp", new REXPInteger(jobRequest.getVariableTypes()));
         
@@ -461,7 +449,7 @@ public class RemoteDataFrameService {
             
             logger.fine("wbFileSize="+wbFileSize);
             
-            result.putAll(buildResult(connection, dsnprfx, wbFileSize, result));
+            result.putAll(buildResult(session, dsnprfx, wbFileSize, result));
         } catch (Exception e) {
             logger.severe(e.getMessage());
             result.put("RexecError", "true");
@@ -471,11 +459,12 @@ public class RemoteDataFrameService {
         
     }
 
-    private Map<String, String> buildResult(RConnection connection, String dsnprfx, int wbFileSize, Map<String, String> result) throws RserveException, REXPMismatchException {
+    private Map<String, String> buildResult(RserveSession session, String dsnprfx, int wbFileSize, Map<String, String> result) throws RserveException, REXPMismatchException {
+        RConnection connection = session.getConnection();
         // If the above succeeded, the dataframe has been saved on the
         // Rserve side as an .Rdata file. Now we can transfer it back to the
         // dataverse side:
-        File localDataFrameFile = transferRemoteFile(connection, dsnprfx, RWRKSP_FILE_PREFIX,"RData", wbFileSize);
+        File localDataFrameFile = transferRemoteFile(session, dsnprfx, RWRKSP_FILE_PREFIX,"RData", wbFileSize);
         
         if (localDataFrameFile != null){
             logger.fine("data frame file name: "+localDataFrameFile.getAbsolutePath());
@@ -491,24 +480,21 @@ public class RemoteDataFrameService {
         
         String deleteLine = "file.remove('"+tempFileNameIn+"')";
         connection.eval(deleteLine);
-        connection.close();
         return result;
     }
 
-    private RConnection setupConnection() throws REXPMismatchException, RserveException {
-        // Set up an Rserve connection
+    private RserveSession openSession() throws RserveException {
+        // Get an Rserve connection from the pool (the connections are shared
+        // with the RData ingest; closing the session returns it to the pool)
         logger.fine("RSERVE_USER="+RSERVE_USER+"[default=rserve]");
-        logger.fine("RSERVE_PASSWORD="+RSERVE_PWD+"[default=rserve]");
         logger.fine("RSERVE_PORT="+RSERVE_PORT+"[default=6311]");
         logger.fine("RSERVE_HOST="+RSERVE_HOST);
-        RConnection connection = new RConnection(RSERVE_HOST, RSERVE_PORT);
-        connection.login(RSERVE_USER, RSERVE_PWD);
-        logger.fine(">" + connection.eval("R.version$version.string").asString() + "<");
+        RserveSession session = RservePool.getInstance(RSERVE_HOST, RSERVE_PORT, RSERVE_USER, RSERVE_PWD).borrow();
         // check working directories
         // This needs to be done *before* we try to create any files
         // there!
-        setupWorkingDirectory(connection);
-        return connection;
+        setupWorkingDirectory(session.getConnection());
+        return session;
     }
     
     public void setupWorkingDirectory(RConnection connection) {
@@ -536,16 +522,6 @@ public class RemoteDataFrameService {
         
         try {
             
-            // Set up an Rserve connection
-            
-            RConnection connection = new RConnection(RSERVE_HOST, RSERVE_PORT);
-
-            connection.login(RSERVE_USER, RSERVE_PWD);            
-            // check working directories
-            // This needs to be done *before* we try to create any files 
-            // there!
-            setupWorkingDirectory(connection);
-            
             // send the tabular data file to the Rserve side:
             
             StorageIO<DataFile> accessObject = DataAccess.getStorageIO(dataFile,
@@ -560,51 +536,46 @@ public class RemoteDataFrameService {
             if (is == null) {
                 return null; 
             }
-                    
-            // Create the output stream on the remote, R end: 
             
-            RFileOutputStream rOutStream = connection.createFile(tempFileNameIn);   
-            
-
             // before writing out any bytes from the input stream, flush
             // any extra content, such as the variable header for the 
             // subsettable files:
             if (accessObject.getVarHeader() != null) {
-                rOutStream.write(accessObject.getVarHeader().getBytes());
+                is = new SequenceInputStream(new ByteArrayInputStream(accessObject.getVarHeader().getBytes()), is);
             }
-
-            copyWithBuffer(is, rOutStream, 4*8192); 
             
-            // Rserve code starts here
-            logger.fine("wrkdir="+RSERVE_TMP_DIR);
+            try (InputStream dataStream = is; RserveSession session = openSession()) {
+                RConnection connection = session.getConnection();
             
-            // Locate the R code and run it on the temp file we've just 
-            // created: 
+                // Stream it straight to the remote, R end: 
+                session.upload(dataStream, tempFileNameIn);
             
-            connection.voidEval("library(rjson)");
-            String rscript = readLocalResource(DATAVERSE_R_PREPROCESSING);
-            logger.fine("preprocessing R code: "+rscript.substring(0,64));
-            connection.voidEval(rscript);
+                // Rserve code starts here
+                logger.fine("wrkdir="+RSERVE_TMP_DIR);
             
-            String runPreprocessing = "json<-preprocess(filename=\""+ tempFileNameIn +"\")";
-            logger.fine("data preprocessing command: "+runPreprocessing);
-            connection.voidEval(runPreprocessing);
-                        
-            // Save the output in a temp file: 
+                // Locate the R code and run it on the temp file we've just 
+                // created: 
             
-            String saveResult = "write(json, file='"+ tempFileNameOut +"')";
-            logger.fine("data preprocessing save command: "+saveResult);
-            connection.voidEval(saveResult);
+                session.loadScript(DATAVERSE_R_PREPROCESSING, "library(rjson)\n" + readLocalResource(DATAVERSE_R_PREPROCESSING));
             
-            // Finally, transfer the saved file back on the application side:
+                String runPreprocessing = "json<-preprocess(filename=\""+ tempFileNameIn +"\")";
+                logger.fine("data preprocessing command: "+runPreprocessing);
+                connection.voidEval(runPreprocessing);
+                        
+                // Save the output in a temp file: 
             
-            int fileSize = getFileSize(connection,tempFileNameOut);
-            preprocessedDataFile = transferRemoteFile(connection, tempFileNameOut, PREPROCESS_FILE_PREFIX, "json", fileSize);
+                String saveResult = "write(json, file='"+ tempFileNameOut +"')";
+                logger.fine("data preprocessing save command: "+saveResult);
+                connection.voidEval(saveResult);
             
-            String deleteLine = "file.remove('"+tempFileNameOut+"')";
-            connection.eval(deleteLine);
+                // Finally, transfer the saved file back on the application side:
             
-            connection.close();
+                int fileSize = getFileSize(connection,tempFileNameOut);
+                preprocessedDataFile = transferRemoteFile(session, tempFileNameOut, PREPROCESS_FILE_PREFIX, "json", fileSize);
+            
+                String deleteLine = "file.remove('"+tempFileNameOut+"')";
+                connection.eval(deleteLine);
+            }
         } catch (Exception ex){
             ex.printStackTrace();
             return null ;
@@ -614,18 +585,6 @@ public class RemoteDataFrameService {
         return preprocessedDataFile;
     }
 
-    private void copyWithBuffer(InputStream is, RFileOutputStream rOutStream, int bufSize) throws IOException {
-        byte[] buffer = new byte[bufSize];
-       bufSize = is.read(buffer);
-        while (bufSize != -1) {
-            rOutStream.write(buffer, 0, bufSize);
-            bufSize = is.read(buffer);
-        }
-        
-        is.close();
-        rOutStream.close();
-    }
-    
     // utilitiy methods:
     
     /**
@@ -678,25 +637,16 @@ public class RemoteDataFrameService {
     }
         
     
-    public File transferRemoteFile(RConnection connection, String targetFilename,
+    public File transferRemoteFile(RserveSession session, String targetFilename,
             String tmpFilePrefix, String tmpFileExt, int fileSize) {
 
         // set up a local temp file:
         File tmpResultFile = null;
-        RFileInputStream rInStream = null;
-        OutputStream outbr = null;
         try {
             tmpResultFile = File.createTempFile(tmpFilePrefix + PID, "."+tmpFileExt);
-            outbr = new BufferedOutputStream(new FileOutputStream(tmpResultFile));
-            // open the input stream
-            rInStream = connection.openFile(targetFilename);
-            if (fileSize < 1024 * 1024 * 500) {
-                byte[] obuf = new byte[fileSize];
-                rInStream.read(obuf);
-                outbr.write(obuf, 0, fileSize);
-            }
-            rInStream.close();
-            outbr.close();
+            logger.fine("transferring " + fileSize + " bytes from " + targetFilename);
+            // (streamed, in blocks; the file can be of any size)
+            session.download(targetFilename, tmpResultFile);
             return tmpResultFile;
         } catch (FileNotFoundException fe) {
             fe.printStackTrace();
@@ -705,30 +655,13 @@ public class RemoteDataFrameService {
         } catch (IOException ie) {
             ie.printStackTrace();
             logger.fine("IO exception occurred");
-        } finally {
-            if (rInStream != null) {
-                try {
-                    rInStream.close();
-                } catch (IOException e) {
-
-                }
-            }
-
-            if (outbr != null) {
-                try {
-                    outbr.close();
-                } catch (IOException e) {
-
-                }
-            }
-
         }
         
         // delete remote file: 
         
         try {
             String deleteLine = "file.remove('"+targetFilename+"')";
-            connection.eval(deleteLine);
+            session.getConnection().eval(deleteLine);
         } catch (Exception ex) {
             // do nothing.
         }
@@ -0,0 +1,195 @@
+package edu.harvard.iq.dataverse.rserve;
+
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.rosuda.REngine.Rserve.RConnection;
+import org.rosuda.REngine.Rserve.RserveException;
+
+/**
+ * A bounded pool of Rserve connections, shared by the RData ingest and the
+ * R-based format conversions.
+ *
+ * Every Rserve connection is served by an R process of its own; starting one,
+ * logging in and loading the R packages and functions we need used to be
+ * repeated for every request. Pooled connections (see RserveSession) are
+ * instead reset and kept for the next request, with the packages and
+ * functions already loaded. No more than pool-size connections are open at a
+ * time; further requests wait for a connection to be returned. Idle
+ * connections are closed after pool-idle-timeout seconds (by
+ * RservePoolServiceBean, on the managed scheduled executor, or when a
+ * connection is borrowed), and a connection is checked before it is handed out
+ * again. The connections are closed when the application is stopped.
+ */
+public class RservePool {
+
+    private static final Logger logger = Logger.getLogger(RservePool.class.getCanonicalName());
+
+    private static final int DEFAULT_SIZE = 4;
+    static final long DEFAULT_IDLE_TIMEOUT_SECONDS = 300;
+    private static final long DEFAULT_WAIT_TIMEOUT_SECONDS = 600;
+
+    // one pool for each Rserve server (and login) in use:
+    private static final Map<String, RservePool> pools = new ConcurrentHashMap<>();
+
+    interface ConnectionFactory {
+        RConnection open() throws RserveException;
+    }
+
+    private final ConnectionFactory factory;
+    private final Semaphore permits;
+    // most recently used first:
+    private final Deque<RserveSession> idle = new ArrayDeque<>();
+    private final long idleTimeoutMillis;
+    private final long waitTimeoutMillis;
+    // set when the application is stopped; the connections returned are then
+    // closed:
+    private volatile boolean closed = false;
+
+    RservePool(ConnectionFactory factory, int size, long idleTimeoutMillis, long waitTimeoutMillis) {
+        this.factory = factory;
+        this.permits = new Semaphore(Math.max(1, size), true);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+    }
+
+    public static RservePool getInstance() {
+        return getInstance(JvmSettings.RSERVE_HOST.lookup(),
+                JvmSettings.RSERVE_PORT.lookup(Integer.class),
+                JvmSettings.RSERVE_USER.lookup(),
+                JvmSettings.RSERVE_PASSWORD.lookup());
+    }
+
+    public static RservePool getInstance(String host, int port, String user, String password) {
+        String key = String.join("\n", host, Integer.toString(port), user, password);
+        return pools.computeIfAbsent(key, k -> {
+            int size = JvmSettings.RSERVE_POOL_SIZE.lookupOptional(Integer.class).orElse(DEFAULT_SIZE);
+            long idleTimeout = JvmSettings.RSERVE_POOL_IDLE_TIMEOUT.lookupOptional(Long.class).orElse(DEFAULT_IDLE_TIMEOUT_SECONDS);
+            long waitTimeout = JvmSettings.RSERVE_POOL_WAIT_TIMEOUT.lookupOptional(Long.class).orElse(DEFAULT_WAIT_TIMEOUT_SECONDS);
+            logger.fine("Creating a pool of " + size + " connections to Rserve on " + host + ":" + port);
+
+            return new RservePool(() -> {
+                RConnection connection = new RConnection(host, port);
+                try {
+                    connection.login(user, password);
+                } catch (RserveException ex) {
+                    connection.close();
+                    throw ex;
+                }
+                return connection;
+            }, size, TimeUnit.SECONDS.toMillis(idleTimeout), TimeUnit.SECONDS.toMillis(waitTimeout));
+        });
+    }
+
+    /**
+     * Closes the connections of all the pools that have been idle for longer
+     * than the idle timeout.
+     */
+    static void evictIdleConnections() {
+        for (RservePool pool : pools.values()) {
+            pool.evictIdle();
+        }
+    }
+
+    /**
+     * Closes the idle connections of all the pools, and the connections in
+     * use once they are returned.
+     */
+    static void closeAll() {
+        for (Iterator<RservePool> it = pools.values().iterator(); it.hasNext();) {
+            RservePool pool = it.next();
+            it.remove();
+            pool.close();
+        }
+    }
+
+    /**
+     * Returns a connection from the pool, or a new one, waiting for one to be
+     * returned if the pool is exhausted. The session must be closed when done,
+     * to return the connection to the pool.
+     */
+    public RserveSession borrow() throws RserveException {
+        try {
+            if (!permits.tryAcquire(waitTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new RserveException(null, "Timed out waiting for an Rserve connection");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RserveException(null, "Interrupted while waiting for an Rserve connection");
+        }
+
+        try {
+            RserveSession session;
+            while ((session = pollIdle()) != null) {
+                if (session.resume()) {
+                    return session;
+                }
+                logger.fine("Discarding a broken Rserve connection");
+                session.disconnect();
+            }
+            return new RserveSession(this, factory.open());
+        } catch (RserveException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    void release(RserveSession session) {
+        try {
+            if (!closed && session.reset()) {
+                synchronized (idle) {
+                    idle.addFirst(session);
+                }
+            } else {
+                session.disconnect();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private RserveSession pollIdle() {
+        synchronized (idle) {
+            evictIdle();
+            return idle.pollFirst();
+        }
+    }
+
+    void evictIdle() {
+        long now = System.currentTimeMillis();
+        synchronized (idle) {
+            // close the connections that have been idle for too long (they
+            // are at the end of the queue):
+            for (Iterator<RserveSession> it = idle.descendingIterator(); it.hasNext();) {
+                RserveSession session = it.next();
+                if (now - session.getLastUsed() < idleTimeoutMillis) {
+                    break;
+                }
+                it.remove();
+                session.disconnect();
+            }
+        }
+    }
+
+    void close() {
+        closed = true;
+        synchronized (idle) {
+            RserveSession session;
+            while ((session = idle.pollFirst()) != null) {
+                session.disconnect();
+            }
+        }
+    }
+
+    int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+}
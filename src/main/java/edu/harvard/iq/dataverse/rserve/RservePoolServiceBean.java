@@ -0,0 +1,53 @@
+package edu.harvard.iq.dataverse.rserve;
+
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+
+/**
+ * Closes the idle connections of the {@link RservePool}s periodically, on the
+ * managed scheduled executor (rather than only when a connection is
+ * borrowed, so that the R processes of a pool that is no longer used don't
+ * stay up), and all of their connections when the application is stopped.
+ */
+@Singleton
+@Startup
+public class RservePoolServiceBean {
+
+    private static final Logger logger = Logger.getLogger(RservePoolServiceBean.class.getCanonicalName());
+
+    @Resource
+    ManagedScheduledExecutorService scheduler;
+
+    private ScheduledFuture<?> eviction;
+
+    @PostConstruct
+    public void init() {
+        long idleTimeout = JvmSettings.RSERVE_POOL_IDLE_TIMEOUT.lookupOptional(Long.class).orElse(RservePool.DEFAULT_IDLE_TIMEOUT_SECONDS);
+        // (so that a connection isn't kept for much longer than the timeout)
+        long period = Math.max(1, idleTimeout / 2);
+        eviction = scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                RservePool.evictIdleConnections();
+            } catch (RuntimeException ex) {
+                logger.log(Level.WARNING, "Could not close the idle Rserve connections", ex);
+            }
+        }, period, period, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (eviction != null) {
+            eviction.cancel(false);
+        }
+        RservePool.closeAll();
+    }
+}
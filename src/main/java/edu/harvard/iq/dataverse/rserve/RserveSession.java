@@ -0,0 +1,212 @@
+package edu.harvard.iq.dataverse.rserve;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.rosuda.REngine.REXPMismatchException;
+import org.rosuda.REngine.REXPString;
+import org.rosuda.REngine.Rserve.RConnection;
+import org.rosuda.REngine.Rserve.RFileInputStream;
+import org.rosuda.REngine.Rserve.RFileOutputStream;
+import org.rosuda.REngine.Rserve.RserveException;
+
+/**
+ * A connection borrowed from the RservePool; closing the session returns the
+ * connection to the pool.
+ *
+ * Before the connection is reused, the R objects created during the session
+ * are removed, and the working directory and options are restored. The
+ * objects defined by the scripts loaded with loadScript() are kept (as are
+ * the packages loaded, and the options the scripts set), so that the next
+ * session using the connection doesn't have to load the same script again.
+ */
+public class RserveSession implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(RserveSession.class.getCanonicalName());
+
+    // Every write to (or read from) a file on the Rserve side is a request of
+    // its own, so the transfers are made in large blocks:
+    private static final int TRANSFER_BUFFER_SIZE = 256 * 1024;
+
+    private static final String SAVED_OPTIONS = ".dataverse.options";
+    private static final String OPTIONS_BEFORE_SCRIPT = ".dataverse.options.before";
+
+    // The options set by a script are added to the saved ones (only those;
+    // not the ones the current session may have set before loading it):
+    private static final String SAVE_SCRIPT_OPTIONS = "local({ "
+            + "after <- options(); "
+            + "changed <- names(after)[!mapply(identical, after, " + OPTIONS_BEFORE_SCRIPT + "[names(after)])]; "
+            + SAVED_OPTIONS + "[changed] <<- after[changed] }); "
+            + "rm(" + OPTIONS_BEFORE_SCRIPT + ")";
+
+    private final RservePool pool;
+    private final RConnection connection;
+    private final String workingDirectory;
+    private final Set<String> loadedScripts = new HashSet<>();
+    private final Set<String> preservedNames = new HashSet<>();
+    private long lastUsed;
+    private boolean broken = false;
+    private boolean closed = false;
+
+    RserveSession(RservePool pool, RConnection connection) throws RserveException {
+        this.pool = pool;
+        this.connection = connection;
+        try {
+            workingDirectory = connection.eval("getwd()").asString();
+            connection.voidEval(SAVED_OPTIONS + " <- options()");
+        } catch (REXPMismatchException | RserveException ex) {
+            connection.close();
+            throw new RserveException(connection, "Could not initialize the Rserve session: " + ex.getMessage());
+        }
+        preservedNames.add(SAVED_OPTIONS);
+        lastUsed = System.currentTimeMillis();
+    }
+
+    public RConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Evaluates an R script, unless it has already been loaded into this R
+     * session (by an earlier user of the connection).
+     *
+     * @param name a name identifying the script, e.g. its resource path
+     */
+    public void loadScript(String name, String script) throws RserveException {
+        if (loadedScripts.contains(name)) {
+            logger.fine("R script " + name + " already loaded");
+            return;
+        }
+        Set<String> namesBefore = listObjects();
+        connection.voidEval(OPTIONS_BEFORE_SCRIPT + " <- options()");
+        connection.voidEval(script);
+        connection.voidEval(SAVE_SCRIPT_OPTIONS);
+        Set<String> namesAfter = listObjects();
+        namesAfter.removeAll(namesBefore);
+        preservedNames.addAll(namesAfter);
+        loadedScripts.add(name);
+    }
+
+    /**
+     * Saves the stream as a file on the Rserve side. (The stream is not
+     * closed.)
+     */
+    public void upload(InputStream in, String remotePath) throws IOException {
+        try (RFileOutputStream out = connection.createFile(remotePath)) {
+            copy(in, out);
+        } catch (IOException ex) {
+            broken = true;
+            throw ex;
+        }
+    }
+
+    public void upload(File localFile, String remotePath) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(localFile), TRANSFER_BUFFER_SIZE)) {
+            upload(in, remotePath);
+        }
+    }
+
+    /**
+     * Copies a file on the Rserve side into the stream. (The stream is not
+     * closed.)
+     */
+    public void download(String remotePath, OutputStream out) throws IOException {
+        try (RFileInputStream in = connection.openFile(remotePath)) {
+            copy(in, out);
+        } catch (IOException ex) {
+            broken = true;
+            throw ex;
+        }
+    }
+
+    public void download(String remotePath, File localFile) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(localFile))) {
+            download(remotePath, out);
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[TRANSFER_BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+    }
+
+    /**
+     * Closes the connection when the session is closed, instead of returning
+     * it to the pool; for when the R session may be left in a state that
+     * can't be cleaned up.
+     */
+    public void invalidate() {
+        broken = true;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pool.release(this);
+    }
+
+    /**
+     * Checks that an idle connection still works, before it is reused.
+     */
+    boolean resume() {
+        if (!connection.isConnected()) {
+            return false;
+        }
+        try {
+            connection.voidEval("invisible(NULL)");
+        } catch (RserveException ex) {
+            return false;
+        }
+        closed = false;
+        return true;
+    }
+
+    boolean reset() {
+        lastUsed = System.currentTimeMillis();
+        if (broken || !connection.isConnected()) {
+            return false;
+        }
+        try {
+            connection.assign(".dataverse.wd", workingDirectory);
+            connection.assign(".dataverse.keep", new REXPString(preservedNames.toArray(new String[0])));
+            connection.voidEval("setwd(.dataverse.wd); options(" + SAVED_OPTIONS + "); "
+                    + "rm(list = setdiff(ls(all.names = TRUE), .dataverse.keep))");
+            return true;
+        } catch (RserveException | RuntimeException ex) {
+            logger.log(Level.FINE, "Could not reset the Rserve session; the connection will be closed", ex);
+            return false;
+        }
+    }
+
+    void disconnect() {
+        connection.close();
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    private Set<String> listObjects() throws RserveException {
+        try {
+            return new HashSet<>(Arrays.asList(connection.eval("ls(all.names = TRUE)").asStrings()));
+        } catch (REXPMismatchException ex) {
+            throw new RserveException(connection, "Could not list the objects in the R session: " + ex.getMessage());
+        }
+    }
+}
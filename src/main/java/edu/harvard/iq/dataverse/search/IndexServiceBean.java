@@ -96,6 +96,8 @@ public class IndexServiceBean {
     @EJB
     DvObjectServiceBean dvObjectService;
     @EJB
+    DvObjectTreeServiceBean dvObjectTree;
+    @EJB
     DataverseServiceBean dataverseService;
     @EJB
     DatasetServiceBean datasetService;
@@ -1740,6 +1742,11 @@ public class IndexServiceBean {
     }
 
     public List<String> findPathSegments(Dataverse dataverse, List<String> segments, Dataverse topOfPath) {
+        List<String> pathSegments = dvObjectTree.findPathSegments(dataverse);
+        if (pathSegments != null) {
+            segments.addAll(pathSegments);
+            return segments;
+        }
         Dataverse rootDataverse = findRootDataverseCached();
         if (topOfPath == null) {
             topOfPath = rootDataverse;
@@ -91,6 +91,17 @@ public enum FeatureFlags {
      * @since Dataverse 6.3
      */
     DISABLE_RETURN_TO_AUTHOR_REASON("disable-return-to-author-reason"),
+    /**
+     * With this flag enabled, thumbnails are no longer generated on the fly by
+     * the request that first asks for them. Instead, the generation is queued
+     * for a bounded pool of background workers (after upload, or on first
+     * request for files that don't have one yet) and the placeholder icon is
+     * shown until the thumbnail is available.
+     * @apiNote Raise flag by setting
+     * "dataverse.feature.async-thumbnail-generation"
+     * @since Dataverse 6.4
+     */
+    ASYNC_THUMBNAIL_GENERATION("async-thumbnail-generation"),
     ;
     
     final String flag;
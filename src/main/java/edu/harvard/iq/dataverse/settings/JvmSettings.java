@@ -51,11 +51,42 @@ public enum JvmSettings {
     DOCROOT_DIRECTORY(SCOPE_FILES, "docroot"),
     GUESTBOOK_AT_REQUEST(SCOPE_FILES, "guestbook-at-request"),
     GLOBUS_CACHE_MAXAGE(SCOPE_FILES, "globus-cache-maxage"),
+    FILES_UNZIP_THREADS(SCOPE_FILES, "unzip-threads"),
+
+    // THUMBNAIL SETTINGS
+    SCOPE_THUMBNAILS(SCOPE_FILES, "thumbnails"),
+    THUMBNAILS_MAX_ASYNC_GENERATIONS(SCOPE_THUMBNAILS, "max-async-generations"),
+    THUMBNAILS_SIZES(SCOPE_THUMBNAILS, "sizes"),
+    THUMBNAILS_CARD_CACHE_SIZE(SCOPE_THUMBNAILS, "card-cache-size"),
+
+    // CHECKSUM VALIDATION SETTINGS
+    SCOPE_CHECKSUM_VALIDATION(SCOPE_FILES, "checksum-validation"),
+    CHECKSUM_VALIDATION_THREADS(SCOPE_CHECKSUM_VALIDATION, "threads"),
+    CHECKSUM_VALIDATION_AUDIT_ENABLED(SCOPE_CHECKSUM_VALIDATION, "audit-enabled"),
+
+    // FILESYSTEM IMPORT SETTINGS
+    SCOPE_FILESYSTEM_IMPORT(SCOPE_FILES, "filesystem-import"),
+    FILESYSTEM_IMPORT_CHUNK_SIZE(SCOPE_FILESYSTEM_IMPORT, "chunk-size"),
+    FILESYSTEM_IMPORT_THREADS(SCOPE_FILESYSTEM_IMPORT, "threads"),
 
     //STORAGE DRIVER SETTINGS
     SCOPE_DRIVER(SCOPE_FILES),
     DISABLE_S3_TAGGING(SCOPE_DRIVER, "disable-tagging"),
-    
+    CHECKSUM_VALIDATION_STORE_THREADS(SCOPE_DRIVER, "checksum-validation-threads"),
+    
+    // ACTION LOG SETTINGS
+    SCOPE_ACTION_LOG(PREFIX, "action-log"),
+    ACTION_LOG_WRITE_BEHIND(SCOPE_ACTION_LOG, "write-behind"),
+    ACTION_LOG_FLUSH_INTERVAL(SCOPE_ACTION_LOG, "flush-interval-ms"),
+    ACTION_LOG_BATCH_SIZE(SCOPE_ACTION_LOG, "batch-size"),
+    ACTION_LOG_QUEUE_SIZE(SCOPE_ACTION_LOG, "queue-size"),
+    ACTION_LOG_READ_ONLY_SAMPLE_RATE(SCOPE_ACTION_LOG, "read-only-sample-rate"),
+
+    // INGEST SETTINGS
+    SCOPE_INGEST(PREFIX, "ingest"),
+    INGEST_PRE_CONVERT_FORMATS(SCOPE_INGEST, "pre-convert-formats"),
+    INGEST_CONVERSION_WAIT_TIMEOUT(SCOPE_INGEST, "conversion-wait-timeout"),
+
     // SOLR INDEX SETTINGS
     SCOPE_SOLR(PREFIX, "solr"),
     SOLR_HOST(SCOPE_SOLR, "host"),
@@ -75,12 +106,20 @@ public enum JvmSettings {
     RSERVE_USER(SCOPE_RSERVE, "user"),
     RSERVE_PASSWORD(SCOPE_RSERVE, "password"),
     RSERVE_TEMPDIR(SCOPE_RSERVE, "tempdir"),
+    RSERVE_POOL_SIZE(SCOPE_RSERVE, "pool-size"),
+    RSERVE_POOL_IDLE_TIMEOUT(SCOPE_RSERVE, "pool-idle-timeout"),
+    RSERVE_POOL_WAIT_TIMEOUT(SCOPE_RSERVE, "pool-wait-timeout"),
     
     // API SETTINGS
     SCOPE_API(PREFIX, "api"),
     API_SIGNING_SECRET(SCOPE_API, "signing-secret"),
     API_ALLOW_INCOMPLETE_METADATA(SCOPE_API, "allow-incomplete-metadata"),
 
+    // BATCH IMPORT SETTINGS
+    SCOPE_BATCH_IMPORT(PREFIX, "batch-import"),
+    BATCH_IMPORT_THREADS(SCOPE_BATCH_IMPORT, "threads"),
+    BATCH_IMPORT_CHUNK_SIZE(SCOPE_BATCH_IMPORT, "chunk-size"),
+
     // SIGNPOSTING SETTINGS
     SCOPE_SIGNPOSTING(PREFIX, "signposting"),
     SIGNPOSTING_LEVEL1_AUTHOR_LIMIT(SCOPE_SIGNPOSTING, "level1-author-limit"),
@@ -110,6 +149,9 @@ public enum JvmSettings {
     PID_PROVIDER_DATAFILE_PID_FORMAT(SCOPE_PID_PROVIDER, "datafile-pid-format"),
     PID_PROVIDER_MANAGED_LIST(SCOPE_PID_PROVIDER, "managed-list"),
     PID_PROVIDER_EXCLUDED_LIST(SCOPE_PID_PROVIDER, "excluded-list"),
+    PID_PROVIDER_PUBLICIZE_THREADS(SCOPE_PID_PROVIDER, "publicize-threads"),
+    PID_PROVIDER_PUBLICIZE_RATE(SCOPE_PID_PROVIDER, "publicize-rate"),
+    PID_PROVIDER_PUBLICIZE_RETRIES(SCOPE_PID_PROVIDER, "publicize-retries"),
 
         
     // PROVIDER EZID - these settings were formerly kept together with DataCite ones
@@ -231,6 +273,15 @@ public enum JvmSettings {
     UI_ALLOW_REVIEW_INCOMPLETE(SCOPE_UI, "allow-review-for-incomplete"),
     UI_SHOW_VALIDITY_FILTER(SCOPE_UI, "show-validity-filter"),
     UI_SHOW_VALIDITY_LABEL_WHEN_PUBLISHED(SCOPE_UI, "show-validity-label-when-published"),
+    UI_MAX_FILE_DIFFERENCES(SCOPE_UI, "max-file-differences"),
+
+    // EXTERNAL VOCABULARY SETTINGS
+    SCOPE_CVOC(PREFIX, "cvoc"),
+    CVOC_RETRIEVAL_THREADS(SCOPE_CVOC, "retrieval-threads"),
+    CVOC_RETRIEVAL_MAX_PER_SERVICE(SCOPE_CVOC, "retrieval-max-per-service"),
+    CVOC_RETRIEVAL_FAILURE_TTL(SCOPE_CVOC, "retrieval-failure-ttl"),
+    CVOC_CACHE_SIZE(SCOPE_CVOC, "cache-size"),
+    CVOC_CACHE_REFRESH_AFTER(SCOPE_CVOC, "cache-refresh-after"),
 
     // NetCDF SETTINGS
     SCOPE_NETCDF(PREFIX, "netcdf"),
@@ -1,9 +1,11 @@
 package edu.harvard.iq.dataverse.settings;
 
+import edu.harvard.iq.dataverse.MetadataSchemaListener;
 import java.io.Serializable;
 import java.util.Objects;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Id;
 import jakarta.persistence.NamedQueries;
 import jakarta.persistence.NamedQuery;
@@ -28,6 +30,7 @@ import jakarta.persistence.GenerationType;
 
 })
 @Entity
+@EntityListeners(MetadataSchemaListener.class)
 public class Setting implements Serializable {
 
     @Id
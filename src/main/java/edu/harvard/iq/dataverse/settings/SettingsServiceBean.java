@@ -1,5 +1,6 @@
 package edu.harvard.iq.dataverse.settings;
 
+import edu.harvard.iq.dataverse.MetadataSchemaServiceBean;
 import edu.harvard.iq.dataverse.actionlogging.ActionLogRecord;
 import edu.harvard.iq.dataverse.actionlogging.ActionLogServiceBean;
 import edu.harvard.iq.dataverse.api.ApiBlockingFilter;
@@ -692,6 +693,9 @@ public class SettingsServiceBean {
     
     @EJB
     ActionLogServiceBean actionLogSvc;
+
+    @EJB
+    MetadataSchemaServiceBean metadataSchemaService;
     
     /**
      * Basic functionality - get the name, return the setting, or {@code null}.
@@ -940,6 +944,10 @@ public class SettingsServiceBean {
         em.createNamedQuery("Setting.deleteByName")
                 .setParameter("name", name)
                 .executeUpdate();
+        // (a bulk delete doesn't call the entity listeners)
+        if (Key.CVocConf.toString().equals(name)) {
+            metadataSchemaService.changed();
+        }
     }
 
     public void delete( String name, String lang ) {
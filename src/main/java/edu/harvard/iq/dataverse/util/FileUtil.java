@@ -62,6 +62,10 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -84,6 +88,8 @@ import java.util.ResourceBundle;
 import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import jakarta.activation.MimetypesFileTypeMap;
 import jakarta.ejb.EJBException;
 import jakarta.enterprise.inject.spi.CDI;
@@ -728,26 +734,55 @@ public class FileUtil implements java.io.Serializable  {
 
     // from MD5Checksum.java
     public static String calculateChecksum(InputStream in, ChecksumType checksumType) {
-        MessageDigest md = null;
+        return calculateChecksum(Channels.newChannel(in), checksumType);
+    }
+
+    // The read buffers are pooled, and shared by all the threads calculating
+    // checksums, e.g. the FileChecksumValidator going through thousands of
+    // files, or the entries of a zip file being unpacked; rather than kept per
+    // thread, which would leave one with every container thread that has ever
+    // calculated a checksum:
+    private static final int CHECKSUM_BUFFER_SIZE = 64 * 1024;
+    private static final BlockingQueue<ByteBuffer> checksumBuffers = new ArrayBlockingQueue<>(16);
+
+    private static ByteBuffer borrowChecksumBuffer() {
+        ByteBuffer buffer = checksumBuffers.poll();
+        return buffer != null ? buffer.clear() : ByteBuffer.allocate(CHECKSUM_BUFFER_SIZE);
+    }
+
+    private static void returnChecksumBuffer(ByteBuffer buffer) {
+        // (dropped if the pool is full)
+        checksumBuffers.offer(buffer);
+    }
+
+    private static MessageDigest getMessageDigest(ChecksumType checksumType) {
         try {
             // Use "SHA-1" (toString) rather than "SHA1", for example.
-            md = MessageDigest.getInstance(checksumType.toString());
+            return MessageDigest.getInstance(checksumType.toString());
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException(e);
         }
+    }
 
-        byte[] dataBytes = new byte[1024];
+    /**
+     * Calculates the checksum of everything left in the channel, and closes it.
+     */
+    public static String calculateChecksum(ReadableByteChannel channel, ChecksumType checksumType) {
+        MessageDigest md = getMessageDigest(checksumType);
 
-        int nread;
+        ByteBuffer buffer = borrowChecksumBuffer();
         try {
-            while ((nread = in.read(dataBytes)) != -1) {
-                md.update(dataBytes, 0, nread);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                md.update(buffer);
+                buffer.clear();
             }
         } catch (IOException ex) {
             throw new RuntimeException(ex);
         } finally {
+            returnChecksumBuffer(buffer);
             try {
-                in.close();
+                channel.close();
             } catch (Exception e) {
             }
         }
@@ -755,6 +790,30 @@ public class FileUtil implements java.io.Serializable  {
         return checksumDigestToString(md.digest());
     }
     
+    /**
+     * Saves what is left in the stream to a file, calculating its checksum
+     * in the same pass (rather than reading the file again afterwards). The
+     * stream is not closed (e.g. it may be the current entry of a zip file).
+     *
+     * @return the checksum
+     */
+    public static String saveInputStreamWithChecksum(InputStream in, Path target, ChecksumType checksumType) throws IOException {
+        MessageDigest md = getMessageDigest(checksumType);
+
+        ByteBuffer buffer = borrowChecksumBuffer();
+        byte[] bytes = buffer.array();
+        try (OutputStream out = Files.newOutputStream(target)) {
+            int read;
+            while ((read = in.read(bytes)) != -1) {
+                md.update(bytes, 0, read);
+                out.write(bytes, 0, read);
+            }
+        } finally {
+            returnChecksumBuffer(buffer);
+        }
+        return checksumDigestToString(md.digest());
+    }
+    
     public static String calculateChecksum(byte[] dataBytes, ChecksumType checksumType) {
         MessageDigest md = null;
         try {
@@ -1450,32 +1509,69 @@ public class FileUtil implements java.io.Serializable  {
         }
     }
 
-    public static void validateDataFileChecksum(DataFile dataFile) throws IOException {
-        DataFile.ChecksumType checksumType = dataFile.getChecksumType();
-        if (checksumType == null) {
+    private static ReadableByteChannel getOriginalFileChannel(StorageIO<DataFile> storage, boolean isTabularData) throws IOException {
+        InputStream inputStream = getOriginalFileInputStream(storage, isTabularData);
+        // Local files can be read straight from their FileChannel:
+        if (!isTabularData && storage.getChannel() instanceof FileChannel) {
+            return storage.getReadChannel();
+        }
+        return Channels.newChannel(inputStream);
+    }
+
+    /**
+     * Opens the stored original of the file (the saved original of a tabular
+     * file), for {@link #validateDataFileChecksum(DataFile)}. This may read
+     * the database (e.g. the DataTable of a tabular file), so it must be done
+     * on a thread that may use the DataFile; the channel itself can then be
+     * read anywhere.
+     *
+     * @throws IOException with the validation error message, if the file has
+     *                     no checksum type or cannot be opened
+     */
+    public static ReadableByteChannel openDataFileForChecksumValidation(DataFile dataFile, StorageIO<DataFile> storage) throws IOException {
+        if (dataFile.getChecksumType() == null) {
             String info = BundleUtil.getStringFromBundle("dataset.publish.file.validation.error.noChecksumType", Arrays.asList(dataFile.getId().toString()));
             logger.log(Level.INFO, info);
             throw new IOException(info);
         }
-
-        StorageIO<DataFile> storage = dataFile.getStorageIO();
-        String recalculatedChecksum = null;
-
-        try (InputStream inputStream = getOriginalFileInputStream(storage, dataFile.isTabularData())) {
-            recalculatedChecksum = FileUtil.calculateChecksum(inputStream, checksumType);
+        try {
+            return getOriginalFileChannel(storage, dataFile.isTabularData());
         } catch (IOException ioex) {
             String info = BundleUtil.getStringFromBundle("dataset.publish.file.validation.error.failRead", Arrays.asList(dataFile.getId().toString()));
             logger.log(Level.INFO, info);
             throw new IOException(info);
+        }
+    }
+
+    public static void validateDataFileChecksum(DataFile dataFile) throws IOException {
+        StorageIO<DataFile> storage = dataFile.getStorageIO();
+        String recalculatedChecksum = null;
+
+        try (ReadableByteChannel channel = openDataFileForChecksumValidation(dataFile, storage)) {
+            recalculatedChecksum = FileUtil.calculateChecksum(channel, dataFile.getChecksumType());
         } catch (RuntimeException rte) {
             logger.log(Level.SEVERE, "failed to calculated checksum, one retry", rte);
             recalculatedChecksum = null;
         }
 
+        validateRecalculatedChecksum(dataFile, storage, recalculatedChecksum);
+    }
+
+    /**
+     * The rest of {@link #validateDataFileChecksum(DataFile)}, once the
+     * checksum of the stored file has been calculated (from the channel of
+     * {@link #openDataFileForChecksumValidation}).
+     *
+     * @param recalculatedChecksum null if the calculation failed; it is then
+     *                             tried once more
+     */
+    public static void validateRecalculatedChecksum(DataFile dataFile, StorageIO<DataFile> storage, String recalculatedChecksum) throws IOException {
+        DataFile.ChecksumType checksumType = dataFile.getChecksumType();
+
         if (recalculatedChecksum == null) { //retry once
             storage = dataFile.getStorageIO();
-            try (InputStream inputStream = getOriginalFileInputStream(storage, dataFile.isTabularData())) {
-                recalculatedChecksum = FileUtil.calculateChecksum(inputStream, checksumType);
+            try (ReadableByteChannel channel = getOriginalFileChannel(storage, dataFile.isTabularData())) {
+                recalculatedChecksum = FileUtil.calculateChecksum(channel, checksumType);
             }
         }
 
@@ -1590,30 +1686,6 @@ public class FileUtil implements java.io.Serializable  {
     	}
     }
     
-    public static boolean isFileAlreadyUploaded(DataFile dataFile, Map checksumMapNew, Map fileAlreadyExists) {
-        if (checksumMapNew == null) {
-            checksumMapNew = new HashMap<>();
-        }
-        
-        if (fileAlreadyExists == null) {
-            fileAlreadyExists = new HashMap<>();
-        }
-        
-        String chksum = dataFile.getChecksumValue();
-        
-        if (chksum == null) {
-            return false;
-        }
-        
-        if (checksumMapNew.get(chksum) != null) {
-            fileAlreadyExists.put(dataFile, checksumMapNew.get(chksum));
-            return true;
-        }
-        
-        checksumMapNew.put(chksum, dataFile);
-        return false;
-    }
-    
     public static String formatFolderListingHtml(String folderName, DatasetVersion version, String apiLocation, boolean originals) {
         String title = formatTitle("Index of folder /" + folderName);
         List<FileMetadata> fileMetadatas = version.getFileMetadatasFolderListing(folderName);
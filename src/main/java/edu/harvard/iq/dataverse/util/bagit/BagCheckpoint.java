@@ -0,0 +1,216 @@
+package edu.harvard.iq.dataverse.util.bagit;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+
+/**
+ * The data files written so far into a bag being generated (see
+ * {@link BagGenerator#generateResumableBag(File)}), kept in a file next to it:
+ * one line per file, written as soon as the file is in the zip, with where
+ * its entry starts and what it contains. If the generation fails, or the
+ * server goes down, the next attempt copies these entries (still compressed)
+ * from the partial zip left behind, rather than retrieving the files again.
+ */
+class BagCheckpoint implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(BagCheckpoint.class.getCanonicalName());
+
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_FILE_HEADER_LENGTH = 30;
+
+    /**
+     * A data file written into the zip.
+     */
+    static class Entry {
+
+        private final String name;
+        private final long offset;
+        private final long crc;
+        private final long compressedSize;
+        private final long size;
+        private final String checksum;
+
+        Entry(String name, long offset, long crc, long compressedSize, long size, String checksum) {
+            this.name = name;
+            this.offset = offset;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.checksum = checksum;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * @return the offset of the (local header of the) entry in the zip
+         */
+        long getOffset() {
+            return offset;
+        }
+
+        String getChecksum() {
+            return checksum;
+        }
+
+        /**
+         * @return the same entry, copied to another offset
+         */
+        Entry withOffset(long offset) {
+            return new Entry(name, offset, crc, compressedSize, size, checksum);
+        }
+
+        String toLine() {
+            return offset + "\t" + crc + "\t" + compressedSize + "\t" + size + "\t" + checksum + "\t" + name;
+        }
+
+        static Entry fromLine(String line) {
+            String[] fields = line.split("\t", 6);
+            return new Entry(fields[5], Long.parseLong(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                    Long.parseLong(fields[3]), fields[4]);
+        }
+    }
+
+    private final BufferedWriter writer;
+
+    /**
+     * Starts a new checkpoint file (replacing any previous one).
+     */
+    BagCheckpoint(File file) throws IOException {
+        writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the entries recorded in a checkpoint file, by name. A line left
+     * incomplete by a crash is ignored.
+     */
+    static Map<String, Entry> read(File file) throws IOException {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    Entry entry = Entry.fromLine(line);
+                    entries.put(entry.getName(), entry);
+                } catch (RuntimeException ex) {
+                    logger.fine("Ignoring checkpoint line: " + line);
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Records an entry, once all of it has been written (and flushed).
+     */
+    void record(Entry entry) throws IOException {
+        writer.write(entry.toLine());
+        writer.newLine();
+        writer.flush();
+    }
+
+    /**
+     * Copies an entry, as it is (compressed), from a previous, partial zip.
+     *
+     * @return false if the entry isn't where the checkpoint says it is
+     */
+    static boolean copyEntry(RandomAccessFile previousZip, Entry entry, ZipArchiveOutputStream zipArchiveOutputStream) throws IOException {
+        byte[] header = new byte[LOCAL_FILE_HEADER_LENGTH];
+        if (entry.offset + LOCAL_FILE_HEADER_LENGTH + entry.compressedSize > previousZip.length()) {
+            return false;
+        }
+        previousZip.seek(entry.offset);
+        previousZip.readFully(header);
+        if (getInt(header, 0) != LOCAL_FILE_HEADER_SIGNATURE || getShort(header, 8) != ZipEntry.DEFLATED) {
+            return false;
+        }
+        int nameLength = getShort(header, 26);
+        int extraLength = getShort(header, 28);
+        byte[] name = new byte[nameLength];
+        previousZip.readFully(name);
+        if (!entry.name.equals(new String(name, StandardCharsets.UTF_8))) {
+            return false;
+        }
+        long dataOffset = entry.offset + LOCAL_FILE_HEADER_LENGTH + nameLength + extraLength;
+        if (dataOffset + entry.compressedSize > previousZip.length()) {
+            return false;
+        }
+
+        ZipArchiveEntry archiveEntry = new ZipArchiveEntry(entry.name);
+        archiveEntry.setMethod(ZipEntry.DEFLATED);
+        archiveEntry.setCrc(entry.crc);
+        archiveEntry.setCompressedSize(entry.compressedSize);
+        archiveEntry.setSize(entry.size);
+        previousZip.seek(dataOffset);
+        zipArchiveOutputStream.addRawArchiveEntry(archiveEntry, new RegionInputStream(previousZip, entry.compressedSize));
+        return true;
+    }
+
+    private static int getShort(byte[] b, int offset) {
+        return (b[offset] & 0xff) | (b[offset + 1] & 0xff) << 8;
+    }
+
+    private static int getInt(byte[] b, int offset) {
+        return getShort(b, offset) | getShort(b, offset + 2) << 16;
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Could not close the bag checkpoint", ex);
+        }
+    }
+
+    /**
+     * Reads count bytes from the current position of the file.
+     */
+    private static class RegionInputStream extends InputStream {
+
+        private final RandomAccessFile file;
+        private long remaining;
+
+        RegionInputStream(RandomAccessFile file, long count) {
+            this.file = file;
+            this.remaining = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            remaining--;
+            return file.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = file.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+    }
+}
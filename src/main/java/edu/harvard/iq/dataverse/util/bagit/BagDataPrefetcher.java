@@ -0,0 +1,155 @@
+package edu.harvard.iq.dataverse.util.bagit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import org.apache.commons.compress.parallel.InputStreamSupplier;
+
+/**
+ * Retrieves the data files of a bag ahead of the thread writing them into the
+ * zip: while one file is being written, the next ones (as many as there are
+ * threads) are already being retrieved, into buffers of a fixed size. The
+ * memory used is bounded by maxBufferedBytes, whatever the size of the files;
+ * a retrieval waits when its buffer is full, until the writer has caught up.
+ *
+ * The files must be opened in order.
+ */
+class BagDataPrefetcher implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(BagDataPrefetcher.class.getCanonicalName());
+
+    static final int BLOCK_SIZE = 256 * 1024;
+    private static final byte[] END = new byte[0];
+
+    private final List<InputStreamSupplier> sources;
+    private final int threads;
+    private final int blocksPerFile;
+    private final ExecutorService executor;
+    private final List<Retrieval> retrievals;
+    private int next = 0;
+
+    BagDataPrefetcher(List<InputStreamSupplier> sources, int threads, long maxBufferedBytes) {
+        this.sources = sources;
+        this.threads = Math.max(1, threads);
+        this.blocksPerFile = (int) Math.max(1, maxBufferedBytes / BLOCK_SIZE / this.threads);
+        this.executor = Executors.newFixedThreadPool(this.threads);
+        this.retrievals = new ArrayList<>(sources.size());
+    }
+
+    /**
+     * Opens the index-th file, and starts the retrieval of the files after it.
+     */
+    InputStream open(int index) {
+        if (index != next) {
+            throw new IllegalStateException("File " + index + " opened out of order; expected " + next);
+        }
+        next++;
+        while (retrievals.size() < Math.min(sources.size(), index + threads)) {
+            Retrieval retrieval = new Retrieval(sources.get(retrievals.size()));
+            retrieval.future = executor.submit(retrieval);
+            retrievals.add(retrieval);
+        }
+        Retrieval retrieval = retrievals.get(index);
+        // (the list keeps its size, so that the indexes don't change)
+        retrievals.set(index, null);
+        return retrieval.stream;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private class Retrieval implements Runnable {
+
+        private final InputStreamSupplier source;
+        private final BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<>(blocksPerFile);
+        private volatile IOException error;
+        private Future<?> future;
+
+        private final InputStream stream = new InputStream() {
+            private byte[] block;
+            private int position;
+
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (block == END) {
+                    return -1;
+                }
+                if (block == null || position == block.length) {
+                    try {
+                        block = blocks.take();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while retrieving a file", ex);
+                    }
+                    position = 0;
+                    if (block == END) {
+                        if (error != null) {
+                            throw error;
+                        }
+                        return -1;
+                    }
+                }
+                int n = Math.min(len, block.length - position);
+                System.arraycopy(block, position, b, off, n);
+                position += n;
+                return n;
+            }
+
+            @Override
+            public void close() {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        };
+
+        Retrieval(InputStreamSupplier source) {
+            this.source = source;
+        }
+
+        @Override
+        public void run() {
+            try (InputStream in = source.get()) {
+                if (in == null) {
+                    throw new IOException("File could not be retrieved");
+                }
+                byte[] block = new byte[BLOCK_SIZE];
+                int n;
+                while ((n = in.readNBytes(block, 0, BLOCK_SIZE)) > 0) {
+                    blocks.put(n == BLOCK_SIZE ? block : Arrays.copyOf(block, n));
+                    block = new byte[BLOCK_SIZE];
+                }
+            } catch (InterruptedException ex) {
+                // (closed; nothing is reading this file anymore)
+                return;
+            } catch (IOException ex) {
+                error = ex;
+            } catch (RuntimeException ex) {
+                error = new IOException(ex);
+            }
+            try {
+                blocks.put(END);
+            } catch (InterruptedException ex) {
+                logger.fine("Retrieval interrupted");
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package edu.harvard.iq.dataverse.util.bagit;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.File;
@@ -9,21 +10,28 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.Map.Entry;
@@ -36,6 +44,7 @@ import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
 
 import edu.harvard.iq.dataverse.util.BundleUtil;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
 import org.apache.commons.compress.archivers.zip.ScatterZipOutputStream;
@@ -45,6 +54,7 @@ import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.commons.compress.parallel.InputStreamSupplier;
 import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
 import org.apache.commons.text.WordUtils;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.config.CookieSpecs;
@@ -122,6 +132,41 @@ public class BagGenerator {
     private int numConnections = 8;
     public static final String BAG_GENERATOR_THREADS = ":BagGeneratorThreads";
 
+    // Streaming mode: the zip is written as the bag is generated, with the
+    // data files retrieved ahead into buffers of at most maxBufferedBytes
+    // in total (see BagDataPrefetcher), rather than spooled to temp files
+    public static final String BAG_GENERATOR_BUFFER_SIZE = ":BagGeneratorBufferSize";
+    public static final long DEFAULT_BUFFER_SIZE_MB = 64;
+    private boolean streaming = false;
+    private long maxBufferedBytes = DEFAULT_BUFFER_SIZE_MB * 1024 * 1024;
+    private ZipArchiveOutputStream zipArchiveOutputStream = null;
+    private CountingOutputStream countingOutputStream = null;
+    private List<DataEntry> dataEntries = new ArrayList<>();
+    // Resuming (see generateResumableBag)
+    private BagCheckpoint checkpoint = null;
+    private Map<String, BagCheckpoint.Entry> completedEntries = Collections.emptyMap();
+    private RandomAccessFile previousZip = null;
+
+    /**
+     * A data file to be written into the bag, in streaming mode.
+     */
+    private static class DataEntry {
+        final String path;
+        final String dataUrl;
+        final JsonObject child;
+        // (from the ORE map; null if it has to be calculated)
+        final String expectedHash;
+        final Long size;
+
+        DataEntry(String path, String dataUrl, JsonObject child, String expectedHash, Long size) {
+            this.path = path;
+            this.dataUrl = dataUrl;
+            this.child = child;
+            this.expectedHash = expectedHash;
+            this.size = size;
+        }
+    }
+
     private OREMap oremap;
 
     static PrintWriter pw = null;
@@ -203,9 +248,13 @@ public class BagGenerator {
      */
     public boolean generateBag(OutputStream outputStream) throws Exception {
         
-
-        File tmp = File.createTempFile("qdr-scatter-dirs", "tmp");
-        dirs = ScatterZipOutputStream.fileBased(tmp);
+        if (streaming) {
+            countingOutputStream = new CountingOutputStream(new BufferedOutputStream(outputStream, BagDataPrefetcher.BLOCK_SIZE));
+            zipArchiveOutputStream = new ZipArchiveOutputStream(countingOutputStream);
+        } else {
+            File tmp = File.createTempFile("qdr-scatter-dirs", "tmp");
+            dirs = ScatterZipOutputStream.fileBased(tmp);
+        }
         // The oremapObject is javax.json.JsonObject and we need com.google.gson.JsonObject for the aggregation object
         aggregation = (JsonObject) new JsonParser().parse(oremapObject.getJsonObject(JsonLDTerm.ore("describes").getLabel()).toString());
 
@@ -241,6 +290,9 @@ public class BagGenerator {
             // children
             processContainer(aggregation, currentPath);
         }
+        if (streaming) {
+            writeDataEntries();
+        }
         // Create manifest files
         // pid-mapping.txt - a DataOne recommendation to connect ids and
         // in-bag path/names
@@ -311,16 +363,18 @@ public class BagGenerator {
 
         logger.fine("Creating bag: " + bagName);
 
-        ZipArchiveOutputStream zipArchiveOutputStream = new ZipArchiveOutputStream(outputStream);
-
-        /*
-         * Add all the waiting contents - dirs created first, then data files are
-         * retrieved via URLs in parallel (defaults to one thread per processor)
-         * directly to the zip file
-         */
-        logger.fine("Starting write");
-        writeTo(zipArchiveOutputStream);
-        logger.fine("Zipfile Written");
+        if (!streaming) {
+            zipArchiveOutputStream = new ZipArchiveOutputStream(outputStream);
+
+            /*
+             * Add all the waiting contents - dirs created first, then data files are
+             * retrieved via URLs in parallel (defaults to one thread per processor)
+             * directly to the zip file
+             */
+            logger.fine("Starting write");
+            writeTo(zipArchiveOutputStream);
+            logger.fine("Zipfile Written");
+        }
         // Finish
         zipArchiveOutputStream.close();
         logger.fine("Closed");
@@ -572,7 +626,11 @@ public class BagGenerator {
                     hashtype = DataFile.ChecksumType.SHA512;
                 }
                 try {
-                    if ((childHash == null) | ignorehashes) {
+                    if (streaming) {
+                        // The file is retrieved, and its hash calculated, as it's written into the zip
+                        Long size = child.has(JsonLDTerm.filesize.getLabel()) ? child.get(JsonLDTerm.filesize.getLabel()).getAsLong() : null;
+                        dataEntries.add(new DataEntry(childPath, dataUrl, child, ignorehashes ? null : childHash, size));
+                    } else if ((childHash == null) | ignorehashes) {
                         // Generate missing hashInputStream inputStream = null;
                         InputStream inputStream = null;
                         try {
@@ -607,8 +665,10 @@ public class BagGenerator {
                             logger.warning("Unable to calculate a " + hashtype + " for " + dataUrl);
                         }
                     }
-                    logger.fine("Requesting: " + childPath + " from " + dataUrl);
-                    createFileFromURL(childPath, dataUrl);
+                    if (!streaming) {
+                        logger.fine("Requesting: " + childPath + " from " + dataUrl);
+                        createFileFromURL(childPath, dataUrl);
+                    }
                     dataCount++;
                     if (dataCount % 1000 == 0) {
                         logger.info("Retrieval in progress: " + dataCount + " files retrieved");
@@ -670,6 +730,11 @@ public class BagGenerator {
 
         ZipArchiveEntry archiveEntry = new ZipArchiveEntry(bagName + "/" + name);
         archiveEntry.setMethod(ZipEntry.DEFLATED);
+        if (streaming) {
+            zipArchiveOutputStream.putArchiveEntry(archiveEntry);
+            zipArchiveOutputStream.closeArchiveEntry();
+            return;
+        }
         InputStreamSupplier supp = new InputStreamSupplier() {
             public InputStream get() {
                 return new ByteArrayInputStream(("").getBytes());
@@ -684,6 +749,12 @@ public class BagGenerator {
 
         ZipArchiveEntry archiveEntry = new ZipArchiveEntry(bagName + "/" + relPath);
         archiveEntry.setMethod(ZipEntry.DEFLATED);
+        if (streaming) {
+            zipArchiveOutputStream.putArchiveEntry(archiveEntry);
+            zipArchiveOutputStream.write(content.getBytes(StandardCharsets.UTF_8));
+            zipArchiveOutputStream.closeArchiveEntry();
+            return;
+        }
         InputStreamSupplier supp = new InputStreamSupplier() {
             public InputStream get() {
                 return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
@@ -702,6 +773,139 @@ public class BagGenerator {
         addEntry(archiveEntry, supp);
     }
 
+    /**
+     * Streaming mode: writes the data files into the zip, one after the other,
+     * as they are retrieved (several at a time, with bounded buffers; see
+     * BagDataPrefetcher), calculating their hashes on the way. The files
+     * written by a previous attempt (see generateResumableBag) are copied from
+     * the zip it left instead. Each file is recorded in the checkpoint, if
+     * there is one, once it's in the zip.
+     */
+    private void writeDataEntries() throws IOException {
+        if (hashtype == null) {
+            hashtype = DataFile.ChecksumType.SHA512;
+        }
+        List<DataEntry> retrievals = new ArrayList<>();
+        for (DataEntry dataEntry : dataEntries) {
+            BagCheckpoint.Entry completed = completedEntries.get(bagName + "/" + dataEntry.path);
+            if (completed != null && previousZip != null
+                    && (dataEntry.expectedHash == null || dataEntry.expectedHash.equalsIgnoreCase(completed.getChecksum()))) {
+                long offset = countingOutputStream.getByteCount();
+                if (BagCheckpoint.copyEntry(previousZip, completed, zipArchiveOutputStream)) {
+                    completeDataEntry(dataEntry, completed.getChecksum(), completed.withOffset(offset));
+                    continue;
+                }
+                logger.warning("Could not reuse " + dataEntry.path + " from the previous attempt; retrieving it again");
+            }
+            retrievals.add(dataEntry);
+        }
+        if (!completedEntries.isEmpty()) {
+            logger.info((dataEntries.size() - retrievals.size()) + " files reused from the previous attempt at " + bagName);
+        }
+
+        List<InputStreamSupplier> sources = new ArrayList<>(retrievals.size());
+        for (DataEntry dataEntry : retrievals) {
+            sources.add(getInputStreamSupplier(dataEntry.dataUrl));
+        }
+        byte[] buffer = new byte[BagDataPrefetcher.BLOCK_SIZE];
+        try (BagDataPrefetcher prefetcher = new BagDataPrefetcher(sources, numConnections, maxBufferedBytes)) {
+            for (int i = 0; i < retrievals.size(); i++) {
+                DataEntry dataEntry = retrievals.get(i);
+                ZipArchiveEntry archiveEntry = new ZipArchiveEntry(bagName + "/" + dataEntry.path);
+                archiveEntry.setMethod(ZipEntry.DEFLATED);
+                if (dataEntry.size != null) {
+                    // (so that Zip64 extensions are used if needed)
+                    archiveEntry.setSize(dataEntry.size);
+                }
+                MessageDigest digest = DigestUtils.getDigest(hashtype.toString());
+                long offset = countingOutputStream.getByteCount();
+                logger.fine("Requesting: " + dataEntry.path + " from " + dataEntry.dataUrl);
+                zipArchiveOutputStream.putArchiveEntry(archiveEntry);
+                try (InputStream inputStream = prefetcher.open(i)) {
+                    int n;
+                    while ((n = inputStream.read(buffer)) != -1) {
+                        digest.update(buffer, 0, n);
+                        zipArchiveOutputStream.write(buffer, 0, n);
+                    }
+                } catch (IOException e) {
+                    logger.severe("Failed to read " + dataEntry.path);
+                    throw e;
+                }
+                zipArchiveOutputStream.closeArchiveEntry();
+
+                String hash = Hex.encodeHexString(digest.digest());
+                if (dataEntry.expectedHash != null && !dataEntry.expectedHash.equalsIgnoreCase(hash)) {
+                    throw new IOException("The " + hashtype + " of " + dataEntry.path + " is " + hash + ", not "
+                            + dataEntry.expectedHash + " as expected");
+                }
+                completeDataEntry(dataEntry, hash, new BagCheckpoint.Entry(archiveEntry.getName(), offset, archiveEntry.getCrc(),
+                        archiveEntry.getCompressedSize(), archiveEntry.getSize(), hash));
+                if ((i + 1) % 1000 == 0) {
+                    logger.info("Retrieval in progress: " + (i + 1) + " of " + retrievals.size() + " files written");
+                }
+            }
+        }
+    }
+
+    private void completeDataEntry(DataEntry dataEntry, String hash, BagCheckpoint.Entry checkpointEntry) throws IOException {
+        if (dataEntry.expectedHash == null) {
+            JsonObject childHashObject = new JsonObject();
+            childHashObject.addProperty("@type", hashtype.toString());
+            childHashObject.addProperty("@value", hash);
+            dataEntry.child.add(JsonLDTerm.checksum.getLabel(), (JsonElement) childHashObject);
+            checksumMap.put(dataEntry.path, hash);
+        }
+        if (checkpoint != null) {
+            zipArchiveOutputStream.flush();
+            checkpoint.record(checkpointEntry);
+        }
+    }
+
+    /**
+     * Generates the bag into the file, in streaming mode, keeping a checkpoint
+     * of the data files written so far next to it. If a previous attempt
+     * failed, leaving its partial bag and checkpoint behind, the data files it
+     * wrote are copied from it rather than retrieved again. The bag is not
+     * read again to validate it: the hash of each data file is checked as
+     * it's written (the ones copied were checked by the attempt that wrote
+     * them), and generation fails on a mismatch.
+     *
+     * @return success true/false
+     */
+    public boolean generateResumableBag(File bagFile) {
+        streaming = true;
+        File partialFile = new File(bagFile.getPath() + ".partial");
+        File checkpointFile = new File(bagFile.getPath() + ".checkpoint");
+        File previousFile = new File(bagFile.getPath() + ".previous");
+        try {
+            if (partialFile.exists() && checkpointFile.exists()) {
+                completedEntries = BagCheckpoint.read(checkpointFile);
+                Files.move(partialFile.toPath(), previousFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                previousZip = new RandomAccessFile(previousFile, "r");
+                logger.info("Resuming bag " + bagFile.getName() + ": " + completedEntries.size()
+                        + " files were written by a previous attempt");
+            }
+            boolean generated;
+            try (BagCheckpoint bagCheckpoint = new BagCheckpoint(checkpointFile);
+                    OutputStream bagFileOS = new FileOutputStream(partialFile)) {
+                checkpoint = bagCheckpoint;
+                generated = generateBag(bagFileOS);
+            } finally {
+                IOUtils.closeQuietly(previousZip);
+            }
+            if (!generated) {
+                return false;
+            }
+            Files.move(partialFile.toPath(), bagFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(checkpointFile.toPath());
+            Files.deleteIfExists(previousFile.toPath());
+            return true;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Bag Exception (the bag can be resumed): ", e);
+            return false;
+        }
+    }
+
     private void checkFiles(HashMap<String, String> shaMap, File bagFile) {
         ExecutorService executor = Executors.newFixedThreadPool(numConnections);
         ZipFile zf = null;
@@ -1128,4 +1332,19 @@ public class BagGenerator {
         logger.fine("BagGenerator will use " + numConnections + " threads");
     }
 
+    /**
+     * Writes the zip as the bag is generated, rather than spooling its
+     * entries to temp files first.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * In streaming mode, the most data retrieved ahead of the zip.
+     */
+    public void setMaxBufferedBytes(long maxBufferedBytes) {
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
 }
\ No newline at end of file
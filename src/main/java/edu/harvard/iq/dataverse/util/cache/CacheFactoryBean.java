@@ -8,35 +8,54 @@ import jakarta.ejb.EJB;
 import jakarta.ejb.Singleton;
 import jakarta.ejb.Startup;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
 
 import javax.cache.Cache;
 import javax.cache.CacheManager;
 import javax.cache.configuration.CompleteConfiguration;
 import javax.cache.configuration.MutableConfiguration;
+import javax.cache.expiry.Duration;
+import javax.cache.expiry.ModifiedExpiryPolicy;
 import javax.cache.spi.CachingProvider;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 @Singleton
 @Startup
 public class CacheFactoryBean implements java.io.Serializable {
     private static final Logger logger = Logger.getLogger(CacheFactoryBean.class.getCanonicalName());
-    // Retrieved from Hazelcast, implements ConcurrentMap and is threadsafe
-    Cache<String, String> rateLimitCache;
+    // Retrieved from Hazelcast, implements ConcurrentMap and is threadsafe.
+    // The values are the token buckets, see RateLimitUtil.TokenBucketProcessor
+    Cache<String, Long> rateLimitCache;
     @EJB
     SystemConfig systemConfig;
     @Inject
     CacheManager manager;
     @Inject
     CachingProvider provider;
-    public final static String RATE_LIMIT_CACHE = "rateLimitCache";
+    @Inject
+    MetricRegistry metricRegistry;
+    // The metrics of each tier, looked up once:
+    private final Map<Integer, TierMetrics> tierMetrics = new ConcurrentHashMap<>();
+    // (not "rateLimitCache", the name of the cache of the String values of
+    // the earlier buckets, which other members of a cluster being upgraded
+    // may still be using)
+    public final static String RATE_LIMIT_CACHE = "rateLimitTokenBuckets";
 
     @PostConstruct
     public void init() {
         rateLimitCache = manager.getCache(RATE_LIMIT_CACHE);
         if (rateLimitCache == null) {
-            CompleteConfiguration<String, String> config =
-                    new MutableConfiguration<String, String>()
-                            .setTypes( String.class, String.class );
+            // A bucket that was not used for an hour is full again, i.e. the
+            // same as no entry:
+            CompleteConfiguration<String, Long> config =
+                    new MutableConfiguration<String, Long>()
+                            .setTypes( String.class, Long.class )
+                            .setExpiryPolicyFactory(ModifiedExpiryPolicy.factoryOf(Duration.ONE_HOUR));
             rateLimitCache = manager.createCache(RATE_LIMIT_CACHE, config);
         }
     }
@@ -54,7 +73,37 @@ public class CacheFactoryBean implements java.io.Serializable {
             return true;
         } else {
             String cacheKey = RateLimitUtil.generateCacheKey(user, action);
-            return (!RateLimitUtil.rateLimited(rateLimitCache, cacheKey, capacity));
+            long tokens = RateLimitUtil.consumeToken(rateLimitCache, cacheKey, capacity);
+            recordMetrics(RateLimitUtil.getTier(user), capacity, tokens);
+            return tokens >= 0;
+        }
+    }
+
+    /**
+     * Counts the rejected calls of the tier, and records how full the bucket
+     * was, in percent, at each accepted call ("rate_limit_utilization"; a
+     * tier where the buckets are often close to 100% may be set too low).
+     */
+    private void recordMetrics(int tier, int capacity, long tokens) {
+        if (metricRegistry == null) {
+            return;
+        }
+        TierMetrics metrics = tierMetrics.computeIfAbsent(tier, t -> new TierMetrics(metricRegistry, t));
+        if (tokens < 0) {
+            metrics.rejections.inc();
+        } else {
+            metrics.utilization.update(100L * (capacity - tokens) / capacity);
+        }
+    }
+
+    private static class TierMetrics {
+        final Counter rejections;
+        final Histogram utilization;
+
+        TierMetrics(MetricRegistry metricRegistry, int tier) {
+            Tag tierTag = new Tag("tier", String.valueOf(tier));
+            rejections = metricRegistry.counter("rate_limit_rejections", tierTag);
+            utilization = metricRegistry.histogram("rate_limit_utilization", tierTag);
         }
     }
 }
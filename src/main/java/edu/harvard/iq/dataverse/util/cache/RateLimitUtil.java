@@ -9,6 +9,10 @@ import jakarta.json.bind.JsonbBuilder;
 import jakarta.json.bind.JsonbException;
 
 import javax.cache.Cache;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.MutableEntry;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -18,12 +22,14 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 
 import static java.lang.Math.max;
-import static java.lang.Math.min;
 
 public class RateLimitUtil {
     private static final Logger logger = Logger.getLogger(RateLimitUtil.class.getCanonicalName());
     static final List<RateLimitSetting> rateLimits = new CopyOnWriteArrayList<>();
     static final Map<String, Integer> rateLimitMap = new ConcurrentHashMap<>();
+    // Whether the settings have been read; rateLimits may well stay empty
+    // (when no rate limit json is set):
+    private static volatile boolean initialized = false;
     public static final int NO_LIMIT = -1;
 
     static String generateCacheKey(final User user, final String action) {
@@ -39,39 +45,82 @@ public class RateLimitUtil {
                 getCapacityByTierAndAction(systemConfig, authUser.getRateLimitTier(), action) :
                 getCapacityByTierAndAction(systemConfig, 0, action);
     }
-    static boolean rateLimited(final Cache<String, String> rateLimitCache, final String key, int capacityPerHour) {
+    static int getTier(User user) {
+        return (user instanceof AuthenticatedUser authUser) ? authUser.getRateLimitTier() : 0;
+    }
+    static boolean rateLimited(final Cache<String, Long> rateLimitCache, final String key, int capacityPerHour) {
+        return consumeToken(rateLimitCache, key, capacityPerHour) < 0;
+    }
+
+    /**
+     * Takes a token from the bucket of the key, atomically, with a single
+     * cache operation that is executed where the entry lives.
+     *
+     * @return the number of tokens left in the bucket, or -1 if the bucket was
+     * empty, i.e. the call is rate limited.
+     */
+    static long consumeToken(final Cache<String, Long> rateLimitCache, final String key, int capacityPerHour) {
+        // Checked locally, without a round-trip to the cache:
         if (capacityPerHour == NO_LIMIT) {
-            return false;
+            return Long.MAX_VALUE;
+        } else if (capacityPerHour <= 0) {
+            return -1L;
         }
-        long currentTime = System.currentTimeMillis() / 60000L; // convert to minutes
-        double tokensPerMinute = (capacityPerHour / 60.0);
-        // Get the last time this bucket was added to
-        final String keyLastUpdate = String.format("%s:last_update",key);
-        long lastUpdate = longFromKey(rateLimitCache, keyLastUpdate);
-        long deltaTime = currentTime - lastUpdate;
-        // Get the current number of tokens in the bucket
-        long tokens = longFromKey(rateLimitCache, key);
-        long tokensToAdd = (long) (deltaTime * tokensPerMinute);
-        if (tokensToAdd > 0) { // Don't update timestamp if we aren't adding any tokens to the bucket
-            tokens = min(capacityPerHour, tokens + tokensToAdd);
-            rateLimitCache.put(keyLastUpdate, String.valueOf(currentTime));
+        Long tokens = rateLimitCache.invoke(key, TokenBucketProcessor.INSTANCE, capacityPerHour);
+        return tokens != null ? tokens : -1L;
+    }
+
+    /**
+     * The token bucket, as a "generic cell rate algorithm": instead of a token
+     * count and the time of the last refill, the entry holds a single long, the
+     * time (in microseconds) at which the bucket will be full again. Each call
+     * pushes that time one refill interval (1 hour / capacity) further; a call
+     * is rejected when it would be pushed more than an hour into the future.
+     * The bucket is thus refilled continuously, not minute by minute, and an
+     * entry that wasn't modified for an hour is the same as a full bucket
+     * (see the expiry of the cache in {@link CacheFactoryBean}).
+     */
+    static class TokenBucketProcessor implements EntryProcessor<String, Long, Long>, Serializable {
+
+        static final TokenBucketProcessor INSTANCE = new TokenBucketProcessor();
+        static final long MICROS_PER_HOUR = 3_600_000_000L;
+
+        @Override
+        public Long process(MutableEntry<String, Long> entry, Object... arguments) throws EntryProcessorException {
+            int capacityPerHour = (Integer) arguments[0];
+            long interval = MICROS_PER_HOUR / capacityPerHour;
+            long burst = interval * capacityPerHour;
+            // The clock of the member that owns the entry, so that all the
+            // nodes of a cluster agree on the state of the bucket:
+            long now = System.currentTimeMillis() * 1000L;
+            Long fullAt = entry.getValue();
+            long newFullAt = max(fullAt != null ? fullAt : now, now) + interval;
+            if (newFullAt - now > burst) {
+                return -1L;
+            }
+            entry.setValue(newFullAt);
+            return (burst - (newFullAt - now)) / interval;
         }
-        // Update with any added tokens and decrement 1 token for this call if not rate limited (0 tokens)
-        rateLimitCache.put(key, String.valueOf(max(0, tokens-1)));
-        return tokens < 1;
     }
 
     static int getCapacityByTierAndAction(SystemConfig systemConfig, Integer tier, String action) {
-        if (rateLimits.isEmpty()) {
-            init(systemConfig);
+        if (!initialized) {
+            synchronized (RateLimitUtil.class) {
+                if (!initialized) {
+                    init(systemConfig);
+                }
+            }
         }
-        
+
         if (rateLimitMap.containsKey(getMapKey(tier, action))) {
             return rateLimitMap.get(getMapKey(tier,action));
         } else if (rateLimitMap.containsKey(getMapKey(tier))) {
             return rateLimitMap.get(getMapKey(tier));
         } else {
-            return getCapacityByTier(systemConfig, tier);
+            // Parsed once per tier, not on every call:
+            int capacity = getCapacityByTier(systemConfig, tier);
+            rateLimitMap.put(getMapKey(tier), capacity);
+            return capacity;
         }
     }
     static int getCapacityByTier(SystemConfig systemConfig, int tier) {
@@ -101,6 +150,16 @@ public class RateLimitUtil {
             rateLimitMap.put(getMapKey(r.getTier()), r.getDefaultLimitPerHour());
             r.getActions().forEach(a -> rateLimitMap.put(getMapKey(r.getTier(), a), r.getLimitPerHour()));
         });
+        initialized = true;
+    }
+
+    /**
+     * Forgets the settings read, so that they are read again on the next call.
+     */
+    static void reset() {
+        initialized = false;
+        rateLimitMap.clear();
+        rateLimits.clear();
     }
     
     @SuppressWarnings("java:S2133") // <- To enable casting to generic in JSON-B we need a class instance, false positive
@@ -127,8 +186,4 @@ public class RateLimitUtil {
     static String getMapKey(int tier, String action) {
         return tier + ":" + (action != null ? action : "");
     }
-    static long longFromKey(Cache<String, String> cache, String key) {
-        Object l = cache.get(key);
-        return l != null ? Long.parseLong(String.valueOf(l)) : 0L;
-    }
 }
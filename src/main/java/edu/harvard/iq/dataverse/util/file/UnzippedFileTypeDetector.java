@@ -0,0 +1,152 @@
+package edu.harvard.iq.dataverse.util.file;
+
+import edu.harvard.iq.dataverse.DataFile;
+import edu.harvard.iq.dataverse.settings.JvmSettings;
+import edu.harvard.iq.dataverse.util.FileUtil;
+import java.io.File;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Determines the types of the files unpacked from an uploaded zip file, with
+ * up to dataverse.files.unzip-threads workers on the (shared) executor, while
+ * the next entries of the zip file are being unpacked. At most twice as many
+ * files as there are workers wait for their type at a time, so that
+ * unpacking doesn't get far ahead of the workers; if the executor rejects a
+ * worker, the caller determines the types itself.
+ * <p>
+ * Each worker only sets the content type of its own DataFile; the DataFiles
+ * may be used again by the caller once {@link #await()} has returned.
+ */
+public class UnzippedFileTypeDetector implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(UnzippedFileTypeDetector.class.getCanonicalName());
+
+    public static final int DEFAULT_THREADS = 4;
+
+    /**
+     * Determines the type of a file (see
+     * {@link FileUtil#determineFileType(File, String)}).
+     */
+    @FunctionalInterface
+    interface Detector {
+        String detect(File file, String fileName) throws Exception;
+    }
+
+    private final Detector detector;
+    private final Executor executor;
+    private final int threads;
+    private final Semaphore pending;
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger workers = new AtomicInteger();
+    private final AtomicLong detectionNanos = new AtomicLong();
+
+    /**
+     * @param executor the executor the workers run on (e.g. the container's
+     *                 managed executor); if null, the types are determined by
+     *                 the caller
+     */
+    public UnzippedFileTypeDetector(Executor executor) {
+        this(JvmSettings.FILES_UNZIP_THREADS.lookupOptional(Integer.class).orElse(DEFAULT_THREADS),
+                FileUtil::determineFileType, executor);
+    }
+
+    UnzippedFileTypeDetector(int threads, Detector detector, Executor executor) {
+        this.threads = Math.max(1, threads);
+        this.detector = detector;
+        this.executor = executor != null ? executor : Runnable::run;
+        this.pending = new Semaphore(2 * this.threads);
+    }
+
+    /**
+     * Queues a file for type detection; waits for a worker first if too many
+     * files are queued already. The content type of the DataFile is set if
+     * the type could be determined, and left as it is otherwise.
+     *
+     * @param fileName the name of the file in the zip file (the unpacked file
+     *                 is named after its storage identifier)
+     */
+    public void detect(DataFile dataFile, File file, String fileName) throws InterruptedException {
+        pending.acquire();
+        queue.add(() -> {
+            long start = System.nanoTime();
+            try {
+                String recognizedType = detector.detect(file, fileName);
+                logger.fine("File utility recognized unzipped file as " + recognizedType);
+                if (recognizedType != null && !recognizedType.equals("")) {
+                    dataFile.setContentType(recognizedType);
+                }
+            } catch (Exception ex) {
+                logger.warning("Failed to run the file utility mime type check on file " + fileName);
+            } finally {
+                detectionNanos.addAndGet(System.nanoTime() - start);
+                pending.release();
+            }
+        });
+        startWorker();
+    }
+
+    private void startWorker() {
+        while (true) {
+            int running = workers.get();
+            if (running >= threads || queue.isEmpty()) {
+                return;
+            }
+            if (workers.compareAndSet(running, running + 1)) {
+                break;
+            }
+        }
+        try {
+            executor.execute(this::work);
+        } catch (RejectedExecutionException e) {
+            work();
+        }
+    }
+
+    private void work() {
+        try {
+            Runnable task;
+            while ((task = queue.poll()) != null) {
+                task.run();
+            }
+        } finally {
+            workers.decrementAndGet();
+        }
+        // (a file may have been queued as this worker was stopping)
+        startWorker();
+    }
+
+    /**
+     * Waits for the types of all the files queued so far.
+     */
+    public void await() throws InterruptedException {
+        // (each file holds a permit until its type has been determined)
+        pending.acquire(2 * threads);
+        pending.release(2 * threads);
+    }
+
+    /**
+     * @return the time spent determining types so far, added up over all
+     *         the workers
+     */
+    public long getDetectionNanos() {
+        return detectionNanos.get();
+    }
+
+    /**
+     * Drops the files still queued; the executor is shared, and is left
+     * running.
+     */
+    @Override
+    public void close() {
+        while (queue.poll() != null) {
+            pending.release();
+        }
+    }
+}
@@ -528,8 +528,17 @@ public class JsonPrinter {
      * should the method be renamed?
      */
     public static JsonObjectBuilder jsonAsDatasetDto(DatasetVersion dsv) {
+        return jsonAsDatasetDto(dsv, true);
+    }
+
+    /**
+     * As {@link #jsonAsDatasetDto(DatasetVersion)}, but the "files" array of
+     * the version can be left out, for callers (such as the streaming
+     * exporters) that serialize the files one at a time.
+     */
+    public static JsonObjectBuilder jsonAsDatasetDto(DatasetVersion dsv, boolean includeFiles) {
         JsonObjectBuilder datasetDtoAsJson = JsonPrinter.json(dsv.getDataset());
-        datasetDtoAsJson.add("datasetVersion", jsonWithCitation(dsv, true));
+        datasetDtoAsJson.add("datasetVersion", jsonWithCitation(dsv, includeFiles));
         return datasetDtoAsJson;
     }
 
@@ -0,0 +1,11 @@
+-- The files whose PIDs were publicized by a publication that failed before
+-- it completed, with the identifier publicized (a file may lose an
+-- identifier generated by the failed publication when it is rolled back);
+-- see FinalizeDatasetPublicationCommand.
+CREATE TABLE IF NOT EXISTS pidpublicizeprogress (
+    dvobject_id BIGINT PRIMARY KEY,
+    dataset_id BIGINT NOT NULL,
+    publicizetime TIMESTAMP NOT NULL,
+    identifier VARCHAR(255)
+);
+CREATE INDEX IF NOT EXISTS index_pidpublicizeprogress_dataset_id ON pidpublicizeprogress (dataset_id);
@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import org.junit.jupiter.api.AfterEach;
@@ -15,7 +16,6 @@ import org.junit.jupiter.api.Test;
 import org.mockito.AdditionalMatchers;
 import org.mockito.Mockito;
 
-import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
 import jakarta.json.Json;
 import jakarta.json.JsonObject;
 
@@ -166,12 +166,9 @@ public class DatasetFieldServiceBeanTest {
         DatasetFieldType dft = new DatasetFieldType(fieldName, DatasetFieldType.FieldType.NONE, true);
         dft.setId(dftId);
 
-        Mockito.doReturn(dft).when(datasetFieldServiceBean).findByNameOpt(fieldName);
-        Mockito.doReturn(null).when(datasetFieldServiceBean).findByNameOpt(AdditionalMatchers.not(Mockito.eq(fieldName)));
-
-        SettingsServiceBean settingsService = Mockito.mock(SettingsServiceBean.class);
-        Mockito.when(settingsService.getValueForKey(SettingsServiceBean.Key.CVocConf)).thenReturn(getCvocJson(jsonPath));
-        datasetFieldServiceBean.settingsService = settingsService;
+        MetadataSchemaServiceBean metadataSchemaService = Mockito.mock(MetadataSchemaServiceBean.class);
+        Mockito.when(metadataSchemaService.getSchema()).thenReturn(new MetadataSchema(1, List.of(dft), getCvocJson(jsonPath)));
+        datasetFieldServiceBean.metadataSchemaService = metadataSchemaService;
 
         return datasetFieldServiceBean.getCVocConf(false).get(dftId);
     }
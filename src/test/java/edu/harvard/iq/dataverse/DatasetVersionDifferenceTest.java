@@ -0,0 +1,90 @@
+package edu.harvard.iq.dataverse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class DatasetVersionDifferenceTest {
+
+    private static final int FILE_COUNT = 10000;
+
+    @Test
+    public void testFileDifferencesOfLargeVersions() {
+        DatasetVersion originalVersion = new DatasetVersion();
+        DatasetVersion newVersion = new DatasetVersion();
+        for (long id = 1; id <= FILE_COUNT; id++) {
+            originalVersion.getFileMetadatas().add(makeFileMetadata(id, "file" + id + ".txt"));
+            // the first 100 files are removed, the next 50 renamed:
+            if (id > 150) {
+                newVersion.getFileMetadatas().add(makeFileMetadata(id, "file" + id + ".txt"));
+            } else if (id > 100) {
+                newVersion.getFileMetadatas().add(makeFileMetadata(id, "renamed" + id + ".txt"));
+            }
+        }
+        for (long id = FILE_COUNT + 1; id <= FILE_COUNT + 200; id++) {
+            newVersion.getFileMetadatas().add(makeFileMetadata(id, "file" + id + ".txt"));
+        }
+
+        DatasetVersionDifference difference = new DatasetVersionDifference(newVersion, originalVersion, Integer.MAX_VALUE);
+
+        assertEquals(200, difference.getAddedFiles().size());
+        assertEquals(100, difference.getRemovedFiles().size());
+        assertEquals(2 * 50, difference.getChangedFileMetadata().size());
+        assertEquals(200 + 100 + 50, difference.getDatasetFilesDiffList().size());
+        assertEquals(0, difference.getOmittedFileDifferences());
+    }
+
+    @Test
+    public void testFileDifferencesAreCapped() {
+        DatasetVersion originalVersion = new DatasetVersion();
+        DatasetVersion newVersion = new DatasetVersion();
+        for (long id = 1; id <= 100; id++) {
+            newVersion.getFileMetadatas().add(makeFileMetadata(id, "file" + id + ".txt"));
+        }
+
+        DatasetVersionDifference difference = new DatasetVersionDifference(newVersion, originalVersion, 10);
+
+        // The summary is complete, only the detailed entries are capped:
+        assertEquals(100, difference.getAddedFiles().size());
+        assertEquals(10, difference.getDatasetFilesDiffList().size());
+        assertEquals(90, difference.getOmittedFileDifferences());
+    }
+
+    @Test
+    public void testReplacedFiles() {
+        DatasetVersion originalVersion = new DatasetVersion();
+        DatasetVersion newVersion = new DatasetVersion();
+        originalVersion.getFileMetadatas().add(makeFileMetadata(1L, "data.csv"));
+        originalVersion.getFileMetadatas().add(makeFileMetadata(2L, "readme.txt"));
+        newVersion.getFileMetadatas().add(makeFileMetadata(2L, "readme.txt"));
+        FileMetadata replacement = makeFileMetadata(3L, "data.csv");
+        replacement.getDataFile().setPreviousDataFileId(1L);
+        newVersion.getFileMetadatas().add(replacement);
+
+        DatasetVersionDifference difference = new DatasetVersionDifference(newVersion, originalVersion);
+
+        assertEquals(0, difference.getAddedFiles().size());
+        assertEquals(0, difference.getRemovedFiles().size());
+        assertEquals(1, difference.getDatasetFilesReplacementList().size());
+        assertEquals("1", difference.getDatasetFilesReplacementList().get(0).getFile1Id());
+        assertEquals("3", difference.getDatasetFilesReplacementList().get(0).getFile2Id());
+        assertEquals(0, difference.getDatasetFilesDiffList().size());
+    }
+
+    private static FileMetadata makeFileMetadata(Long fileId, String label) {
+        DataFile dataFile = new DataFile();
+        dataFile.setId(fileId);
+        dataFile.setContentType("text/plain");
+        dataFile.setChecksumType(DataFile.ChecksumType.MD5);
+        dataFile.setChecksumValue("checksum" + fileId);
+        FileMetadata fileMetadata = new FileMetadata();
+        fileMetadata.setLabel(label);
+        fileMetadata.setDataFile(dataFile);
+        List<FileMetadata> fileMetadatas = new ArrayList<>();
+        fileMetadatas.add(fileMetadata);
+        dataFile.setFileMetadatas(fileMetadatas);
+        return fileMetadata;
+    }
+}
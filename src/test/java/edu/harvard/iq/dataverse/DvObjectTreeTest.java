@@ -0,0 +1,118 @@
+package edu.harvard.iq.dataverse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DvObjectTreeTest {
+
+    private DvObjectTree tree;
+
+    /*
+     * root (1)
+     *   a (2)
+     *     ds (10)
+     *     b (3, a permission root)
+     *       ds (11)
+     *       c (4)
+     *         ds (12)
+     *   d (5)
+     *     ds (13)
+     */
+    @BeforeEach
+    public void setUp() {
+        tree = new DvObjectTree(4);
+        tree.put(1, null, true, false);
+        tree.put(2, 1L, true, false);
+        tree.put(10, 2L, false, false);
+        tree.put(3, 2L, true, true);
+        tree.put(11, 3L, false, false);
+        tree.put(4, 3L, true, false);
+        tree.put(12, 4L, false, false);
+        tree.put(5, 1L, true, false);
+        tree.put(13, 5L, false, false);
+    }
+
+    @Test
+    public void testDescendants() {
+        assertEquals(List.of(2L, 3L, 4L, 5L), tree.getDescendantIds(1, true));
+        assertEquals(List.of(10L, 11L, 12L, 13L), tree.getDescendantIds(1, false));
+        assertEquals(List.of(3L, 4L), tree.getDescendantIds(2, true));
+        assertEquals(List.of(10L, 11L, 12L), tree.getDescendantIds(2, false));
+        assertEquals(List.of(), tree.getDescendantIds(4, true));
+        assertNull(tree.getDescendantIds(99, true));
+    }
+
+    @Test
+    public void testPathSegments() {
+        assertEquals(List.of(), tree.getPathSegments(1));
+        assertEquals(List.of("2"), tree.getPathSegments(2));
+        assertEquals(List.of("2", "3", "4"), tree.getPathSegments(4));
+        assertNull(tree.getPathSegments(99));
+    }
+
+    @Test
+    public void testPermissionAncestors() {
+        assertEquals(List.of(12L, 4L, 3L), tree.getPermissionAncestorIds(12));
+        assertEquals(List.of(10L, 2L, 1L), tree.getPermissionAncestorIds(10));
+        assertEquals(List.of(1L), tree.getPermissionAncestorIds(1));
+        assertNull(tree.getPermissionAncestorIds(99));
+    }
+
+    @Test
+    public void testMoveAndRemove() {
+        // c moves to d; then a is no permission root anymore, and b is deleted
+        assertTrue(tree.matches(4, 3L, false));
+        tree.put(4, 5L, true, false);
+        assertFalse(tree.matches(4, 3L, false));
+        assertEquals(List.of("5", "4"), tree.getPathSegments(4));
+        assertEquals(List.of(12L, 13L), tree.getDescendantIds(5, false));
+        assertEquals(List.of(10L, 11L), tree.getDescendantIds(2, false));
+
+        tree.put(3, 2L, true, false);
+        assertEquals(List.of(11L, 3L, 2L, 1L), tree.getPermissionAncestorIds(11));
+
+        tree.remove(11);
+        tree.remove(3);
+        assertFalse(tree.contains(3));
+        assertEquals(List.of(10L), tree.getDescendantIds(2, false));
+        assertEquals(7, tree.size());
+        assertEquals(5L, tree.getOwnerId(4));
+        assertNull(tree.getOwnerId(1));
+    }
+
+    @Test
+    public void testManyChanges() {
+        // against a map, with enough objects and removals to exercise the table
+        DvObjectTree large = new DvObjectTree();
+        Map<Long, Long> owners = new HashMap<>();
+        List<Long> ids = new ArrayList<>();
+        Random random = new Random(42);
+        large.put(1, null, true, false);
+        owners.put(1L, null);
+        ids.add(1L);
+        for (long id = 2; id < 50000; id++) {
+            long owner = ids.get(random.nextInt(ids.size()));
+            large.put(id, owner, true, false);
+            owners.put(id, owner);
+            ids.add(id);
+            if (random.nextInt(4) == 0) {
+                long removed = ids.remove(1 + random.nextInt(ids.size() - 1));
+                large.remove(removed);
+                owners.remove(removed);
+            }
+        }
+        assertEquals(owners.size(), large.size());
+        for (long id = 1; id < 50000; id++) {
+            assertEquals(owners.containsKey(id), large.contains(id));
+            if (owners.containsKey(id)) {
+                assertEquals(owners.get(id), large.getOwnerId(id));
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package edu.harvard.iq.dataverse;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExternalVocabularyTermRetrieverTest {
+
+    private static final JsonObject CVOC_ENTRY = Json.createObjectBuilder().build();
+
+    @Test
+    public void testTermsAreRetrievedConcurrently() {
+        Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> maxInFlight = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ExternalVocabularyTermRetriever retriever = new ExternalVocabularyTermRetriever(8, 2, (httpClient, retrieval) -> {
+            String service = ExternalVocabularyTermRetriever.getService(retrieval.getRetrievalUri());
+            int current = inFlight.computeIfAbsent(service, s -> new AtomicInteger()).incrementAndGet();
+            maxInFlight.computeIfAbsent(service, s -> new AtomicInteger()).accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.get(service).decrementAndGet();
+            if (retrieval.getTerm().endsWith("/missing")) {
+                throw new IOException("404");
+            }
+            return Json.createObjectBuilder().add("@id", retrieval.getTerm()).build();
+        }, executor);
+
+        List<ExternalVocabularyTermRetriever.Retrieval> retrievals = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            retrievals.add(new ExternalVocabularyTermRetriever.Retrieval(CVOC_ENTRY, "https://orcid.org/" + i,
+                    "https://pub.orcid.example/v3.0/" + i));
+            retrievals.add(new ExternalVocabularyTermRetriever.Retrieval(CVOC_ENTRY, "https://ror.org/" + i,
+                    "https://api.ror.example/organizations/" + i));
+        }
+        retrievals.add(new ExternalVocabularyTermRetriever.Retrieval(CVOC_ENTRY, "https://ror.org/missing",
+                "https://api.ror.example/organizations/missing"));
+        try {
+            retriever.retrieve(retrievals);
+        } finally {
+            retriever.close();
+            executor.shutdownNow();
+        }
+
+        for (ExternalVocabularyTermRetriever.Retrieval retrieval : retrievals) {
+            if (retrieval.getTerm().endsWith("/missing")) {
+                assertNull(retrieval.getResponse());
+            } else {
+                assertEquals(retrieval.getTerm(), retrieval.getResponse().getString("@id"));
+            }
+        }
+        // at most 2 requests at a time to each service
+        assertTrue(maxInFlight.get("pub.orcid.example").get() <= 2);
+        assertTrue(maxInFlight.get("api.ror.example").get() <= 2);
+    }
+
+    @Test
+    public void testTermsAreRetrievedByCallerIfExecutorIsBusy() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        Thread caller = Thread.currentThread();
+        ExternalVocabularyTermRetriever retriever = new ExternalVocabularyTermRetriever(8, 2, (httpClient, retrieval) -> {
+            assertSame(caller, Thread.currentThread());
+            return Json.createObjectBuilder().add("@id", retrieval.getTerm()).build();
+        }, executor);
+
+        List<ExternalVocabularyTermRetriever.Retrieval> retrievals = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            retrievals.add(new ExternalVocabularyTermRetriever.Retrieval(CVOC_ENTRY, "https://orcid.org/" + i,
+                    "https://pub.orcid.example/v3.0/" + i));
+        }
+        try {
+            retriever.retrieve(retrievals);
+        } finally {
+            retriever.close();
+        }
+        for (ExternalVocabularyTermRetriever.Retrieval retrieval : retrievals) {
+            assertEquals(retrieval.getTerm(), retrieval.getResponse().getString("@id"));
+        }
+    }
+
+    @Test
+    public void testGetService() {
+        assertEquals("api.ror.org", ExternalVocabularyTermRetriever.getService("https://API.ror.org/organizations/01?lang=en"));
+        assertEquals("not a uri", ExternalVocabularyTermRetriever.getService("not a uri"));
+    }
+}
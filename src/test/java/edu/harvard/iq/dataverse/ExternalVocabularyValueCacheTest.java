@@ -0,0 +1,112 @@
+package edu.harvard.iq.dataverse;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExternalVocabularyValueCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private JsonObject load(String termUri) {
+        loads.incrementAndGet();
+        return Json.createObjectBuilder().add("@id", termUri).add("load", loads.get()).build();
+    }
+
+    @Test
+    public void testValueIsLoadedOnce() {
+        ExternalVocabularyValueCache cache = new ExternalVocabularyValueCache(100, 60000, 60000, null);
+        JsonObject first = cache.get("https://ror.org/01", this::load);
+        JsonObject second = cache.get("https://ror.org/01", this::load);
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedValuesAreDropped() {
+        ExternalVocabularyValueCache cache = new ExternalVocabularyValueCache(2, 60000, 60000, null);
+        cache.get("a", this::load);
+        cache.get("b", this::load);
+        cache.get("a", this::load);
+        cache.get("c", this::load);
+        assertEquals(2, cache.size());
+        assertEquals(3, loads.get());
+
+        // "b" was dropped, "a" wasn't:
+        cache.get("a", this::load);
+        assertEquals(3, loads.get());
+        cache.get("b", this::load);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void testStaleValueIsRefreshed() {
+        List<Runnable> refreshes = new ArrayList<>();
+        ExternalVocabularyValueCache cache = new ExternalVocabularyValueCache(100, 0, 60000, refreshes::add);
+        JsonObject first = cache.get("a", this::load);
+        assertEquals(1, loads.get());
+
+        // the stale value is returned, and read again in the background (once):
+        assertSame(first, cache.get("a", this::load));
+        assertSame(first, cache.get("a", this::load));
+        assertEquals(1, refreshes.size());
+        assertEquals(1, loads.get());
+        refreshes.remove(0).run();
+        assertEquals(2, loads.get());
+
+        // (still stale, so read again in the background, this time failing)
+        JsonObject second = cache.get("a", termUri -> {
+            throw new IllegalStateException("database down");
+        });
+        assertEquals(2, second.getInt("load"));
+        refreshes.remove(0).run();
+
+        // a failed refresh keeps the stale value:
+        assertSame(second, cache.get("a", this::load));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testMissingValueIsRememberedBriefly() {
+        ExternalVocabularyValueCache cache = new ExternalVocabularyValueCache(100, 60000, 60000, null);
+        assertNull(cache.get("a", termUri -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertNull(cache.get("a", this::load));
+        assertEquals(1, loads.get());
+
+        // until the value is written:
+        JsonObject value = Json.createObjectBuilder().add("termName", "a").build();
+        cache.put("a", value);
+        assertSame(value, cache.get("a", this::load));
+        assertEquals(1, loads.get());
+
+        ExternalVocabularyValueCache expiring = new ExternalVocabularyValueCache(100, 60000, 0, null);
+        assertNull(expiring.get("b", termUri -> null));
+        assertNotNull(expiring.get("b", this::load));
+    }
+
+    @Test
+    public void testFailedRetrievals() {
+        ExternalVocabularyValueCache cache = new ExternalVocabularyValueCache(100, 60000, 60000, null);
+        assertFalse(cache.isRetrievalFailing("a"));
+        cache.retrievalFailed("a");
+        assertTrue(cache.isRetrievalFailing("a"));
+        cache.put("a", Json.createObjectBuilder().build());
+        assertFalse(cache.isRetrievalFailing("a"));
+
+        ExternalVocabularyValueCache expiring = new ExternalVocabularyValueCache(100, 60000, 1, null);
+        expiring.retrievalFailed("b");
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        assertFalse(expiring.isRetrievalFailing("b"));
+    }
+}
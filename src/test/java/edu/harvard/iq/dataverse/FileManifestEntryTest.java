@@ -0,0 +1,20 @@
+package edu.harvard.iq.dataverse;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileManifestEntryTest {
+
+    @Test
+    public void testGetPath() {
+        FileManifestEntry entry = new FileManifestEntry(1L, "data/raw", "survey.tab", 10L, DataFile.ChecksumType.MD5, "abc", "text/tab-separated-values", false);
+        assertEquals("data/raw/survey.tab", entry.getPath());
+
+        entry = new FileManifestEntry(2L, null, "README.md", 10L, DataFile.ChecksumType.MD5, "abc", "text/markdown", false);
+        assertEquals("README.md", entry.getPath());
+
+        entry = new FileManifestEntry(3L, "", "README.md", null, null, null, null, true);
+        assertEquals("README.md", entry.getPath());
+        assertNull(entry.getFilesize());
+    }
+}
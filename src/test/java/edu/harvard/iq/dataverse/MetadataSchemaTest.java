@@ -0,0 +1,97 @@
+package edu.harvard.iq.dataverse;
+
+import edu.harvard.iq.dataverse.DatasetFieldType.FieldType;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetadataSchemaTest {
+
+    private DatasetFieldType subject;
+    private DatasetFieldType keyword;
+    private DatasetFieldType keywordValue;
+    private DatasetFieldType keywordTermUri;
+    private ControlledVocabularyValue astronomy;
+    private ControlledVocabularyValue law;
+    private ControlledVocabularyValue other;
+
+    @BeforeEach
+    public void setUp() {
+        subject = new DatasetFieldType("subject", FieldType.TEXT, true);
+        subject.setId(1L);
+        subject.setAllowControlledVocabulary(true);
+        astronomy = new ControlledVocabularyValue(11L, "Astronomy and Astrophysics", subject);
+        law = new ControlledVocabularyValue(12L, "Law", subject);
+        other = new ControlledVocabularyValue(13L, "Other", subject);
+        addAlternate(astronomy, 101L, "Astronomy");
+        addAlternate(law, 102L, "Legal");
+        addAlternate(other, 103L, "Legal");
+        subject.setControlledVocabularyValues(List.of(astronomy, law, other));
+
+        keyword = new DatasetFieldType("keyword", FieldType.NONE, true);
+        keyword.setId(2L);
+        keywordValue = new DatasetFieldType("keywordValue", FieldType.TEXT, false);
+        keywordValue.setId(3L);
+        keywordValue.setParentDatasetFieldType(keyword);
+        keywordTermUri = new DatasetFieldType("keywordTermURI", FieldType.URL, false);
+        keywordTermUri.setId(4L);
+        keywordTermUri.setParentDatasetFieldType(keyword);
+        keyword.setChildDatasetFieldTypes(List.of(keywordValue, keywordTermUri));
+    }
+
+    private static void addAlternate(ControlledVocabularyValue cvv, long id, String strValue) {
+        ControlledVocabAlternate alternate = new ControlledVocabAlternate();
+        alternate.setId(id);
+        alternate.setStrValue(strValue);
+        alternate.setControlledVocabularyValue(cvv);
+        alternate.setDatasetFieldType(cvv.getDatasetFieldType());
+        List<ControlledVocabAlternate> alternates = new ArrayList<>(cvv.getControlledVocabAlternates());
+        alternates.add(alternate);
+        cvv.setControlledVocabAlternates(alternates);
+    }
+
+    private MetadataSchema schema(String cvocSetting) {
+        return new MetadataSchema(7, List.of(subject, keyword, keywordValue, keywordTermUri), cvocSetting);
+    }
+
+    @Test
+    public void testFieldTypes() {
+        MetadataSchema schema = schema(null);
+        assertEquals(7, schema.getVersion());
+        assertSame(keywordValue, schema.getFieldType("keywordValue"));
+        assertNull(schema.getFieldType("nosuchfield"));
+        assertTrue(schema.getCVocConf(false).isEmpty());
+    }
+
+    @Test
+    public void testControlledVocabularyValues() {
+        MetadataSchema schema = schema(null);
+        assertSame(law, schema.getControlledVocabularyValue(subject, "Law", false));
+        assertNull(schema.getControlledVocabularyValue(subject, "Astronomy", false));
+        assertSame(astronomy, schema.getControlledVocabularyValue(subject, "Astronomy", true));
+        // an alternate of two values matches neither
+        assertNull(schema.getControlledVocabularyValue(subject, "Legal", true));
+        assertNull(schema.getControlledVocabularyValue(keyword, "Law", true));
+
+        assertEquals(101L, schema.getControlledVocabAlternate(astronomy, "Astronomy").getId());
+        assertNull(schema.getControlledVocabAlternate(astronomy, "Legal"));
+    }
+
+    @Test
+    public void testCVocConf() {
+        String cvocSetting = "[{\"field-name\": \"keyword\", \"term-uri-field\": \"keywordTermURI\","
+                + " \"managed-fields\": {\"vocabularyName\": \"keywordValue\"}},"
+                + " {\"field-name\": \"nosuchfield\", \"term-uri-field\": \"nosuchfield\"}]";
+        MetadataSchema schema = schema(cvocSetting);
+        assertEquals(cvocSetting, schema.getCVocSetting());
+        assertEquals(1, schema.getCVocConf(false).size());
+        assertEquals("keywordTermURI", schema.getCVocConf(false).get(2L).getString("term-uri-field"));
+        assertEquals(1, schema.getCVocConf(true).size());
+        assertTrue(schema.getCVocConf(true).containsKey(4L));
+
+        // (a setting that doesn't parse is ignored)
+        assertTrue(schema("[{").getCVocConf(false).isEmpty());
+    }
+}
@@ -0,0 +1,40 @@
+package edu.harvard.iq.dataverse.actionlogging;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.harvard.iq.dataverse.actionlogging.ActionLogRecord.ActionType;
+import edu.harvard.iq.dataverse.actionlogging.ActionLogRecord.Result;
+import org.junit.jupiter.api.Test;
+
+public class ActionLogWriterTest {
+
+    @Test
+    public void testReadOnlyCommandsAreSkippedWithZeroSampleRate() {
+        ActionLogRecord rec = new ActionLogRecord(ActionType.Command, "GetDatasetCommand").setActionResult(Result.OK);
+        assertFalse(ActionLogWriter.isSampled(rec, true, 0.0));
+        assertTrue(ActionLogWriter.isSampled(rec, true, 1.0));
+    }
+
+    @Test
+    public void testOtherRecordsAreAlwaysLogged() {
+        ActionLogRecord write = new ActionLogRecord(ActionType.Command, "UpdateDatasetVersionCommand").setActionResult(Result.OK);
+        assertTrue(ActionLogWriter.isSampled(write, false, 0.0));
+
+        // Failures of read-only commands are never sampled out:
+        ActionLogRecord failure = new ActionLogRecord(ActionType.Command, "GetDatasetCommand").setActionResult(Result.PermissionError);
+        assertTrue(ActionLogWriter.isSampled(failure, true, 0.0));
+    }
+
+    @Test
+    public void testSampleRate() {
+        ActionLogRecord rec = new ActionLogRecord(ActionType.Command, "GetDatasetCommand").setActionResult(Result.OK);
+        int sampled = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (ActionLogWriter.isSampled(rec, true, 0.1)) {
+                sampled++;
+            }
+        }
+        assertTrue(sampled > 500 && sampled < 1500, "sampled: " + sampled);
+    }
+}
@@ -0,0 +1,96 @@
+package edu.harvard.iq.dataverse.api;
+
+import edu.harvard.iq.dataverse.Dataset;
+import edu.harvard.iq.dataverse.Dataverse;
+import edu.harvard.iq.dataverse.api.imports.BatchImportProgress;
+import edu.harvard.iq.dataverse.api.imports.ImportException;
+import edu.harvard.iq.dataverse.api.imports.ImportServiceBean;
+import edu.harvard.iq.dataverse.api.imports.ImportUtil.ImportType;
+import jakarta.ejb.EJBException;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class BatchServiceBeanTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testChunkIsSavedOneFileAtATimeAfterRollback() throws Exception {
+        ImportServiceBean importService = mock(ImportServiceBean.class);
+        when(importService.parseImport(anyString(), any())).thenAnswer(invocation -> new Dataset());
+        when(importService.parseImport(eq("bad"), any())).thenThrow(new ImportException("unparseable"));
+        AtomicLong nextId = new AtomicLong(1);
+        when(importService.importChunk(any(), anyList(), any())).thenAnswer(invocation -> {
+            List<Dataset> datasets = invocation.getArgument(1);
+            if (datasets.size() > 1) {
+                throw new EJBException("rolled back");
+            }
+            return List.of(nextId.getAndIncrement());
+        });
+        BatchServiceBean batchService = new BatchServiceBean();
+        batchService.importService = importService;
+
+        Dataverse owner = new Dataverse();
+        List<BatchServiceBean.Parsed> chunk = new ArrayList<>();
+        for (String name : List.of("a", "bad", "c")) {
+            File file = Files.write(tempDir.resolve(name + ".xml"), name.getBytes(StandardCharsets.UTF_8)).toFile();
+            chunk.add(new BatchServiceBean.Parsed(new BatchServiceBean.Record(file, owner, file.getName()), new Dataset(), null));
+        }
+
+        BatchServiceBean.Report report = new BatchServiceBean.Report();
+        StringWriter validationLog = new StringWriter();
+        try (BatchImportProgress progress = new BatchImportProgress(tempDir.resolve("progress.txt"), false)) {
+            batchService.saveChunk(null, chunk, ImportType.HARVEST, new PrintWriter(new StringWriter()), progress,
+                    report, new PrintWriter(validationLog, true));
+
+            assertTrue(progress.isImported("a.xml"));
+            assertFalse(progress.isImported("bad.xml"));
+            assertTrue(progress.isImported("c.xml"));
+            assertEquals(Set.of(1L, 2L), progress.getDatasetIds());
+        }
+        assertEquals(2, report.imported);
+        assertEquals(1, report.failed);
+        assertTrue(validationLog.toString().contains("bad.xml"));
+        // (the chunk, then each of the files that could be parsed again)
+        verify(importService, times(3)).importChunk(any(), anyList(), any());
+        verify(importService, times(2)).prepareImport(any(), eq(owner), anyString(), any(), any());
+    }
+
+    @Test
+    public void testChunkIsSavedInOneTransaction() throws ImportException, IOException {
+        ImportServiceBean importService = mock(ImportServiceBean.class);
+        when(importService.importChunk(any(), anyList(), any())).thenReturn(List.of(1L, 2L));
+        BatchServiceBean batchService = new BatchServiceBean();
+        batchService.importService = importService;
+
+        List<BatchServiceBean.Parsed> chunk = new ArrayList<>();
+        for (String name : List.of("a.xml", "b.xml")) {
+            chunk.add(new BatchServiceBean.Parsed(new BatchServiceBean.Record(tempDir.resolve(name).toFile(), null, name), new Dataset(), null));
+        }
+
+        BatchServiceBean.Report report = new BatchServiceBean.Report();
+        try (BatchImportProgress progress = new BatchImportProgress(tempDir.resolve("progress.txt"), false)) {
+            batchService.saveChunk(null, chunk, ImportType.HARVEST, new PrintWriter(new StringWriter()), progress,
+                    report, new PrintWriter(new StringWriter()));
+            assertEquals(2, progress.size());
+        }
+        assertEquals(2, report.imported);
+        assertEquals(0, report.failed);
+        verify(importService, never()).parseImport(anyString(), any());
+    }
+}
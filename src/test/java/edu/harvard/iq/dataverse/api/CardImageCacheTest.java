@@ -0,0 +1,105 @@
+package edu.harvard.iq.dataverse.api;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CardImageCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private byte[] load(int size) {
+        loads.incrementAndGet();
+        return new byte[size];
+    }
+
+    @Test
+    public void testImageIsLoadedOnce() throws IOException {
+        CardImageCache cache = new CardImageCache(1024 * 1024);
+        byte[] first = cache.get("file-1-0", () -> load(100));
+        byte[] second = cache.get("file-1-0", () -> load(100));
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+
+        // a modified object has another key:
+        cache.get("file-1-1", () -> load(100));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedImagesAreDropped() throws IOException {
+        // room for two images, with the overhead of the entries:
+        CardImageCache cache = new CardImageCache(2 * 1000 + 500);
+        cache.get("a", () -> load(1000));
+        cache.get("b", () -> load(1000));
+        cache.get("a", () -> load(1000));
+        cache.get("c", () -> load(1000));
+        assertEquals(2, cache.size());
+        assertEquals(3, loads.get());
+
+        // "b" was dropped, "a" wasn't:
+        cache.get("a", () -> load(1000));
+        assertEquals(3, loads.get());
+        cache.get("b", () -> load(1000));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void testNoImageIsRemembered() throws IOException {
+        CardImageCache cache = new CardImageCache(1024 * 1024);
+        assertNull(cache.get("file-2-0", () -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertNull(cache.get("file-2-0", () -> load(100)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() throws IOException {
+        CardImageCache cache = new CardImageCache(1024 * 1024);
+        assertThrows(IOException.class, () -> cache.get("file-3-0", () -> {
+            throw new IOException("storage unavailable");
+        }));
+        assertNotNull(cache.get("file-3-0", () -> load(100)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneLoad() throws Exception {
+        CardImageCache cache = new CardImageCache(1024 * 1024);
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch loadMayFinish = new CountDownLatch(1);
+        CardImageCache.Loader slowLoader = () -> {
+            loadStarted.countDown();
+            try {
+                loadMayFinish.await();
+            } catch (InterruptedException ex) {
+                throw new IOException(ex);
+            }
+            return load(100);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<byte[]> first = executor.submit(() -> cache.get("file-4-0", slowLoader));
+            assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+            Future<byte[]> second = executor.submit(() -> cache.get("file-4-0", slowLoader));
+            Future<byte[]> third = executor.submit(() -> cache.get("file-4-0", slowLoader));
+            loadMayFinish.countDown();
+
+            byte[] image = first.get(10, TimeUnit.SECONDS);
+            assertSame(image, second.get(10, TimeUnit.SECONDS));
+            assertSame(image, third.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+    }
+}
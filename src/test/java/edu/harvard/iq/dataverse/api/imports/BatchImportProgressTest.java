@@ -0,0 +1,57 @@
+package edu.harvard.iq.dataverse.api.imports;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchImportProgressTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testResume() throws IOException {
+        Path path = tempDir.resolve("progress.txt");
+        try (BatchImportProgress progress = new BatchImportProgress(path, true)) {
+            assertEquals(0, progress.size());
+            progress.imported(List.of("a.xml", "sub/b.xml"), List.of(1L, 2L));
+        }
+        // (a line cut short by a crash)
+        Files.write(path, "sub/c.x".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (BatchImportProgress progress = new BatchImportProgress(path, true)) {
+            assertTrue(progress.isImported("a.xml"));
+            assertTrue(progress.isImported("sub/b.xml"));
+            assertFalse(progress.isImported("sub/c.xml"));
+            progress.imported(List.of("sub/c.xml", "d.xml"), List.of(3L, 2L));
+        }
+
+        try (BatchImportProgress progress = new BatchImportProgress(path, true)) {
+            assertEquals(4, progress.size());
+            assertEquals(Set.of(1L, 2L, 3L), progress.getDatasetIds());
+        }
+    }
+
+    @Test
+    public void testStartOver() throws IOException {
+        Path path = tempDir.resolve("progress.txt");
+        try (BatchImportProgress progress = new BatchImportProgress(path, false)) {
+            progress.imported(List.of("a.xml"), List.of(1L));
+        }
+        try (BatchImportProgress progress = new BatchImportProgress(path, false)) {
+            assertFalse(progress.isImported("a.xml"));
+            progress.imported(List.of("b.xml"), List.of(2L));
+        }
+        try (BatchImportProgress progress = new BatchImportProgress(path, true)) {
+            assertFalse(progress.isImported("a.xml"));
+            assertTrue(progress.isImported("b.xml"));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package edu.harvard.iq.dataverse.batch.jobs.importer.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileRecordReaderTest {
+
+    private static final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterAll
+    public static void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @TempDir
+    Path directory;
+
+    private void createFile(String path) throws IOException {
+        Path file = directory.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, path);
+    }
+
+    private List<String> getFiles(Executor executor, int threads) throws InterruptedException {
+        return FileRecordReader.getFiles(directory.toFile(), "*.DS_Store, *.sha, *.cached", executor, threads).stream()
+                .map(file -> directory.relativize(file.toPath()).toString().replace(File.separatorChar, '/'))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testGetFiles() throws IOException, InterruptedException {
+        createFile("package/b.txt");
+        createFile("package/a/2.csv");
+        createFile("package/a/1.csv");
+        createFile("package/a/deeper/3.csv");
+        createFile("package/c/4.csv");
+        createFile("package/files.sha");
+        createFile("package/a/.DS_Store");
+        // an excluded directory is not listed at all:
+        createFile("package/old.cached/5.csv");
+        Files.createDirectories(directory.resolve("package/empty"));
+
+        List<String> expected = List.of("package/a/1.csv", "package/a/2.csv", "package/a/deeper/3.csv", "package/b.txt", "package/c/4.csv");
+        assertEquals(expected, getFiles(executor, 1));
+        assertEquals(expected, getFiles(executor, 8));
+        // (listed by the caller when there is no executor)
+        assertEquals(expected, getFiles(null, 2));
+    }
+
+    @Test
+    public void testGetFilesOfEmptyDirectory() throws InterruptedException {
+        assertTrue(getFiles(executor, 4).isEmpty());
+    }
+}
@@ -0,0 +1,117 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import edu.harvard.iq.dataverse.DataFile;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class DataConverterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testConcurrentConversionsRunOnce() throws Exception {
+        DataFile file = new DataFile();
+        file.setId(1L);
+        Path tabFile = tempDir.resolve("file.tab");
+        Files.writeString(tabFile, "a\tb\n1\t2\n");
+
+        Thread requestThread = Thread.currentThread();
+        CountDownLatch conversionStarted = new CountDownLatch(1);
+        CountDownLatch secondRequest = new CountDownLatch(1);
+        @SuppressWarnings("unchecked")
+        StorageIO<DataFile> storageIO = mock(StorageIO.class);
+        when(storageIO.isLocalFile()).thenReturn(true);
+        when(storageIO.getFileSystemPath()).thenReturn(tabFile);
+        // the first conversion is held up until the second request is waiting
+        // for it (the only timed wait on the way):
+        when(storageIO.isAuxObjectCached("tab")).thenAnswer(invocation -> {
+            conversionStarted.countDown();
+            assertTrue(secondRequest.await(10, TimeUnit.SECONDS));
+            while (requestThread.getState() != Thread.State.TIMED_WAITING) {
+                Thread.onSpinWait();
+            }
+            return false;
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<File> first = executor.submit(() -> DataConverter.convertAndCache(file, storageIO, "tab"));
+            assertTrue(conversionStarted.await(10, TimeUnit.SECONDS));
+            secondRequest.countDown();
+            assertEquals(tabFile.toFile(), DataConverter.convertAndCache(file, storageIO, "tab", 10000));
+            assertEquals(tabFile.toFile(), first.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(storageIO, times(1)).getFileSystemPath();
+        verify(storageIO, times(1)).savePathAsAux(any(Path.class), eq("tab"));
+    }
+
+    @Test
+    public void testWaitForConversionTimesOut() throws Exception {
+        DataFile file = new DataFile();
+        file.setId(3L);
+        Path tabFile = tempDir.resolve("file.tab");
+        Files.writeString(tabFile, "a\tb\n1\t2\n");
+
+        CountDownLatch conversionStarted = new CountDownLatch(1);
+        CountDownLatch conversionMayFinish = new CountDownLatch(1);
+        @SuppressWarnings("unchecked")
+        StorageIO<DataFile> storageIO = mock(StorageIO.class);
+        when(storageIO.isLocalFile()).thenReturn(true);
+        when(storageIO.getFileSystemPath()).thenReturn(tabFile);
+        when(storageIO.isAuxObjectCached("tab")).thenAnswer(invocation -> {
+            conversionStarted.countDown();
+            conversionMayFinish.await();
+            return false;
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<File> first = executor.submit(() -> DataConverter.convertAndCache(file, storageIO, "tab"));
+            assertTrue(conversionStarted.await(10, TimeUnit.SECONDS));
+
+            // the conversion is held up until after the wait has timed out:
+            assertNull(DataConverter.convertAndCache(file, storageIO, "tab", 100));
+            verify(storageIO, never()).getFileSystemPath();
+
+            conversionMayFinish.countDown();
+            assertEquals(tabFile.toFile(), first.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(storageIO, times(1)).savePathAsAux(any(Path.class), eq("tab"));
+    }
+
+    @Test
+    public void testFailedConversionIsNotShared() throws Exception {
+        DataFile file = new DataFile();
+        file.setId(2L);
+
+        @SuppressWarnings("unchecked")
+        StorageIO<DataFile> storageIO = mock(StorageIO.class);
+        when(storageIO.isLocalFile()).thenReturn(true);
+        when(storageIO.isAuxObjectCached("tab")).thenReturn(false);
+        when(storageIO.getFileSystemPath()).thenThrow(new IOException("not accessible"));
+
+        assertNull(DataConverter.convertAndCache(file, storageIO, "tab"));
+        // the next request tries again:
+        assertNull(DataConverter.convertAndCache(file, storageIO, "tab"));
+        verify(storageIO, times(2)).getFileSystemPath();
+        verify(storageIO, never()).savePathAsAux(any(Path.class), any());
+    }
+}
@@ -0,0 +1,91 @@
+package edu.harvard.iq.dataverse.datasetutility;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.harvard.iq.dataverse.DataFile;
+import edu.harvard.iq.dataverse.DatasetVersion;
+import edu.harvard.iq.dataverse.FileMetadata;
+
+public class FileChecksumIndexTest {
+
+    private DatasetVersion version;
+    private DataFile saved;
+    private DataFile unsaved;
+
+    @BeforeEach
+    public void setUp() {
+        version = new DatasetVersion();
+        version.setFileMetadatas(new ArrayList<>());
+        saved = addToVersion(dataFile(1L, "aaa"));
+        unsaved = addToVersion(dataFile(null, "bbb"));
+        addToVersion(dataFile(null, null));
+    }
+
+    private static DataFile dataFile(Long id, String checksum) {
+        DataFile dataFile = new DataFile();
+        dataFile.setId(id);
+        dataFile.setChecksumValue(checksum);
+        return dataFile;
+    }
+
+    private DataFile addToVersion(DataFile dataFile) {
+        FileMetadata fileMetadata = new FileMetadata();
+        fileMetadata.setDataFile(dataFile);
+        version.getFileMetadatas().add(fileMetadata);
+        return dataFile;
+    }
+
+    @Test
+    public void testFindDuplicates() {
+        FileChecksumIndex index = FileChecksumIndex.of(version);
+        assertEquals(2, index.size());
+        assertSame(saved, index.findDuplicate(dataFile(null, "aaa")));
+        assertSame(unsaved, index.findDuplicate(dataFile(null, "bbb")));
+        assertNull(index.findDuplicate(saved));
+        assertNull(index.findDuplicate(dataFile(null, null)));
+
+        assertNull(FileChecksumIndex.ofSavedFiles(version).findDuplicate(dataFile(null, "bbb")));
+
+        // (all the new files are equal, having no id)
+        DataFile first = dataFile(null, "ccc");
+        DataFile second = dataFile(null, "ccc");
+        DataFile third = dataFile(null, "aaa");
+        Map<DataFile, DataFile> duplicates = index.findDuplicates(List.of(first, second, third), false);
+        assertEquals(1, duplicates.size());
+        assertSame(saved, duplicates.get(third));
+
+        duplicates = index.findDuplicates(List.of(first, second, third), true);
+        assertEquals(2, duplicates.size());
+        assertSame(first, duplicates.get(second));
+        assertNull(duplicates.get(first));
+
+        index.remove(second);
+        assertSame(first, index.get("ccc"));
+        index.remove(first);
+        assertNull(index.get("ccc"));
+    }
+
+    @Test
+    public void testIsCurrent() {
+        FileChecksumIndex index = FileChecksumIndex.of(version);
+        assertTrue(index.isCurrent(version));
+        assertFalse(index.isCurrent(new DatasetVersion()));
+        assertFalse(new FileChecksumIndex().isCurrent(version));
+
+        DataFile added = addToVersion(dataFile(null, "ccc"));
+        assertFalse(index.isCurrent(version));
+        index.addedToVersion(List.of(added));
+        assertTrue(index.isCurrent(version));
+        assertSame(added, index.get("ccc"));
+
+        version.getFileMetadatas().remove(0);
+        assertFalse(index.isCurrent(version));
+    }
+}
@@ -23,6 +23,7 @@ import edu.harvard.iq.dataverse.storageuse.StorageUseServiceBean;
 import edu.harvard.iq.dataverse.util.SystemConfig;
 import edu.harvard.iq.dataverse.workflow.WorkflowServiceBean;
 import java.util.Stack;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 import jakarta.persistence.EntityManager;
 
 /**
@@ -155,6 +156,11 @@ public class TestCommandContext implements CommandContext {
         return null;
     }
 
+    @Override
+    public ManagedExecutorService executor() {
+        return null;
+    }
+
     @Override
     public AuthenticationServiceBean authentication() {
         return null;
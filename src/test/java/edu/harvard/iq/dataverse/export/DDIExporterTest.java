@@ -35,6 +35,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 import jakarta.json.Json;
 import jakarta.json.JsonObject;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -97,6 +98,24 @@ public class DDIExporterTest {
         logger.severe("DDIExporterTest.testExportDataset() creates XML that should now be valid, since DDIExportUtil has been fixed.");
     }
 
+    @Test
+    public void testExportDatasetStreamsFileDetails() throws Exception {
+        String datasetDtoJsonString = Files.readString(Path.of("src/test/java/edu/harvard/iq/dataverse/export/ddi/dataset-finch1.json"), StandardCharsets.UTF_8);
+        JsonObject datasetDtoJson = Json.createReader(new StringReader(datasetDtoJsonString)).readObject();
+
+        InternalExportDataProvider exportDataProviderStub = Mockito.mock(InternalExportDataProvider.class);
+        Mockito.when(exportDataProviderStub.getDatasetJson(false)).thenReturn(datasetDtoJson);
+        // (a new stream for each section of the codebook)
+        Mockito.when(exportDataProviderStub.getDatasetFileDetailsStream()).thenAnswer(invocation -> Stream.<JsonObject>empty());
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        new DDIExporter().exportDataset(exportDataProviderStub, byteArrayOutputStream);
+
+        assertTrue(byteArrayOutputStream.toString(StandardCharsets.UTF_8).contains("<codeBook"));
+        Mockito.verify(exportDataProviderStub, Mockito.never()).getDatasetFileDetails();
+        Mockito.verify(exportDataProviderStub, Mockito.never()).getDatasetJson();
+    }
+
     @Test
     public void testExportDatasetContactEmailPresent() throws Exception {
         File datasetVersionJson = new File("src/test/java/edu/harvard/iq/dataverse/export/ddi/datasetContactEmailPresent.json");
@@ -0,0 +1,55 @@
+package edu.harvard.iq.dataverse.export;
+
+import io.gdcc.spi.export.ExportDataProvider;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+public class JSONExporterTest {
+
+    @Test
+    public void testExportDatasetStreamsFiles() throws Exception {
+        String datasetDtoJsonString = Files.readString(Path.of("src/test/java/edu/harvard/iq/dataverse/export/ddi/dataset-finch1.json"), StandardCharsets.UTF_8);
+        JsonObject datasetDtoJson = Json.createReader(new StringReader(datasetDtoJsonString)).readObject();
+        JsonObject versionJson = datasetDtoJson.getJsonObject("datasetVersion");
+        JsonObject withoutFiles = Json.createObjectBuilder(datasetDtoJson)
+                .add("datasetVersion", Json.createObjectBuilder(versionJson).remove("files"))
+                .build();
+
+        InternalExportDataProvider exportDataProviderStub = Mockito.mock(InternalExportDataProvider.class);
+        Mockito.when(exportDataProviderStub.getDatasetJson(false)).thenReturn(withoutFiles);
+        Mockito.when(exportDataProviderStub.getDatasetFilesStream())
+                .thenReturn(versionJson.getJsonArray("files").getValuesAs(JsonObject.class).stream());
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        new JSONExporter().exportDataset(exportDataProviderStub, byteArrayOutputStream);
+
+        JsonObject exported = Json.createReader(new StringReader(byteArrayOutputStream.toString(StandardCharsets.UTF_8))).readObject();
+        assertEquals(datasetDtoJson, exported);
+        Mockito.verify(exportDataProviderStub, Mockito.never()).getDatasetJson();
+    }
+
+    @Test
+    public void testExportDatasetOtherProvider() throws Exception {
+        String datasetDtoJsonString = Files.readString(Path.of("src/test/java/edu/harvard/iq/dataverse/export/ddi/dataset-finch1.json"), StandardCharsets.UTF_8);
+        JsonObject datasetDtoJson = Json.createReader(new StringReader(datasetDtoJsonString)).readObject();
+
+        ExportDataProvider exportDataProviderStub = Mockito.mock(ExportDataProvider.class);
+        Mockito.when(exportDataProviderStub.getDatasetJson()).thenReturn(datasetDtoJson);
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        new JSONExporter().exportDataset(exportDataProviderStub, byteArrayOutputStream);
+
+        JsonObject exported = Json.createReader(new StringReader(byteArrayOutputStream.toString(StandardCharsets.UTF_8))).readObject();
+        assertEquals(datasetDtoJson, exported);
+    }
+}
@@ -18,7 +18,10 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Logger;
 import org.dataverse.unf.UNFUtil;
 import org.dataverse.unf.UnfException;
@@ -393,6 +396,118 @@ public class CSVFileReaderTest {
 
     }
 
+    /*
+     * The tab file is written before the variable types are final; this test
+     * widens the types near the end of a generated CSV, and verifies that the
+     * cases written earlier are re-formatted.
+     */
+    @Test
+    public void testLateTypeWidening() throws IOException {
+        File csvFile = File.createTempFile("widening-", ".csv");
+        csvFile.deleteOnExit();
+        try (PrintWriter csv = new PrintWriter(csvFile)) {
+            csv.println("decimals,strings,ints");
+            for (int i = 0; i < 1000; i++) {
+                String decimal = i == 0 ? "null" : i == 998 ? "1.5" : "" + i;
+                String string = i == 0 ? "NA" : i == 999 ? "x" : "" + i;
+                csv.println(decimal + "," + string + "," + i);
+            }
+        }
+
+        TabularDataIngest ingestResult;
+        try (BufferedInputStream stream = new BufferedInputStream(new FileInputStream(csvFile))) {
+            ingestResult = new CSVFileReader(new CSVFileReaderSpi(), ',').read(stream, true, null);
+        }
+
+        DataTable dataTable = ingestResult.getDataTable();
+        assertEquals(1000L, dataTable.getCaseQuantity());
+        assertTrue(dataTable.getDataVariables().get(0).isIntervalContinuous());
+        assertTrue(dataTable.getDataVariables().get(1).isTypeCharacter());
+        assertTrue(dataTable.getDataVariables().get(2).isIntervalDiscrete());
+        assertTrue(dataTable.getDataVariables().get(2).isTypeNumeric());
+
+        List<String> lines = Files.readAllLines(ingestResult.getTabDelimitedFile().toPath());
+        assertEquals(1001, lines.size());
+        assertEquals("decimals\tstrings\tints", lines.get(0));
+        assertEquals("0.0\t\"NA\"\t0", lines.get(1));
+        assertEquals("1\t\"1\"\t1", lines.get(2));
+        assertEquals("1.5\t\"998\"\t998", lines.get(999));
+        assertEquals("999\t\"x\"\t999", lines.get(1000));
+    }
+
+    /**
+     * Widens integer variables to numeric: the missing values written before
+     * the widening are written the same way as numerics, and the "null" zeros
+     * are re-formatted.
+     */
+    @Test
+    public void testIntegerWidenedToNumeric() throws IOException {
+        File csvFile = File.createTempFile("widening-", ".csv");
+        csvFile.deleteOnExit();
+        try (PrintWriter csv = new PrintWriter(csvFile)) {
+            csv.println("missing,zeros");
+            for (int i = 0; i < 10; i++) {
+                String value = i == 9 ? "0.5" : i % 2 == 0 ? "NA" : "" + i;
+                String zero = i == 9 ? "0.5" : i % 2 == 0 ? "null" : "" + i;
+                csv.println(value + "," + zero);
+            }
+        }
+
+        TabularDataIngest ingestResult;
+        try (BufferedInputStream stream = new BufferedInputStream(new FileInputStream(csvFile))) {
+            ingestResult = new CSVFileReader(new CSVFileReaderSpi(), ',').read(stream, false, null);
+        }
+
+        DataTable dataTable = ingestResult.getDataTable();
+        assertTrue(dataTable.getDataVariables().get(0).isIntervalContinuous());
+        assertTrue(dataTable.getDataVariables().get(1).isIntervalContinuous());
+
+        List<String> lines = Files.readAllLines(ingestResult.getTabDelimitedFile().toPath());
+        assertEquals(10, lines.size());
+        for (int i = 0; i < 9; i++) {
+            assertEquals(i % 2 == 0 ? "\t0.0" : i + "\t" + i, lines.get(i));
+        }
+        assertEquals("0.5\t0.5", lines.get(9));
+    }
+
+    /**
+     * Widens the type of a variable with more altered values ("NA", "null")
+     * than are kept in memory, so that the earlier ones are read back from
+     * the temp file they were spilled to.
+     */
+    @Test
+    public void testLateTypeWideningManyMissingValues() throws IOException {
+        File csvFile = File.createTempFile("widening-", ".csv");
+        csvFile.deleteOnExit();
+        try (PrintWriter csv = new PrintWriter(csvFile)) {
+            csv.println("strings,ints");
+            for (int i = 0; i < 5000; i++) {
+                String string = i == 4999 ? "x" : i % 3 == 0 ? "NA" : i % 3 == 1 ? "null" : "" + i;
+                csv.println(string + "," + (i % 2 == 0 ? "NA" : "" + i));
+            }
+        }
+
+        TabularDataIngest ingestResult;
+        try (BufferedInputStream stream = new BufferedInputStream(new FileInputStream(csvFile))) {
+            ingestResult = new CSVFileReader(new CSVFileReaderSpi(), ',').read(stream, false, null);
+        }
+
+        DataTable dataTable = ingestResult.getDataTable();
+        assertTrue(dataTable.getDataVariables().get(0).isTypeCharacter());
+        assertTrue(dataTable.getDataVariables().get(1).isTypeNumeric());
+
+        List<String> lines = Files.readAllLines(ingestResult.getTabDelimitedFile().toPath());
+        assertEquals(5000, lines.size());
+        for (int i = 0; i < 5000; i++) {
+            String string = i == 4999 ? "x" : i % 3 == 0 ? "NA" : i % 3 == 1 ? "null" : "" + i;
+            assertEquals("\"" + string + "\"\t" + (i % 2 == 0 ? "" : "" + i), lines.get(i));
+        }
+        // (no temp files left behind, other than the tab file)
+        File[] spillFiles = ingestResult.getTabDelimitedFile().getParentFile().listFiles(
+                (dir, name) -> name.startsWith("csv-values-"));
+        assertEquals(0, spillFiles.length);
+    }
+
     /**
      * Tests CSVFileReader with a CSV with one more column than header. Tests
      * CSVFileReader with a null CSV.
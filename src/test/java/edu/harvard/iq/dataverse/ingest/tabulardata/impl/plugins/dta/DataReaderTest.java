@@ -4,6 +4,7 @@ import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -47,4 +48,40 @@ public class DataReaderTest {
         reader.setLSF(true);
         assertThrows(IOException.class, () -> reader.readULong());
     }
+
+    @Test
+    public void testReadTypedValuesInFileByteOrder() throws IOException {
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            byte[] bytes = ByteBuffer.allocate(18).order(order)
+                    .putShort((short) -2).putInt(123456789).putDouble(-1.5).putFloat(0.25f).array();
+            BufferedInputStream stream = new BufferedInputStream(new ByteArrayInputStream(bytes));
+            DataReader reader = new DataReader(stream);
+            reader.setLSF(order == ByteOrder.LITTLE_ENDIAN);
+            assertEquals(-2, reader.readShort());
+            assertEquals(123456789, reader.readInt());
+            assertEquals(-1.5, reader.readDouble());
+            assertEquals(0.25f, reader.readFloat());
+            assertEquals(18, reader.getByteOffset());
+        }
+    }
+
+    @Test
+    public void testReadAcrossBufferBoundaries() throws IOException {
+        // a 5 byte string, then doubles; with an 8 byte buffer, every
+        // double is split between two buffer-fulls.
+        ByteBuffer bytes = ByteBuffer.allocate(5 + 8 * 10);
+        bytes.put(new byte[]{'a', 'b', 0, 0, 0});
+        for (int i = 0; i < 10; i++) {
+            bytes.putDouble(i + 0.5);
+        }
+        BufferedInputStream stream = new BufferedInputStream(new ByteArrayInputStream(bytes.array()));
+        DataReader reader = new DataReader(stream, 8);
+        reader.setLSF(false);
+        assertEquals("ab", reader.readString(5));
+        for (int i = 0; i < 9; i++) {
+            assertEquals(i + 0.5, reader.readDouble());
+        }
+        reader.skipBytes(8);
+        assertThrows(IOException.class, () -> reader.readInt());
+    }
 }
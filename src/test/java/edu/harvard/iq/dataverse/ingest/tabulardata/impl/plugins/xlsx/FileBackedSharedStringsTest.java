@@ -0,0 +1,61 @@
+package edu.harvard.iq.dataverse.ingest.tabulardata.impl.plugins.xlsx;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xml.sax.SAXException;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileBackedSharedStringsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final String SHARED_STRINGS_XML
+            = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"4\" uniqueCount=\"4\">"
+            + "<si><t>plain é</t></si>"
+            + "<si><r><t>rich</t></r><r><t xml:space=\"preserve\"> text</t></r><rPh sb=\"0\" eb=\"1\"><t>PH</t></rPh></si>"
+            + "<si><t>a_x0009_b</t></si>"
+            + "<si><t/></si>"
+            + "</sst>";
+
+    @Test
+    public void testGetString() throws Exception {
+        try (FileBackedSharedStrings sst = FileBackedSharedStrings.load(
+                new ByteArrayInputStream(SHARED_STRINGS_XML.getBytes(StandardCharsets.UTF_8)))) {
+            assertEquals(4, sst.getCount());
+            assertEquals("plain é", sst.getString(0));
+            assertEquals("rich text", sst.getString(1));
+            assertEquals("a\tb", sst.getString(2));
+            assertEquals("", sst.getString(3));
+            // (and again, from the cache:)
+            assertEquals("plain é", sst.getString(0));
+            assertThrows(IOException.class, () -> sst.getString(4));
+        }
+    }
+
+    @Test
+    public void testNoSharedStrings() throws Exception {
+        try (FileBackedSharedStrings sst = FileBackedSharedStrings.load(null)) {
+            assertEquals(0, sst.getCount());
+            assertThrows(IOException.class, () -> sst.getString(0));
+        }
+    }
+
+    @Test
+    public void testExternalEntitiesAreNotRead() throws Exception {
+        Path secret = Files.writeString(tempDir.resolve("secret.txt"), "secret");
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<!DOCTYPE sst [<!ENTITY xxe SYSTEM \"" + secret.toUri() + "\">]>"
+                + "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"1\" uniqueCount=\"1\">"
+                + "<si><t>&xxe;</t></si>"
+                + "</sst>";
+        assertThrows(SAXException.class, () -> FileBackedSharedStrings.load(
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))).close());
+    }
+}
@@ -0,0 +1,122 @@
+package edu.harvard.iq.dataverse.pidproviders;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.harvard.iq.dataverse.DataFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+public class PidPublicizerTest {
+
+    // (unbounded, like a shared executor: the publicizer keeps to its own limit)
+    private static final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterAll
+    public static void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFilesArePublicizedConcurrently() {
+        List<DataFile> files = makeFiles(40);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<DataFile> publicized = new ArrayList<>();
+
+        // 40 calls of 50 ms to a stand-in for the service, on 8 threads:
+        long start = System.currentTimeMillis();
+        List<DataFile> failed = new PidPublicizer("concurrent", executor, 8, 0, 0, 0).publicize(files, file -> () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            running.decrementAndGet();
+        }, publicized::add);
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue(failed.isEmpty());
+        assertEquals(40, publicized.size());
+        assertEquals(8, maxRunning.get());
+        assertTrue(elapsed < 40 * 50 / 2, "elapsed: " + elapsed);
+    }
+
+    @Test
+    public void testFailedCallsAreRetried() {
+        List<DataFile> files = makeFiles(10);
+        Map<Long, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        List<DataFile> publicized = new ArrayList<>();
+
+        List<DataFile> failed = new PidPublicizer("retries", executor, 4, 0, 2, 1).publicize(files, file -> () -> {
+            // every file fails twice before it succeeds:
+            if (attempts.computeIfAbsent(file.getId(), id -> new AtomicInteger()).incrementAndGet() < 3) {
+                throw new RuntimeException("Service unavailable");
+            }
+        }, publicized::add);
+
+        assertTrue(failed.isEmpty());
+        assertEquals(10, publicized.size());
+    }
+
+    @Test
+    public void testPublicizingStopsAtTheFirstFailure() {
+        List<DataFile> files = makeFiles(100);
+        List<DataFile> publicized = new ArrayList<>();
+
+        List<DataFile> failed = new PidPublicizer("failure", executor, 2, 0, 1, 1).publicize(files, file -> () -> {
+            if (file.getId() == 10L) {
+                throw new RuntimeException("Service unavailable");
+            }
+            // (so that the failure is seen before many more files are sent)
+            Thread.sleep(5);
+        }, publicized::add);
+
+        assertTrue(failed.stream().anyMatch(file -> file.getId() == 10L));
+        assertEquals(100, publicized.size() + failed.size());
+        // Only the few files already in flight may have been sent after the failure:
+        assertTrue(publicized.size() < 20, "publicized: " + publicized.size());
+    }
+
+    @Test
+    public void testFilesArePublicizedByCallerIfExecutorIsBusy() {
+        List<DataFile> files = makeFiles(10);
+        List<DataFile> publicized = new ArrayList<>();
+        Thread caller = Thread.currentThread();
+
+        List<DataFile> failed = new PidPublicizer("busy", command -> {
+            throw new RejectedExecutionException("busy");
+        }, 4, 0, 0, 0).publicize(files, file -> () -> {
+            assertEquals(caller, Thread.currentThread());
+        }, publicized::add);
+
+        assertTrue(failed.isEmpty());
+        assertEquals(files, publicized);
+    }
+
+    @Test
+    public void testRateLimit() throws InterruptedException {
+        PidPublicizer.RateLimiter rateLimiter = new PidPublicizer.RateLimiter(100);
+        long start = System.nanoTime();
+        for (int i = 0; i < 21; i++) {
+            rateLimiter.acquire();
+        }
+        // 21 requests at 100 per second take at least 200 ms:
+        assertTrue(System.nanoTime() - start >= 200_000_000L);
+    }
+
+    private static List<DataFile> makeFiles(int count) {
+        List<DataFile> files = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            DataFile file = new DataFile();
+            file.setId(id);
+            files.add(file);
+        }
+        return files;
+    }
+}
@@ -0,0 +1,162 @@
+package edu.harvard.iq.dataverse.rserve;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.rosuda.REngine.REXP;
+import org.rosuda.REngine.REXPString;
+import org.rosuda.REngine.Rserve.RConnection;
+import org.rosuda.REngine.Rserve.RserveException;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+/**
+ * The pool, against stand-ins for the Rserve connections.
+ */
+public class RservePoolTest {
+
+    private final AtomicInteger opened = new AtomicInteger();
+
+    private RConnection newConnection() throws RserveException {
+        opened.incrementAndGet();
+        RConnection connection = mock(RConnection.class);
+        when(connection.isConnected()).thenReturn(true);
+        REXP empty = new REXPString(new String[0]);
+        when(connection.eval(anyString())).thenReturn(empty);
+        when(connection.eval("getwd()")).thenReturn(new REXPString("/tmp"));
+        return connection;
+    }
+
+    @Test
+    public void testConnectionIsReused() throws Exception {
+        RservePool pool = new RservePool(this::newConnection, 2, 60000, 1000);
+
+        RConnection first;
+        try (RserveSession session = pool.borrow()) {
+            first = session.getConnection();
+            session.loadScript("functions.R", "f <- function() 1");
+        }
+        assertEquals(1, pool.getIdleCount());
+
+        try (RserveSession session = pool.borrow()) {
+            assertSame(first, session.getConnection());
+            // (already loaded in this R session:)
+            session.loadScript("functions.R", "f <- function() 1");
+        }
+        assertEquals(1, opened.get());
+        verify(first, times(1)).voidEval("f <- function() 1");
+        verify(first, never()).close();
+    }
+
+    @Test
+    public void testScriptOptionsAreKept() throws Exception {
+        RservePool pool = new RservePool(this::newConnection, 1, 60000, 1000);
+
+        try (RserveSession session = pool.borrow()) {
+            RConnection connection = session.getConnection();
+            session.loadScript("functions.R", "options(digits = 12)");
+
+            // (the options changed by the script are saved, to be restored
+            // by the reset, rather than undone)
+            InOrder inOrder = inOrder(connection);
+            inOrder.verify(connection).voidEval(".dataverse.options <- options()");
+            inOrder.verify(connection).voidEval(".dataverse.options.before <- options()");
+            inOrder.verify(connection).voidEval("options(digits = 12)");
+            inOrder.verify(connection).voidEval(contains(".dataverse.options[changed] <<- after[changed]"));
+        }
+    }
+
+    @Test
+    public void testPoolIsBounded() throws Exception {
+        RservePool pool = new RservePool(this::newConnection, 1, 60000, 100);
+
+        try (RserveSession session = pool.borrow()) {
+            assertThrows(RserveException.class, pool::borrow);
+        }
+        try (RserveSession session = pool.borrow()) {
+            assertNotNull(session.getConnection());
+        }
+        assertEquals(1, opened.get());
+    }
+
+    @Test
+    public void testBrokenConnectionIsReplaced() throws Exception {
+        RservePool pool = new RservePool(this::newConnection, 1, 60000, 1000);
+
+        RConnection first;
+        try (RserveSession session = pool.borrow()) {
+            first = session.getConnection();
+        }
+        when(first.isConnected()).thenReturn(false);
+
+        try (RserveSession session = pool.borrow()) {
+            assertNotSame(first, session.getConnection());
+        }
+        assertEquals(2, opened.get());
+        verify(first).close();
+    }
+
+    @Test
+    public void testInvalidatedConnectionIsClosed() throws Exception {
+        RservePool pool = new RservePool(this::newConnection, 1, 60000, 1000);
+
+        RConnection first;
+        try (RserveSession session = pool.borrow()) {
+            first = session.getConnection();
+            session.invalidate();
+        }
+        assertEquals(0, pool.getIdleCount());
+        verify(first).close();
+    }
+
+    @Test
+    public void testIdleConnectionIsClosed() throws Exception {
+        RservePool pool = new RservePool(this::newConnection, 1, 0, 1000);
+
+        RConnection first;
+        try (RserveSession session = pool.borrow()) {
+            first = session.getConnection();
+        }
+        try (RserveSession session = pool.borrow()) {
+            assertNotSame(first, session.getConnection());
+        }
+        verify(first).close();
+    }
+
+    @Test
+    public void testIdleConnectionIsEvicted() throws Exception {
+        RservePool pool = new RservePool(this::newConnection, 1, 0, 1000);
+
+        RConnection first;
+        try (RserveSession session = pool.borrow()) {
+            first = session.getConnection();
+        }
+        assertEquals(1, pool.getIdleCount());
+        pool.evictIdle();
+        assertEquals(0, pool.getIdleCount());
+        verify(first).close();
+    }
+
+    @Test
+    public void testClosedPoolClosesConnections() throws Exception {
+        RservePool pool = new RservePool(this::newConnection, 2, 60000, 1000);
+
+        try (RserveSession inUse = pool.borrow()) {
+            RConnection idle;
+            try (RserveSession session = pool.borrow()) {
+                idle = session.getConnection();
+            }
+            assertEquals(1, pool.getIdleCount());
+            pool.close();
+            assertEquals(0, pool.getIdleCount());
+            verify(idle).close();
+            // (the connection in use is closed when it is returned)
+            verify(inUse.getConnection(), never()).close();
+            inUse.close();
+            verify(inUse.getConnection()).close();
+        }
+        assertEquals(0, pool.getIdleCount());
+    }
+}
@@ -4,10 +4,14 @@ import edu.harvard.iq.dataverse.*;
 import edu.harvard.iq.dataverse.license.License;
 import edu.harvard.iq.dataverse.util.FileUtil.FileCitationExtension;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
@@ -17,6 +21,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -441,4 +446,39 @@ public class FileUtilTest {
         assertEquals("withcomma", FileUtil.sanitizeFileName("with,comma"));
         assertEquals("with.txt", FileUtil.sanitizeFileName("with,\\?:;,.txt"));
     }
+
+    @Test
+    public void testCalculateChecksumReusesBuffers() {
+        byte[] data = new byte[200 * 1024 + 17];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 251);
+        }
+        // Alternating algorithms and inputs on the same thread, which reuses
+        // the same buffer and digests:
+        for (DataFile.ChecksumType checksumType : new DataFile.ChecksumType[]{DataFile.ChecksumType.MD5, DataFile.ChecksumType.SHA1, DataFile.ChecksumType.MD5}) {
+            String expected = FileUtil.calculateChecksum(data, checksumType);
+            assertEquals(expected, FileUtil.calculateChecksum(new ByteArrayInputStream(data), checksumType));
+            assertEquals(expected, FileUtil.calculateChecksum(Channels.newChannel(new ByteArrayInputStream(data)), checksumType));
+        }
+        assertEquals("d41d8cd98f00b204e9800998ecf8427e", FileUtil.calculateChecksum(new ByteArrayInputStream(new byte[0]), DataFile.ChecksumType.MD5));
+    }
+
+    @Test
+    public void testSaveInputStreamWithChecksum() throws IOException {
+        byte[] data = new byte[200 * 1024 + 17];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 251);
+        }
+        Path target = Files.createTempFile("unzipped", ".bin");
+        try {
+            for (DataFile.ChecksumType checksumType : new DataFile.ChecksumType[]{DataFile.ChecksumType.SHA1, DataFile.ChecksumType.MD5}) {
+                ByteArrayInputStream in = new ByteArrayInputStream(data);
+                String checksum = FileUtil.saveInputStreamWithChecksum(in, target, checksumType);
+                assertEquals(FileUtil.calculateChecksum(data, checksumType), checksum);
+                assertArrayEquals(data, Files.readAllBytes(target));
+            }
+        } finally {
+            Files.delete(target);
+        }
+    }
 }
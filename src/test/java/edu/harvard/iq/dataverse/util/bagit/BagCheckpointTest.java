@@ -0,0 +1,89 @@
+package edu.harvard.iq.dataverse.util.bagit;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BagCheckpointTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    private BagCheckpoint.Entry write(ZipArchiveOutputStream zip, CountingOutputStream counter, String name, byte[] content) throws IOException {
+        ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        entry.setMethod(ZipEntry.DEFLATED);
+        long offset = counter.getByteCount();
+        zip.putArchiveEntry(entry);
+        zip.write(content);
+        zip.closeArchiveEntry();
+        zip.flush();
+        return new BagCheckpoint.Entry(name, offset, entry.getCrc(), entry.getCompressedSize(), entry.getSize(), "hash-of-" + name);
+    }
+
+    @Test
+    public void testEntriesOfPartialZipAreCopied() throws IOException {
+        File partial = tempDir.resolve("bag.zip.partial").toFile();
+        File checkpointFile = tempDir.resolve("bag.zip.checkpoint").toFile();
+        byte[] first = content(1000);
+        byte[] second = content(300000);
+
+        // a zip interrupted before its central directory was written:
+        try (OutputStream out = new FileOutputStream(partial);
+                BagCheckpoint checkpoint = new BagCheckpoint(checkpointFile)) {
+            CountingOutputStream counter = new CountingOutputStream(out);
+            ZipArchiveOutputStream zip = new ZipArchiveOutputStream(counter);
+            zip.putArchiveEntry(new ZipArchiveEntry("bag/data/"));
+            zip.closeArchiveEntry();
+            checkpoint.record(write(zip, counter, "bag/data/first.txt", first));
+            checkpoint.record(write(zip, counter, "bag/data/ünïcode second.bin", second));
+            write(zip, counter, "bag/data/third.txt", content(10));
+        }
+        Files.writeString(checkpointFile.toPath(), "123\tincomplete", java.nio.file.StandardOpenOption.APPEND);
+
+        Map<String, BagCheckpoint.Entry> entries = BagCheckpoint.read(checkpointFile);
+        assertEquals(2, entries.size());
+        assertEquals("hash-of-bag/data/first.txt", entries.get("bag/data/first.txt").getChecksum());
+
+        File resumed = tempDir.resolve("bag.zip").toFile();
+        try (RandomAccessFile previous = new RandomAccessFile(partial, "r");
+                ZipArchiveOutputStream zip = new ZipArchiveOutputStream(new FileOutputStream(resumed))) {
+            for (BagCheckpoint.Entry entry : entries.values()) {
+                assertTrue(BagCheckpoint.copyEntry(previous, entry, zip));
+            }
+            // an entry that isn't where the checkpoint says:
+            BagCheckpoint.Entry moved = entries.get("bag/data/first.txt").withOffset(3);
+            assertFalse(BagCheckpoint.copyEntry(previous, moved, zip));
+        }
+
+        try (ZipFile zipFile = new ZipFile(resumed)) {
+            try (InputStream in = zipFile.getInputStream(zipFile.getEntry("bag/data/first.txt"))) {
+                assertArrayEquals(first, in.readAllBytes());
+            }
+            try (InputStream in = zipFile.getInputStream(zipFile.getEntry("bag/data/ünïcode second.bin"))) {
+                assertArrayEquals(second, in.readAllBytes());
+            }
+            assertNull(zipFile.getEntry("bag/data/third.txt"));
+        }
+    }
+}
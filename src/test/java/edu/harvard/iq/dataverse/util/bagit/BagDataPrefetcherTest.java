@@ -0,0 +1,86 @@
+package edu.harvard.iq.dataverse.util.bagit;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.compress.parallel.InputStreamSupplier;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BagDataPrefetcherTest {
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    @Test
+    public void testFilesAreReadInOrder() throws IOException {
+        List<byte[]> contents = List.of(content(0), content(10), content(BagDataPrefetcher.BLOCK_SIZE),
+                content(3 * BagDataPrefetcher.BLOCK_SIZE + 7), content(100));
+        List<InputStreamSupplier> sources = new ArrayList<>();
+        for (byte[] content : contents) {
+            sources.add(() -> new ByteArrayInputStream(content));
+        }
+        try (BagDataPrefetcher prefetcher = new BagDataPrefetcher(sources, 2, BagDataPrefetcher.BLOCK_SIZE)) {
+            for (int i = 0; i < contents.size(); i++) {
+                try (InputStream in = prefetcher.open(i)) {
+                    assertArrayEquals(contents.get(i), in.readAllBytes());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRetrievalIsBounded() throws Exception {
+        // a large file, retrieved ahead while the first one isn't read yet:
+        AtomicInteger bytesRetrieved = new AtomicInteger();
+        InputStreamSupplier large = () -> new ByteArrayInputStream(content(20 * BagDataPrefetcher.BLOCK_SIZE)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    bytesRetrieved.addAndGet(n);
+                }
+                return n;
+            }
+        };
+        List<InputStreamSupplier> sources = List.of(() -> new ByteArrayInputStream(content(10)), large);
+        try (BagDataPrefetcher prefetcher = new BagDataPrefetcher(sources, 2, 4 * BagDataPrefetcher.BLOCK_SIZE)) {
+            InputStream first = prefetcher.open(0);
+            Thread.sleep(500);
+            // (the blocks queued, plus the one being filled)
+            assertTrue(bytesRetrieved.get() <= 3 * BagDataPrefetcher.BLOCK_SIZE, "retrieved: " + bytesRetrieved.get());
+            first.readAllBytes();
+            assertEquals(20 * BagDataPrefetcher.BLOCK_SIZE, prefetcher.open(1).readAllBytes().length);
+        }
+    }
+
+    @Test
+    public void testFailedRetrieval() throws IOException {
+        List<InputStreamSupplier> sources = List.of(() -> null, () -> new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("connection reset");
+            }
+        });
+        try (BagDataPrefetcher prefetcher = new BagDataPrefetcher(sources, 2, BagDataPrefetcher.BLOCK_SIZE)) {
+            assertThrows(IOException.class, () -> prefetcher.open(0).readAllBytes());
+            IOException ex = assertThrows(IOException.class, () -> prefetcher.open(1).readAllBytes());
+            assertEquals("connection reset", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testFilesMustBeOpenedInOrder() {
+        List<InputStreamSupplier> sources = List.of(() -> new ByteArrayInputStream(new byte[1]), () -> new ByteArrayInputStream(new byte[1]));
+        try (BagDataPrefetcher prefetcher = new BagDataPrefetcher(sources, 1, BagDataPrefetcher.BLOCK_SIZE)) {
+            assertThrows(IllegalStateException.class, () -> prefetcher.open(1));
+        }
+    }
+}
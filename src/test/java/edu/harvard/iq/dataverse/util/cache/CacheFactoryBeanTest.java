@@ -1,6 +1,5 @@
 package edu.harvard.iq.dataverse.util.cache;
 
-import com.hazelcast.cluster.Address;
 import com.hazelcast.config.Config;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
@@ -31,10 +30,15 @@ import javax.cache.integration.CompletionListener;
 import javax.cache.processor.EntryProcessor;
 import javax.cache.processor.EntryProcessorException;
 import javax.cache.processor.EntryProcessorResult;
+import javax.cache.processor.MutableEntry;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.doReturn;
@@ -106,8 +110,7 @@ public class CacheFactoryBeanTest {
             }
 
             // Clear the static data, so it can be reloaded with the new mocked data
-            RateLimitUtil.rateLimitMap.clear();
-            RateLimitUtil.rateLimits.clear();
+            RateLimitUtil.reset();
         }
 
         // Reset to default auth user
@@ -191,6 +194,27 @@ public class CacheFactoryBeanTest {
         assertEquals(200, cnt);
     }
 
+    @Test
+    public void testConcurrentCallsAreNotOverAdmitted() throws InterruptedException {
+        Command action = new ListDataverseContentCommand(null,null);
+        authUser.setRateLimitTier(2); // 120 calls per hour
+        authUser.setUserIdentifier("concurrentUser");
+        AtomicInteger admitted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; i++) {
+            executor.submit(() -> {
+                for (int cnt = 0; cnt < 100; cnt++) {
+                    if (cache.checkRate(authUser, action)) {
+                        admitted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        assertEquals(120, admitted.get());
+    }
+
     private Config getConfig() {
         return getConfig(null);
     }
@@ -208,22 +232,20 @@ public class CacheFactoryBeanTest {
         return config;
     }
 
-    // convert Hazelcast IMap<String,String> to JCache Cache<Object, Object>
-    private class TestCache implements Cache<String, String>{
+    // convert Hazelcast IMap<String,Long> to JCache Cache<Object, Object>
+    private class TestCache implements Cache<String, Long>{
         HazelcastInstance hzInstance;
-        IMap<String, String> cache;
+        IMap<String, Long> cache;
         TestCache(Config config) {
             hzInstance = Hazelcast.newHazelcastInstance(config);
             cache = hzInstance.getMap("test");
-            Address address = hzInstance.getCluster().getLocalMember().getAddress();
-            cache.put("memberAddress", String.format("%s:%d", address.getHost(), address.getPort()));
         }
         @Override
-        public String get(String s) {
+        public Long get(String s) {
             return cache.get(s);
         }
         @Override
-        public Map<String, String> getAll(Set<? extends String> set) {
+        public Map<String, Long> getAll(Set<? extends String> set) {
             return null;
         }
         @Override
@@ -235,19 +257,19 @@ public class CacheFactoryBeanTest {
 
         }
         @Override
-        public void put(String s, String s2) {
+        public void put(String s, Long s2) {
             cache.put(s,s2);
         }
         @Override
-        public String getAndPut(String s, String s2) {
+        public Long getAndPut(String s, Long s2) {
             return null;
         }
         @Override
-        public void putAll(Map<? extends String, ? extends String> map) {
+        public void putAll(Map<? extends String, ? extends Long> map) {
 
         }
         @Override
-        public boolean putIfAbsent(String s, String s2) {
+        public boolean putIfAbsent(String s, Long s2) {
             return false;
         }
         @Override
@@ -255,23 +277,23 @@ public class CacheFactoryBeanTest {
             return false;
         }
         @Override
-        public boolean remove(String s, String s2) {
+        public boolean remove(String s, Long s2) {
             return false;
         }
         @Override
-        public String getAndRemove(String s) {
+        public Long getAndRemove(String s) {
             return null;
         }
         @Override
-        public boolean replace(String s, String s2, String v1) {
+        public boolean replace(String s, Long s2, Long v1) {
             return false;
         }
         @Override
-        public boolean replace(String s, String s2) {
+        public boolean replace(String s, Long s2) {
             return false;
         }
         @Override
-        public String getAndReplace(String s, String s2) {
+        public Long getAndReplace(String s, Long s2) {
             return null;
         }
         @Override
@@ -287,15 +309,46 @@ public class CacheFactoryBeanTest {
             cache.clear();
         }
         @Override
-        public <C extends Configuration<String, String>> C getConfiguration(Class<C> aClass) {
+        public <C extends Configuration<String, Long>> C getConfiguration(Class<C> aClass) {
             return null;
         }
         @Override
-        public <T> T invoke(String s, EntryProcessor<String, String, T> entryProcessor, Object... objects) throws EntryProcessorException {
-            return null;
+        public <T> T invoke(String s, EntryProcessor<String, Long, T> entryProcessor, Object... objects) throws EntryProcessorException {
+            // Atomic, like the JCache implementation of Hazelcast
+            cache.lock(s);
+            try {
+                return entryProcessor.process(new MutableEntry<>() {
+                    @Override
+                    public boolean exists() {
+                        return cache.containsKey(s);
+                    }
+                    @Override
+                    public void remove() {
+                        cache.remove(s);
+                    }
+                    @Override
+                    public void setValue(Long value) {
+                        cache.put(s, value);
+                    }
+                    @Override
+                    public String getKey() {
+                        return s;
+                    }
+                    @Override
+                    public Long getValue() {
+                        return cache.get(s);
+                    }
+                    @Override
+                    public <U> U unwrap(Class<U> aClass) {
+                        return null;
+                    }
+                }, objects);
+            } finally {
+                cache.unlock(s);
+            }
         }
         @Override
-        public <T> Map<String, EntryProcessorResult<T>> invokeAll(Set<? extends String> set, EntryProcessor<String, String, T> entryProcessor, Object... objects) {
+        public <T> Map<String, EntryProcessorResult<T>> invokeAll(Set<? extends String> set, EntryProcessor<String, Long, T> entryProcessor, Object... objects) {
             return null;
         }
         @Override
@@ -319,15 +372,15 @@ public class CacheFactoryBeanTest {
             return null;
         }
         @Override
-        public void registerCacheEntryListener(CacheEntryListenerConfiguration<String, String> cacheEntryListenerConfiguration) {
+        public void registerCacheEntryListener(CacheEntryListenerConfiguration<String, Long> cacheEntryListenerConfiguration) {
 
         }
         @Override
-        public void deregisterCacheEntryListener(CacheEntryListenerConfiguration<String, String> cacheEntryListenerConfiguration) {
+        public void deregisterCacheEntryListener(CacheEntryListenerConfiguration<String, Long> cacheEntryListenerConfiguration) {
 
         }
         @Override
-        public Iterator<Cache.Entry<String, String>> iterator() {
+        public Iterator<Cache.Entry<String, Long>> iterator() {
             return null;
         }
     }
@@ -78,8 +78,7 @@ public class RateLimitUtilTest {
     }
     @BeforeEach
     public void resetRateLimitUtilSettings() {
-        RateLimitUtil.rateLimitMap.clear();
-        RateLimitUtil.rateLimits.clear();
+        RateLimitUtil.reset();
     }
     @ParameterizedTest
     @CsvSource(value = {
@@ -143,10 +142,21 @@ public class RateLimitUtilTest {
         authUser.setRateLimitTier(99);
         assertEquals(RateLimitUtil.NO_LIMIT, RateLimitUtil.getCapacity(config, authUser, "def"));
     }
+    @Test
+    public void testSettingsReadOnce() {
+        SystemConfig config = mock(SystemConfig.class);
+        resetRateLimitUtil(config, false);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(RateLimitUtil.NO_LIMIT, RateLimitUtil.getCapacityByTierAndAction(config, 0, "GetPrivateUrlCommand"));
+        }
+        // not read again on every call, although there are no rate limits
+        verify(config, times(1)).getRateLimitsJson();
+        verify(config, times(1)).getRateLimitingDefaultCapacityTiers();
+    }
     private void resetRateLimitUtil(SystemConfig config, boolean enable) {
         doReturn(enable ? getJsonSetting() : "").when(config).getRateLimitsJson();
         doReturn(enable ? "100,200" : "").when(config).getRateLimitingDefaultCapacityTiers();
-        RateLimitUtil.rateLimitMap.clear();
-        RateLimitUtil.rateLimits.clear();
+        RateLimitUtil.reset();
     }
 }
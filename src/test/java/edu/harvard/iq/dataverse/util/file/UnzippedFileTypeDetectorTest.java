@@ -0,0 +1,83 @@
+package edu.harvard.iq.dataverse.util.file;
+
+import edu.harvard.iq.dataverse.DataFile;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UnzippedFileTypeDetectorTest {
+
+    private static final UnzippedFileTypeDetector.Detector SLOW_DETECTOR = (file, fileName) -> {
+        Thread.sleep(5);
+        if (fileName.endsWith(".bad")) {
+            throw new IOException("unreadable");
+        }
+        return fileName.endsWith(".txt") ? "text/plain" : null;
+    };
+
+    private static List<DataFile> detectAll(UnzippedFileTypeDetector typeDetector) throws InterruptedException {
+        List<DataFile> dataFiles = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            DataFile dataFile = new DataFile("application/octet-stream");
+            String fileName = "file" + i + (i % 3 == 0 ? ".txt" : i % 3 == 1 ? ".bin" : ".bad");
+            typeDetector.detect(dataFile, new File(fileName), fileName);
+            dataFiles.add(dataFile);
+        }
+        typeDetector.await();
+        assertTrue(typeDetector.getDetectionNanos() > 0);
+        return dataFiles;
+    }
+
+    private static void assertDetected(List<DataFile> dataFiles) {
+        for (int i = 0; i < 30; i++) {
+            assertEquals(i % 3 == 0 ? "text/plain" : "application/octet-stream", dataFiles.get(i).getContentType());
+        }
+    }
+
+    @Test
+    public void testDetect() throws InterruptedException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        UnzippedFileTypeDetector.Detector detector = (file, fileName) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                return SLOW_DETECTOR.detect(file, fileName);
+            } finally {
+                running.decrementAndGet();
+            }
+        };
+
+        // (an unbounded executor, shared: the detector keeps to its own limit)
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            List<DataFile> dataFiles;
+            try (UnzippedFileTypeDetector typeDetector = new UnzippedFileTypeDetector(3, detector, executor)) {
+                dataFiles = detectAll(typeDetector);
+            }
+            assertTrue(maxRunning.get() <= 3);
+            assertDetected(dataFiles);
+            assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDetectWithBusyExecutor() throws InterruptedException {
+        try (UnzippedFileTypeDetector typeDetector = new UnzippedFileTypeDetector(3, SLOW_DETECTOR, command -> {
+            throw new RejectedExecutionException("busy");
+        })) {
+            assertDetected(detectAll(typeDetector));
+        }
+        try (UnzippedFileTypeDetector typeDetector = new UnzippedFileTypeDetector(3, SLOW_DETECTOR, null)) {
+            assertDetected(detectAll(typeDetector));
+        }
+    }
+}